@@ -0,0 +1,100 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import ch.qos.logback.classic.Level;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import ru.yandex.practicum.filmorate.event.DomainEventHandler;
+import ru.yandex.practicum.filmorate.event.EventPipeline;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.film.FilmStorage;
+import ru.yandex.practicum.filmorate.storage.user.UserStorage;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.SplittableRandom;
+
+/**
+ * Детерминированное наполнение хранилищ для бенчмарков: одинаковый seed даёт одинаковые данные.
+ */
+public final class BenchmarkData {
+    public static final long SEED = 42;
+    public static final int LIKES_PER_FILM = 10;
+    public static final int FRIENDS_PER_USER = 10;
+
+    static {
+        // Без Spring Boot logback пишет DEBUG в консоль, а хранилища логируют каждое создание
+        ((ch.qos.logback.classic.Logger) LoggerFactory.getLogger(Logger.ROOT_LOGGER_NAME)).setLevel(Level.WARN);
+    }
+
+    private BenchmarkData() {
+    }
+
+    /**
+     * Очередь событий с настройками по умолчанию из application.properties.
+     */
+    public static EventPipeline events(DomainEventHandler... handlers) {
+        return events(false, handlers);
+    }
+
+    public static EventPipeline events(boolean readYourWrites, DomainEventHandler... handlers) {
+        return new EventPipeline(List.of(handlers), 8192, 256, Duration.ofMillis(100), readYourWrites,
+                Duration.ofSeconds(1));
+    }
+
+    public static void fillUsers(UserStorage storage, int count) {
+        for (int i = 0; i < count; i++) {
+            storage.create(user(i));
+        }
+    }
+
+    public static void fillFilms(FilmStorage storage, int count) {
+        for (int i = 0; i < count; i++) {
+            storage.create(film(i));
+        }
+    }
+
+    /**
+     * Каждый пользователь добавляет FRIENDS_PER_USER / 2 друзей, в среднем получается FRIENDS_PER_USER связей.
+     */
+    public static void fillFriends(UserStorage storage, int users) {
+        SplittableRandom random = new SplittableRandom(SEED);
+        for (int id = 1; id <= users; id++) {
+            for (int i = 0; i < FRIENDS_PER_USER / 2; i++) {
+                storage.addFriend(id, 1 + random.nextInt(users));
+            }
+        }
+    }
+
+    /**
+     * Лайки распределены неравномерно: квадрат равномерной величины смещает их к фильмам с малыми id.
+     */
+    public static void fillLikes(FilmStorage storage, int films, int users) {
+        SplittableRandom random = new SplittableRandom(SEED + 1);
+        long total = (long) films * LIKES_PER_FILM;
+        for (long i = 0; i < total; i++) {
+            double skew = random.nextDouble();
+            int filmId = 1 + (int) (skew * skew * films);
+            storage.addLike(filmId, 1 + random.nextInt(users));
+        }
+    }
+
+    public static Film film(int index) {
+        Film film = new Film();
+        film.setName("Film " + index);
+        film.setDescription("Description of film " + index);
+        film.setReleaseDate(LocalDate.of(1900, 1, 1).plusDays(index % 40_000));
+        film.setDuration(60 + index % 120);
+        return film;
+    }
+
+    public static User user(int index) {
+        User user = new User();
+        user.setEmail("user" + index + "@mail.ru");
+        user.setLogin("user" + index);
+        user.setName("User " + index);
+        user.setBirthday(LocalDate.of(1950, 1, 1).plusDays(index % 20_000));
+        return user;
+    }
+}
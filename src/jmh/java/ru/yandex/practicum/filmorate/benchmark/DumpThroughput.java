@@ -0,0 +1,109 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import ru.yandex.practicum.filmorate.dump.DumpReport;
+import ru.yandex.practicum.filmorate.dump.DumpService;
+import ru.yandex.practicum.filmorate.event.EventPipeline;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.service.FilmRecommendationService;
+import ru.yandex.practicum.filmorate.service.RecommendationService;
+import ru.yandex.practicum.filmorate.storage.film.InMemoryFilmStorage;
+import ru.yandex.practicum.filmorate.storage.user.InMemoryUserStorage;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * Размер и скорость двоичного дампа против выгрузки тех же данных в JSON страницами, как GET /films и /users
+ * с пагинацией, и загрузка дампа обратно в пустые хранилища.
+ * <p>
+ * Запуск: {@code mvn -Pbenchmark test-compile exec:exec
+ * -Dbenchmark.main=ru.yandex.practicum.filmorate.benchmark.DumpThroughput -Dbenchmark.args="1000000"}
+ * — число фильмов; пользователей в десять раз меньше.
+ */
+public class DumpThroughput {
+    public static void main(String[] args) throws IOException {
+        int filmCount = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        int userCount = Math.max(1, filmCount / 10);
+        InMemoryFilmStorage films = new InMemoryFilmStorage();
+        InMemoryUserStorage users = new InMemoryUserStorage();
+        BenchmarkData.fillUsers(users, userCount);
+        BenchmarkData.fillFriends(users, userCount);
+        BenchmarkData.fillFilms(films, filmCount);
+        BenchmarkData.fillLikes(films, filmCount, userCount);
+        ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules();
+        Path directory = Files.createTempDirectory("dump-throughput");
+        Path dumpFile = directory.resolve("catalog.dump");
+        Path jsonFile = directory.resolve("catalog.json");
+
+        // Первый круг — прогрев JIT, печатается второй
+        for (int round = 0; round < 2; round++) {
+            boolean print = round == 1;
+            DumpService service = new DumpService(films, users, events(films, users), 1000, directory.toString(),
+                    Duration.ZERO);
+            long start = System.nanoTime();
+            DumpReport exported;
+            try (FileChannel channel = FileChannel.open(dumpFile, StandardOpenOption.CREATE,
+                    StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                exported = service.export(channel);
+            }
+            long dumpNanos = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            try (OutputStream out = Files.newOutputStream(jsonFile);
+                 JsonGenerator json = objectMapper.createGenerator(out)) {
+                json.writeStartArray();
+                Integer after = null;
+                for (List<User> page = users.getPage(null, 1000); !page.isEmpty();
+                     page = users.getPage(after, 1000)) {
+                    for (User user : page) {
+                        objectMapper.writeValue(json, user);
+                        after = user.getId();
+                    }
+                }
+                after = null;
+                for (List<Film> page = films.getPage(null, 1000); !page.isEmpty();
+                     page = films.getPage(after, 1000)) {
+                    for (Film film : page) {
+                        objectMapper.writeValue(json, film);
+                        after = film.getId();
+                    }
+                }
+                json.writeEndArray();
+            }
+            long jsonNanos = System.nanoTime() - start;
+
+            InMemoryFilmStorage targetFilms = new InMemoryFilmStorage();
+            InMemoryUserStorage targetUsers = new InMemoryUserStorage();
+            DumpService target = new DumpService(targetFilms, targetUsers, events(targetFilms, targetUsers), 1000,
+                    directory.toString(), Duration.ZERO);
+            DumpReport imported;
+            try (FileChannel channel = FileChannel.open(dumpFile, StandardOpenOption.READ)) {
+                imported = target.importFrom(channel);
+            }
+            if (print) {
+                System.out.printf("%-12s %14s %10s%n", "", "bytes", "ms");
+                System.out.printf("%-12s %14d %10d%n", "dump export", exported.bytes(), dumpNanos / 1_000_000);
+                System.out.printf("%-12s %14d %10d%n", "json export", Files.size(jsonFile), jsonNanos / 1_000_000);
+                System.out.printf("%-12s %14d %10d%n", "dump import", imported.bytes(), imported.durationMs());
+                System.out.println(exported);
+            }
+        }
+        Files.delete(dumpFile);
+        Files.delete(jsonFile);
+        Files.delete(directory);
+    }
+
+    private static EventPipeline events(InMemoryFilmStorage films, InMemoryUserStorage users) {
+        return BenchmarkData.events(new RecommendationService(users, 1, Duration.ofMillis(40), 100, 100),
+                new FilmRecommendationService(films, users, 16, 4, 20, 100, Duration.ZERO));
+    }
+}
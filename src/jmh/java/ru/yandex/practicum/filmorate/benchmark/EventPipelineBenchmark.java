@@ -0,0 +1,99 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import ru.yandex.practicum.filmorate.event.EventPipeline;
+import ru.yandex.practicum.filmorate.service.FilmRecommendationService;
+import ru.yandex.practicum.filmorate.service.FilmService;
+import ru.yandex.practicum.filmorate.service.RecommendationService;
+import ru.yandex.practicum.filmorate.service.UserService;
+import ru.yandex.practicum.filmorate.storage.film.InMemoryFilmStorage;
+import ru.yandex.practicum.filmorate.storage.user.InMemoryUserStorage;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Время лайка и дружбы в потоке запроса. inline — как до очереди событий: кэш рекомендаций друзей сбрасывается
+ * сразу, лайк встаёт в очередь рекомендаций фильмов; async — запрос только публикует событие;
+ * read-your-writes — запрос ждёт, пока событие применят.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx4g"})
+public class EventPipelineBenchmark {
+    @Param({"100000"})
+    private int size;
+
+    @Param({"inline", "async", "read-your-writes"})
+    private String mode;
+
+    private InMemoryFilmStorage filmStorage;
+    private InMemoryUserStorage userStorage;
+    private RecommendationService recommendations;
+    private FilmRecommendationService filmRecommendations;
+    private EventPipeline events;
+    private FilmService filmService;
+    private UserService userService;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        filmStorage = new InMemoryFilmStorage();
+        userStorage = new InMemoryUserStorage();
+        BenchmarkData.fillUsers(userStorage, size);
+        BenchmarkData.fillFriends(userStorage, size);
+        BenchmarkData.fillFilms(filmStorage, size);
+        BenchmarkData.fillLikes(filmStorage, size, size);
+        recommendations = new RecommendationService(userStorage, 1, Duration.ofMillis(40), 100, 10_000);
+        filmRecommendations = new FilmRecommendationService(filmStorage, userStorage, 16, 4, 20, 100, Duration.ZERO);
+        filmRecommendations.refresh();
+        events = BenchmarkData.events("read-your-writes".equals(mode), recommendations, filmRecommendations);
+        filmService = new FilmService(filmStorage, userStorage, events);
+        userService = new UserService(userStorage, recommendations, filmRecommendations, events);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws InterruptedException {
+        events.close();
+        recommendations.close();
+    }
+
+    @Benchmark
+    public long addFriend(ThreadRandom random) {
+        int userId = 1 + random.next(size);
+        int friendId = 1 + (userId + random.next(size - 1)) % size;
+        if ("inline".equals(mode)) {
+            userStorage.addFriend(userId, friendId);
+            recommendations.invalidate(userId, friendId);
+            return 0;
+        }
+        return userService.addFriend(userId, friendId);
+    }
+
+    @Benchmark
+    public long addLike(ThreadRandom random) {
+        int filmId = 1 + random.next(size);
+        int userId = 1 + random.next(size);
+        if ("inline".equals(mode)) {
+            userStorage.getById(userId);
+            filmStorage.addLike(filmId, userId);
+            filmRecommendations.likeChanged(filmId, userId);
+            return 0;
+        }
+        return filmService.addLike(filmId, userId);
+    }
+}
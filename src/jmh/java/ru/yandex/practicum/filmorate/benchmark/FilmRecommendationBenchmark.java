@@ -0,0 +1,75 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.service.FilmRecommendationService;
+import ru.yandex.practicum.filmorate.storage.film.InMemoryFilmStorage;
+import ru.yandex.practicum.filmorate.storage.user.InMemoryUserStorage;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Рекомендации фильмов по индексу MinHash/LSH: запрос к готовому индексу (recommend) и применение
+ * одного лайка или его снятия в хранилище с пересчётом подписи (likeAndRefresh). Лайки — как в остальных бенчмарках, LIKES_PER_FILM
+ * на фильм со смещением к малым id.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx4g"})
+public class FilmRecommendationBenchmark {
+    @Param({"100000"})
+    private int films;
+
+    @Param({"10000"})
+    private int users;
+
+    private InMemoryFilmStorage filmStorage;
+    private FilmRecommendationService service;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        filmStorage = new InMemoryFilmStorage();
+        InMemoryUserStorage userStorage = new InMemoryUserStorage();
+        BenchmarkData.fillUsers(userStorage, users);
+        BenchmarkData.fillFilms(filmStorage, films);
+        BenchmarkData.fillLikes(filmStorage, films, users);
+        service = new FilmRecommendationService(filmStorage, userStorage, 16, 4, 20, 100, Duration.ZERO);
+        service.refresh();
+    }
+
+    @Benchmark
+    public List<Film> recommend() {
+        next = next % users + 1;
+        return service.getRecommendations(next, 10);
+    }
+
+    @Benchmark
+    public void likeAndRefresh() {
+        next = next % users + 1;
+        int filmId = 1 + next % films;
+        if (next % 2 == 0) {
+            filmStorage.addLike(filmId, next);
+        } else {
+            filmStorage.removeLike(filmId, next);
+        }
+        service.likeChanged(filmId, next);
+        service.refresh();
+    }
+}
@@ -0,0 +1,70 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.service.FilmRecommendationService;
+import ru.yandex.practicum.filmorate.service.FilmService;
+import ru.yandex.practicum.filmorate.storage.film.InMemoryFilmStorage;
+import ru.yandex.practicum.filmorate.storage.user.InMemoryUserStorage;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx8g"})
+public class FilmServiceBenchmark {
+    @Param({"10000", "100000", "1000000", "10000000"})
+    private int size;
+
+    private FilmService filmService;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        InMemoryFilmStorage filmStorage = new InMemoryFilmStorage();
+        InMemoryUserStorage userStorage = new InMemoryUserStorage();
+        BenchmarkData.fillUsers(userStorage, size);
+        BenchmarkData.fillFilms(filmStorage, size);
+        BenchmarkData.fillLikes(filmStorage, size, size);
+        filmService = new FilmService(filmStorage, userStorage, BenchmarkData.events(
+                new FilmRecommendationService(filmStorage, userStorage, 16, 4, 20, 100, Duration.ZERO)));
+    }
+
+    @Benchmark
+    public List<Film> getPopular() {
+        return filmService.getPopular(10);
+    }
+
+    /**
+     * Лайки из setUp поставлены только что и лежат в текущей корзине — худший случай для запроса за окно.
+     */
+    @Benchmark
+    public List<Film> getTrending() {
+        return filmService.getTrending(Duration.ofHours(24), 10);
+    }
+
+    @Benchmark
+    public void addLike(ThreadRandom random) {
+        filmService.addLike(1 + random.next(size), 1 + random.next(size));
+    }
+
+    @Benchmark
+    public void removeLike(ThreadRandom random) {
+        filmService.removeLike(1 + random.next(size), 1 + random.next(size));
+    }
+}
@@ -0,0 +1,174 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import com.sun.management.GarbageCollectionNotificationInfo;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.storage.film.FilmStorage;
+import ru.yandex.practicum.filmorate.storage.film.InMemoryFilmStorage;
+import ru.yandex.practicum.filmorate.storage.film.OffHeapFilmStorage;
+import ru.yandex.practicum.filmorate.storage.user.InMemoryUserStorage;
+import ru.yandex.practicum.filmorate.storage.user.OffHeapUserStorage;
+import ru.yandex.practicum.filmorate.storage.user.UserStorage;
+
+import javax.management.ListenerNotFoundException;
+import javax.management.NotificationEmitter;
+import javax.management.NotificationListener;
+import javax.management.openmbean.CompositeData;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+import static com.sun.management.GarbageCollectionNotificationInfo.GARBAGE_COLLECTION_NOTIFICATION;
+
+/**
+ * Паузы сборщика мусора под постоянной нагрузкой на хранилища memory и offheap. Каталог заполняется фильмами
+ * и пользователями, затем потоки в течение заданного времени читают фильмы и пользователей (80%), ставят лайки
+ * (10%) и обновляют фильмы (10%) с заданной общей частотой, одинаковой для обоих хранилищ: паузы сравниваются
+ * при равной работе, а не при равном времени. Каждый запуск — одно хранилище в своём процессе, чтобы куча другого
+ * не влияла на замер.
+ * <p>
+ * Запуск: {@code mvn -Pbenchmark test-compile exec:exec "-Dbenchmark.jvmArgs=-Xmx3g -XX:+UseG1GC"
+ * -Dbenchmark.main=ru.yandex.practicum.filmorate.benchmark.GcPauseLoad -Dbenchmark.args="offheap 2000000 30 2 50000"}
+ * — хранилище, число фильмов и пользователей, секунды нагрузки, потоки и операций в секунду (0 — без ограничения).
+ */
+public class GcPauseLoad {
+    public static void main(String[] args) throws Exception {
+        String backend = args.length > 0 ? args[0] : "offheap";
+        int size = args.length > 1 ? Integer.parseInt(args[1]) : 1_000_000;
+        int seconds = args.length > 2 ? Integer.parseInt(args[2]) : 30;
+        int threads = args.length > 3 ? Integer.parseInt(args[3]) : 2;
+        int rate = args.length > 4 ? Integer.parseInt(args[4]) : 50_000;
+        long interval = rate > 0 ? TimeUnit.SECONDS.toNanos(threads) / rate : 0;
+
+        FilmStorage films = "memory".equals(backend) ? new InMemoryFilmStorage() : new OffHeapFilmStorage();
+        UserStorage users = "memory".equals(backend) ? new InMemoryUserStorage() : new OffHeapUserStorage();
+        long started = System.nanoTime();
+        BenchmarkData.fillUsers(users, size);
+        BenchmarkData.fillFilms(films, size);
+        System.out.printf("%s: %d фильмов и пользователей загружено за %d с%n", backend, size,
+                TimeUnit.NANOSECONDS.toSeconds(System.nanoTime() - started));
+        System.gc();
+        long heapAfterLoad = usedHeap();
+
+        Pauses pauses = Pauses.listen();
+        LongAdder operations = new LongAdder();
+        long start = System.nanoTime();
+        long deadline = start + TimeUnit.SECONDS.toNanos(seconds);
+        List<Thread> workers = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            SplittableRandom random = new SplittableRandom(BenchmarkData.SEED + t);
+            workers.add(Thread.ofPlatform().start(() -> {
+                for (long done = 0; System.nanoTime() - deadline < 0; done++) {
+                    // Поток отстаёт от расписания после паузы и догоняет его, не превышая частоту в среднем
+                    long due = start + done * interval;
+                    if (System.nanoTime() - due < 0) {
+                        LockSupport.parkNanos(due - System.nanoTime());
+                    }
+                    int id = 1 + random.nextInt(size);
+                    int kind = random.nextInt(10);
+                    if (kind < 4) {
+                        films.getById(id);
+                    } else if (kind < 8) {
+                        users.getById(id);
+                    } else if (kind == 8) {
+                        films.addLike(id, 1 + random.nextInt(size));
+                    } else {
+                        Film update = new Film();
+                        update.setId(id);
+                        update.setDescription("Updated description " + random.nextInt(1000));
+                        films.update(update);
+                    }
+                    operations.increment();
+                }
+            }));
+        }
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        pauses.close();
+
+        System.out.printf("%-8s %10s %12s %8s %12s %10s %10s %14s%n", "backend", "size", "ops/s", "gc",
+                "gc total ms", "p99 ms", "max ms", "heap MB");
+        System.out.printf("%-8s %10d %12d %8d %12d %10d %10d %14d%n", backend, size,
+                operations.sum() / seconds, pauses.count(), pauses.total(), pauses.percentile(0.99), pauses.max(),
+                heapAfterLoad >> 20);
+        // Хранилища удерживаются до конца замера
+        if (films.getById(1) == null || users.getById(1) == null) {
+            throw new IllegalStateException();
+        }
+    }
+
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    /**
+     * Длительности сборок из уведомлений GarbageCollectorMXBean, в миллисекундах.
+     */
+    private static final class Pauses {
+        private final List<Long> durations = new ArrayList<>();
+        private final AtomicLong total = new AtomicLong();
+        private final List<Runnable> detach = new ArrayList<>();
+
+        static Pauses listen() {
+            Pauses pauses = new Pauses();
+            for (GarbageCollectorMXBean bean : ManagementFactory.getGarbageCollectorMXBeans()) {
+                NotificationEmitter emitter = (NotificationEmitter) bean;
+                NotificationListener listener = (notification, handback) -> {
+                    if (GARBAGE_COLLECTION_NOTIFICATION.equals(notification.getType())) {
+                        GarbageCollectionNotificationInfo info =
+                                GarbageCollectionNotificationInfo.from((CompositeData) notification.getUserData());
+                        // Конкурентные циклы G1 не останавливают потоки приложения
+                        if (!info.getGcName().contains("Concurrent")) {
+                            pauses.add(info.getGcInfo().getDuration());
+                        }
+                    }
+                };
+                emitter.addNotificationListener(listener, null, null);
+                pauses.detach.add(() -> {
+                    try {
+                        emitter.removeNotificationListener(listener);
+                    } catch (ListenerNotFoundException e) {
+                        throw new IllegalStateException(e);
+                    }
+                });
+            }
+            return pauses;
+        }
+
+        synchronized void add(long millis) {
+            durations.add(millis);
+            total.addAndGet(millis);
+        }
+
+        void close() {
+            detach.forEach(Runnable::run);
+        }
+
+        synchronized int count() {
+            return durations.size();
+        }
+
+        long total() {
+            return total.get();
+        }
+
+        synchronized long max() {
+            return durations.stream().mapToLong(Long::longValue).max().orElse(0);
+        }
+
+        synchronized long percentile(double p) {
+            if (durations.isEmpty()) {
+                return 0;
+            }
+            long[] sorted = durations.stream().mapToLong(Long::longValue).sorted().toArray();
+            return sorted[Math.min(sorted.length - 1, (int) Math.ceil(p * sorted.length) - 1)];
+        }
+    }
+}
@@ -0,0 +1,123 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.validation.Validation;
+import jakarta.validation.Validator;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.service.FilmRecommendationService;
+import ru.yandex.practicum.filmorate.service.ImportFormat;
+import ru.yandex.practicum.filmorate.service.ImportReport;
+import ru.yandex.practicum.filmorate.service.ImportService;
+import ru.yandex.practicum.filmorate.service.RecommendationService;
+import ru.yandex.practicum.filmorate.storage.film.InMemoryFilmStorage;
+import ru.yandex.practicum.filmorate.storage.user.InMemoryUserStorage;
+import ru.yandex.practicum.filmorate.validation.CreateGroup;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.SplittableRandom;
+
+/**
+ * Скорость массового импорта в хранилища в памяти: пользователи, фильмы и лайки в NDJSON, фильмы ещё и в CSV.
+ * Для сравнения — поштучная загрузка тех же фильмов так, как её делает POST /films без HTTP: разбор JSON,
+ * проверка {@link CreateGroup} и create на каждую запись.
+ * <p>
+ * Запуск: {@code mvn -Pbenchmark test-compile exec:exec
+ * -Dbenchmark.main=ru.yandex.practicum.filmorate.benchmark.ImportThroughput -Dbenchmark.args="1000000 10"}
+ * — число фильмов и лайков на фильм; пользователей в десять раз меньше, чем фильмов.
+ */
+public class ImportThroughput {
+    public static void main(String[] args) throws IOException {
+        int films = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        int likesPerFilm = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+        int users = Math.max(1, films / 10);
+        ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules();
+        Validator validator = Validation.buildDefaultValidatorFactory().getValidator();
+
+        byte[] userLines = lines(users, i -> objectMapper.writeValueAsString(BenchmarkData.user(i)));
+        byte[] filmLines = lines(films, i -> objectMapper.writeValueAsString(BenchmarkData.film(i)));
+        byte[] filmCsv = lines(films, i -> {
+            Film film = BenchmarkData.film(i);
+            return film.getName() + "," + film.getDescription() + "," + film.getReleaseDate() + "," + film.getDuration();
+        });
+        SplittableRandom random = new SplittableRandom(BenchmarkData.SEED);
+        byte[] likeLines = lines(films * likesPerFilm, i -> "{\"filmId\":" + (1 + i / likesPerFilm)
+                + ",\"userId\":" + (1 + random.nextInt(users)) + "}");
+
+        // Первый круг — прогрев JIT, печатается второй
+        for (int round = 0; round < 2; round++) {
+            boolean print = round == 1;
+            InMemoryFilmStorage filmStorage = new InMemoryFilmStorage();
+            InMemoryUserStorage userStorage = new InMemoryUserStorage();
+            ImportService service = new ImportService(filmStorage, userStorage,
+                    BenchmarkData.events(new RecommendationService(userStorage, 1, Duration.ofMillis(40), 100, 100),
+                            new FilmRecommendationService(filmStorage, userStorage, 16, 4, 20, 100, Duration.ZERO)),
+                    objectMapper, validator, 1000, 0, 10);
+            try {
+                if (print) {
+                    System.out.printf("%-18s %12s %10s %14s%n", "import", "records", "ms", "records/s");
+                }
+                report(print, "users ndjson",
+                        service.importUsers(new ByteArrayInputStream(userLines), ImportFormat.NDJSON));
+                report(print, "films ndjson",
+                        service.importFilms(new ByteArrayInputStream(filmLines), ImportFormat.NDJSON));
+                report(print, "films csv", service.importFilms(new ByteArrayInputStream(filmCsv), ImportFormat.CSV));
+                report(print, "likes ndjson",
+                        service.importLikes(new ByteArrayInputStream(likeLines), ImportFormat.NDJSON));
+            } finally {
+                service.close();
+            }
+
+            InMemoryFilmStorage oneByOne = new InMemoryFilmStorage();
+            long start = System.nanoTime();
+            int count = 0;
+            for (int from = 0, to; from < filmLines.length; from = to + 1) {
+                to = indexOf(filmLines, from);
+                Film film = objectMapper.readValue(filmLines, from, to - from, Film.class);
+                if (validator.validate(film, CreateGroup.class).isEmpty()) {
+                    oneByOne.create(film);
+                }
+                count++;
+            }
+            long nanos = System.nanoTime() - start;
+            if (print) {
+                System.out.printf("%-18s %12d %10d %14d%n", "films one by one", count, nanos / 1_000_000,
+                        count * 1_000_000_000L / nanos);
+            }
+        }
+    }
+
+    private static void report(boolean print, String name, ImportReport report) {
+        if (!print) {
+            return;
+        }
+        System.out.printf("%-18s %12d %10d %14d%s%n", name, report.records(), report.durationMs(),
+                report.recordsPerSecond(), report.rejected() == 0 ? "" : "  rejected " + report.rejected());
+    }
+
+    private static byte[] lines(int count, Line line) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(count * 64);
+        for (int i = 0; i < count; i++) {
+            out.write(line.get(i).getBytes(StandardCharsets.UTF_8));
+            out.write('\n');
+        }
+        return out.toByteArray();
+    }
+
+    private static int indexOf(byte[] bytes, int from) {
+        for (int i = from; i < bytes.length; i++) {
+            if (bytes[i] == '\n') {
+                return i;
+            }
+        }
+        return bytes.length;
+    }
+
+    @FunctionalInterface
+    private interface Line {
+        String get(int index) throws IOException;
+    }
+}
@@ -0,0 +1,81 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import ru.yandex.practicum.filmorate.storage.IntSet;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.SplittableRandom;
+import java.util.function.Function;
+
+/**
+ * Сравнение занимаемой кучи для лайков в виде {@code HashSet<Integer>} и {@link IntSet}.
+ * Рёбра «фильм — пользователь» генерируются детерминированно: в среднем 100 лайков на фильм,
+ * пользователи выбираются из миллиона id.
+ * <p>
+ * Запуск: {@code mvn -Pbenchmark test-compile exec:exec
+ * -Dbenchmark.main=ru.yandex.practicum.filmorate.benchmark.IntSetFootprint -Dbenchmark.args="1000000 10000000"}
+ */
+public class IntSetFootprint {
+    private static final int LIKES_PER_FILM = 100;
+    private static final int USERS = 1_000_000;
+
+    public static void main(String[] args) {
+        long[] edgeCounts = args.length == 0 ? new long[]{1_000_000, 10_000_000} : parse(args);
+        System.out.printf("%-12s %-10s %14s %14s%n", "edges", "type", "heap, MB", "bytes/edge");
+        for (long edges : edgeCounts) {
+            report(edges, "HashSet", measure(edges, values -> {
+                Set<Integer> set = new HashSet<>();
+                for (int value : values) {
+                    set.add(value);
+                }
+                return set;
+            }));
+            report(edges, "IntSet", measure(edges, IntSet::of));
+        }
+    }
+
+    private static long measure(long edges, Function<int[], Set<Integer>> factory) {
+        SplittableRandom random = new SplittableRandom(42);
+        int films = (int) Math.max(1, edges / LIKES_PER_FILM);
+        long before = usedHeap();
+        List<Set<Integer>> sets = new ArrayList<>(films);
+        long remaining = edges;
+        for (int film = 0; film < films; film++) {
+            int likes = (int) (film == films - 1 ? remaining : Math.min(remaining, LIKES_PER_FILM));
+            int[] users = new int[likes];
+            for (int i = 0; i < likes; i++) {
+                users[i] = 1 + random.nextInt(USERS);
+            }
+            sets.add(factory.apply(users));
+            remaining -= likes;
+        }
+        long after = usedHeap();
+        // Удерживаем структуры до замера
+        if (sets.isEmpty()) {
+            throw new IllegalStateException();
+        }
+        return after - before;
+    }
+
+    private static void report(long edges, String type, long bytes) {
+        System.out.printf("%-12d %-10s %14.1f %14.1f%n", edges, type, bytes / 1024.0 / 1024.0, (double) bytes / edges);
+    }
+
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 5; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    private static long[] parse(String[] args) {
+        long[] result = new long[args.length];
+        for (int i = 0; i < args.length; i++) {
+            result[i] = Long.parseLong(args[i]);
+        }
+        return result;
+    }
+}
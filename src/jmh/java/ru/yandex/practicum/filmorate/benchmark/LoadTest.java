@@ -0,0 +1,142 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import ru.yandex.practicum.filmorate.FilmorateApplication;
+import ru.yandex.practicum.filmorate.storage.film.FilmStorage;
+import ru.yandex.practicum.filmorate.storage.user.UserStorage;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Нагрузочное сравнение режимов выполнения запросов: пул потоков Tomcat и виртуальные потоки
+ * ({@code spring.threads.virtual.enabled}). Для каждого режима поднимается приложение, заполняется данными,
+ * после чего {@code connections} клиентов одновременно шлют по {@code requests} запросов: чтение фильма,
+ * популярные фильмы, лайк и его снятие. Печатаются перцентили задержки и пропускная способность.
+ * <p>
+ * Аргументы: число соединений, запросов на соединение и свойства приложения вида {@code --key=value}.
+ * Запуск: {@code mvn -Pbenchmark test-compile exec:exec
+ * -Dbenchmark.main=ru.yandex.practicum.filmorate.benchmark.LoadTest
+ * -Dbenchmark.args="10000 20 --filmorate.storage=db"}
+ */
+public class LoadTest {
+    private static final int USERS = 10_000;
+    private static final int FILMS = 1_000;
+
+    public static void main(String[] args) throws Exception {
+        int connections = args.length > 0 ? Integer.parseInt(args[0]) : 10_000;
+        int requests = args.length > 1 ? Integer.parseInt(args[1]) : 20;
+        List<String> properties = args.length > 2 ? Arrays.asList(args).subList(2, args.length) : List.of();
+        System.out.printf("%-9s %8s %10s %10s %10s %10s %12s %7s%n",
+                "threads", "conns", "p50, ms", "p99, ms", "p99.9, ms", "max, ms", "req/s", "errors");
+        for (boolean virtual : new boolean[]{false, true}) {
+            try (ConfigurableApplicationContext context = start(virtual, connections, properties)) {
+                int port = ((WebServerApplicationContext) context).getWebServer().getPort();
+                fill(context);
+                run(port, Math.min(connections, 1_000), requests);
+                Result result = run(port, connections, requests);
+                result.print(virtual ? "virtual" : "platform", connections);
+            }
+        }
+    }
+
+    private static ConfigurableApplicationContext start(boolean virtual, int connections, List<String> properties) {
+        List<String> args = new ArrayList<>(List.of(
+                "--spring.threads.virtual.enabled=" + virtual,
+                "--server.port=0",
+                "--server.tomcat.max-connections=" + (connections + 1_000),
+                "--server.tomcat.accept-count=" + connections,
+                "--spring.datasource.url=jdbc:h2:mem:load-" + virtual + ";DB_CLOSE_DELAY=-1;QUERY_CACHE_SIZE=64",
+                "--logging.level.root=WARN",
+                "--logging.level.org.zalando.logbook=OFF"));
+        args.addAll(properties);
+        return SpringApplication.run(FilmorateApplication.class, args.toArray(String[]::new));
+    }
+
+    private static void fill(ConfigurableApplicationContext context) {
+        UserStorage userStorage = context.getBean(UserStorage.class);
+        FilmStorage filmStorage = context.getBean(FilmStorage.class);
+        BenchmarkData.fillUsers(userStorage, USERS);
+        BenchmarkData.fillFilms(filmStorage, FILMS);
+        BenchmarkData.fillLikes(filmStorage, FILMS, USERS);
+    }
+
+    private static Result run(int port, int connections, int requests) throws Exception {
+        String base = "http://localhost:" + port;
+        long[][] latencies = new long[connections][requests];
+        AtomicInteger errors = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+             HttpClient client = HttpClient.newBuilder()
+                     .version(HttpClient.Version.HTTP_1_1)
+                     .connectTimeout(Duration.ofSeconds(30))
+                     .executor(executor)
+                     .build()) {
+            List<Future<?>> clients = new ArrayList<>(connections);
+            for (int c = 0; c < connections; c++) {
+                int connection = c;
+                clients.add(executor.submit(() -> {
+                    start.await();
+                    SplittableRandom random = new SplittableRandom(BenchmarkData.SEED + connection);
+                    int userId = 1 + connection % USERS;
+                    for (int i = 0; i < requests; i++) {
+                        int filmId = 1 + random.nextInt(FILMS);
+                        HttpRequest request = switch (i % 4) {
+                            case 0 -> HttpRequest.newBuilder(URI.create(base + "/films/" + filmId)).build();
+                            case 1 -> HttpRequest.newBuilder(URI.create(base + "/films/popular?count=10")).build();
+                            case 2 -> HttpRequest.newBuilder(URI.create(base + "/films/" + filmId + "/like/" + userId))
+                                    .PUT(HttpRequest.BodyPublishers.noBody()).build();
+                            default -> HttpRequest.newBuilder(URI.create(base + "/films/" + filmId + "/like/" + userId))
+                                    .DELETE().build();
+                        };
+                        long begin = System.nanoTime();
+                        try {
+                            HttpResponse<Void> response = client.send(request, HttpResponse.BodyHandlers.discarding());
+                            if (response.statusCode() >= 300) {
+                                errors.incrementAndGet();
+                            }
+                        } catch (Exception e) {
+                            errors.incrementAndGet();
+                        }
+                        latencies[connection][i] = System.nanoTime() - begin;
+                    }
+                    return null;
+                }));
+            }
+            long begin = System.nanoTime();
+            start.countDown();
+            for (Future<?> future : clients) {
+                future.get();
+            }
+            long elapsed = System.nanoTime() - begin;
+            long[] all = Arrays.stream(latencies).flatMapToLong(Arrays::stream).sorted().toArray();
+            return new Result(all, elapsed, errors.get());
+        }
+    }
+
+    private record Result(long[] latencies, long elapsedNanos, int errors) {
+        void print(String mode, int connections) {
+            System.out.printf("%-9s %8d %10.2f %10.2f %10.2f %10.2f %12.0f %7d%n",
+                    mode, connections, percentile(0.5), percentile(0.99), percentile(0.999),
+                    latencies[latencies.length - 1] / 1e6, latencies.length * 1e9 / elapsedNanos, errors);
+        }
+
+        double percentile(double p) {
+            return latencies[(int) Math.min(latencies.length - 1, Math.ceil(p * latencies.length) - 1)] / 1e6;
+        }
+    }
+}
@@ -0,0 +1,95 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.prometheus.PrometheusConfig;
+import io.micrometer.prometheus.PrometheusMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.aop.Advisor;
+import org.springframework.aop.framework.ProxyFactory;
+import ru.yandex.practicum.filmorate.metrics.OperationTimingConfiguration;
+import ru.yandex.practicum.filmorate.metrics.OperationTimingInterceptor;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.service.FilmRecommendationService;
+import ru.yandex.practicum.filmorate.service.FilmService;
+import ru.yandex.practicum.filmorate.storage.film.FilmStorage;
+import ru.yandex.practicum.filmorate.storage.film.InMemoryFilmStorage;
+import ru.yandex.practicum.filmorate.storage.user.InMemoryUserStorage;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Цена таймеров filmorate.storage и filmorate.service на getById: metrics=off — объекты без прокси,
+ * on — прокси с советниками из {@link OperationTimingConfiguration}, как их собирает Spring (наследование от класса).
+ * Бюджет — не больше 500 нс на каждый измеряемый слой: storageGetById — один слой, serviceGetById — два
+ * (сервис и хранилище фильмов). Около половины из них — два чтения System.nanoTime и запись в таймер.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MetricsOverheadBenchmark {
+    @Param({"10000"})
+    private int size;
+
+    @Param({"off", "on"})
+    private String metrics;
+
+    private FilmStorage filmStorage;
+    private FilmService filmService;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        InMemoryFilmStorage films = new InMemoryFilmStorage();
+        InMemoryUserStorage users = new InMemoryUserStorage();
+        BenchmarkData.fillFilms(films, size);
+        if ("on".equals(metrics)) {
+            MeterRegistry registry = new PrometheusMeterRegistry(PrometheusConfig.DEFAULT);
+            Advisor storage = OperationTimingConfiguration.advisor(OperationTimingConfiguration.STORAGE_METHODS,
+                    new OperationTimingInterceptor(OperationTimingConfiguration.STORAGE, () -> registry));
+            Advisor service = OperationTimingConfiguration.advisor(OperationTimingConfiguration.SERVICE_METHODS,
+                    new OperationTimingInterceptor(OperationTimingConfiguration.SERVICE, () -> registry));
+            filmStorage = timed(films, storage);
+            filmService = timed(new FilmService(filmStorage, timed(users, storage),
+                    BenchmarkData.events(filmRecommendations(films, users))), service);
+        } else {
+            filmStorage = films;
+            filmService = new FilmService(films, users, BenchmarkData.events(filmRecommendations(films, users)));
+        }
+    }
+
+    private static FilmRecommendationService filmRecommendations(InMemoryFilmStorage films, InMemoryUserStorage users) {
+        return new FilmRecommendationService(films, users, 16, 4, 20, 100, Duration.ZERO);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> T timed(T target, Advisor advisor) {
+        ProxyFactory factory = new ProxyFactory(target);
+        factory.setProxyTargetClass(true);
+        factory.addAdvisor(advisor);
+        return (T) factory.getProxy();
+    }
+
+    @Benchmark
+    public Film storageGetById(ThreadRandom random) {
+        return filmStorage.getById(1 + random.next(size));
+    }
+
+    @Benchmark
+    public Film serviceGetById(ThreadRandom random) {
+        return filmService.getById(1 + random.next(size));
+    }
+}
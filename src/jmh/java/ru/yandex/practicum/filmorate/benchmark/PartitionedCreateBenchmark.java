@@ -0,0 +1,56 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.film.InMemoryFilmStorage;
+import ru.yandex.practicum.filmorate.storage.journal.StorageJournal;
+import ru.yandex.practicum.filmorate.storage.user.InMemoryUserStorage;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Пропускная способность массового создания в хранилищах в памяти: partitions=1 — одна карта, как до
+ * секционирования, 8 — восемь секций (по умолчанию их столько, сколько ядер). Масштабирование по ядрам видно
+ * при запуске с -t 1, 2, 4 … max; хранилища пересоздаются на каждую итерацию, чтобы объём каталога не рос от итерации к итерации.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx4g"})
+public class PartitionedCreateBenchmark {
+    @Param({"1", "8"})
+    private int partitions;
+
+    private InMemoryFilmStorage filmStorage;
+    private InMemoryUserStorage userStorage;
+
+    @Setup(Level.Iteration)
+    public void setUp() {
+        filmStorage = new InMemoryFilmStorage(StorageJournal.disabled(), partitions);
+        userStorage = new InMemoryUserStorage(StorageJournal.disabled(), partitions);
+    }
+
+    @Benchmark
+    public Film filmCreate(ThreadRandom random) {
+        return filmStorage.create(BenchmarkData.film(random.next(1_000_000)));
+    }
+
+    @Benchmark
+    public User userCreate(ThreadRandom random) {
+        return userStorage.create(BenchmarkData.user(random.next(1_000_000)));
+    }
+}
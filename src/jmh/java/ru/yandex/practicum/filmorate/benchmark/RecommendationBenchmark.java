@@ -0,0 +1,92 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.service.RecommendationService;
+import ru.yandex.practicum.filmorate.storage.IntSet;
+import ru.yandex.practicum.filmorate.storage.user.InMemoryUserStorage;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Рекомендации друзей пользователю, у которого friends друзей, а у каждого из них — тоже friends друзей
+ * среди users пользователей. uncached — обход без кэша (по умолчанию с бюджетом времени больше самого обхода),
+ * cached — из кэша.
+ * Графы такой плотности через addFriend строятся долго, поэтому множества друзей собираются сразу
+ * и кладутся в хранилище через restore; симметричность дружбы для обхода не важна.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx8g"})
+public class RecommendationBenchmark {
+    @Param({"1000000"})
+    private int users;
+
+    @Param({"5000"})
+    private int friends;
+
+    @Param({"0"})
+    private int parallelism;
+
+    @Param({"10000"})
+    private int timeBudgetMs;
+
+    private RecommendationService service;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        InMemoryUserStorage storage = new InMemoryUserStorage();
+        SplittableRandom random = new SplittableRandom(BenchmarkData.SEED);
+        IntSet direct = randomIds(random);
+        for (int id = 1; id <= users; id++) {
+            User user = BenchmarkData.user(id);
+            user.setId(id);
+            // Обход читает друзей только у пользователя 1 и его друзей
+            user.setFriends(id == 1 ? direct : direct.contains(id) ? randomIds(random) : IntSet.EMPTY);
+            storage.restore(user);
+        }
+        service = new RecommendationService(storage, parallelism, Duration.ofMillis(timeBudgetMs), 100, 10_000);
+    }
+
+    private IntSet randomIds(SplittableRandom random) {
+        int[] ids = new int[friends];
+        for (int i = 0; i < friends; i++) {
+            ids[i] = 1 + random.nextInt(users);
+        }
+        return IntSet.of(ids);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        service.close();
+    }
+
+    @Benchmark
+    public List<User> uncached() {
+        service.invalidateAll();
+        return service.getRecommendations(1, 10);
+    }
+
+    @Benchmark
+    public List<User> cached() {
+        return service.getRecommendations(1, 10);
+    }
+}
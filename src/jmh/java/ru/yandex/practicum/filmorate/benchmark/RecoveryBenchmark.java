@@ -0,0 +1,84 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import ru.yandex.practicum.filmorate.storage.film.InMemoryFilmStorage;
+import ru.yandex.practicum.filmorate.storage.journal.JournalRecovery;
+import ru.yandex.practicum.filmorate.storage.journal.StorageJournal;
+import ru.yandex.practicum.filmorate.storage.user.InMemoryUserStorage;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Comparator;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Время старта с диска: загрузка снимка с дружбами и повтор хвоста журнала с лайками.
+ * Число связей в снимке — users * FRIENDS_PER_USER, то есть 10M при 1M пользователей.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx8g"})
+public class RecoveryBenchmark {
+    @Param({"100000", "1000000"})
+    private int users;
+
+    private Path directory;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("filmorate-recovery");
+        StorageJournal journal = journal();
+        InMemoryFilmStorage filmStorage = new InMemoryFilmStorage(journal);
+        InMemoryUserStorage userStorage = new InMemoryUserStorage(journal);
+        JournalRecovery recovery = new JournalRecovery(journal, filmStorage, userStorage, Duration.ZERO);
+        recovery.recover();
+        BenchmarkData.fillUsers(userStorage, users);
+        BenchmarkData.fillFriends(userStorage, users);
+        int films = users / 10;
+        BenchmarkData.fillFilms(filmStorage, films);
+        recovery.snapshot();
+        BenchmarkData.fillLikes(filmStorage, films, users);
+        journal.close();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        try (Stream<Path> files = Files.walk(directory)) {
+            for (Path file : files.sorted(Comparator.reverseOrder()).toList()) {
+                Files.delete(file);
+            }
+        }
+    }
+
+    @Benchmark
+    public InMemoryUserStorage recover() throws IOException {
+        StorageJournal journal = journal();
+        InMemoryUserStorage userStorage = new InMemoryUserStorage(journal);
+        new JournalRecovery(journal, new InMemoryFilmStorage(journal), userStorage, Duration.ZERO).recover();
+        // Каждый запуск оставляет пустой сегмент из одного заголовка — на следующие замеры он не влияет
+        journal.close();
+        return userStorage;
+    }
+
+    private StorageJournal journal() {
+        return new StorageJournal(true, directory.toString(), "none", Duration.ofMillis(10));
+    }
+}
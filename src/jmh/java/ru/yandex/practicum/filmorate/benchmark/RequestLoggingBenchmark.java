@@ -0,0 +1,112 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.classic.encoder.PatternLayoutEncoder;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.OutputStreamAppender;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.servlet.Filter;
+import jakarta.servlet.FilterChain;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.slf4j.LoggerFactory;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.zalando.logbook.Logbook;
+import org.zalando.logbook.core.DefaultHttpLogWriter;
+import org.zalando.logbook.core.DefaultSink;
+import org.zalando.logbook.json.JsonHttpLogFormatter;
+import org.zalando.logbook.servlet.LogbookFilter;
+import ru.yandex.practicum.filmorate.logging.RequestLogFilter;
+
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Цена журнала запросов на один запрос с JSON-ответом размера body байт:
+ * none — без журнала, logbook — Logbook на TRACE (как было), sampled — {@link RequestLogFilter} с выборкой 1%,
+ * all — он же без выборки. Лог пишется в пустой поток, чтобы мерить работу журнала, а не консоли;
+ * объём памяти на запрос виден с -prof gc (gc.alloc.rate.norm).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RequestLoggingBenchmark {
+    @Param({"none", "logbook", "sampled", "all"})
+    private String mode;
+
+    @Param({"1024", "1048576"})
+    private int body;
+
+    private Filter filter;
+    private FilterChain chain;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        silenceLogs();
+        byte[] json = new byte[body];
+        Arrays.fill(json, (byte) 'a');
+        json[0] = '"';
+        json[body - 1] = '"';
+        chain = (request, response) -> {
+            response.setContentType("application/json");
+            response.getOutputStream().write(json);
+        };
+        filter = switch (mode) {
+            case "none" -> (request, response, next) -> next.doFilter(request, response);
+            case "logbook" -> new LogbookFilter(Logbook.builder()
+                    .sink(new DefaultSink(new JsonHttpLogFormatter(new ObjectMapper()), new DefaultHttpLogWriter()))
+                    .build());
+            case "sampled" -> new RequestLogFilter(0.01, 1024, 8192);
+            case "all" -> new RequestLogFilter(1.0, 1024, 8192);
+            default -> throw new IllegalArgumentException(mode);
+        };
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        filter.destroy();
+    }
+
+    @Benchmark
+    public MockHttpServletResponse request() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/films");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        filter.doFilter(request, response, chain);
+        return response;
+    }
+
+    private static void silenceLogs() {
+        LoggerContext context = (LoggerContext) LoggerFactory.getILoggerFactory();
+        context.reset();
+        PatternLayoutEncoder encoder = new PatternLayoutEncoder();
+        encoder.setContext(context);
+        encoder.setPattern("%d %level [%thread] %logger - %msg%n");
+        encoder.start();
+        OutputStreamAppender<ILoggingEvent> appender = new OutputStreamAppender<>();
+        appender.setContext(context);
+        appender.setEncoder(encoder);
+        appender.setOutputStream(OutputStream.nullOutputStream());
+        appender.start();
+        Logger root = context.getLogger(Logger.ROOT_LOGGER_NAME);
+        root.setLevel(ch.qos.logback.classic.Level.INFO);
+        root.addAppender(appender);
+        context.getLogger("org.zalando.logbook").setLevel(ch.qos.logback.classic.Level.TRACE);
+    }
+}
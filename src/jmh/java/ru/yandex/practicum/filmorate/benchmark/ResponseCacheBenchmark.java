@@ -0,0 +1,90 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.ResponseEntity;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.web.context.request.ServletWebRequest;
+import org.springframework.web.context.request.WebRequest;
+import ru.yandex.practicum.filmorate.controller.FilmController;
+import ru.yandex.practicum.filmorate.service.FilmRecommendationService;
+import ru.yandex.practicum.filmorate.service.FilmService;
+import ru.yandex.practicum.filmorate.storage.film.InMemoryFilmStorage;
+import ru.yandex.practicum.filmorate.storage.user.InMemoryUserStorage;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Ответы GET /films/{id} и /films/popular: кодирование Jackson на каждый запрос (encode*, как до кэша байтов)
+ * против готовых байтов из кэша контроллера (cached*). Запрашиваются hot фильмов — все они помещаются в кэш.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx4g"})
+public class ResponseCacheBenchmark {
+    @Param({"100000"})
+    private int size;
+
+    @Param({"1000"})
+    private int hot;
+
+    @Param({"10", "100"})
+    private int count;
+
+    private FilmService filmService;
+    private FilmController controller;
+    private ObjectMapper objectMapper;
+    private WebRequest request;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        InMemoryFilmStorage filmStorage = new InMemoryFilmStorage();
+        InMemoryUserStorage userStorage = new InMemoryUserStorage();
+        BenchmarkData.fillUsers(userStorage, size);
+        BenchmarkData.fillFilms(filmStorage, size);
+        BenchmarkData.fillLikes(filmStorage, size, size);
+        filmService = new FilmService(filmStorage, userStorage, BenchmarkData.events(
+                new FilmRecommendationService(filmStorage, userStorage, 16, 4, 20, 100, Duration.ZERO)));
+        // Как в приложении: даты строками, а не массивами чисел
+        objectMapper = new ObjectMapper().findAndRegisterModules()
+                .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+        controller = new FilmController(filmService, objectMapper, 10_000, 64);
+        request = new ServletWebRequest(new MockHttpServletRequest("GET", "/films"));
+    }
+
+    @Benchmark
+    public byte[] encodeFilm(ThreadRandom random) throws Exception {
+        return objectMapper.writeValueAsBytes(filmService.getById(1 + random.next(hot)));
+    }
+
+    @Benchmark
+    public ResponseEntity<byte[]> cachedFilm(ThreadRandom random) {
+        return controller.getFilm(1 + random.next(hot), request);
+    }
+
+    @Benchmark
+    public byte[] encodePopular() throws Exception {
+        return objectMapper.writeValueAsBytes(filmService.getPopular(count));
+    }
+
+    @Benchmark
+    public ResponseEntity<?> cachedPopular() {
+        return controller.getPopular(count, null, request);
+    }
+}
@@ -0,0 +1,111 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.film.FilmDbStorage;
+import ru.yandex.practicum.filmorate.storage.film.FilmStorage;
+import ru.yandex.practicum.filmorate.storage.film.InMemoryFilmStorage;
+import ru.yandex.practicum.filmorate.storage.user.InMemoryUserStorage;
+import ru.yandex.practicum.filmorate.storage.user.UserDbStorage;
+import ru.yandex.practicum.filmorate.storage.user.UserStorage;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Сравнение хранилищ memory и db на одних и тех же данных. H2 работает в памяти того же процесса,
+ * поэтому разница показывает стоимость SQL и JDBC без сетевых задержек.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx8g"})
+public class StorageBackendBenchmark {
+    @Param({"memory", "db"})
+    private String backend;
+
+    @Param({"10000", "100000"})
+    private int size;
+
+    private HikariDataSource dataSource;
+    private FilmStorage filmStorage;
+    private UserStorage userStorage;
+    // Пользователь без лайков и друзей: его переключения не меняют исходные данные
+    private int probeUserId;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        if ("db".equals(backend)) {
+            dataSource = new HikariDataSource();
+            dataSource.setJdbcUrl("jdbc:h2:mem:benchmark;DB_CLOSE_DELAY=-1;QUERY_CACHE_SIZE=64");
+            dataSource.setMaximumPoolSize(16);
+            new ResourceDatabasePopulator(new ClassPathResource("schema.sql")).execute(dataSource);
+            NamedParameterJdbcTemplate jdbc = new NamedParameterJdbcTemplate(dataSource);
+            filmStorage = new FilmDbStorage(jdbc);
+            userStorage = new UserDbStorage(jdbc);
+        } else {
+            filmStorage = new InMemoryFilmStorage();
+            userStorage = new InMemoryUserStorage();
+        }
+        BenchmarkData.fillUsers(userStorage, size);
+        BenchmarkData.fillFriends(userStorage, size);
+        BenchmarkData.fillFilms(filmStorage, size);
+        BenchmarkData.fillLikes(filmStorage, size, size);
+        probeUserId = userStorage.create(BenchmarkData.user(size)).getId();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        if (dataSource != null) {
+            dataSource.close();
+        }
+    }
+
+    @Benchmark
+    public Film getFilm(ThreadRandom random) {
+        return filmStorage.getById(1 + random.next(size));
+    }
+
+    @Benchmark
+    public List<Film> getPopular() {
+        return filmStorage.getPopular(10);
+    }
+
+    @Benchmark
+    public void toggleLike(ThreadRandom random) {
+        int filmId = 1 + random.next(size);
+        filmStorage.addLike(filmId, probeUserId);
+        filmStorage.removeLike(filmId, probeUserId);
+    }
+
+    @Benchmark
+    public List<User> getCommonFriends(ThreadRandom random) {
+        return userStorage.getCommonFriends(1 + random.next(size), 1 + random.next(size), null, 100);
+    }
+
+    @Benchmark
+    public void toggleFriend(ThreadRandom random) {
+        int friendId = 1 + random.next(size);
+        userStorage.addFriend(probeUserId, friendId);
+        userStorage.removeFriend(probeUserId, friendId);
+    }
+}
@@ -0,0 +1,81 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.film.FilmStorage;
+import ru.yandex.practicum.filmorate.storage.film.InMemoryFilmStorage;
+import ru.yandex.practicum.filmorate.storage.user.InMemoryUserStorage;
+import ru.yandex.practicum.filmorate.storage.user.UserStorage;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * getAll обходит весь каталог так, как его обходит сериализация ответа, поэтому измеряется в миллисекундах;
+ * update — точечная операция.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx8g"})
+public class StorageBenchmark {
+    @Param({"10000", "100000", "1000000", "10000000"})
+    private int size;
+
+    private FilmStorage filmStorage;
+    private UserStorage userStorage;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        filmStorage = new InMemoryFilmStorage();
+        userStorage = new InMemoryUserStorage();
+        BenchmarkData.fillFilms(filmStorage, size);
+        BenchmarkData.fillUsers(userStorage, size);
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public void filmGetAll(Blackhole blackhole) {
+        for (Film film : filmStorage.getAll()) {
+            blackhole.consume(film);
+        }
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public void userGetAll(Blackhole blackhole) {
+        for (User user : userStorage.getAll()) {
+            blackhole.consume(user);
+        }
+    }
+
+    @Benchmark
+    public Film filmUpdate(ThreadRandom random) {
+        int index = random.next(size);
+        Film film = BenchmarkData.film(index);
+        film.setId(1 + index);
+        return filmStorage.update(film);
+    }
+
+    @Benchmark
+    public User userUpdate(ThreadRandom random) {
+        int index = random.next(size);
+        User user = BenchmarkData.user(index);
+        user.setId(1 + index);
+        return userStorage.update(user);
+    }
+}
@@ -0,0 +1,18 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.SplittableRandom;
+
+/**
+ * Генератор случайных id для каждого потока бенчмарка, без общей точки синхронизации.
+ */
+@State(Scope.Thread)
+public class ThreadRandom {
+    private final SplittableRandom random = new SplittableRandom(BenchmarkData.SEED);
+
+    public int next(int bound) {
+        return random.nextInt(bound);
+    }
+}
@@ -0,0 +1,59 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.service.FilmRecommendationService;
+import ru.yandex.practicum.filmorate.service.RecommendationService;
+import ru.yandex.practicum.filmorate.service.UserService;
+import ru.yandex.practicum.filmorate.storage.film.InMemoryFilmStorage;
+import ru.yandex.practicum.filmorate.storage.user.InMemoryUserStorage;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx8g"})
+public class UserServiceBenchmark {
+    @Param({"10000", "100000", "1000000", "10000000"})
+    private int size;
+
+    private UserService userService;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        InMemoryUserStorage userStorage = new InMemoryUserStorage();
+        BenchmarkData.fillUsers(userStorage, size);
+        BenchmarkData.fillFriends(userStorage, size);
+        RecommendationService recommendations = new RecommendationService(userStorage, 0, Duration.ofMillis(40), 100,
+                10_000);
+        userService = new UserService(userStorage, recommendations,
+                new FilmRecommendationService(new InMemoryFilmStorage(), userStorage, 16, 4, 20, 100, Duration.ZERO),
+                BenchmarkData.events(recommendations));
+    }
+
+    @Benchmark
+    public Collection<User> getFriends(ThreadRandom random) {
+        return userService.getFriends(1 + random.next(size));
+    }
+
+    @Benchmark
+    public Collection<User> getCommonFriends(ThreadRandom random) {
+        return userService.getCommonFriends(1 + random.next(size), 1 + random.next(size), null, null);
+    }
+}
@@ -2,10 +2,19 @@ package ru.yandex.practicum.filmorate;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceAutoConfiguration;
+import ru.yandex.practicum.filmorate.dump.DumpCommand;
 
-@SpringBootApplication
+import java.io.IOException;
+
+// Источник данных нужен только хранилищу в базе: его заводит DbStorageConfiguration при filmorate.storage=db
+@SpringBootApplication(exclude = DataSourceAutoConfiguration.class)
 public class FilmorateApplication {
-    public static void main(String[] args) {
+    public static void main(String[] args) throws IOException {
+        if (DumpCommand.matches(args)) {
+            DumpCommand.run(FilmorateApplication.class, args);
+            return;
+        }
         SpringApplication.run(FilmorateApplication.class, args);
     }
 
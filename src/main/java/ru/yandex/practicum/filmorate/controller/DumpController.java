@@ -0,0 +1,66 @@
+package ru.yandex.practicum.filmorate.controller;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import ru.yandex.practicum.filmorate.dump.DumpReport;
+import ru.yandex.practicum.filmorate.dump.DumpService;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.Channels;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Дамп каталога в двоичном формате {@link DumpService}: GET выгружает, POST загружает.
+ * <p>
+ * Если коннектор Tomcat поддерживает sendfile, дамп пишется во временный файл, а отдаёт его ядро без копирования
+ * через память приложения; иначе дамп пишется прямо в ответ по мере обхода хранилищ.
+ */
+@RestController
+@RequestMapping("/dump")
+public class DumpController {
+    static final String SENDFILE_SUPPORT = "org.apache.tomcat.sendfile.support";
+    static final String SENDFILE_FILENAME = "org.apache.tomcat.sendfile.filename";
+    static final String SENDFILE_START = "org.apache.tomcat.sendfile.start";
+    static final String SENDFILE_END = "org.apache.tomcat.sendfile.end";
+
+    private final DumpService dumpService;
+
+    @Autowired
+    public DumpController(DumpService dumpService) {
+        this.dumpService = dumpService;
+    }
+
+    @GetMapping(produces = MediaType.APPLICATION_OCTET_STREAM_VALUE)
+    public void exportDump(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        response.setContentType(MediaType.APPLICATION_OCTET_STREAM_VALUE);
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION,
+                ContentDisposition.attachment().filename("filmorate.dump").build().toString());
+        if (Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORT))) {
+            Path file = dumpService.exportToFile();
+            long size = Files.size(file);
+            response.setContentLengthLong(size);
+            request.setAttribute(SENDFILE_FILENAME, file.toAbsolutePath().toString());
+            request.setAttribute(SENDFILE_START, 0L);
+            request.setAttribute(SENDFILE_END, size);
+            return;
+        }
+        dumpService.export(Channels.newChannel(response.getOutputStream()));
+    }
+
+    @PostMapping(consumes = MediaType.APPLICATION_OCTET_STREAM_VALUE)
+    public ResponseEntity<DumpReport> importDump(InputStream body) throws IOException {
+        DumpReport report = dumpService.importFrom(Channels.newChannel(body));
+        return EventSequences.ok(report, report.eventSequence());
+    }
+}
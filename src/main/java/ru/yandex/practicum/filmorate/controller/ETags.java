@@ -0,0 +1,28 @@
+package ru.yandex.practicum.filmorate.controller;
+
+import org.springframework.web.context.request.WebRequest;
+
+import java.util.OptionalLong;
+
+/**
+ * Сильные ETag по версиям хранилища. Версия читается до загрузки ответа, поэтому при совпадении
+ * If-None-Match ответ 304 отдаётся без чтения сущностей и сериализации; ответ, собранный после версии,
+ * может быть только новее её, и клиент не закэширует устаревшее тело под новым тегом.
+ * <p>
+ * Номера версий после перезапуска начинаются заново, поэтому в тег входит метка запуска процесса.
+ */
+final class ETags {
+    private static final String EPOCH = Long.toString(System.currentTimeMillis(), Character.MAX_RADIX);
+
+    private ETags() {
+    }
+
+    /**
+     * Ставит ETag ответа по версии и сообщает, совпал ли он с If-None-Match; тогда обработчик возвращает
+     * null, а Spring отвечает 304. Без версии заголовок не ставится и ответ собирается как обычно.
+     */
+    static boolean notModified(WebRequest request, OptionalLong version) {
+        return version.isPresent() && request.checkNotModified(
+                '"' + EPOCH + '-' + Long.toString(version.getAsLong(), Character.MAX_RADIX) + '"');
+    }
+}
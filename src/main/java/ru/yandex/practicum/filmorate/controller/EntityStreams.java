@@ -0,0 +1,66 @@
+package ru.yandex.practicum.filmorate.controller;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import ru.yandex.practicum.filmorate.exception.ValidationException;
+import ru.yandex.practicum.filmorate.service.Paging;
+
+import java.util.List;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+
+/**
+ * Потоковая выдача коллекций: сущности читаются страницами по id и пишутся прямо в ответ,
+ * без промежуточного списка всего каталога.
+ */
+final class EntityStreams {
+    static final String NDJSON = "ndjson";
+    static final String ARRAY = "array";
+
+    private EntityStreams() {
+    }
+
+    static <T> ResponseEntity<StreamingResponseBody> stream(String mode,
+                                                            ObjectMapper objectMapper,
+                                                            BiFunction<Integer, Integer, List<T>> pages,
+                                                            Function<T, Integer> idOf) {
+        boolean ndjson = NDJSON.equals(mode);
+        if (!ndjson && !ARRAY.equals(mode)) {
+            throw new ValidationException("Параметр stream должен быть " + NDJSON + " или " + ARRAY);
+        }
+        ObjectWriter writer = objectMapper.writer().without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+        StreamingResponseBody body = out -> {
+            try (JsonGenerator generator = objectMapper.getFactory().createGenerator(out)) {
+                generator.setRootValueSeparator(null);
+                if (!ndjson) {
+                    generator.writeStartArray();
+                }
+                Integer after = null;
+                List<T> page;
+                do {
+                    page = pages.apply(after, Paging.MAX_LIMIT);
+                    for (T item : page) {
+                        writer.writeValue(generator, item);
+                        if (ndjson) {
+                            generator.writeRaw('\n');
+                        }
+                    }
+                    generator.flush();
+                    if (!page.isEmpty()) {
+                        after = idOf.apply(page.get(page.size() - 1));
+                    }
+                } while (page.size() == Paging.MAX_LIMIT);
+                if (!ndjson) {
+                    generator.writeEndArray();
+                }
+            }
+        };
+        MediaType type = ndjson ? MediaType.APPLICATION_NDJSON : MediaType.APPLICATION_JSON;
+        return ResponseEntity.ok().contentType(type).body(body);
+    }
+}
@@ -0,0 +1,23 @@
+package ru.yandex.practicum.filmorate.controller;
+
+import org.springframework.http.ResponseEntity;
+
+/**
+ * Заголовок X-Event-Sequence для чтения своих записей: ответ на лайк, дружбу, импорт или загрузку дампа несёт
+ * номер события, а запрос рекомендаций с этим заголовком ждёт, пока событие применят
+ * (не дольше filmorate.events.await-timeout).
+ */
+final class EventSequences {
+    static final String HEADER = "X-Event-Sequence";
+
+    private EventSequences() {
+    }
+
+    static ResponseEntity<Void> ok(long sequence) {
+        return ResponseEntity.ok().header(HEADER, Long.toString(sequence)).build();
+    }
+
+    static <T> ResponseEntity<T> ok(T body, long sequence) {
+        return ResponseEntity.ok().header(HEADER, Long.toString(sequence)).body(body);
+    }
+}
@@ -1,26 +1,42 @@
 package ru.yandex.practicum.filmorate.controller;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.convert.DurationStyle;
+import org.springframework.http.ResponseEntity;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import ru.yandex.practicum.filmorate.exception.ValidationException;
 import ru.yandex.practicum.filmorate.model.Film;
 import ru.yandex.practicum.filmorate.service.FilmService;
 import ru.yandex.practicum.filmorate.validation.CreateGroup;
 import ru.yandex.practicum.filmorate.validation.UpdateGroup;
 
+import java.time.Duration;
 import java.util.Collection;
-import java.util.List;
+import java.util.OptionalLong;
 
 @RestController
 @Slf4j
 @RequestMapping("/films")
 public class FilmController {
     private final FilmService filmService;
+    private final ObjectMapper objectMapper;
+    private final JsonBytesCache filmBytes;
+    private final JsonBytesCache popularBytes;
 
     @Autowired
-    public FilmController(FilmService filmService) {
+    public FilmController(FilmService filmService, ObjectMapper objectMapper,
+                          @Value("${filmorate.response-cache.max-size:10000}") int maxSize,
+                          @Value("${filmorate.response-cache.popular-size:64}") int popularSize) {
         this.filmService = filmService;
+        this.objectMapper = objectMapper;
+        this.filmBytes = new JsonBytesCache(objectMapper, maxSize);
+        this.popularBytes = new JsonBytesCache(objectMapper, popularSize);
     }
 
     @PostMapping
@@ -38,27 +54,63 @@ public class FilmController {
     }
 
     @GetMapping
-    public Collection<Film> getAllFilms() {
-        return filmService.getAll();
+    public Collection<Film> getAllFilms(@RequestParam(required = false) Integer after,
+                                        @RequestParam(required = false) Integer limit,
+                                        WebRequest request) {
+        if (ETags.notModified(request, filmService.getCatalogVersion())) {
+            return null;
+        }
+        if (after == null && limit == null) {
+            return filmService.getAll();
+        }
+        return filmService.getPage(after, limit);
+    }
+
+    @GetMapping(params = "stream")
+    public ResponseEntity<StreamingResponseBody> streamFilms(@RequestParam String stream) {
+        return EntityStreams.stream(stream, objectMapper, filmService::getPage, Film::getId);
     }
 
     @GetMapping("/{id}")
-    public Film getFilm(@PathVariable Integer id) {
-        return filmService.getById(id);
+    public ResponseEntity<byte[]> getFilm(@PathVariable Integer id, WebRequest request) {
+        OptionalLong version = filmService.getVersion(id);
+        if (ETags.notModified(request, version)) {
+            return null;
+        }
+        return filmBytes.respond(id, version, () -> filmService.getById(id));
     }
 
     @PutMapping("/{id}/like/{userId}")
-    public void addLike(@PathVariable Integer id, @PathVariable Integer userId) {
-        filmService.addLike(id, userId);
+    public ResponseEntity<Void> addLike(@PathVariable Integer id, @PathVariable Integer userId) {
+        return EventSequences.ok(filmService.addLike(id, userId));
     }
 
     @DeleteMapping("/{id}/like/{userId}")
-    public void removeLike(@PathVariable Integer id, @PathVariable Integer userId) {
-        filmService.removeLike(id, userId);
+    public ResponseEntity<Void> removeLike(@PathVariable Integer id, @PathVariable Integer userId) {
+        return EventSequences.ok(filmService.removeLike(id, userId));
     }
 
     @GetMapping("/popular")
-    public List<Film> getPopular(@RequestParam(defaultValue = "10") int count) {
-        return filmService.getPopular(count);
+    public ResponseEntity<?> getPopular(@RequestParam(defaultValue = "10") int count,
+                                 @RequestParam(required = false) String window,
+                                 WebRequest request) {
+        if (window != null) {
+            // Окно сдвигается со временем, и ответ меняется без изменений в каталоге
+            return ResponseEntity.ok(filmService.getTrending(parseWindow(window), count));
+        }
+        OptionalLong version = filmService.getCatalogVersion();
+        if (ETags.notModified(request, version)) {
+            return null;
+        }
+        return popularBytes.respond(count, version, () -> filmService.getPopular(count));
+    }
+
+    // Окно в том же виде, что и длительности в настройках: 24h, 7d, 90m или PT24H
+    private static Duration parseWindow(String window) {
+        try {
+            return DurationStyle.detectAndParse(window);
+        } catch (IllegalArgumentException e) {
+            throw new ValidationException("Некорректное окно: " + window);
+        }
     }
 }
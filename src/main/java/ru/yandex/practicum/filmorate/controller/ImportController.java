@@ -0,0 +1,60 @@
+package ru.yandex.practicum.filmorate.controller;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import ru.yandex.practicum.filmorate.service.ImportFormat;
+import ru.yandex.practicum.filmorate.service.ImportReport;
+import ru.yandex.practicum.filmorate.service.ImportService;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Массовая загрузка: тело в NDJSON или CSV (по Content-Type) читается потоком, в ответ — отчёт
+ * с числом записанных и отклонённых записей и ошибками по номерам строк, а в X-Event-Sequence — номер события,
+ * после которого рекомендации учтут импорт.
+ */
+@RestController
+@RequestMapping(value = "/import", consumes = {MediaType.APPLICATION_NDJSON_VALUE, ImportFormat.CSV_VALUE})
+public class ImportController {
+    private final ImportService importService;
+
+    @Autowired
+    public ImportController(ImportService importService) {
+        this.importService = importService;
+    }
+
+    @PostMapping("/films")
+    public ResponseEntity<ImportReport> importFilms(@RequestHeader(HttpHeaders.CONTENT_TYPE) String contentType,
+                                                    InputStream body) throws IOException {
+        ImportReport report = importService.importFilms(body, ImportFormat.of(contentType));
+        return EventSequences.ok(report, report.eventSequence());
+    }
+
+    @PostMapping("/users")
+    public ResponseEntity<ImportReport> importUsers(@RequestHeader(HttpHeaders.CONTENT_TYPE) String contentType,
+                                                    InputStream body) throws IOException {
+        ImportReport report = importService.importUsers(body, ImportFormat.of(contentType));
+        return EventSequences.ok(report, report.eventSequence());
+    }
+
+    @PostMapping("/likes")
+    public ResponseEntity<ImportReport> importLikes(@RequestHeader(HttpHeaders.CONTENT_TYPE) String contentType,
+                                                    InputStream body) throws IOException {
+        ImportReport report = importService.importLikes(body, ImportFormat.of(contentType));
+        return EventSequences.ok(report, report.eventSequence());
+    }
+
+    @PostMapping("/friends")
+    public ResponseEntity<ImportReport> importFriends(@RequestHeader(HttpHeaders.CONTENT_TYPE) String contentType,
+                                                      InputStream body) throws IOException {
+        ImportReport report = importService.importFriends(body, ImportFormat.of(contentType));
+        return EventSequences.ok(report, report.eventSequence());
+    }
+}
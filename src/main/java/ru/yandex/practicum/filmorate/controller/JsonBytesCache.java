@@ -0,0 +1,60 @@
+package ru.yandex.practicum.filmorate.controller;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import ru.yandex.practicum.filmorate.storage.EntityCache;
+
+import java.io.UncheckedIOException;
+import java.util.OptionalLong;
+import java.util.function.Supplier;
+import java.util.function.UnaryOperator;
+
+/**
+ * Кэш готовых UTF-8 байтов JSON-ответов по ключу и версии данных из хранилища: при попадании байты пишутся
+ * в ответ как есть, без Jackson. Изменение сущности кэш явно не сбрасывает — у неё появляется новая версия,
+ * и прежние байты перестают ей соответствовать. Если хранилище версий не ведёт, ответ кодируется каждый раз.
+ */
+final class JsonBytesCache {
+    private final ObjectMapper objectMapper;
+    private final EntityCache<Encoded> cache;
+
+    JsonBytesCache(ObjectMapper objectMapper, int maxSize) {
+        this.objectMapper = objectMapper;
+        // Закодированные байты никто не меняет, поэтому кэш отдаёт их без копии
+        this.cache = new EntityCache<>(maxSize, 16, UnaryOperator.identity());
+    }
+
+    /**
+     * Ответ для key: байты из кэша, если они закодированы с версии не старше version, иначе из body.
+     * Тело загружается уже после чтения версии и потому не старше её — его байты можно хранить под этой версией.
+     */
+    ResponseEntity<byte[]> respond(int key, OptionalLong version, Supplier<?> body) {
+        byte[] bytes;
+        if (version.isEmpty()) {
+            bytes = encode(body.get());
+        } else {
+            long current = version.getAsLong();
+            Encoded cached = cache.get(key, k -> new Encoded(current, encode(body.get())));
+            if (cached.version() < current) {
+                // После сброса параллельная загрузка, начатая до него, устаревшие байты в кэш не вернёт
+                cache.invalidate(key);
+                cached = cache.get(key, k -> new Encoded(current, encode(body.get())));
+            }
+            bytes = cached.bytes();
+        }
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).body(bytes);
+    }
+
+    private byte[] encode(Object value) {
+        try {
+            return objectMapper.writeValueAsBytes(value);
+        } catch (JsonProcessingException e) {
+            throw new UncheckedIOException("Не удалось сериализовать ответ", e);
+        }
+    }
+
+    private record Encoded(long version, byte[] bytes) {
+    }
+}
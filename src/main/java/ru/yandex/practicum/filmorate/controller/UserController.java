@@ -1,10 +1,16 @@
 package ru.yandex.practicum.filmorate.controller;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import ru.yandex.practicum.filmorate.model.Film;
 import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.service.FilmService;
 import ru.yandex.practicum.filmorate.service.UserService;
 import ru.yandex.practicum.filmorate.validation.CreateGroup;
 import ru.yandex.practicum.filmorate.validation.UpdateGroup;
@@ -16,10 +22,14 @@ import java.util.Collection;
 @RequestMapping("/users")
 public class UserController {
     private final UserService userService;
+    private final FilmService filmService;
+    private final ObjectMapper objectMapper;
 
     @Autowired
-    public UserController(UserService userService) {
+    public UserController(UserService userService, FilmService filmService, ObjectMapper objectMapper) {
         this.userService = userService;
+        this.filmService = filmService;
+        this.objectMapper = objectMapper;
     }
 
     @PostMapping
@@ -37,34 +47,82 @@ public class UserController {
     }
 
     @GetMapping
-    public Collection<User> getAllUsers() {
-        return userService.getAll();
+    public Collection<User> getAllUsers(@RequestParam(required = false) Integer after,
+                                        @RequestParam(required = false) Integer limit,
+                                        WebRequest request) {
+        if (ETags.notModified(request, userService.getCatalogVersion())) {
+            return null;
+        }
+        if (after == null && limit == null) {
+            return userService.getAll();
+        }
+        return userService.getPage(after, limit);
+    }
+
+    @GetMapping(params = "stream")
+    public ResponseEntity<StreamingResponseBody> streamUsers(@RequestParam String stream) {
+        return EntityStreams.stream(stream, objectMapper, userService::getPage, User::getId);
     }
 
     @GetMapping("/{id}")
-    public User getUser(@PathVariable Integer id) {
+    public User getUser(@PathVariable Integer id, WebRequest request) {
+        if (ETags.notModified(request, userService.getVersion(id))) {
+            return null;
+        }
         return userService.getById(id);
     }
 
     @PutMapping("/{id}/friends/{friendId}")
-    public void addFriend(@PathVariable Integer id, @PathVariable Integer friendId) {
-        userService.addFriend(id, friendId);
+    public ResponseEntity<Void> addFriend(@PathVariable Integer id, @PathVariable Integer friendId) {
+        return EventSequences.ok(userService.addFriend(id, friendId));
     }
 
     @DeleteMapping("/{id}/friends/{friendId}")
-    public void removeFriend(@PathVariable Integer id, @PathVariable Integer friendId) {
-        userService.removeFriend(id, friendId);
+    public ResponseEntity<Void> removeFriend(@PathVariable Integer id, @PathVariable Integer friendId) {
+        return EventSequences.ok(userService.removeFriend(id, friendId));
     }
 
     @GetMapping("/{id}/friends")
-    public Collection<User> getFriends(@PathVariable Integer id) {
+    public Collection<User> getFriends(@PathVariable Integer id, WebRequest request) {
+        if (ETags.notModified(request, userService.getFriendsVersion(id))) {
+            return null;
+        }
         return userService.getFriends(id);
     }
 
     @GetMapping("/{id}/friends/common/{otherId}")
-    public Collection<User> getCommonFriends(@PathVariable Integer id, @PathVariable Integer otherId) {
-        return userService.getCommonFriends(id, otherId);
+    public Collection<User> getCommonFriends(@PathVariable Integer id, @PathVariable Integer otherId,
+                                             @RequestParam(required = false) Integer after,
+                                             @RequestParam(required = false) Integer limit) {
+        return userService.getCommonFriends(id, otherId, after, limit);
+    }
+
+    @GetMapping("/{id}/likes")
+    public Collection<Film> getLikedFilms(@PathVariable Integer id,
+                                          @RequestParam(required = false) Integer after,
+                                          @RequestParam(required = false) Integer limit) {
+        return filmService.getLikedFilms(id, after, limit);
     }
-}
 
+    @GetMapping("/{id}/recommendations")
+    public Collection<User> getRecommendations(@PathVariable Integer id,
+                                               @RequestParam(defaultValue = "10") int count,
+                                               @RequestHeader(name = EventSequences.HEADER, required = false)
+                                               Long sequence) {
+        if (sequence != null) {
+            userService.awaitEvent(sequence);
+        }
+        return userService.getRecommendations(id, count);
+    }
 
+    @GetMapping("/{id}/films/recommended")
+    public Collection<Film> getRecommendedFilms(@PathVariable Integer id,
+                                                @RequestParam(defaultValue = "10") int count,
+                                                @RequestHeader(name = EventSequences.HEADER, required = false)
+                                                Long sequence) {
+        if (sequence != null) {
+            userService.awaitEvent(sequence);
+        }
+        return userService.getRecommendedFilms(id, count);
+    }
+}
@@ -0,0 +1,54 @@
+package ru.yandex.practicum.filmorate.dump;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * Дамп из командной строки: {@code java -jar filmorate.jar export|import <файл> [--свойство=значение...]}.
+ * Приложение поднимается без веб-сервера с теми же хранилищами, что и обычно, поэтому выгружается то,
+ * что восстановлено из журнала или лежит в базе. Загрузка имеет смысл в хранилище, которое переживёт
+ * перезапуск: с filmorate.journal.enabled=true или в файловую базу H2.
+ */
+@Slf4j
+public final class DumpCommand {
+    private static final String EXPORT = "export";
+    private static final String IMPORT = "import";
+
+    private DumpCommand() {
+    }
+
+    public static boolean matches(String[] args) {
+        return args.length >= 2 && (EXPORT.equals(args[0]) || IMPORT.equals(args[0]));
+    }
+
+    public static void run(Class<?> application, String[] args) throws IOException {
+        Path file = Path.of(args[1]);
+        String[] properties = Arrays.copyOfRange(args, 2, args.length);
+        try (ConfigurableApplicationContext context = new SpringApplicationBuilder(application)
+                .web(WebApplicationType.NONE)
+                .run(properties)) {
+            DumpService dumpService = context.getBean(DumpService.class);
+            DumpReport report;
+            if (EXPORT.equals(args[0])) {
+                try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE,
+                        StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                    report = dumpService.export(channel);
+                    channel.force(true);
+                }
+            } else {
+                try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+                    report = dumpService.importFrom(channel);
+                }
+            }
+            log.info("{} {}: {}", args[0], file, report);
+        }
+    }
+}
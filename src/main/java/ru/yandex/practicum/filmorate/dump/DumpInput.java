@@ -0,0 +1,119 @@
+package ru.yandex.practicum.filmorate.dump;
+
+import ru.yandex.practicum.filmorate.exception.ValidationException;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+
+/**
+ * Чтение дампа из канала через один прямой буфер; обратная сторона {@link DumpOutput}.
+ * Обрыв или неверная кодировка — {@link ValidationException}.
+ */
+final class DumpInput {
+    // Защита от повреждённой длины: строки в моделях на порядки короче
+    private static final int MAX_STRING = 1 << 24;
+
+    private final ReadableByteChannel channel;
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(DumpOutput.BUFFER_SIZE).limit(0);
+    private long bytes;
+
+    DumpInput(ReadableByteChannel channel) {
+        this.channel = channel;
+    }
+
+    int readByte() throws IOException {
+        if (!buffer.hasRemaining()) {
+            fill();
+        }
+        return buffer.get() & 0xFF;
+    }
+
+    void readBytes(byte[] value) throws IOException {
+        for (int offset = 0; offset < value.length; ) {
+            if (!buffer.hasRemaining()) {
+                fill();
+            }
+            int length = Math.min(buffer.remaining(), value.length - offset);
+            buffer.get(value, offset, length);
+            offset += length;
+        }
+    }
+
+    int readVarint() throws IOException {
+        long value = readVarlong();
+        if (value >>> 32 != 0) {
+            throw corrupted("число вне диапазона");
+        }
+        return (int) value;
+    }
+
+    long readVarlong() throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            int b = readByte();
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw corrupted("слишком длинное число");
+    }
+
+    long readSignedVarint() throws IOException {
+        return unzigzag(readVarlong());
+    }
+
+    String readString() throws IOException {
+        int length = readVarint();
+        if (length == 0) {
+            return null;
+        }
+        if (length - 1 > MAX_STRING || length < 0) {
+            throw corrupted("строка длиной " + (length - 1));
+        }
+        byte[] utf8 = new byte[length - 1];
+        readBytes(utf8);
+        return new String(utf8, StandardCharsets.UTF_8);
+    }
+
+    LocalDate readDate() throws IOException {
+        long value = readVarlong();
+        return value == 0 ? null : LocalDate.ofEpochDay(unzigzag(value - 1));
+    }
+
+    Integer readNullableInt() throws IOException {
+        long value = readVarlong();
+        return value == 0 ? null : (int) unzigzag(value - 1);
+    }
+
+    /**
+     * Сколько байт прочитано из канала.
+     */
+    long bytes() {
+        return bytes;
+    }
+
+    static ValidationException corrupted(String reason) {
+        return new ValidationException("Дамп повреждён: " + reason);
+    }
+
+    private void fill() throws IOException {
+        buffer.clear();
+        int read;
+        do {
+            read = channel.read(buffer);
+        } while (read == 0);
+        buffer.flip();
+        if (read < 0) {
+            throw corrupted("неожиданный конец");
+        }
+        bytes += read;
+    }
+
+    private static long unzigzag(long value) {
+        return value >>> 1 ^ -(value & 1);
+    }
+}
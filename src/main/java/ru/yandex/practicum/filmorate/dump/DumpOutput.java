@@ -0,0 +1,108 @@
+package ru.yandex.practicum.filmorate.dump;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+
+/**
+ * Запись дампа в канал через один прямой буфер: целые — varint, строки — длина и UTF-8,
+ * даты и необязательные числа — zigzag со сдвигом на единицу, чтобы 0 означал null.
+ */
+final class DumpOutput {
+    static final int BUFFER_SIZE = 64 * 1024;
+
+    private final WritableByteChannel channel;
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+    private long bytes;
+
+    DumpOutput(WritableByteChannel channel) {
+        this.channel = channel;
+    }
+
+    void writeByte(int value) throws IOException {
+        ensure(1);
+        buffer.put((byte) value);
+    }
+
+    void writeBytes(byte[] value) throws IOException {
+        for (int offset = 0; offset < value.length; ) {
+            ensure(1);
+            int length = Math.min(buffer.remaining(), value.length - offset);
+            buffer.put(value, offset, length);
+            offset += length;
+        }
+    }
+
+    /**
+     * Целое без знака: по 7 бит в байте, старший бит — признак продолжения.
+     */
+    void writeVarint(int value) throws IOException {
+        ensure(5);
+        while ((value & ~0x7F) != 0) {
+            buffer.put((byte) (value & 0x7F | 0x80));
+            value >>>= 7;
+        }
+        buffer.put((byte) value);
+    }
+
+    void writeVarlong(long value) throws IOException {
+        ensure(10);
+        while ((value & ~0x7FL) != 0) {
+            buffer.put((byte) (value & 0x7F | 0x80));
+            value >>>= 7;
+        }
+        buffer.put((byte) value);
+    }
+
+    /**
+     * Целое со знаком: zigzag, чтобы небольшие по модулю отрицательные числа тоже занимали байт-два.
+     */
+    void writeSignedVarint(long value) throws IOException {
+        writeVarlong(zigzag(value));
+    }
+
+    void writeString(String value) throws IOException {
+        if (value == null) {
+            writeVarint(0);
+            return;
+        }
+        byte[] utf8 = value.getBytes(StandardCharsets.UTF_8);
+        writeVarint(utf8.length + 1);
+        writeBytes(utf8);
+    }
+
+    void writeDate(LocalDate value) throws IOException {
+        writeVarlong(value == null ? 0 : zigzag(value.toEpochDay()) + 1);
+    }
+
+    void writeNullableInt(Integer value) throws IOException {
+        writeVarlong(value == null ? 0 : zigzag(value) + 1);
+    }
+
+    void flush() throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            bytes += channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    /**
+     * Сколько байт уже отдано в канал.
+     */
+    long bytes() {
+        return bytes;
+    }
+
+    private void ensure(int length) throws IOException {
+        if (buffer.remaining() < length) {
+            flush();
+        }
+    }
+
+    private static long zigzag(long value) {
+        return value << 1 ^ value >> 63;
+    }
+}
@@ -0,0 +1,19 @@
+package ru.yandex.practicum.filmorate.dump;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
+/**
+ * Итог выгрузки или загрузки дампа: сколько пользователей, фильмов, лайков и дружб (каждая пара один раз),
+ * сколько лайков и дружб пропущено при загрузке из-за отсутствующих в дампе пользователей, размер и время.
+ * eventSequence — номер события, после которого рекомендации учтут загрузку (для X-Event-Sequence, в тело
+ * не пишется); у выгрузки 0.
+ */
+public record DumpReport(long users,
+                         long films,
+                         long likes,
+                         long friendships,
+                         long skipped,
+                         long bytes,
+                         long durationMs,
+                         @JsonIgnore long eventSequence) {
+}
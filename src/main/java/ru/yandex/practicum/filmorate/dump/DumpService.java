@@ -0,0 +1,428 @@
+package ru.yandex.practicum.filmorate.dump;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import ru.yandex.practicum.filmorate.event.DomainEvent;
+import ru.yandex.practicum.filmorate.event.EventPipeline;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.IntSet;
+import ru.yandex.practicum.filmorate.storage.film.FilmStorage;
+import ru.yandex.practicum.filmorate.storage.user.UserStorage;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Выгрузка всего каталога в компактный двоичный дамп и загрузка его обратно.
+ * <p>
+ * Формат: сигнатура {@code FLMD} и версия, затем секции пользователей, фильмов и дружб, каждая — байт типа
+ * и записи до varint 0, в конце байт {@link #END}. Записи идут в порядке создания и начинаются с разности id
+ * с предыдущей записью — со знаком (zigzag): в порядке создания id не обязательно растут. Поля — varint
+ * и строки UTF-8 с длиной (см. {@link DumpOutput}). Лайки хранятся в записи фильма, дружбы — отдельной
+ * секцией, каждая пара один раз: у пользователя только друзья с большим id, по возрастанию, разностями.
+ * Пользователь с 50 друзьями и фильм со 100 лайками занимают так по байту-два на связь вместо 4–8 в JSON.
+ * <p>
+ * Выгрузка идёт страницами getPage и сразу пишется в канал, поэтому каталог целиком в памяти не собирается
+ * и подходит любое хранилище. Она не атомарна: изменения во время выгрузки могут попасть в неё частично,
+ * а лайки и дружбы пользователей, созданных после прохода по пользователям, при загрузке пропустятся.
+ * <p>
+ * Загрузка создаёт сущности пачками через createAll и addFriends, поэтому годится и для непустого хранилища:
+ * id назначает хранилище, а связи переводятся со старых id на новые. Сущности создаются в порядке дампа,
+ * так что порядок создания переносится вместе с ними.
+ */
+@Service
+@Slf4j
+public class DumpService {
+    static final byte[] MAGIC = {'F', 'L', 'M', 'D', 2};
+    static final byte END = 0;
+    static final byte USERS = 1;
+    static final byte FILMS = 2;
+    static final byte FRIENDS = 3;
+
+    private static final String FILE_PREFIX = "filmorate-";
+    private static final String FILE_SUFFIX = ".dump";
+
+    private final FilmStorage filmStorage;
+    private final UserStorage userStorage;
+    private final EventPipeline events;
+    private final int batchSize;
+    private final Path directory;
+    private final Duration retention;
+
+    @Autowired
+    public DumpService(FilmStorage filmStorage,
+                       UserStorage userStorage,
+                       EventPipeline events,
+                       @Value("${filmorate.import.batch-size:1000}") int batchSize,
+                       @Value("${filmorate.dump.directory:${java.io.tmpdir}/filmorate-dump}") String directory,
+                       @Value("${filmorate.dump.retention:10m}") Duration retention) {
+        this.filmStorage = filmStorage;
+        this.userStorage = userStorage;
+        this.events = events;
+        this.batchSize = batchSize;
+        this.directory = Path.of(directory);
+        this.retention = retention;
+    }
+
+    /**
+     * Выгружает каталог в канал. Канал не закрывается.
+     */
+    public DumpReport export(WritableByteChannel channel) throws IOException {
+        long start = System.nanoTime();
+        DumpOutput out = new DumpOutput(channel);
+        out.writeBytes(MAGIC);
+
+        out.writeByte(USERS);
+        long users = 0;
+        int previous = 0;
+        for (List<User> page = userStorage.getPage(null, batchSize); !page.isEmpty();
+             page = userStorage.getPage(previous, batchSize)) {
+            for (User user : page) {
+                out.writeSignedVarint(user.getId() - (long) previous);
+                previous = user.getId();
+                out.writeString(user.getEmail());
+                out.writeString(user.getLogin());
+                out.writeString(user.getName());
+                out.writeDate(user.getBirthday());
+                users++;
+            }
+        }
+        out.writeVarint(0);
+
+        out.writeByte(FILMS);
+        long films = 0;
+        long likes = 0;
+        previous = 0;
+        for (List<Film> page = filmStorage.getPage(null, batchSize); !page.isEmpty();
+             page = filmStorage.getPage(previous, batchSize)) {
+            for (Film film : page) {
+                out.writeSignedVarint(film.getId() - (long) previous);
+                previous = film.getId();
+                out.writeString(film.getName());
+                out.writeString(film.getDescription());
+                out.writeDate(film.getReleaseDate());
+                out.writeNullableInt(film.getDuration());
+                int[] userIds = IntSet.copyOf(film.getLikes()).toIntArray();
+                writeIds(out, userIds, 0, 0);
+                likes += userIds.length;
+                films++;
+            }
+        }
+        out.writeVarint(0);
+
+        out.writeByte(FRIENDS);
+        long friendships = 0;
+        previous = 0;
+        int after = 0;
+        for (List<User> page = userStorage.getPage(null, batchSize); !page.isEmpty();
+             page = userStorage.getPage(after, batchSize)) {
+            for (User user : page) {
+                after = user.getId();
+                int[] friendIds = IntSet.copyOf(user.getFriends()).toIntArray();
+                int from = Arrays.binarySearch(friendIds, user.getId()) + 1;
+                from = from > 0 ? from : -from;
+                if (from == friendIds.length) {
+                    continue;
+                }
+                out.writeSignedVarint(user.getId() - (long) previous);
+                previous = user.getId();
+                writeIds(out, friendIds, from, user.getId());
+                friendships += friendIds.length - from;
+            }
+        }
+        out.writeVarint(0);
+
+        out.writeByte(END);
+        out.flush();
+        return new DumpReport(users, films, likes, friendships, 0, out.bytes(), millisSince(start), 0);
+    }
+
+    /**
+     * Загружает дамп из канала в хранилища. Канал не закрывается. Лайки и дружбы пишутся пачками мимо событий,
+     * поэтому в конце, даже после ошибки на середине, публикуется одно событие {@link DomainEvent.Resync}.
+     */
+    public DumpReport importFrom(ReadableByteChannel channel) throws IOException {
+        long start = System.nanoTime();
+        DumpInput in = new DumpInput(channel);
+        byte[] magic = new byte[MAGIC.length];
+        in.readBytes(magic);
+        if (!Arrays.equals(magic, MAGIC)) {
+            throw DumpInput.corrupted("неизвестная сигнатура или версия");
+        }
+        IdMap userIds = new IdMap();
+        long users = 0;
+        long films = 0;
+        long likes = 0;
+        long friendships = 0;
+        long skipped = 0;
+        try {
+            for (int section = in.readByte(); section != END; section = in.readByte()) {
+                switch (section) {
+                    case USERS -> users = readUsers(in, userIds);
+                    case FILMS -> {
+                        long[] counts = readFilms(in, userIds);
+                        films = counts[0];
+                        likes = counts[1];
+                        skipped += counts[2];
+                    }
+                    case FRIENDS -> {
+                        long[] counts = readFriends(in, userIds);
+                        friendships = counts[0];
+                        skipped += counts[1];
+                    }
+                    default -> throw DumpInput.corrupted("неизвестная секция " + section);
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            // Часть дампа уже в хранилищах
+            events.publish(new DomainEvent.Resync());
+            throw e;
+        }
+        long sequence = events.publish(new DomainEvent.Resync());
+        return new DumpReport(users, films, likes, friendships, skipped, in.bytes(), millisSince(start), sequence);
+    }
+
+    /**
+     * Выгружает каталог во временный файл для отдачи через sendfile. Файл удаляется при следующей выгрузке,
+     * если он старше filmorate.dump.retention, или при остановке приложения.
+     */
+    public Path exportToFile() throws IOException {
+        Files.createDirectories(directory);
+        deleteFiles(Instant.now().minus(retention));
+        Path file = Files.createTempFile(directory, FILE_PREFIX, FILE_SUFFIX);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            DumpReport report = export(channel);
+            log.info("Дамп {}: {}", file, report);
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(file);
+            throw e;
+        }
+        return file;
+    }
+
+    @PreDestroy
+    public void close() throws IOException {
+        if (Files.isDirectory(directory)) {
+            deleteFiles(Instant.MAX);
+        }
+    }
+
+    private long readUsers(DumpInput in, IdMap userIds) throws IOException {
+        List<User> batch = new ArrayList<>(batchSize);
+        int[] oldIds = new int[batchSize];
+        long count = 0;
+        int id = 0;
+        for (long delta = in.readSignedVarint(); delta != 0; delta = in.readSignedVarint()) {
+            id = entityId(id, delta);
+            User user = new User();
+            user.setEmail(in.readString());
+            user.setLogin(in.readString());
+            user.setName(in.readString());
+            user.setBirthday(in.readDate());
+            oldIds[batch.size()] = id;
+            batch.add(user);
+            if (batch.size() == batchSize) {
+                createUsers(batch, oldIds, userIds);
+            }
+            count++;
+        }
+        createUsers(batch, oldIds, userIds);
+        return count;
+    }
+
+    private void createUsers(List<User> batch, int[] oldIds, IdMap userIds) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        List<User> created = userStorage.createAll(batch);
+        for (int i = 0; i < created.size(); i++) {
+            userIds.put(oldIds[i], created.get(i).getId());
+        }
+        batch.clear();
+    }
+
+    /**
+     * Возвращает число фильмов, записанных лайков и пропущенных лайков.
+     */
+    private long[] readFilms(DumpInput in, IdMap userIds) throws IOException {
+        List<Film> batch = new ArrayList<>(batchSize);
+        long[] counts = new long[3];
+        int id = 0;
+        for (long delta = in.readSignedVarint(); delta != 0; delta = in.readSignedVarint()) {
+            id = entityId(id, delta);
+            Film film = new Film();
+            film.setName(in.readString());
+            film.setDescription(in.readString());
+            film.setReleaseDate(in.readDate());
+            film.setDuration(in.readNullableInt());
+            int size = in.readVarint();
+            int[] likes = new int[size];
+            int mapped = 0;
+            for (int i = 0, userId = 0; i < size; i++) {
+                userId = nextId(userId, in.readVarint());
+                int newId = userIds.get(userId);
+                if (newId != 0) {
+                    likes[mapped++] = newId;
+                }
+            }
+            film.setLikes(IntSet.of(Arrays.copyOf(likes, mapped)));
+            counts[1] += mapped;
+            counts[2] += size - mapped;
+            batch.add(film);
+            if (batch.size() == batchSize) {
+                filmStorage.createAll(batch);
+                batch.clear();
+            }
+            counts[0]++;
+        }
+        if (!batch.isEmpty()) {
+            filmStorage.createAll(batch);
+        }
+        return counts;
+    }
+
+    /**
+     * Возвращает число записанных и пропущенных дружб.
+     */
+    private long[] readFriends(DumpInput in, IdMap userIds) throws IOException {
+        int[] from = new int[batchSize];
+        int[] to = new int[batchSize];
+        int pending = 0;
+        long[] counts = new long[2];
+        int userId = 0;
+        for (long delta = in.readSignedVarint(); delta != 0; delta = in.readSignedVarint()) {
+            userId = entityId(userId, delta);
+            int newUserId = userIds.get(userId);
+            int size = in.readVarint();
+            for (int i = 0, friendId = userId; i < size; i++) {
+                friendId = nextId(friendId, in.readVarint());
+                int newFriendId = userIds.get(friendId);
+                if (newUserId == 0 || newFriendId == 0) {
+                    counts[1]++;
+                    continue;
+                }
+                from[pending] = newUserId;
+                to[pending++] = newFriendId;
+                if (pending == batchSize) {
+                    userStorage.addFriends(from, to);
+                    pending = 0;
+                }
+                counts[0]++;
+            }
+        }
+        if (pending > 0) {
+            userStorage.addFriends(Arrays.copyOf(from, pending), Arrays.copyOf(to, pending));
+        }
+        return counts;
+    }
+
+    private static void writeIds(DumpOutput out, int[] ids, int from, int base) throws IOException {
+        out.writeVarint(ids.length - from);
+        for (int i = from, previous = base; i < ids.length; i++) {
+            out.writeVarint(ids[i] - previous);
+            previous = ids[i];
+        }
+    }
+
+    private static int entityId(int previous, long delta) {
+        long id = previous + delta;
+        if (id <= 0 || id > Integer.MAX_VALUE) {
+            throw DumpInput.corrupted("id вне диапазона");
+        }
+        return (int) id;
+    }
+
+    private static int nextId(int previous, int delta) {
+        int id = previous + delta;
+        if (delta <= 0 || id <= previous) {
+            throw DumpInput.corrupted("id не по возрастанию");
+        }
+        return id;
+    }
+
+    private void deleteFiles(Instant olderThan) throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            for (Path file : (Iterable<Path>) files::iterator) {
+                String name = file.getFileName().toString();
+                if (name.startsWith(FILE_PREFIX) && name.endsWith(FILE_SUFFIX)
+                        && Files.getLastModifiedTime(file).compareTo(FileTime.from(olderThan)) < 0) {
+                    Files.deleteIfExists(file);
+                }
+            }
+        }
+    }
+
+    private static long millisSince(long start) {
+        return (System.nanoTime() - start) / 1_000_000;
+    }
+
+    /**
+     * Старые id пользователей в новые: открытая адресация в двух примитивных массивах, 0 — пользователя
+     * не было в дампе. Размер растёт с числом пользователей в дампе, а не с величиной их id, так что
+     * повреждённый или просто большой id не раздувает карту; повтор id означает повреждённый дамп.
+     */
+    private static final class IdMap {
+        private int[] keys = new int[1024];
+        private int[] values = new int[1024];
+        private int size;
+
+        void put(int oldId, int newId) {
+            if (2 * (size + 1) > keys.length) {
+                grow();
+            }
+            int slot = slot(keys, oldId);
+            if (keys[slot] == oldId) {
+                throw DumpInput.corrupted("повторный id " + oldId);
+            }
+            keys[slot] = oldId;
+            values[slot] = newId;
+            size++;
+        }
+
+        int get(int oldId) {
+            int slot = slot(keys, oldId);
+            return keys[slot] == oldId ? values[slot] : 0;
+        }
+
+        private void grow() {
+            int[] oldKeys = keys;
+            int[] oldValues = values;
+            keys = new int[oldKeys.length * 2];
+            values = new int[oldKeys.length * 2];
+            for (int i = 0; i < oldKeys.length; i++) {
+                if (oldKeys[i] != 0) {
+                    int slot = slot(keys, oldKeys[i]);
+                    keys[slot] = oldKeys[i];
+                    values[slot] = oldValues[i];
+                }
+            }
+        }
+
+        // id положительны, поэтому 0 в keys — свободная ячейка; таблица заполнена не больше чем наполовину
+        private static int slot(int[] keys, int key) {
+            int mask = keys.length - 1;
+            int h = key * 0x9E3779B9;
+            int slot = (h ^ (h >>> 16)) & mask;
+            while (keys[slot] != 0 && keys[slot] != key) {
+                slot = (slot + 1) & mask;
+            }
+            return slot;
+        }
+    }
+}
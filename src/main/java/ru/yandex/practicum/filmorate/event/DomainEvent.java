@@ -0,0 +1,34 @@
+package ru.yandex.practicum.filmorate.event;
+
+/**
+ * Изменение, уже записанное в хранилище, о котором узнают производные представления: индексы,
+ * кэши рекомендаций. Публикуется в {@link EventPipeline} после записи и вне блокировки сущности, поэтому
+ * события об одной паре из разных запросов могут прийти не в порядке изменений. Обработчик берёт состояние
+ * из хранилища, а событие говорит лишь, какую пару перечитать; поле added на состояние не влияет.
+ */
+public sealed interface DomainEvent {
+
+    record LikeChanged(int filmId, int userId, boolean added) implements DomainEvent {
+    }
+
+    record FriendshipChanged(int userId, int friendId, boolean added) implements DomainEvent {
+    }
+
+    /**
+     * Пачка импортированных лайков: пользователь userIds[i] — фильму filmIds[i].
+     */
+    record LikesImported(int[] filmIds, int[] userIds) implements DomainEvent {
+    }
+
+    /**
+     * Пачка импортированных дружб: userIds[i] — friendIds[i].
+     */
+    record FriendshipsImported(int[] userIds, int[] friendIds) implements DomainEvent {
+    }
+
+    /**
+     * Лайки и дружбы записаны мимо событий (загрузка дампа): обработчики пересобираются по хранилищу.
+     */
+    record Resync() implements DomainEvent {
+    }
+}
@@ -0,0 +1,26 @@
+package ru.yandex.practicum.filmorate.event;
+
+import java.util.List;
+
+/**
+ * Производное представление, обновляемое событиями. У каждого обработчика свой поток в {@link EventPipeline},
+ * поэтому методы одного обработчика никогда не вызываются одновременно.
+ */
+public interface DomainEventHandler {
+
+    /**
+     * Имя для потока, логов и метрик.
+     */
+    String name();
+
+    /**
+     * Применяет пачку событий в порядке публикации; события других типов пропускаются.
+     */
+    void handle(List<DomainEvent> batch);
+
+    /**
+     * Пересобирает представление по хранилищу: часть событий потеряна — очередь была переполнена
+     * или обработка пачки упала.
+     */
+    void resync();
+}
@@ -0,0 +1,326 @@
+package ru.yandex.practicum.filmorate.event;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Очередь событий об изменениях и потоки, которые применяют их к производным представлениям. Потоки запросов
+ * после записи в хранилище только публикуют событие, а индексы и кэши обновляются в фоне.
+ * <p>
+ * Очередь — кольцевой буфер на buffer-size событий: публикующие потоки занимают номера атомарным счётчиком,
+ * у каждого обработчика свой поток и своя позиция в буфере, и он забирает события пачками до batch-size.
+ * Публикация обработчик не будит: он просыпается раз в миллисекунду и забирает всё накопленное, поэтому под
+ * нагрузкой поток переключается раз на пачку, а не на каждое событие. Сразу его будят только те, кто ждёт
+ * применения события или места в буфере.
+ * Место в буфере освобождается, когда событие применили все обработчики. Если буфер полон, публикующий поток
+ * ждёт до publish-timeout; не дождавшись, он не пишет событие, а просит все обработчики пересобраться
+ * по хранилищу — изменение уже записано, и пересборка его увидит.
+ * <p>
+ * Чтение своих записей: publish возвращает номер события, и {@link #await} ждёт, пока его применят все
+ * обработчики. С read-your-writes так ждёт сам publish — запрос на изменение отвечает, когда представления
+ * уже обновлены. Ожидание ограничено await-timeout.
+ */
+@Component
+@Slf4j
+public class EventPipeline {
+    // Шаг опроса для ждущих места или применения события: короче — больше холостой работы на одном ядре
+    private static final long POLL_NANOS = TimeUnit.MICROSECONDS.toNanos(50);
+    // Сколько спит обработчик без событий, если его не разбудили: столько в худшем случае ждёт событие без ожидающих
+    private static final long IDLE_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+    private static final long RETRY_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    private final int capacity;
+    private final int mask;
+    private final int batchSize;
+    private final long publishTimeoutNanos;
+    private final boolean readYourWrites;
+    private final long awaitTimeoutNanos;
+    private final DomainEvent[] events;
+    private final long[] publishedAt;
+    // Номер события в ячейке, записывается последним: обработчик берёт ячейку, когда номер совпал с ожидаемым
+    private final AtomicLongArray sequences;
+    private final AtomicLong claimed = new AtomicLong();
+    private final LongAdder waits = new LongAdder();
+    private final LongAdder overflows = new LongAdder();
+    private final List<Consumer> consumers = new ArrayList<>();
+    private volatile boolean closed;
+
+    @Autowired
+    public EventPipeline(List<DomainEventHandler> handlers,
+                         @Value("${filmorate.events.buffer-size:8192}") int bufferSize,
+                         @Value("${filmorate.events.batch-size:256}") int batchSize,
+                         @Value("${filmorate.events.publish-timeout:100ms}") Duration publishTimeout,
+                         @Value("${filmorate.events.read-your-writes:false}") boolean readYourWrites,
+                         @Value("${filmorate.events.await-timeout:1s}") Duration awaitTimeout) {
+        if (bufferSize < 1 || batchSize < 1) {
+            throw new IllegalArgumentException("Размер буфера и пачки событий должен быть положительным");
+        }
+        this.capacity = bufferSize == 1 ? 1 : Integer.highestOneBit(bufferSize - 1) << 1;
+        this.mask = capacity - 1;
+        this.batchSize = batchSize;
+        this.publishTimeoutNanos = publishTimeout.toNanos();
+        this.readYourWrites = readYourWrites;
+        this.awaitTimeoutNanos = awaitTimeout.toNanos();
+        this.events = new DomainEvent[capacity];
+        this.publishedAt = new long[capacity];
+        this.sequences = new AtomicLongArray(capacity);
+        for (DomainEventHandler handler : handlers) {
+            consumers.add(new Consumer(handler));
+        }
+        consumers.forEach(Consumer::start);
+        log.info("Очередь событий: {} мест, обработчики {}", capacity, handlerNames());
+    }
+
+    /**
+     * Публикует событие об изменении, уже записанном в хранилище, и возвращает его номер. Ждёт места в буфере
+     * не дольше publish-timeout, а с read-your-writes — ещё и применения события.
+     */
+    public long publish(DomainEvent event) {
+        if (consumers.isEmpty()) {
+            return claimed.incrementAndGet();
+        }
+        long sequence = claim();
+        if (sequence < 0) {
+            overflows.increment();
+            long[] requested = new long[consumers.size()];
+            for (int i = 0; i < requested.length; i++) {
+                requested[i] = consumers.get(i).requestResync();
+            }
+            if (readYourWrites) {
+                awaitResync(requested);
+            }
+            return claimed.get();
+        }
+        int slot = (int) sequence & mask;
+        events[slot] = event;
+        publishedAt[slot] = System.nanoTime();
+        sequences.set(slot, sequence);
+        if (readYourWrites) {
+            await(sequence);
+        }
+        return sequence;
+    }
+
+    /**
+     * Ждёт не дольше await-timeout, пока событие с номером sequence и все до него применят все обработчики.
+     *
+     * @return false — если не дождался
+     */
+    public boolean await(long sequence) {
+        long deadline = System.nanoTime() + awaitTimeoutNanos;
+        wakeAll();
+        while (minProcessed() < sequence) {
+            if (System.nanoTime() - deadline >= 0) {
+                log.debug("Событие {} не применено за {} мс", sequence,
+                        TimeUnit.NANOSECONDS.toMillis(awaitTimeoutNanos));
+                return false;
+            }
+            LockSupport.parkNanos(POLL_NANOS);
+        }
+        return true;
+    }
+
+    /**
+     * Номер последнего опубликованного события.
+     */
+    public long lastSequence() {
+        return claimed.get();
+    }
+
+    public List<String> handlerNames() {
+        return consumers.stream().map(consumer -> consumer.handler.name()).toList();
+    }
+
+    /**
+     * Сколько опубликованных событий обработчик с номером handler ещё не применил.
+     */
+    public long lag(int handler) {
+        return claimed.get() - consumers.get(handler).processed;
+    }
+
+    /**
+     * Сколько ждёт старое из неприменённых обработчиком событий, в наносекундах; 0 — если он не отстаёт.
+     * Оценка: ячейку могут переписать, пока её читают.
+     */
+    public long lagNanos(int handler) {
+        long next = consumers.get(handler).processed + 1;
+        int slot = (int) next & mask;
+        long at = publishedAt[slot];
+        return sequences.get(slot) == next ? Math.max(0, System.nanoTime() - at) : 0;
+    }
+
+    /**
+     * Сколько публикаций ждали места в буфере.
+     */
+    public long waits() {
+        return waits.sum();
+    }
+
+    /**
+     * Сколько публикаций не дождались места и вызвали пересборку обработчиков.
+     */
+    public long overflows() {
+        return overflows.sum();
+    }
+
+    /**
+     * Останавливает обработчики, дав им применить уже опубликованные события.
+     */
+    @PreDestroy
+    public void close() throws InterruptedException {
+        closed = true;
+        for (Consumer consumer : consumers) {
+            LockSupport.unpark(consumer.thread);
+        }
+        for (Consumer consumer : consumers) {
+            consumer.thread.join(TimeUnit.NANOSECONDS.toMillis(awaitTimeoutNanos));
+        }
+    }
+
+    /**
+     * Занимает номер под событие, когда для него есть место; -1 — если места не было publish-timeout.
+     */
+    private long claim() {
+        long deadline = 0;
+        boolean waited = false;
+        while (true) {
+            long current = claimed.get();
+            if (current + 1 - minProcessed() <= capacity) {
+                if (claimed.compareAndSet(current, current + 1)) {
+                    return current + 1;
+                }
+                continue;
+            }
+            if (!waited) {
+                waited = true;
+                waits.increment();
+                wakeAll();
+                deadline = System.nanoTime() + publishTimeoutNanos;
+            } else if (System.nanoTime() - deadline >= 0) {
+                return -1;
+            }
+            LockSupport.parkNanos(POLL_NANOS);
+        }
+    }
+
+    private void wakeAll() {
+        for (Consumer consumer : consumers) {
+            consumer.wake();
+        }
+    }
+
+    private long minProcessed() {
+        long min = Long.MAX_VALUE;
+        for (Consumer consumer : consumers) {
+            min = Math.min(min, consumer.processed);
+        }
+        return min;
+    }
+
+    private void awaitResync(long[] requested) {
+        long deadline = System.nanoTime() + awaitTimeoutNanos;
+        for (int i = 0; i < requested.length; i++) {
+            while (consumers.get(i).resynced < requested[i] && System.nanoTime() - deadline < 0) {
+                LockSupport.parkNanos(POLL_NANOS);
+            }
+        }
+    }
+
+    /**
+     * Поток одного обработчика: единственный, кто двигает его позицию в буфере.
+     */
+    private final class Consumer {
+        private final DomainEventHandler handler;
+        private final AtomicLong resyncRequested = new AtomicLong();
+        private Thread thread;
+        private volatile long processed;
+        private volatile long resynced;
+        private volatile boolean idle;
+
+        Consumer(DomainEventHandler handler) {
+            this.handler = handler;
+        }
+
+        void start() {
+            thread = Thread.ofPlatform().name("events-" + handler.name()).daemon().start(this::run);
+        }
+
+        long requestResync() {
+            long requested = resyncRequested.incrementAndGet();
+            LockSupport.unpark(thread);
+            return requested;
+        }
+
+        void wake() {
+            if (idle) {
+                LockSupport.unpark(thread);
+            }
+        }
+
+        private void run() {
+            List<DomainEvent> batch = new ArrayList<>(batchSize);
+            long next = 1;
+            while (true) {
+                long requested = resyncRequested.get();
+                if (requested != resynced) {
+                    resync(requested);
+                    continue;
+                }
+                while (batch.size() < batchSize && sequences.get((int) next & mask) == next) {
+                    batch.add(events[(int) next & mask]);
+                    next++;
+                }
+                if (batch.isEmpty()) {
+                    if (closed) {
+                        return;
+                    }
+                    // Ждущий поток сначала пишет номер события, потом смотрит idle, а этот — наоборот:
+                    // хотя бы один из них увидит запись другого
+                    idle = true;
+                    if (sequences.get((int) next & mask) != next && resyncRequested.get() == resynced) {
+                        LockSupport.parkNanos(this, IDLE_NANOS);
+                    }
+                    idle = false;
+                    continue;
+                }
+                try {
+                    handler.handle(batch);
+                } catch (RuntimeException e) {
+                    log.error("Обработчик {} не применил пачку из {} событий, он будет пересобран",
+                            handler.name(), batch.size(), e);
+                    resyncRequested.incrementAndGet();
+                }
+                batch.clear();
+                // Пересборка, о которой попросили во время пачки, — до того, как ждущие увидят её события
+                requested = resyncRequested.get();
+                if (requested != resynced) {
+                    resync(requested);
+                }
+                processed = next - 1;
+            }
+        }
+
+        private void resync(long requested) {
+            log.warn("Обработчик {} пропустил события и пересобирается по хранилищу", handler.name());
+            try {
+                handler.resync();
+                resynced = requested;
+            } catch (RuntimeException e) {
+                log.error("Не удалось пересобрать обработчик {}", handler.name(), e);
+                LockSupport.parkNanos(RETRY_NANOS);
+            }
+        }
+    }
+}
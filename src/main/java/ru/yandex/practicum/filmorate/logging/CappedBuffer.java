@@ -0,0 +1,60 @@
+package ru.yandex.practicum.filmorate.logging;
+
+import java.nio.charset.Charset;
+import java.util.Arrays;
+
+/**
+ * Первые capacity байт тела и общее число байт. Массив растёт по мере записи, но не больше capacity,
+ * поэтому тело в несколько мегабайт не копируется целиком. Не потокобезопасен.
+ */
+final class CappedBuffer {
+    private static final byte[] EMPTY = new byte[0];
+
+    private final int capacity;
+    private byte[] bytes = EMPTY;
+    private int length;
+    private long total;
+
+    CappedBuffer(int capacity) {
+        this.capacity = capacity;
+    }
+
+    void write(int b) {
+        if (length < capacity) {
+            ensure(1);
+            bytes[length++] = (byte) b;
+        }
+        total++;
+    }
+
+    void write(byte[] source, int offset, int count) {
+        int copied = Math.min(count, capacity - length);
+        if (copied > 0) {
+            ensure(copied);
+            System.arraycopy(source, offset, bytes, length, copied);
+            length += copied;
+        }
+        total += count;
+    }
+
+    long total() {
+        return total;
+    }
+
+    boolean truncated() {
+        return total > length;
+    }
+
+    /**
+     * Сохранённая часть как строка; обрезанный посередине символ заменяется на U+FFFD.
+     */
+    String toString(Charset charset) {
+        return new String(bytes, 0, length, charset);
+    }
+
+    private void ensure(int extra) {
+        if (length + extra > bytes.length) {
+            bytes = Arrays.copyOf(bytes, Math.min(capacity, Math.max(length + extra, Math.max(256, bytes.length * 2))));
+        }
+    }
+}
@@ -0,0 +1,15 @@
+package ru.yandex.practicum.filmorate.logging;
+
+/**
+ * Сырые данные одного обмена: строки и массивы уже есть у контейнера, поэтому запись собирается
+ * без форматирования и копирования — строка журнала строится потоком {@link RequestLogWriter}.
+ */
+record RequestLogEntry(long timestamp,
+                       String method,
+                       String uri,
+                       String query,
+                       int status,
+                       long durationNanos,
+                       CappedBuffer requestBody,
+                       CappedBuffer responseBody) {
+}
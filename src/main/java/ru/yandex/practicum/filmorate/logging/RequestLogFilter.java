@@ -0,0 +1,259 @@
+package ru.yandex.practicum.filmorate.logging;
+
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ReadListener;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletInputStream;
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.WriteListener;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletRequestWrapper;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.servlet.http.HttpServletResponseWrapper;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Журнал запросов с выборкой: в журнал попадает доля sample-rate запросов, от тел запроса и ответа
+ * сохраняются первые max-body-size байт. Остальные запросы проходят без обёрток и буферов.
+ * <p>
+ * Поток запроса только копирует ограниченную часть тела по мере записи и кладёт сырую запись в очередь;
+ * строку журнала собирает и пишет поток {@link RequestLogWriter}. Для потоковых ответов запись делается
+ * по завершении асинхронной обработки.
+ */
+@Component
+@ConditionalOnProperty(name = "filmorate.request-log.enabled", havingValue = "true")
+public class RequestLogFilter extends OncePerRequestFilter {
+    private final double sampleRate;
+    private final int maxBodySize;
+    private final RequestLogWriter writer;
+
+    @Autowired
+    public RequestLogFilter(@Value("${filmorate.request-log.sample-rate:0.01}") double sampleRate,
+                            @Value("${filmorate.request-log.max-body-size:1024}") int maxBodySize,
+                            @Value("${filmorate.request-log.queue-size:8192}") int queueSize) {
+        this.sampleRate = sampleRate;
+        this.maxBodySize = maxBodySize;
+        this.writer = new RequestLogWriter(queueSize);
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        if (sampleRate < 1 && ThreadLocalRandom.current().nextDouble() >= sampleRate) {
+            chain.doFilter(request, response);
+            return;
+        }
+        long timestamp = System.currentTimeMillis();
+        long start = System.nanoTime();
+        CappingRequest cappingRequest = new CappingRequest(request, new CappedBuffer(maxBodySize));
+        CappingResponse cappingResponse = new CappingResponse(response, new CappedBuffer(maxBodySize));
+        try {
+            chain.doFilter(cappingRequest, cappingResponse);
+        } finally {
+            if (request.isAsyncStarted()) {
+                request.getAsyncContext().addListener(new AsyncListener() {
+                    @Override
+                    public void onComplete(AsyncEvent event) {
+                        offer(timestamp, start, request, cappingRequest, cappingResponse);
+                    }
+
+                    @Override
+                    public void onTimeout(AsyncEvent event) {
+                    }
+
+                    @Override
+                    public void onError(AsyncEvent event) {
+                    }
+
+                    @Override
+                    public void onStartAsync(AsyncEvent event) {
+                    }
+                });
+            } else {
+                offer(timestamp, start, request, cappingRequest, cappingResponse);
+            }
+        }
+    }
+
+    @Override
+    public void destroy() {
+        try {
+            writer.close();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    long dropped() {
+        return writer.dropped();
+    }
+
+    private void offer(long timestamp, long start, HttpServletRequest request,
+                       CappingRequest cappingRequest, CappingResponse cappingResponse) {
+        writer.offer(new RequestLogEntry(timestamp, request.getMethod(), request.getRequestURI(),
+                request.getQueryString(), cappingResponse.getStatus(), System.nanoTime() - start,
+                cappingRequest.body, cappingResponse.body));
+    }
+
+    private static final class CappingRequest extends HttpServletRequestWrapper {
+        private final CappedBuffer body;
+        private ServletInputStream input;
+
+        CappingRequest(HttpServletRequest request, CappedBuffer body) {
+            super(request);
+            this.body = body;
+        }
+
+        @Override
+        public ServletInputStream getInputStream() throws IOException {
+            if (input == null) {
+                input = new CappingInputStream(super.getInputStream(), body);
+            }
+            return input;
+        }
+
+        @Override
+        public BufferedReader getReader() throws IOException {
+            return new BufferedReader(new InputStreamReader(getInputStream(), charset(getCharacterEncoding())));
+        }
+    }
+
+    private static final class CappingResponse extends HttpServletResponseWrapper {
+        private final CappedBuffer body;
+        private ServletOutputStream output;
+        private PrintWriter writer;
+
+        CappingResponse(HttpServletResponse response, CappedBuffer body) {
+            super(response);
+            this.body = body;
+        }
+
+        @Override
+        public ServletOutputStream getOutputStream() throws IOException {
+            if (output == null) {
+                output = new CappingOutputStream(super.getOutputStream(), body);
+            }
+            return output;
+        }
+
+        @Override
+        public PrintWriter getWriter() throws IOException {
+            if (writer == null) {
+                writer = new PrintWriter(new OutputStreamWriter(getOutputStream(), charset(getCharacterEncoding())));
+            }
+            return writer;
+        }
+
+        @Override
+        public void flushBuffer() throws IOException {
+            if (writer != null) {
+                writer.flush();
+            }
+            super.flushBuffer();
+        }
+    }
+
+    private static final class CappingInputStream extends ServletInputStream {
+        private final ServletInputStream delegate;
+        private final CappedBuffer body;
+
+        CappingInputStream(ServletInputStream delegate, CappedBuffer body) {
+            this.delegate = delegate;
+            this.body = body;
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = delegate.read();
+            if (b >= 0) {
+                body.write(b);
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            int count = delegate.read(buffer, offset, length);
+            if (count > 0) {
+                body.write(buffer, offset, count);
+            }
+            return count;
+        }
+
+        @Override
+        public boolean isFinished() {
+            return delegate.isFinished();
+        }
+
+        @Override
+        public boolean isReady() {
+            return delegate.isReady();
+        }
+
+        @Override
+        public void setReadListener(ReadListener listener) {
+            delegate.setReadListener(listener);
+        }
+    }
+
+    private static final class CappingOutputStream extends ServletOutputStream {
+        private final ServletOutputStream delegate;
+        private final CappedBuffer body;
+
+        CappingOutputStream(ServletOutputStream delegate, CappedBuffer body) {
+            this.delegate = delegate;
+            this.body = body;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            delegate.write(b);
+            body.write(b);
+        }
+
+        @Override
+        public void write(byte[] buffer, int offset, int length) throws IOException {
+            delegate.write(buffer, offset, length);
+            body.write(buffer, offset, length);
+        }
+
+        @Override
+        public void flush() throws IOException {
+            delegate.flush();
+        }
+
+        @Override
+        public void close() throws IOException {
+            delegate.close();
+        }
+
+        @Override
+        public boolean isReady() {
+            return delegate.isReady();
+        }
+
+        @Override
+        public void setWriteListener(WriteListener listener) {
+            delegate.setWriteListener(listener);
+        }
+    }
+
+    private static Charset charset(String name) {
+        return name == null ? StandardCharsets.UTF_8 : Charset.forName(name);
+    }
+}
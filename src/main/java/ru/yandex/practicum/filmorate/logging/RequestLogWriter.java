@@ -0,0 +1,103 @@
+package ru.yandex.practicum.filmorate.logging;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Очередь записей журнала запросов и поток, который их форматирует и пишет в лог.
+ * Потоки запросов только кладут запись в ограниченную очередь и не ждут: если она полна, запись
+ * отбрасывается, а число отброшенных попадает в лог следующей записью.
+ */
+@Slf4j
+final class RequestLogWriter implements AutoCloseable {
+    private static final RequestLogEntry STOP = new RequestLogEntry(0, null, null, null, 0, 0, null, null);
+
+    private final BlockingQueue<RequestLogEntry> queue;
+    private final LongAdder dropped = new LongAdder();
+    private final JsonFactory json = new JsonFactory();
+    private final Thread thread;
+
+    RequestLogWriter(int queueSize) {
+        this.queue = new ArrayBlockingQueue<>(queueSize);
+        this.thread = Thread.ofPlatform().name("request-log").daemon().start(this::run);
+    }
+
+    /**
+     * Кладёт запись в очередь, не блокируясь.
+     */
+    void offer(RequestLogEntry entry) {
+        if (!queue.offer(entry)) {
+            dropped.increment();
+        }
+    }
+
+    long dropped() {
+        return dropped.sum();
+    }
+
+    /**
+     * Останавливает поток, дописав записи, которые уже в очереди.
+     */
+    @Override
+    public void close() throws InterruptedException {
+        queue.put(STOP);
+        thread.join();
+    }
+
+    private void run() {
+        try {
+            for (RequestLogEntry entry = queue.take(); entry != STOP; entry = queue.take()) {
+                write(entry);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void write(RequestLogEntry entry) {
+        long lost = dropped.sumThenReset();
+        if (lost > 0) {
+            log.warn("Журнал запросов не успевал за нагрузкой, пропущено записей: {}", lost);
+        }
+        try {
+            log.info(format(entry));
+        } catch (IOException | RuntimeException e) {
+            log.warn("Не удалось записать запрос {} {} в журнал", entry.method(), entry.uri(), e);
+        }
+    }
+
+    String format(RequestLogEntry entry) throws IOException {
+        StringWriter out = new StringWriter(256);
+        try (JsonGenerator generator = json.createGenerator(out)) {
+            generator.writeStartObject();
+            generator.writeStringField("time", Instant.ofEpochMilli(entry.timestamp()).toString());
+            generator.writeStringField("method", entry.method());
+            generator.writeStringField("uri", entry.query() == null ? entry.uri() : entry.uri() + "?" + entry.query());
+            generator.writeNumberField("status", entry.status());
+            generator.writeNumberField("duration_ms", entry.durationNanos() / 1_000_000.0);
+            writeBody(generator, "request", entry.requestBody());
+            writeBody(generator, "response", entry.responseBody());
+            generator.writeEndObject();
+        }
+        return out.toString();
+    }
+
+    private static void writeBody(JsonGenerator generator, String name, CappedBuffer body) throws IOException {
+        generator.writeNumberField(name + "_bytes", body.total());
+        if (body.total() > 0) {
+            generator.writeStringField(name + "_body", body.toString(StandardCharsets.UTF_8));
+            if (body.truncated()) {
+                generator.writeBooleanField(name + "_truncated", true);
+            }
+        }
+    }
+}
@@ -0,0 +1,52 @@
+package ru.yandex.practicum.filmorate.metrics;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.event.EventPipeline;
+
+import java.util.List;
+
+/**
+ * Очередь событий: сколько опубликовано, сколько публикаций ждали места или не дождались его,
+ * и отставание каждого обработчика — в событиях и по возрасту старого из неприменённых.
+ */
+@Component
+@ConditionalOnProperty(name = "filmorate.metrics.enabled", havingValue = "true", matchIfMissing = true)
+public class EventMetrics implements MeterBinder {
+    private final EventPipeline events;
+
+    @Autowired
+    public EventMetrics(EventPipeline events) {
+        this.events = events;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder("filmorate.events.published", events, EventPipeline::lastSequence)
+                .description("Опубликовано событий")
+                .register(registry);
+        FunctionCounter.builder("filmorate.events.backpressure", events, EventPipeline::waits)
+                .description("Публикации, ждавшие места в очереди")
+                .register(registry);
+        FunctionCounter.builder("filmorate.events.overflows", events, EventPipeline::overflows)
+                .description("Публикации, не дождавшиеся места: обработчики пересобраны по хранилищу")
+                .register(registry);
+        List<String> handlers = events.handlerNames();
+        for (int i = 0; i < handlers.size(); i++) {
+            int handler = i;
+            Gauge.builder("filmorate.events.lag", events, e -> e.lag(handler))
+                    .description("Опубликованные, но ещё не применённые обработчиком события")
+                    .tag("handler", handlers.get(i))
+                    .register(registry);
+            Gauge.builder("filmorate.events.lag.seconds", events, e -> e.lagNanos(handler) / 1e9)
+                    .description("Сколько ждёт старое из неприменённых обработчиком событий")
+                    .tag("handler", handlers.get(i))
+                    .register(registry);
+        }
+    }
+}
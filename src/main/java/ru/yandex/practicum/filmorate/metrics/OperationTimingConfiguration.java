@@ -0,0 +1,54 @@
+package ru.yandex.practicum.filmorate.metrics;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.aop.Advisor;
+import org.springframework.aop.aspectj.AspectJExpressionPointcut;
+import org.springframework.aop.support.DefaultPointcutAdvisor;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanDefinition;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Role;
+
+/**
+ * Таймеры filmorate.service на публичных методах сервисов и filmorate.storage на методах интерфейсов хранилищ.
+ * Запросы к контроллерам Spring Boot измеряет сам — метрика http.server.requests с тегом uri.
+ * <p>
+ * Вместо @Aspect — советники с перехватчиком: без объектов JoinPoint и ThreadLocal на каждый вызов.
+ * Методы бинов статические, а реестр берётся лениво, чтобы советники создавались раньше остальных бинов
+ * и не тянули за собой их инициализацию.
+ */
+@Configuration(proxyBeanMethods = false)
+@ConditionalOnProperty(name = "filmorate.metrics.enabled", havingValue = "true", matchIfMissing = true)
+public class OperationTimingConfiguration {
+    public static final String SERVICE = "filmorate.service";
+    public static final String STORAGE = "filmorate.storage";
+
+    public static final String SERVICE_METHODS =
+            "execution(public * ru.yandex.practicum.filmorate.service.*Service.*(..))";
+    /**
+     * Только методы интерфейсов: восстановление из журнала и обход для снимка не измеряются.
+     */
+    public static final String STORAGE_METHODS =
+            "execution(* ru.yandex.practicum.filmorate.storage.film.FilmStorage.*(..))"
+                    + " || execution(* ru.yandex.practicum.filmorate.storage.user.UserStorage.*(..))";
+
+    @Bean
+    @Role(BeanDefinition.ROLE_INFRASTRUCTURE)
+    public static Advisor serviceTimingAdvisor(ObjectProvider<MeterRegistry> registry) {
+        return advisor(SERVICE_METHODS, new OperationTimingInterceptor(SERVICE, registry::getObject));
+    }
+
+    @Bean
+    @Role(BeanDefinition.ROLE_INFRASTRUCTURE)
+    public static Advisor storageTimingAdvisor(ObjectProvider<MeterRegistry> registry) {
+        return advisor(STORAGE_METHODS, new OperationTimingInterceptor(STORAGE, registry::getObject));
+    }
+
+    public static Advisor advisor(String expression, OperationTimingInterceptor interceptor) {
+        AspectJExpressionPointcut pointcut = new AspectJExpressionPointcut();
+        pointcut.setExpression(expression);
+        return new DefaultPointcutAdvisor(pointcut, interceptor);
+    }
+}
@@ -0,0 +1,57 @@
+package ru.yandex.practicum.filmorate.metrics;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.aopalliance.intercept.MethodInterceptor;
+import org.aopalliance.intercept.MethodInvocation;
+
+import java.lang.reflect.Method;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Измеряет вызовы методов таймером с тегами class, method и exception.
+ * Таймер успешных вызовов создаётся один раз на метод и дальше берётся из карты, без поиска в реестре;
+ * реестр запрашивается при первом вызове, а не при создании прокси.
+ */
+public class OperationTimingInterceptor implements MethodInterceptor {
+    private static final String NONE = "none";
+
+    private final String name;
+    private final Supplier<MeterRegistry> registry;
+    private final Map<Method, Timer> timers = new ConcurrentHashMap<>();
+
+    public OperationTimingInterceptor(String name, Supplier<MeterRegistry> registry) {
+        this.name = name;
+        this.registry = registry;
+    }
+
+    @Override
+    public Object invoke(MethodInvocation invocation) throws Throwable {
+        long start = System.nanoTime();
+        Object result;
+        try {
+            result = invocation.proceed();
+        } catch (Throwable e) {
+            timer(invocation, e.getClass().getSimpleName()).record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            throw e;
+        }
+        long elapsed = System.nanoTime() - start;
+        Timer timer = timers.get(invocation.getMethod());
+        if (timer == null) {
+            timer = timers.computeIfAbsent(invocation.getMethod(), method -> timer(invocation, NONE));
+        }
+        timer.record(elapsed, TimeUnit.NANOSECONDS);
+        return result;
+    }
+
+    private Timer timer(MethodInvocation invocation, String exception) {
+        return Timer.builder(name)
+                .tag("class", invocation.getThis().getClass().getSimpleName())
+                .tag("method", invocation.getMethod().getName())
+                .tag("exception", exception)
+                .register(registry.get());
+    }
+}
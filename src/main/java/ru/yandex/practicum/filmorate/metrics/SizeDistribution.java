@@ -0,0 +1,69 @@
+package ru.yandex.practicum.filmorate.metrics;
+
+import java.util.function.Consumer;
+import java.util.function.IntConsumer;
+
+/**
+ * Снимок распределения размеров множеств: число множеств, сумма размеров и накопительные счётчики
+ * по верхним границам {@link #BOUNDS} — счётчик i равен числу множеств размером не больше BOUNDS[i],
+ * последний счётчик (+Inf) равен числу всех множеств.
+ */
+final class SizeDistribution {
+    static final int[] BOUNDS = {0, 1, 2, 5, 10, 20, 50, 100, 200, 500, 1000, 2000, 5000, 10000};
+
+    private final long count;
+    private final long total;
+    private final long[] cumulative;
+
+    private SizeDistribution(long count, long total, long[] cumulative) {
+        this.count = count;
+        this.total = total;
+        this.cumulative = cumulative;
+    }
+
+    /**
+     * Строит снимок одним проходом по источнику размеров, например {@code filmStorage::forEachLikeCount}.
+     */
+    static SizeDistribution of(Consumer<IntConsumer> sizes) {
+        long[] buckets = new long[BOUNDS.length + 1];
+        long[] totals = new long[2];
+        sizes.accept(size -> {
+            totals[0]++;
+            totals[1] += size;
+            buckets[bucket(size)]++;
+        });
+        for (int i = 1; i < buckets.length; i++) {
+            buckets[i] += buckets[i - 1];
+        }
+        return new SizeDistribution(totals[0], totals[1], buckets);
+    }
+
+    private static int bucket(int size) {
+        int low = 0;
+        int high = BOUNDS.length;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (BOUNDS[middle] < size) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    long count() {
+        return count;
+    }
+
+    long total() {
+        return total;
+    }
+
+    /**
+     * Число множеств размером не больше BOUNDS[index]; index == BOUNDS.length — все множества.
+     */
+    long atMost(int index) {
+        return cumulative[index];
+    }
+}
@@ -0,0 +1,132 @@
+package ru.yandex.practicum.filmorate.metrics;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.storage.EntityCache;
+import ru.yandex.practicum.filmorate.storage.film.CachingFilmStorage;
+import ru.yandex.practicum.filmorate.storage.film.FilmStorage;
+import ru.yandex.practicum.filmorate.storage.user.CachingUserStorage;
+import ru.yandex.practicum.filmorate.storage.user.UserStorage;
+
+import java.time.Duration;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.IntConsumer;
+import java.util.function.ToLongFunction;
+
+/**
+ * Размер каталога, число лайков и дружб, распределения числа лайков у фильмов и друзей у пользователей,
+ * а при включённом кэше — его попадания, промахи, вытеснения и размер.
+ * <p>
+ * Хранилища обходятся не на каждое чтение метрик, а не чаще раза в filmorate.metrics.storage-refresh.
+ * Распределения публикуются как накопительные счётчики с тегом le, по образцу корзин гистограмм Prometheus.
+ */
+@Component
+@ConditionalOnProperty(name = "filmorate.metrics.enabled", havingValue = "true", matchIfMissing = true)
+public class StorageMetrics implements MeterBinder {
+    private final FilmStorage filmStorage;
+    private final UserStorage userStorage;
+    private final Snapshot likes;
+    private final Snapshot friends;
+
+    @Autowired
+    public StorageMetrics(FilmStorage filmStorage,
+                          UserStorage userStorage,
+                          @Value("${filmorate.metrics.storage-refresh:15s}") Duration refresh) {
+        this.filmStorage = filmStorage;
+        this.userStorage = userStorage;
+        this.likes = new Snapshot(filmStorage::forEachLikeCount, refresh);
+        this.friends = new Snapshot(userStorage::forEachFriendCount, refresh);
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        gauge(registry, "filmorate.films", "Число фильмов", likes, SizeDistribution::count);
+        gauge(registry, "filmorate.users", "Число пользователей", friends, SizeDistribution::count);
+        gauge(registry, "filmorate.likes", "Число лайков", likes, SizeDistribution::total);
+        // Дружба хранится у обоих пользователей
+        gauge(registry, "filmorate.friendships", "Число дружб", friends, distribution -> distribution.total() / 2);
+        distribution(registry, "filmorate.film.likes.distribution", "Фильмы по числу лайков", likes);
+        distribution(registry, "filmorate.user.friends.distribution", "Пользователи по числу друзей", friends);
+        if (filmStorage instanceof CachingFilmStorage caching) {
+            cache(registry, "films", caching, CachingFilmStorage::stats);
+        }
+        if (userStorage instanceof CachingUserStorage caching) {
+            cache(registry, "users", caching, CachingUserStorage::stats);
+        }
+    }
+
+    private static void gauge(MeterRegistry registry, String name, String description, Snapshot snapshot,
+                              ToLongFunction<SizeDistribution> value) {
+        Gauge.builder(name, snapshot, s -> value.applyAsLong(s.get()))
+                .description(description)
+                .register(registry);
+    }
+
+    private static void distribution(MeterRegistry registry, String name, String description, Snapshot snapshot) {
+        for (int i = 0; i <= SizeDistribution.BOUNDS.length; i++) {
+            int index = i;
+            String bound = i < SizeDistribution.BOUNDS.length ? String.valueOf(SizeDistribution.BOUNDS[i]) : "+Inf";
+            Gauge.builder(name, snapshot, s -> s.get().atMost(index))
+                    .description(description)
+                    .tag("le", bound)
+                    .register(registry);
+        }
+    }
+
+    /**
+     * Счётчики кэша привязаны к самому хранилищу: Micrometer держит объект метрики по слабой ссылке,
+     * а хранилище живёт, пока жив контекст.
+     */
+    private static <T> void cache(MeterRegistry registry, String cache, T storage,
+                                  Function<T, EntityCache.Stats> stats) {
+        FunctionCounter.builder("filmorate.cache.hits", storage, s -> stats.apply(s).hits())
+                .tag("cache", cache).register(registry);
+        FunctionCounter.builder("filmorate.cache.misses", storage, s -> stats.apply(s).misses())
+                .tag("cache", cache).register(registry);
+        FunctionCounter.builder("filmorate.cache.evictions", storage, s -> stats.apply(s).evictions())
+                .tag("cache", cache).register(registry);
+        Gauge.builder("filmorate.cache.size", storage, s -> stats.apply(s).size())
+                .tag("cache", cache).register(registry);
+    }
+
+    /**
+     * Последний снимок распределения; пересчитывается одним потоком, когда устарел.
+     */
+    private static final class Snapshot {
+        private final Consumer<IntConsumer> source;
+        private final long refreshNanos;
+        private final ReentrantLock lock = new ReentrantLock();
+        private volatile SizeDistribution value;
+        private volatile long computedAt;
+
+        Snapshot(Consumer<IntConsumer> source, Duration refresh) {
+            this.source = source;
+            this.refreshNanos = refresh.toNanos();
+        }
+
+        SizeDistribution get() {
+            SizeDistribution current = value;
+            if (current != null && System.nanoTime() - computedAt < refreshNanos) {
+                return current;
+            }
+            lock.lock();
+            try {
+                if (value == null || System.nanoTime() - computedAt >= refreshNanos) {
+                    value = SizeDistribution.of(source);
+                    computedAt = System.nanoTime();
+                }
+                return value;
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+}
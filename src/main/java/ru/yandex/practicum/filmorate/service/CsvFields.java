@@ -0,0 +1,51 @@
+package ru.yandex.practicum.filmorate.service;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Разбор одной строки CSV: поля через запятую, поле в двойных кавычках может содержать запятые,
+ * кавычка внутри него удваивается. Пустое поле читается как null.
+ */
+final class CsvFields {
+    private CsvFields() {
+    }
+
+    static List<String> split(String line, int expected) {
+        List<String> fields = new ArrayList<>(expected);
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c != '"') {
+                    field.append(c);
+                } else if (i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    field.append('"');
+                    i++;
+                } else {
+                    quoted = false;
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(value(field));
+                field.setLength(0);
+            } else {
+                field.append(c);
+            }
+        }
+        if (quoted) {
+            throw new IllegalArgumentException("незакрытая кавычка");
+        }
+        fields.add(value(field));
+        if (fields.size() != expected) {
+            throw new IllegalArgumentException("ожидалось полей: " + expected + ", получено: " + fields.size());
+        }
+        return fields;
+    }
+
+    private static String value(StringBuilder field) {
+        return field.isEmpty() ? null : field.toString();
+    }
+}
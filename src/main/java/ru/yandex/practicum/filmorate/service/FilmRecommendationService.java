@@ -0,0 +1,390 @@
+package ru.yandex.practicum.filmorate.service;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import ru.yandex.practicum.filmorate.event.DomainEvent;
+import ru.yandex.practicum.filmorate.event.DomainEventHandler;
+import ru.yandex.practicum.filmorate.event.EventPipeline;
+import ru.yandex.practicum.filmorate.exception.ValidationException;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.storage.IntSet;
+import ru.yandex.practicum.filmorate.storage.TopIds;
+import ru.yandex.practicum.filmorate.storage.film.FilmStorage;
+import ru.yandex.practicum.filmorate.storage.user.UserStorage;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.SplittableRandom;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Рекомендации фильмов по лайкам похожих пользователей: фильмы, которые лайкнули пользователи
+ * с наиболее похожим набором лайков и не лайкнул сам пользователь.
+ * <p>
+ * Похожесть — оценка коэффициента Жаккара по MinHash: у каждого пользователя подпись из bands * rows
+ * минимумов хешей лайкнутых фильмов, доля совпавших позиций двух подписей оценивает долю общих лайков.
+ * Кандидаты в соседи ищутся не перебором всех пользователей, а через LSH: подпись режется на bands полос
+ * по rows значений, пользователи с совпавшей полосой лежат в одной корзине. Из кандидатов берутся neighbours
+ * самых похожих, их фильмы ранжируются по сумме похожести лайкнувших.
+ * <p>
+ * В памяти сервиса живут только подписи и корзины; лайкнутые фильмы пользователя читаются из хранилища
+ * ({@link FilmStorage#getLikedFilmIds}), у которого для этого есть свой обратный индекс. Пересчитываются только
+ * подписи пользователей, чьи лайки изменились. Лайки через {@link FilmService} приходят пачками событий из
+ * {@link EventPipeline} и применяются сразу в его потоке; лайки, переданные в likeChanged напрямую, копятся
+ * в очереди, которую фоновый поток применяет раз в refresh. Массовая загрузка лайков и запуск приложения
+ * строят индекс заново обходом хранилища фильмов; до первой сборки рекомендаций нет.
+ */
+@Service
+@Slf4j
+public class FilmRecommendationService implements DomainEventHandler {
+    private static final long SEED = 0x5DEECE66DL;
+    private static final int PAGE_SIZE = 1000;
+    // Сколько кандидатов из корзин сравнивать за запрос: популярные полосы не должны превращаться в перебор
+    private static final int MAX_CANDIDATES = 10_000;
+    // Дальше очередь изменений не растёт: дешевле перестроить индекс, чем держать миллионы изменений в памяти
+    private static final int MAX_PENDING = 1_000_000;
+
+    private final FilmStorage filmStorage;
+    private final UserStorage userStorage;
+    private final int bands;
+    private final int rows;
+    private final int neighbours;
+    private final int maxCount;
+    private final Duration refresh;
+    private final long[] seeds;
+    // Пользователи, чьи лайки изменились
+    private final Queue<Integer> changes = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger pending = new AtomicInteger();
+    private final AtomicBoolean rebuildRequested = new AtomicBoolean(true);
+    // Применение изменений по одному; ReentrantLock, а не synchronized, чтобы ожидание не закрепляло
+    // виртуальный поток: события и фоновое обновление ждут друг друга на всё время перестройки индекса
+    private final ReentrantLock refreshing = new ReentrantLock();
+    private volatile Index index = new Index();
+    private ScheduledExecutorService scheduler;
+
+    @Autowired
+    public FilmRecommendationService(FilmStorage filmStorage,
+                                     UserStorage userStorage,
+                                     @Value("${filmorate.film-recommendations.bands:16}") int bands,
+                                     @Value("${filmorate.film-recommendations.rows:4}") int rows,
+                                     @Value("${filmorate.film-recommendations.neighbours:20}") int neighbours,
+                                     @Value("${filmorate.film-recommendations.max-count:100}") int maxCount,
+                                     @Value("${filmorate.film-recommendations.refresh:1s}") Duration refresh) {
+        if (bands <= 0 || rows <= 0) {
+            throw new IllegalArgumentException("Число полос и строк в полосе должно быть положительным");
+        }
+        this.filmStorage = filmStorage;
+        this.userStorage = userStorage;
+        this.bands = bands;
+        this.rows = rows;
+        this.neighbours = neighbours;
+        this.maxCount = maxCount;
+        this.refresh = refresh;
+        SplittableRandom random = new SplittableRandom(SEED);
+        this.seeds = new long[bands * rows];
+        for (int i = 0; i < seeds.length; i++) {
+            seeds[i] = random.nextLong();
+        }
+    }
+
+    /**
+     * Запускает фоновое обновление, когда приложение поднято и хранилища восстановлены из журнала.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (refresh.isZero() || refresh.isNegative()) {
+            return;
+        }
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "film-recommendations");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long interval = refresh.toMillis();
+        scheduler.scheduleWithFixedDelay(this::refreshInBackground, 0, interval, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
+    }
+
+    /**
+     * Учитывает изменение лайка пользователя userId фильму filmId при следующем обновлении. Лайки пользователя
+     * обновление прочитает из хранилища, поэтому порядок вызовов для одной пары не важен.
+     */
+    public void likeChanged(int filmId, int userId) {
+        if (pending.incrementAndGet() > MAX_PENDING) {
+            pending.decrementAndGet();
+            rebuildRequested.set(true);
+            return;
+        }
+        changes.add(userId);
+    }
+
+    /**
+     * Перестраивает индекс при следующем обновлении — после изменений, прошедших мимо likeChanged.
+     */
+    public void rebuild() {
+        rebuildRequested.set(true);
+    }
+
+    @Override
+    public String name() {
+        return "film-recommendations";
+    }
+
+    /**
+     * Ставит лайки из пачки в очередь и сразу применяет её; после загрузки дампа перестраивает индекс.
+     */
+    @Override
+    public void handle(List<DomainEvent> batch) {
+        for (DomainEvent event : batch) {
+            if (event instanceof DomainEvent.LikeChanged like) {
+                likeChanged(like.filmId(), like.userId());
+            } else if (event instanceof DomainEvent.LikesImported likes) {
+                for (int i = 0; i < likes.filmIds().length; i++) {
+                    likeChanged(likes.filmIds()[i], likes.userIds()[i]);
+                }
+            } else if (event instanceof DomainEvent.Resync) {
+                rebuild();
+            }
+        }
+        refresh();
+    }
+
+    @Override
+    public void resync() {
+        rebuild();
+        refresh();
+    }
+
+    public List<Film> getRecommendations(int userId, int count) {
+        if (count < 1 || count > maxCount) {
+            throw new ValidationException("Число рекомендаций должно быть от 1 до " + maxCount);
+        }
+        userStorage.getById(userId);
+        Index current = index;
+        int[] signature = current.signatures.get(userId);
+        IntSet liked = filmStorage.getLikedFilmIds(List.of(userId)).get(userId);
+        if (liked == null || signature == null) {
+            return List.of();
+        }
+
+        Set<Integer> candidates = new HashSet<>();
+        for (int band = 0; band < bands && candidates.size() < MAX_CANDIDATES; band++) {
+            IntSet bucket = current.buckets.get(bandKey(signature, band));
+            if (bucket != null) {
+                bucket.forEachInt(candidate -> {
+                    if (candidate != userId && candidates.size() < MAX_CANDIDATES) {
+                        candidates.add(candidate);
+                    }
+                });
+            }
+        }
+        // Похожесть — число совпавших позиций подписей
+        TopIds nearest = new TopIds(neighbours);
+        Map<Integer, Integer> similarity = new HashMap<>();
+        for (int candidate : candidates) {
+            int[] other = current.signatures.get(candidate);
+            if (other != null) {
+                int matches = matches(signature, other);
+                similarity.put(candidate, matches);
+                nearest.offer(matches, candidate);
+            }
+        }
+
+        List<Integer> neighbourIds = new ArrayList<>(neighbours);
+        for (int neighbour : nearest.toArray()) {
+            neighbourIds.add(neighbour);
+        }
+        Map<Integer, IntSet> neighbourLikes = filmStorage.getLikedFilmIds(neighbourIds);
+        Map<Integer, Integer> scores = new HashMap<>();
+        for (int neighbour : neighbourIds) {
+            int weight = similarity.get(neighbour);
+            neighbourLikes.getOrDefault(neighbour, IntSet.EMPTY).forEachInt(filmId -> {
+                if (!liked.contains(filmId)) {
+                    scores.merge(filmId, weight, Integer::sum);
+                }
+            });
+        }
+        TopIds best = new TopIds(count);
+        scores.forEach((filmId, score) -> best.offer(score, filmId));
+        List<Integer> filmIds = new ArrayList<>(count);
+        for (int filmId : best.toArray()) {
+            filmIds.add(filmId);
+        }
+        log.debug("Рекомендации фильмов пользователю {}: кандидатов {}, фильмов {}",
+                userId, candidates.size(), filmIds.size());
+        return filmStorage.getByIds(filmIds);
+    }
+
+    /**
+     * Применяет накопленные изменения: перестраивает индекс, если об этом просили, затем пересчитывает
+     * подписи пользователей, чьи лайки изменились. Вызывается фоновым потоком и потоком событий; изменения, пришедшие
+     * во время перестройки, применяются после неё поверх нового индекса. Изменение ставится в очередь
+     * после записи в хранилище, а лайки пользователя берутся из хранилища в момент применения: применённое
+     * повторно или после более позднего изменения, оно не портит индекс.
+     */
+    public void refresh() {
+        refreshing.lock();
+        try {
+            applyChanges();
+        } finally {
+            refreshing.unlock();
+        }
+    }
+
+    private void applyChanges() {
+        if (rebuildRequested.getAndSet(false)) {
+            // Изменения из очереди уже есть в хранилище, и обход их увидит
+            while (changes.poll() != null) {
+                pending.decrementAndGet();
+            }
+            long start = System.nanoTime();
+            index = build();
+            log.info("Индекс рекомендаций фильмов построен: пользователей {}, корзин {}, {} мс",
+                    index.signatures.size(), index.buckets.size(), (System.nanoTime() - start) / 1_000_000);
+        }
+        Set<Integer> touched = new HashSet<>();
+        Integer userId;
+        while ((userId = changes.poll()) != null) {
+            pending.decrementAndGet();
+            touched.add(userId);
+        }
+        if (touched.isEmpty()) {
+            return;
+        }
+        // События о лайке и его снятии могут прийти в обратном порядке; хранилище же уже содержит последнее
+        Map<Integer, IntSet> liked = filmStorage.getLikedFilmIds(touched);
+        Index current = index;
+        for (int touchedId : touched) {
+            update(current, touchedId, liked.get(touchedId));
+        }
+    }
+
+    private void refreshInBackground() {
+        try {
+            refresh();
+        } catch (RuntimeException e) {
+            log.error("Не удалось обновить индекс рекомендаций фильмов", e);
+        }
+    }
+
+    private Index build() {
+        // Лайкнутые фильмы по пользователям; в нулевом элементе — сколько их
+        Map<Integer, int[]> byUser = new HashMap<>();
+        Integer after = null;
+        for (List<Film> page = filmStorage.getPage(null, PAGE_SIZE); !page.isEmpty();
+             page = filmStorage.getPage(after, PAGE_SIZE)) {
+            for (Film film : page) {
+                int filmId = film.getId();
+                IntSet.copyOf(film.getLikes()).forEachInt(userId -> {
+                    int[] ids = byUser.get(userId);
+                    if (ids == null || ids[0] == ids.length - 1) {
+                        ids = ids == null ? new int[5] : Arrays.copyOf(ids, ids.length * 2);
+                        byUser.put(userId, ids);
+                    }
+                    ids[++ids[0]] = filmId;
+                });
+                after = filmId;
+            }
+        }
+        Index built = new Index();
+        byUser.forEach((userId, ids) -> update(built, userId, IntSet.of(Arrays.copyOfRange(ids, 1, ids[0] + 1))));
+        return built;
+    }
+
+    /**
+     * Заменяет подпись пользователя и переносит его между корзинами полос, которые изменились.
+     */
+    private void update(Index target, int userId, IntSet liked) {
+        int[] previous = liked == null ? target.signatures.remove(userId)
+                : target.signatures.put(userId, signature(liked));
+        int[] signature = target.signatures.get(userId);
+        for (int band = 0; band < bands; band++) {
+            long oldKey = previous == null ? 0 : bandKey(previous, band);
+            long newKey = signature == null ? 0 : bandKey(signature, band);
+            if (previous != null && signature != null && oldKey == newKey) {
+                continue;
+            }
+            if (previous != null) {
+                target.buckets.computeIfPresent(oldKey, (key, users) -> {
+                    IntSet rest = users.without(userId);
+                    return rest.isEmpty() ? null : rest;
+                });
+            }
+            if (signature != null) {
+                target.buckets.merge(newKey, IntSet.of(userId), (users, single) -> users.with(userId));
+            }
+        }
+    }
+
+    private int[] signature(IntSet liked) {
+        int[] signature = new int[seeds.length];
+        Arrays.fill(signature, Integer.MAX_VALUE);
+        for (int filmId : liked.toIntArray()) {
+            for (int i = 0; i < seeds.length; i++) {
+                int hash = (int) (mix(filmId ^ seeds[i]) >>> 32);
+                if (hash < signature[i]) {
+                    signature[i] = hash;
+                }
+            }
+        }
+        return signature;
+    }
+
+    private long bandKey(int[] signature, int band) {
+        long key = mix(band + SEED);
+        for (int i = band * rows; i < (band + 1) * rows; i++) {
+            key = mix(key ^ signature[i]);
+        }
+        return key;
+    }
+
+    private static int matches(int[] a, int[] b) {
+        int matches = 0;
+        for (int i = 0; i < a.length; i++) {
+            if (a[i] == b[i]) {
+                matches++;
+            }
+        }
+        return matches;
+    }
+
+    // Финализатор SplittableRandom: близкие значения дают независимые на вид хеши
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    /**
+     * Подписи MinHash по пользователям и корзины LSH: ключ — хеш номера полосы и её значений.
+     */
+    private static final class Index {
+        private final Map<Integer, int[]> signatures = new ConcurrentHashMap<>();
+        private final Map<Long, IntSet> buckets = new ConcurrentHashMap<>();
+    }
+}
@@ -3,25 +3,30 @@ package ru.yandex.practicum.filmorate.service;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
+import ru.yandex.practicum.filmorate.event.DomainEvent;
+import ru.yandex.practicum.filmorate.event.EventPipeline;
+import ru.yandex.practicum.filmorate.exception.ValidationException;
 import ru.yandex.practicum.filmorate.model.Film;
 import ru.yandex.practicum.filmorate.storage.film.FilmStorage;
 import ru.yandex.practicum.filmorate.storage.user.UserStorage;
 
+import java.time.Duration;
 import java.util.Collection;
-import java.util.Comparator;
 import java.util.List;
-import java.util.stream.Collectors;
+import java.util.OptionalLong;
 
 @Service
 @Slf4j
 public class FilmService {
     private final FilmStorage filmStorage;
     private final UserStorage userStorage;
+    private final EventPipeline events;
 
     @Autowired
-    public FilmService(FilmStorage filmStorage, UserStorage userStorage) {
+    public FilmService(FilmStorage filmStorage, UserStorage userStorage, EventPipeline events) {
         this.filmStorage = filmStorage;
         this.userStorage = userStorage;
+        this.events = events;
     }
 
     public Film create(Film film) {
@@ -36,31 +41,72 @@ public class FilmService {
         return filmStorage.getAll();
     }
 
+    public List<Film> getPage(Integer after, Integer limit) {
+        return filmStorage.getPage(after, Paging.checkLimit(limit));
+    }
+
     public Film getById(Integer id) {
         return filmStorage.getById(id);
     }
 
-    public void addLike(Integer filmId, Integer userId) {
+    /**
+     * Версия фильма для ETag; пусто — если фильма нет или хранилище версий не ведёт.
+     */
+    public OptionalLong getVersion(Integer id) {
+        return filmStorage.getVersion(id);
+    }
+
+    /**
+     * Версия списков фильмов и популярных фильмов для ETag.
+     */
+    public OptionalLong getCatalogVersion() {
+        return filmStorage.getCatalogVersion();
+    }
+
+    /**
+     * Ставит лайк; рекомендации обновятся асинхронно. Возвращает номер события для {@link EventPipeline#await}.
+     * Если лайк уже стоял, событие не публикуется, а возвращается номер последнего опубликованного.
+     */
+    public long addLike(Integer filmId, Integer userId) {
         log.debug("Добавление лайка: фильм={}, пользователь={}", filmId, userId);
         userStorage.getById(userId);
-        Film film = filmStorage.getById(filmId);
-        film.getLikes().add(userId);
+        if (!filmStorage.addLike(filmId, userId)) {
+            return events.lastSequence();
+        }
+        return events.publish(new DomainEvent.LikeChanged(filmId, userId, true));
     }
 
-    public void removeLike(Integer filmId, Integer userId) {
+    public long removeLike(Integer filmId, Integer userId) {
         log.debug("Удаление лайка: фильм={}, пользователь={}", filmId, userId);
         userStorage.getById(userId);
-        Film film = filmStorage.getById(filmId);
-        film.getLikes().remove(userId);
+        if (!filmStorage.removeLike(filmId, userId)) {
+            return events.lastSequence();
+        }
+        return events.publish(new DomainEvent.LikeChanged(filmId, userId, false));
+    }
+
+    public List<Film> getLikedFilms(Integer userId, Integer after, Integer limit) {
+        userStorage.getById(userId);
+        List<Film> liked = filmStorage.getLikedFilms(userId, after, Paging.checkLimit(limit));
+        log.debug("Лайкнутые фильмы пользователя {}: {}", userId, liked.size());
+        return liked;
     }
 
     public List<Film> getPopular(int count) {
-        Collection<Film> all = filmStorage.getAll();
-        log.debug("Получение популярных фильмов: количество={}, в хранилище={}", count, all.size());
-        return all.stream()
-                .sorted(Comparator.comparingInt((Film f) -> f.getLikes().size()).reversed())
-                .limit(count)
-                .collect(Collectors.toList());
+        log.debug("Получение популярных фильмов: количество={}", count);
+        return filmStorage.getPopular(count);
+    }
+
+    public List<Film> getTrending(Duration window, int count) {
+        log.debug("Получение популярных за окно фильмов: окно={}, количество={}", window, count);
+        if (window.isZero() || window.isNegative()) {
+            throw new ValidationException("Окно должно быть больше нуля");
+        }
+        // Топ за окно отбирается кучей на count мест, поэтому count ограничен, как размер страницы
+        if (count < 1 || count > Paging.MAX_LIMIT) {
+            throw new ValidationException("Число фильмов должно быть от 1 до " + Paging.MAX_LIMIT);
+        }
+        return filmStorage.getTrending(window, count);
     }
 
 }
@@ -0,0 +1,31 @@
+package ru.yandex.practicum.filmorate.service;
+
+import org.springframework.http.InvalidMediaTypeException;
+import org.springframework.http.MediaType;
+import ru.yandex.practicum.filmorate.exception.ValidationException;
+
+/**
+ * Формат тела импорта: NDJSON — по одному JSON-объекту в строке, CSV — поля через запятую,
+ * первая строка может быть заголовком. Запись не может занимать больше одной строки.
+ */
+public enum ImportFormat {
+    NDJSON,
+    CSV;
+
+    public static final String CSV_VALUE = "text/csv";
+
+    public static ImportFormat of(String contentType) {
+        try {
+            MediaType type = MediaType.parseMediaType(contentType);
+            if (type.isCompatibleWith(MediaType.APPLICATION_NDJSON)) {
+                return NDJSON;
+            }
+            if (type.isCompatibleWith(MediaType.parseMediaType(CSV_VALUE))) {
+                return CSV;
+            }
+        } catch (InvalidMediaTypeException e) {
+            // сообщение ниже
+        }
+        throw new ValidationException("Импорт принимает " + MediaType.APPLICATION_NDJSON_VALUE + " или " + CSV_VALUE);
+    }
+}
@@ -0,0 +1,22 @@
+package ru.yandex.practicum.filmorate.service;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
+import java.util.List;
+
+/**
+ * Итог импорта: сколько записей прочитано, записано и отклонено, ошибки по номерам строк
+ * (не больше filmorate.import.max-errors) и скорость в записях в секунду. eventSequence — номер события,
+ * после которого рекомендации учтут импорт; он уходит в заголовок X-Event-Sequence, а не в тело.
+ */
+public record ImportReport(long records,
+                           long imported,
+                           long rejected,
+                           List<Error> errors,
+                           long durationMs,
+                           long recordsPerSecond,
+                           @JsonIgnore long eventSequence) {
+
+    public record Error(long line, String message) {
+    }
+}
@@ -0,0 +1,380 @@
+package ru.yandex.practicum.filmorate.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import jakarta.annotation.PreDestroy;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import ru.yandex.practicum.filmorate.event.DomainEvent;
+import ru.yandex.practicum.filmorate.event.EventPipeline;
+import ru.yandex.practicum.filmorate.exception.NotFoundException;
+import ru.yandex.practicum.filmorate.exception.ValidationException;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.film.FilmStorage;
+import ru.yandex.practicum.filmorate.storage.user.UserStorage;
+import ru.yandex.practicum.filmorate.validation.CreateGroup;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.ToIntFunction;
+
+/**
+ * Массовый импорт фильмов, пользователей, лайков и дружб из NDJSON или CSV.
+ * <p>
+ * Тело читается построчно, без загрузки целиком: строки собираются в пачки по batch-size, пачки разбираются
+ * и проверяются параллельно (для фильмов и пользователей — те же ограничения {@link CreateGroup}, что и у POST),
+ * а записываются в хранилище по порядку, одной пакетной операцией на пачку. Так id новых сущностей идут
+ * в порядке строк. Если пакетная запись не удалась, записи пачки пишутся по одной, чтобы ошибка
+ * досталась только своей строке. Некорректные записи попадают в отчёт и не прерывают импорт.
+ * <p>
+ * Рекомендации узнают об импортированных лайках и дружбах из {@link EventPipeline}: одно событие на пачку,
+ * а при записи по одной — обычное событие на каждое изменение.
+ */
+@Service
+@Slf4j
+public class ImportService {
+    static final String FILM_COLUMNS = "name,description,releaseDate,duration";
+    static final String USER_COLUMNS = "email,login,name,birthday";
+    static final String LIKE_COLUMNS = "filmId,userId";
+    static final String FRIEND_COLUMNS = "userId,friendId";
+
+    private final FilmStorage filmStorage;
+    private final UserStorage userStorage;
+    private final EventPipeline events;
+    private final ObjectMapper objectMapper;
+    private final Validator validator;
+    private final int batchSize;
+    private final int parallelism;
+    private final int maxErrors;
+    private final ExecutorService executor;
+
+    @Autowired
+    public ImportService(FilmStorage filmStorage,
+                         UserStorage userStorage,
+                         EventPipeline events,
+                         ObjectMapper objectMapper,
+                         Validator validator,
+                         @Value("${filmorate.import.batch-size:1000}") int batchSize,
+                         @Value("${filmorate.import.parallelism:0}") int parallelism,
+                         @Value("${filmorate.import.max-errors:1000}") int maxErrors) {
+        this.filmStorage = filmStorage;
+        this.userStorage = userStorage;
+        this.events = events;
+        this.objectMapper = objectMapper;
+        this.validator = validator;
+        this.batchSize = batchSize;
+        this.parallelism = parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors();
+        this.maxErrors = maxErrors;
+        this.executor = Executors.newFixedThreadPool(this.parallelism,
+                Thread.ofPlatform().name("import-", 0).daemon().factory());
+    }
+
+    @PreDestroy
+    public void close() {
+        executor.shutdownNow();
+    }
+
+    public ImportReport importFilms(InputStream body, ImportFormat format) throws IOException {
+        ObjectReader json = objectMapper.readerFor(Film.class);
+        Parser<Film> parser = format == ImportFormat.NDJSON ? json::readValue : ImportService::filmFromCsv;
+        return run(body, format, new RecordType<>("фильмов", FILM_COLUMNS, parser, this::violations,
+                filmStorage::createAll, filmStorage::create));
+    }
+
+    public ImportReport importUsers(InputStream body, ImportFormat format) throws IOException {
+        ObjectReader json = objectMapper.readerFor(User.class);
+        Parser<User> parser = format == ImportFormat.NDJSON ? json::readValue : ImportService::userFromCsv;
+        return run(body, format, new RecordType<>("пользователей", USER_COLUMNS, parser, this::violations,
+                userStorage::createAll, userStorage::create));
+    }
+
+    public ImportReport importLikes(InputStream body, ImportFormat format) throws IOException {
+        ObjectReader json = objectMapper.readerFor(Like.class);
+        Parser<Like> parser = format == ImportFormat.NDJSON ? json::readValue : line -> {
+            List<String> fields = CsvFields.split(line, 2);
+            return new Like(parseId(fields.get(0)), parseId(fields.get(1)));
+        };
+        return run(body, format, new RecordType<>("лайков", LIKE_COLUMNS, parser,
+                like -> missing(() -> {
+                    filmStorage.getById(like.filmId());
+                    userStorage.getById(like.userId());
+                }),
+                likes -> {
+                    int[] filmIds = ids(likes, Like::filmId);
+                    int[] userIds = ids(likes, Like::userId);
+                    filmStorage.addLikes(filmIds, userIds);
+                    events.publish(new DomainEvent.LikesImported(filmIds, userIds));
+                },
+                like -> {
+                    if (filmStorage.addLike(like.filmId(), like.userId())) {
+                        events.publish(new DomainEvent.LikeChanged(like.filmId(), like.userId(), true));
+                    }
+                }));
+    }
+
+    public ImportReport importFriends(InputStream body, ImportFormat format) throws IOException {
+        ObjectReader json = objectMapper.readerFor(Friendship.class);
+        Parser<Friendship> parser = format == ImportFormat.NDJSON ? json::readValue : line -> {
+            List<String> fields = CsvFields.split(line, 2);
+            return new Friendship(parseId(fields.get(0)), parseId(fields.get(1)));
+        };
+        return run(body, format, new RecordType<>("дружб", FRIEND_COLUMNS, parser,
+                friendship -> missing(() -> {
+                    userStorage.getById(friendship.userId());
+                    userStorage.getById(friendship.friendId());
+                }),
+                friendships -> {
+                    int[] userIds = ids(friendships, Friendship::userId);
+                    int[] friendIds = ids(friendships, Friendship::friendId);
+                    userStorage.addFriends(userIds, friendIds);
+                    events.publish(new DomainEvent.FriendshipsImported(userIds, friendIds));
+                },
+                friendship -> {
+                    if (userStorage.addFriend(friendship.userId(), friendship.friendId())) {
+                        events.publish(new DomainEvent.FriendshipChanged(friendship.userId(),
+                                friendship.friendId(), true));
+                    }
+                }));
+    }
+
+    private <T> ImportReport run(InputStream body, ImportFormat format, RecordType<T> type) throws IOException {
+        long start = System.nanoTime();
+        Totals totals = new Totals();
+        Deque<Future<Chunk<T>>> pending = new ArrayDeque<>();
+        try {
+            BufferedReader reader = new BufferedReader(new InputStreamReader(body, StandardCharsets.UTF_8));
+            Lines lines = new Lines(batchSize);
+            long number = 0;
+            for (String line = reader.readLine(); line != null; line = reader.readLine()) {
+                number++;
+                if (line.isBlank() || number == 1 && format == ImportFormat.CSV && isHeader(line, type.header())) {
+                    continue;
+                }
+                lines.add(number, line);
+                if (lines.size == batchSize) {
+                    Lines batch = lines;
+                    pending.add(executor.submit(() -> prepare(batch, type)));
+                    lines = new Lines(batchSize);
+                    // Разбор не уходит дальше записи больше чем на два круга потоков — память ограничена
+                    if (pending.size() >= 2 * parallelism) {
+                        write(await(pending.poll()), type, totals);
+                    }
+                }
+            }
+            if (lines.size > 0) {
+                Lines batch = lines;
+                pending.add(executor.submit(() -> prepare(batch, type)));
+            }
+            while (!pending.isEmpty()) {
+                write(await(pending.poll()), type, totals);
+            }
+        } finally {
+            pending.forEach(future -> future.cancel(true));
+        }
+        long nanos = Math.max(1, System.nanoTime() - start);
+        long records = totals.imported + totals.rejected;
+        long perSecond = records * 1_000_000_000L / nanos;
+        log.info("Импорт {}: записано {}, отклонено {}, {} мс, {} записей/с",
+                type.name(), totals.imported, totals.rejected, nanos / 1_000_000, perSecond);
+        // Все события импорта уже опубликованы, и последний номер не меньше любого из них
+        return new ImportReport(records, totals.imported, totals.rejected, totals.errors, nanos / 1_000_000,
+                perSecond, events.lastSequence());
+    }
+
+    private <T> Chunk<T> prepare(Lines lines, RecordType<T> type) {
+        Chunk<T> chunk = new Chunk<>(lines.size);
+        for (int i = 0; i < lines.size; i++) {
+            String error;
+            try {
+                T record = type.parser().parse(lines.text[i]);
+                error = record == null ? "Пустая запись" : type.check().apply(record);
+                if (error == null) {
+                    chunk.records.add(record);
+                    chunk.lines.add(lines.numbers[i]);
+                    continue;
+                }
+            } catch (JsonProcessingException e) {
+                error = "Некорректная запись: " + e.getOriginalMessage();
+            } catch (IOException | RuntimeException e) {
+                error = "Некорректная запись: " + e.getMessage();
+            }
+            chunk.errors.add(new ImportReport.Error(lines.numbers[i], error));
+        }
+        return chunk;
+    }
+
+    private <T> void write(Chunk<T> chunk, RecordType<T> type, Totals totals) {
+        chunk.errors.forEach(totals::reject);
+        if (chunk.records.isEmpty()) {
+            return;
+        }
+        try {
+            type.batch().accept(chunk.records);
+            totals.imported += chunk.records.size();
+            return;
+        } catch (RuntimeException e) {
+            log.warn("Пакетная запись {} не удалась, записи пачки пишутся по одной", type.name(), e);
+        }
+        for (int i = 0; i < chunk.records.size(); i++) {
+            try {
+                type.single().accept(chunk.records.get(i));
+                totals.imported++;
+            } catch (NotFoundException | ValidationException e) {
+                totals.reject(new ImportReport.Error(chunk.lines.get(i), e.getMessage()));
+            } catch (RuntimeException e) {
+                log.warn("Не удалось записать строку {} импорта {}", chunk.lines.get(i), type.name(), e);
+                totals.reject(new ImportReport.Error(chunk.lines.get(i), "Ошибка записи в хранилище"));
+            }
+        }
+    }
+
+    private static <T> Chunk<T> await(Future<Chunk<T>> future) {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Импорт прерван", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Не удалось разобрать пачку импорта", e.getCause());
+        }
+    }
+
+    private String violations(Object entity) {
+        List<String> messages = new ArrayList<>();
+        for (ConstraintViolation<Object> violation : validator.validate(entity, CreateGroup.class)) {
+            messages.add(violation.getMessage());
+        }
+        if (messages.isEmpty()) {
+            return null;
+        }
+        messages.sort(null);
+        return String.join("; ", messages);
+    }
+
+    private static String missing(Runnable lookups) {
+        try {
+            lookups.run();
+            return null;
+        } catch (NotFoundException e) {
+            return e.getMessage();
+        }
+    }
+
+    private static boolean isHeader(String line, String columns) {
+        return line.replace(" ", "").equalsIgnoreCase(columns);
+    }
+
+    private static Film filmFromCsv(String line) {
+        List<String> fields = CsvFields.split(line, 4);
+        Film film = new Film();
+        film.setName(fields.get(0));
+        film.setDescription(fields.get(1));
+        film.setReleaseDate(fields.get(2) == null ? null : LocalDate.parse(fields.get(2)));
+        film.setDuration(fields.get(3) == null ? null : Integer.valueOf(fields.get(3).trim()));
+        return film;
+    }
+
+    private static User userFromCsv(String line) {
+        List<String> fields = CsvFields.split(line, 4);
+        User user = new User();
+        user.setEmail(fields.get(0));
+        user.setLogin(fields.get(1));
+        user.setName(fields.get(2));
+        user.setBirthday(fields.get(3) == null ? null : LocalDate.parse(fields.get(3)));
+        return user;
+    }
+
+    private static int parseId(String field) {
+        if (field == null) {
+            throw new IllegalArgumentException("пустой id");
+        }
+        return Integer.parseInt(field.trim());
+    }
+
+    private static <T> int[] ids(List<T> records, ToIntFunction<T> id) {
+        int[] result = new int[records.size()];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = id.applyAsInt(records.get(i));
+        }
+        return result;
+    }
+
+    record Like(int filmId, int userId) {
+    }
+
+    record Friendship(int userId, int friendId) {
+    }
+
+    @FunctionalInterface
+    private interface Parser<T> {
+        T parse(String line) throws IOException;
+    }
+
+    private record RecordType<T>(String name,
+                                 String header,
+                                 Parser<T> parser,
+                                 Function<T, String> check,
+                                 Consumer<List<T>> batch,
+                                 Consumer<T> single) {
+    }
+
+    private static final class Lines {
+        private final long[] numbers;
+        private final String[] text;
+        private int size;
+
+        Lines(int capacity) {
+            numbers = new long[capacity];
+            text = new String[capacity];
+        }
+
+        void add(long number, String line) {
+            numbers[size] = number;
+            text[size++] = line;
+        }
+    }
+
+    private static final class Chunk<T> {
+        private final List<T> records;
+        private final List<Long> lines;
+        private final List<ImportReport.Error> errors = new ArrayList<>();
+
+        Chunk(int capacity) {
+            records = new ArrayList<>(capacity);
+            lines = new ArrayList<>(capacity);
+        }
+    }
+
+    private final class Totals {
+        private final List<ImportReport.Error> errors = new ArrayList<>();
+        private long imported;
+        private long rejected;
+
+        void reject(ImportReport.Error error) {
+            rejected++;
+            if (errors.size() < maxErrors) {
+                errors.add(error);
+            }
+        }
+    }
+}
@@ -0,0 +1,340 @@
+package ru.yandex.practicum.filmorate.service;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import ru.yandex.practicum.filmorate.event.DomainEvent;
+import ru.yandex.practicum.filmorate.event.DomainEventHandler;
+import ru.yandex.practicum.filmorate.event.EventPipeline;
+import ru.yandex.practicum.filmorate.exception.ValidationException;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.EntityCache;
+import ru.yandex.practicum.filmorate.storage.IntSet;
+import ru.yandex.practicum.filmorate.storage.TopIds;
+import ru.yandex.practicum.filmorate.storage.user.UserStorage;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Рекомендации друзей: друзья друзей, ранжированные по числу общих друзей, при равенстве — по возрастанию id.
+ * <p>
+ * Обход идёт по множествам id друзей из хранилища, без загрузки пользователей: друзья пользователя делятся
+ * между потоками на равные части, каждый поток считает кандидатов в своей таблице счётчиков с открытой
+ * адресацией — её размер растёт с числом встреченных кандидатов, а не с наибольшим id, — затем таблицы
+ * складываются, а лучшие max-count отбираются кучей. Обход ограничен
+ * по времени: если бюджет исчерпан, запрос получает рейтинг по уже пройденным друзьям, а полный досчитывается
+ * в фоне. Кэшируется только полный рейтинг — по пользователю, и сбрасывается при изменении дружбы у него
+ * или у его друзей: рекомендации зависят от друзей на расстоянии двух шагов. Дружбы через {@link UserService}
+ * сбрасывают кэш событиями из {@link EventPipeline}, пачкой: друзья каждого затронутого пользователя читаются
+ * один раз на пачку.
+ */
+@Service
+@Slf4j
+public class RecommendationService implements DomainEventHandler {
+    // Меньше друзей на поток не окупают передачу задачи в пул и сложение счётчиков
+    private static final int MIN_FRIENDS_PER_TASK = 256;
+    // Друзей между проверками дедлайна: при 5000 друзей у каждого — около 300 тысяч приращений
+    private static final int FRIENDS_PER_CHUNK = 64;
+    // Сколько пользователей может ждать фонового обхода; остальным полный рейтинг досчитает следующий запрос
+    private static final int MAX_PENDING = 1024;
+    // Дедлайн фонового обхода: сравнение через разность остаётся верным и с таким запасом
+    private static final long UNBOUNDED_NANOS = Long.MAX_VALUE >>> 1;
+
+    private final UserStorage userStorage;
+    private final int parallelism;
+    private final long timeBudgetNanos;
+    private final int maxCount;
+    private final EntityCache<Ranking> cache;
+    private final ExecutorService executor;
+    private final ThreadPoolExecutor completion;
+    private final Set<Integer> completing = ConcurrentHashMap.newKeySet();
+
+    @Autowired
+    public RecommendationService(UserStorage userStorage,
+                                 @Value("${filmorate.recommendations.parallelism:0}") int parallelism,
+                                 @Value("${filmorate.recommendations.time-budget:40ms}") Duration timeBudget,
+                                 @Value("${filmorate.recommendations.max-count:100}") int maxCount,
+                                 @Value("${filmorate.recommendations.cache-size:10000}") int cacheSize) {
+        this.userStorage = userStorage;
+        this.parallelism = parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors();
+        this.timeBudgetNanos = timeBudget.toNanos();
+        this.maxCount = maxCount;
+        this.cache = new EntityCache<>(cacheSize, 16, Ranking::copy);
+        // Одну часть обхода выполняет сам вызывающий поток
+        this.executor = this.parallelism > 1 ? Executors.newFixedThreadPool(this.parallelism - 1,
+                Thread.ofPlatform().name("recommendations-", 0).daemon().factory()) : null;
+        this.completion = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(MAX_PENDING),
+                Thread.ofPlatform().name("recommendations-completion").daemon().factory());
+    }
+
+    @PreDestroy
+    public void close() {
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+        completion.shutdownNow();
+    }
+
+    public List<User> getRecommendations(int userId, int count) {
+        if (count < 1 || count > maxCount) {
+            throw new ValidationException("Число рекомендаций должно быть от 1 до " + maxCount);
+        }
+        Ranking ranking = cache.get(userId, id -> rank(id, timeBudgetNanos), Ranking::complete);
+        if (!ranking.complete()) {
+            completeInBackground(userId);
+        }
+        int[] ranked = ranking.ids();
+        List<Integer> ids = new ArrayList<>(Math.min(count, ranked.length));
+        for (int i = 0; i < ranked.length && i < count; i++) {
+            ids.add(ranked[i]);
+        }
+        return userStorage.getByIds(ids);
+    }
+
+    /**
+     * Сбрасывает рекомендации, затронутые изменением дружбы userId и friendId: их самих и их друзей.
+     * Вызывается после изменения, когда множества друзей уже новые; при удалении бывший друг
+     * сбрасывается как второй участник.
+     */
+    public void invalidate(int userId, int friendId) {
+        invalidate(List.of(userId, friendId));
+    }
+
+    @Override
+    public String name() {
+        return "friend-recommendations";
+    }
+
+    /**
+     * Сбрасывает рекомендации участников дружб из пачки и их друзей; после загрузки дампа — все.
+     */
+    @Override
+    public void handle(List<DomainEvent> batch) {
+        Set<Integer> userIds = new HashSet<>();
+        for (DomainEvent event : batch) {
+            if (event instanceof DomainEvent.FriendshipChanged friendship) {
+                userIds.add(friendship.userId());
+                userIds.add(friendship.friendId());
+            } else if (event instanceof DomainEvent.FriendshipsImported friendships) {
+                for (int i = 0; i < friendships.userIds().length; i++) {
+                    userIds.add(friendships.userIds()[i]);
+                    userIds.add(friendships.friendIds()[i]);
+                }
+            } else if (event instanceof DomainEvent.Resync) {
+                invalidateAll();
+                return;
+            }
+        }
+        if (!userIds.isEmpty()) {
+            invalidate(userIds);
+        }
+    }
+
+    @Override
+    public void resync() {
+        invalidateAll();
+    }
+
+    /**
+     * Сбрасывает все рекомендации — после загрузки дампа или потери событий.
+     */
+    public void invalidateAll() {
+        cache.invalidateAll();
+    }
+
+    private void invalidate(Collection<Integer> userIds) {
+        for (IntSet friends : userStorage.getFriendIds(userIds).values()) {
+            friends.forEachInt(cache::invalidate);
+        }
+        userIds.forEach(cache::invalidate);
+    }
+
+    /**
+     * Досчитывает полный рейтинг без ограничения по времени и кладёт его в кэш, если за это время рекомендации
+     * пользователя не сбросили. Один пользователь за раз ставится в очередь не больше одного раза.
+     */
+    private void completeInBackground(int userId) {
+        if (!completing.add(userId)) {
+            return;
+        }
+        try {
+            completion.execute(() -> {
+                try {
+                    cache.get(userId, id -> rank(id, UNBOUNDED_NANOS));
+                } catch (RuntimeException e) {
+                    log.debug("Не удалось досчитать рекомендации пользователю {}", userId, e);
+                } finally {
+                    completing.remove(userId);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            completing.remove(userId);
+            log.debug("Очередь досчёта рекомендаций заполнена, пользователь {} пропущен", userId);
+        }
+    }
+
+    private Ranking rank(int userId, long budgetNanos) {
+        long deadline = System.nanoTime() + budgetNanos;
+        IntSet friends = IntSet.copyOf(userStorage.getById(userId).getFriends());
+        IntSet[] adjacency = userStorage.getFriendIds(friends).values().toArray(IntSet[]::new);
+        int tasks = executor == null ? 1
+                : Math.max(1, Math.min(parallelism, adjacency.length / MIN_FRIENDS_PER_TASK));
+        List<Future<Counts>> futures = new ArrayList<>(tasks - 1);
+        Counts total;
+        try {
+            for (int task = 1; task < tasks; task++) {
+                int from = adjacency.length * task / tasks;
+                int to = adjacency.length * (task + 1) / tasks;
+                futures.add(executor.submit(() -> count(adjacency, from, to, deadline)));
+            }
+            total = count(adjacency, 0, adjacency.length / tasks, deadline);
+            for (Future<Counts> future : futures) {
+                total.add(await(future));
+            }
+        } finally {
+            futures.forEach(future -> future.cancel(true));
+        }
+        boolean complete = total.visited == adjacency.length;
+        if (!complete) {
+            log.debug("Рекомендации пользователю {}: бюджет времени исчерпан, пройдено {} друзей из {}",
+                    userId, total.visited, adjacency.length);
+        }
+        total.exclude(userId);
+        friends.forEachInt(total::exclude);
+        return new Ranking(total.top(maxCount), complete);
+    }
+
+    /**
+     * Считает кандидатов по множествам друзей adjacency[from..to) порциями, проверяя дедлайн между ними:
+     * при нехватке времени пропускаются целые друзья, а не часть их друзей.
+     */
+    private static Counts count(IntSet[] adjacency, int from, int to, long deadline) {
+        Counts counts = new Counts();
+        for (int i = from; i < to && System.nanoTime() - deadline < 0; i += FRIENDS_PER_CHUNK) {
+            int end = Math.min(to, i + FRIENDS_PER_CHUNK);
+            for (int friend = i; friend < end; friend++) {
+                adjacency[friend].forEachInt(counts::increment);
+            }
+            counts.visited += end - i;
+        }
+        return counts;
+    }
+
+    private static Counts await(Future<Counts> future) {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Подбор рекомендаций прерван", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Не удалось подобрать рекомендации", e.getCause());
+        }
+    }
+
+    /**
+     * Рейтинг кандидатов; complete — обход прошёл всех друзей, и рейтинг можно кэшировать.
+     */
+    private record Ranking(int[] ids, boolean complete) {
+        Ranking copy() {
+            return new Ranking(ids.clone(), complete);
+        }
+    }
+
+    /**
+     * Число общих друзей по id кандидата: открытая адресация в двух примитивных массивах, заполненных
+     * не больше чем наполовину. id пользователей положительны, поэтому 0 в ids — свободная ячейка.
+     */
+    private static final class Counts {
+        private int[] ids = new int[64];
+        private int[] values = new int[64];
+        private int size;
+        private int visited;
+
+        void increment(int id) {
+            add(id, 1);
+        }
+
+        void add(Counts other) {
+            for (int i = 0; i < other.ids.length; i++) {
+                if (other.ids[i] != 0) {
+                    add(other.ids[i], other.values[i]);
+                }
+            }
+            visited += other.visited;
+        }
+
+        void exclude(int id) {
+            int slot = slot(ids, id);
+            if (ids[slot] == id) {
+                values[slot] = 0;
+            }
+        }
+
+        int[] top(int count) {
+            TopIds best = new TopIds(count);
+            for (int i = 0; i < ids.length; i++) {
+                best.offer(values[i], ids[i]);
+            }
+            return best.toArray();
+        }
+
+        private void add(int id, int delta) {
+            if (id <= 0) {
+                return;
+            }
+            int slot = slot(ids, id);
+            if (ids[slot] == id) {
+                values[slot] += delta;
+                return;
+            }
+            if (2 * (size + 1) > ids.length) {
+                grow();
+                slot = slot(ids, id);
+            }
+            ids[slot] = id;
+            values[slot] = delta;
+            size++;
+        }
+
+        private void grow() {
+            int[] oldIds = ids;
+            int[] oldValues = values;
+            ids = new int[oldIds.length * 2];
+            values = new int[oldIds.length * 2];
+            for (int i = 0; i < oldIds.length; i++) {
+                if (oldIds[i] != 0) {
+                    int slot = slot(ids, oldIds[i]);
+                    ids[slot] = oldIds[i];
+                    values[slot] = oldValues[i];
+                }
+            }
+        }
+
+        private static int slot(int[] ids, int id) {
+            int mask = ids.length - 1;
+            int h = id * 0x9E3779B9;
+            int slot = (h ^ (h >>> 16)) & mask;
+            while (ids[slot] != 0 && ids[slot] != id) {
+                slot = (slot + 1) & mask;
+            }
+            return slot;
+        }
+    }
+}
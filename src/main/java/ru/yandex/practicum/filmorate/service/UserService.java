@@ -3,21 +3,31 @@ package ru.yandex.practicum.filmorate.service;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
+import ru.yandex.practicum.filmorate.event.DomainEvent;
+import ru.yandex.practicum.filmorate.event.EventPipeline;
+import ru.yandex.practicum.filmorate.model.Film;
 import ru.yandex.practicum.filmorate.model.User;
 import ru.yandex.practicum.filmorate.storage.user.UserStorage;
 
 import java.util.Collection;
-import java.util.Set;
-import java.util.stream.Collectors;
+import java.util.List;
+import java.util.OptionalLong;
 
 @Service
 @Slf4j
 public class UserService {
     private final UserStorage userStorage;
+    private final RecommendationService recommendationService;
+    private final FilmRecommendationService filmRecommendationService;
+    private final EventPipeline events;
 
     @Autowired
-    public UserService(UserStorage userStorage) {
+    public UserService(UserStorage userStorage, RecommendationService recommendationService,
+                       FilmRecommendationService filmRecommendationService, EventPipeline events) {
         this.userStorage = userStorage;
+        this.recommendationService = recommendationService;
+        this.filmRecommendationService = filmRecommendationService;
+        this.events = events;
     }
 
     public User create(User user) {
@@ -32,40 +42,86 @@ public class UserService {
         return userStorage.getAll();
     }
 
+    public List<User> getPage(Integer after, Integer limit) {
+        return userStorage.getPage(after, Paging.checkLimit(limit));
+    }
+
     public User getById(Integer id) {
         return userStorage.getById(id);
     }
 
+    /**
+     * Версия пользователя для ETag; пусто — если пользователя нет или хранилище версий не ведёт.
+     */
+    public OptionalLong getVersion(Integer id) {
+        return userStorage.getVersion(id);
+    }
+
+    /**
+     * Версия списка пользователей для ETag.
+     */
+    public OptionalLong getCatalogVersion() {
+        return userStorage.getCatalogVersion();
+    }
+
+    /**
+     * Версия списка друзей пользователя для ETag.
+     */
+    public OptionalLong getFriendsVersion(Integer id) {
+        return userStorage.getFriendsVersion(id);
+    }
+
     // Friends operations
-    public void addFriend(Integer userId, Integer friendId) {
+    /**
+     * Добавляет в друзья; кэш рекомендаций сбросится асинхронно. Возвращает номер события для {@link #awaitEvent}.
+     * Если пользователи уже дружили, событие не публикуется, а возвращается номер последнего опубликованного.
+     */
+    public long addFriend(Integer userId, Integer friendId) {
         log.debug("Добавление в друзья: пользователь {} -> {}", userId, friendId);
-        User user = userStorage.getById(userId);
-        User friend = userStorage.getById(friendId);
-        user.getFriends().add(friendId);
-        friend.getFriends().add(userId);
+        if (!userStorage.addFriend(userId, friendId)) {
+            return events.lastSequence();
+        }
+        return events.publish(new DomainEvent.FriendshipChanged(userId, friendId, true));
     }
 
-    public void removeFriend(Integer userId, Integer friendId) {
+    public long removeFriend(Integer userId, Integer friendId) {
         log.debug("Удаление из друзей: пользователь {} -/-> {}", userId, friendId);
-        User user = userStorage.getById(userId);
-        User friend = userStorage.getById(friendId);
-        user.getFriends().remove(friendId);
-        friend.getFriends().remove(userId);
+        if (!userStorage.removeFriend(userId, friendId)) {
+            return events.lastSequence();
+        }
+        return events.publish(new DomainEvent.FriendshipChanged(userId, friendId, false));
+    }
+
+    /**
+     * Ждёт, пока рекомендации учтут изменение с номером sequence и все до него; по истечении
+     * filmorate.events.await-timeout отвечает тем, что есть.
+     */
+    public void awaitEvent(long sequence) {
+        events.await(sequence);
     }
 
     public Collection<User> getFriends(Integer userId) {
         User user = userStorage.getById(userId);
         log.debug("Получение списка друзей пользователя {}. Количество={}", userId, user.getFriends().size());
-        return user.getFriends().stream().map(userStorage::getById).collect(Collectors.toList());
+        return userStorage.getByIds(user.getFriends());
     }
 
-    public Collection<User> getCommonFriends(Integer userId, Integer otherId) {
-        User user = userStorage.getById(userId);
-        User other = userStorage.getById(otherId);
-        Set<Integer> common = user.getFriends().stream().filter(other.getFriends()::contains).collect(Collectors.toSet());
+    public Collection<User> getCommonFriends(Integer userId, Integer otherId, Integer after, Integer limit) {
+        int max = limit == null ? Integer.MAX_VALUE : Paging.checkLimit(limit);
+        List<User> common = userStorage.getCommonFriends(userId, otherId, after, max);
         log.debug("Общие друзья пользователей {} и {}: {}", userId, otherId, common.size());
-        return common.stream().map(userStorage::getById).collect(Collectors.toList());
+        return common;
     }
-}
 
+    public List<User> getRecommendations(Integer userId, int count) {
+        List<User> recommended = recommendationService.getRecommendations(userId, count);
+        log.debug("Рекомендации друзей пользователю {}: {}", userId, recommended.size());
+        return recommended;
+    }
 
+    public List<Film> getRecommendedFilms(Integer userId, int count) {
+        List<Film> recommended = filmRecommendationService.getRecommendations(userId, count);
+        log.debug("Рекомендации фильмов пользователю {}: {}", userId, recommended.size());
+        return recommended;
+    }
+}
@@ -0,0 +1,34 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+/**
+ * Источник данных для filmorate.storage=db. Автоконфигурация DataSource отключена в {@code FilmorateApplication},
+ * поэтому в режимах memory и offheap нет ни базы H2, ни пула соединений, ни запуска schema.sql: шаблоны JDBC,
+ * менеджер транзакций и инициализация схемы поднимаются автоконфигурацией, только когда этот бин есть.
+ */
+@Configuration
+@ConditionalOnProperty(name = "filmorate.storage", havingValue = "db")
+@EnableConfigurationProperties(DataSourceProperties.class)
+public class DbStorageConfiguration {
+    // H2 работает в том же процессе, поэтому пул фиксированного размера: соединения не закрываются
+    // и не открываются заново
+    @Bean
+    public HikariDataSource dataSource(DataSourceProperties properties,
+                                       @Value("${filmorate.db.pool-size:16}") int poolSize,
+                                       @Value("${filmorate.db.connection-timeout:2s}") Duration connectionTimeout) {
+        HikariDataSource dataSource = properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        dataSource.setMaximumPoolSize(poolSize);
+        dataSource.setMinimumIdle(poolSize);
+        dataSource.setConnectionTimeout(connectionTimeout.toMillis());
+        return dataSource;
+    }
+}
@@ -0,0 +1,199 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+import java.util.function.IntFunction;
+import java.util.function.Predicate;
+import java.util.function.ToIntFunction;
+import java.util.function.UnaryOperator;
+
+/**
+ * Ограниченный по размеру кэш сущностей по id с вытеснением давно не использованных (LRU).
+ * Разбит на сегменты со своими блокировками, чтобы чтения разных id не стояли в одной очереди.
+ * Хранит и отдаёт только копии: изменения объекта вызывающим кодом не портят кэш и других читателей.
+ */
+public class EntityCache<T> {
+    private final Segment<T>[] segments;
+    private final int mask;
+    private final UnaryOperator<T> copier;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    @SuppressWarnings("unchecked")
+    public EntityCache(int maxSize, int concurrency, UnaryOperator<T> copier) {
+        int count = Integer.highestOneBit(Math.max(1, Math.min(concurrency, maxSize)));
+        this.segments = new Segment[count];
+        this.mask = count - 1;
+        this.copier = copier;
+        int perSegment = Math.max(1, maxSize / count);
+        for (int i = 0; i < count; i++) {
+            segments[i] = new Segment<>(perSegment, evictions);
+        }
+    }
+
+    /**
+     * Возвращает копию из кэша или загружает значение, кладёт его копию в кэш и возвращает вторую копию.
+     * Загрузка выполняется без блокировки; если за это время id был сброшен, результат в кэш не попадает.
+     */
+    public T get(int id, IntFunction<T> loader) {
+        return get(id, loader, value -> true);
+    }
+
+    /**
+     * Как {@link #get(int, IntFunction)}, но загруженное значение попадает в кэш, только если его принимает
+     * cacheable: неполный результат отдаётся вызывающему, но следующему читателю не достаётся.
+     */
+    public T get(int id, IntFunction<T> loader, Predicate<T> cacheable) {
+        Segment<T> segment = segment(id);
+        long stamp;
+        segment.lock.lock();
+        try {
+            T cached = segment.entries.get(id);
+            if (cached != null) {
+                hits.increment();
+                return copier.apply(cached);
+            }
+            stamp = segment.invalidations;
+        } finally {
+            segment.lock.unlock();
+        }
+        misses.increment();
+        T loaded = loader.apply(id);
+        if (!cacheable.test(loaded)) {
+            return loaded;
+        }
+        put(id, loaded, stamp);
+        return copier.apply(loaded);
+    }
+
+    /**
+     * Возвращает копии значений в порядке ids, пропуская отсутствующие. Промахи загружаются
+     * одним вызовом loader, а не по одному id.
+     */
+    public List<T> getAll(Collection<Integer> ids, Function<List<Integer>, List<T>> loader, ToIntFunction<T> idOf) {
+        Map<Integer, T> found = new HashMap<>();
+        Map<Integer, Long> stamps = new HashMap<>();
+        for (Integer id : ids) {
+            Segment<T> segment = segment(id);
+            segment.lock.lock();
+            try {
+                T cached = segment.entries.get(id);
+                if (cached != null) {
+                    hits.increment();
+                    found.put(id, copier.apply(cached));
+                } else {
+                    misses.increment();
+                    stamps.put(id, segment.invalidations);
+                }
+            } finally {
+                segment.lock.unlock();
+            }
+        }
+        if (!stamps.isEmpty()) {
+            for (T loaded : loader.apply(new ArrayList<>(stamps.keySet()))) {
+                int id = idOf.applyAsInt(loaded);
+                put(id, loaded, stamps.get(id));
+                found.put(id, copier.apply(loaded));
+            }
+        }
+        List<T> result = new ArrayList<>(found.size());
+        for (Integer id : ids) {
+            T value = found.get(id);
+            if (value != null) {
+                result.add(value);
+            }
+        }
+        return result;
+    }
+
+    private void put(int id, T value, long stamp) {
+        T copy = copier.apply(value);
+        Segment<T> segment = segment(id);
+        segment.lock.lock();
+        try {
+            if (segment.invalidations == stamp) {
+                segment.entries.put(id, copy);
+            }
+        } finally {
+            segment.lock.unlock();
+        }
+    }
+
+    /**
+     * Удаляет id из кэша. Вызывается после изменения в хранилище, чтобы параллельная загрузка
+     * старой версии не вернула её в кэш.
+     */
+    public void invalidate(int id) {
+        Segment<T> segment = segment(id);
+        segment.lock.lock();
+        try {
+            segment.invalidations++;
+            segment.entries.remove(id);
+        } finally {
+            segment.lock.unlock();
+        }
+    }
+
+    /**
+     * Очищает кэш целиком — после массовых изменений, затрагивающих неизвестно какие id.
+     */
+    public void invalidateAll() {
+        for (Segment<T> segment : segments) {
+            segment.lock.lock();
+            try {
+                segment.invalidations++;
+                segment.entries.clear();
+            } finally {
+                segment.lock.unlock();
+            }
+        }
+    }
+
+    public Stats stats() {
+        int size = 0;
+        for (Segment<T> segment : segments) {
+            segment.lock.lock();
+            try {
+                size += segment.entries.size();
+            } finally {
+                segment.lock.unlock();
+            }
+        }
+        return new Stats(hits.sum(), misses.sum(), evictions.sum(), size);
+    }
+
+    private Segment<T> segment(int id) {
+        int h = id * 0x9E3779B9;
+        return segments[(h ^ (h >>> 16)) & mask];
+    }
+
+    public record Stats(long hits, long misses, long evictions, int size) {
+    }
+
+    private static final class Segment<T> {
+        private final ReentrantLock lock = new ReentrantLock();
+        private final Map<Integer, T> entries;
+        private long invalidations;
+
+        Segment(int capacity, LongAdder evictions) {
+            this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<Integer, T> eldest) {
+                    if (size() > capacity) {
+                        evictions.increment();
+                        return true;
+                    }
+                    return false;
+                }
+            };
+        }
+    }
+}
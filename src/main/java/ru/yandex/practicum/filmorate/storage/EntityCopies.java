@@ -0,0 +1,35 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.User;
+
+/**
+ * Копии сущностей для хранилищ и кэшей: новые версии при копировании при записи и копии, которые кэш отдаёт
+ * вместо своих объектов. Множества id приводятся к неизменяемому {@link IntSet}, поэтому копировать их не нужно.
+ */
+public final class EntityCopies {
+    private EntityCopies() {
+    }
+
+    public static Film copy(Film film) {
+        Film copy = new Film();
+        copy.setId(film.getId());
+        copy.setName(film.getName());
+        copy.setDescription(film.getDescription());
+        copy.setReleaseDate(film.getReleaseDate());
+        copy.setDuration(film.getDuration());
+        copy.setLikes(IntSet.copyOf(film.getLikes()));
+        return copy;
+    }
+
+    public static User copy(User user) {
+        User copy = new User();
+        copy.setId(user.getId());
+        copy.setEmail(user.getEmail());
+        copy.setLogin(user.getLogin());
+        copy.setName(user.getName());
+        copy.setBirthday(user.getBirthday());
+        copy.setFriends(IntSet.copyOf(user.getFriends()));
+        return copy;
+    }
+}
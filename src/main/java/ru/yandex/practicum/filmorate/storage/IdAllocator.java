@@ -0,0 +1,76 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Выдача id сущностей без общей точки конкуренции под нагрузкой.
+ * <p>
+ * Пока создания не пересекаются, id берутся по одному из общего счётчика и идут подряд. После первого
+ * столкновения на счётчике потоки переходят на ячейки — по одной на секцию {@link PartitionedMap}, выбранные
+ * по потоку: ячейка забирает из счётчика блок из {@link #BLOCK} id и раздаёт его сама, так что общий счётчик
+ * трогается раз на блок. id остаются уникальными и растут внутри ячейки, но блоки разных ячеек перемежаются,
+ * а невыданный остаток блоков при перезапуске пропускается. Поэтому порядок создания по id не восстановить:
+ * его ведёт {@link PartitionedMap} своим номером создания.
+ */
+public class IdAllocator {
+    static final int BLOCK = 64;
+    // Ячейки разнесены на 128 байт, чтобы соседние не делили строку кэша
+    private static final int STRIDE = 16;
+
+    private final AtomicInteger sequence = new AtomicInteger();
+    // В ячейке — следующий id в старших 32 битах и конец блока (не включая) в младших
+    private final AtomicLongArray slots;
+    private final int mask;
+    private volatile boolean contended;
+
+    /**
+     * @param concurrency число ячеек, округляется вверх до степени двойки
+     */
+    public IdAllocator(int concurrency) {
+        int size = Integer.highestOneBit(Math.max(1, concurrency - 1)) << 1;
+        slots = new AtomicLongArray(size * STRIDE);
+        mask = size - 1;
+    }
+
+    public int next() {
+        if (!contended) {
+            int current = sequence.get();
+            if (sequence.compareAndSet(current, current + 1)) {
+                return current + 1;
+            }
+            contended = true;
+        }
+        int index = slotIndex();
+        while (true) {
+            long state = slots.get(index);
+            int next = (int) (state >>> 32);
+            int end = (int) state;
+            if (next >= end) {
+                int start = sequence.getAndAdd(BLOCK) + 1;
+                // Если ячейку успел пополнить другой поток, остаток этого блока просто пропускается
+                slots.compareAndSet(index, state, pack(start + 1, start + BLOCK));
+                return start;
+            }
+            if (slots.compareAndSet(index, state, pack(next + 1, end))) {
+                return next;
+            }
+        }
+    }
+
+    /**
+     * Сдвигает счётчик за id, восстановленный из снимка или журнала; вызывается до приёма запросов.
+     */
+    public void advancePast(int id) {
+        sequence.accumulateAndGet(id, Math::max);
+    }
+
+    private int slotIndex() {
+        int h = (int) Thread.currentThread().threadId() * 0x9E3779B9;
+        return ((h ^ (h >>> 16)) & mask) * STRIDE;
+    }
+
+    private static long pack(int next, int end) {
+        return ((long) next << 32) | (end & 0xFFFFFFFFL);
+    }
+}
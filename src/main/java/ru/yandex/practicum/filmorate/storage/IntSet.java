@@ -0,0 +1,559 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.function.IntConsumer;
+
+/**
+ * Неизменяемое множество int без упаковки в Integer, устроенное по образцу roaring bitmap:
+ * значения разбиты на блоки по старшим 16 битам, блок хранит младшие биты
+ * отсортированным массивом char (до 4096 значений) или битовой картой на 65536 бит.
+ * Изменения возвращают новое множество и копируют только затронутый блок.
+ * Для Jackson и остального кода выглядит как обычный {@code Set<Integer>}.
+ */
+public final class IntSet extends AbstractSet<Integer> {
+    public static final IntSet EMPTY = new IntSet(new char[0], new Container[0], 0);
+
+    private static final int ARRAY_MAX = 4096;
+
+    private final char[] keys;
+    private final Container[] containers;
+    private final int size;
+
+    private IntSet(char[] keys, Container[] containers, int size) {
+        this.keys = keys;
+        this.containers = containers;
+        this.size = size;
+    }
+
+    public static IntSet copyOf(Collection<Integer> values) {
+        if (values == null) {
+            return EMPTY;
+        }
+        if (values instanceof IntSet set) {
+            return set;
+        }
+        int[] array = new int[values.size()];
+        int i = 0;
+        for (Integer value : values) {
+            array[i++] = value;
+        }
+        return of(array);
+    }
+
+    public static IntSet of(int... values) {
+        int[] sorted = values.clone();
+        Arrays.sort(sorted);
+        // После инверсии знакового бита беззнаковый порядок совпадает со знаковым
+        for (int i = 0; i < sorted.length; i++) {
+            sorted[i] ^= Integer.MIN_VALUE;
+        }
+        char[] keys = new char[0];
+        Container[] containers = new Container[0];
+        int count = 0;
+        int from = 0;
+        int total = 0;
+        while (from < sorted.length) {
+            char key = high(sorted[from]);
+            int end = from;
+            while (end < sorted.length && high(sorted[end]) == key) {
+                end++;
+            }
+            // Буфер по размеру блока: у разреженных множеств в блоке обычно единицы значений
+            char[] lows = new char[Math.min(ARRAY_MAX, end - from)];
+            int n = 0;
+            long[] bits = null;
+            for (int to = from; to < end; to++) {
+                char low = (char) sorted[to];
+                if (to == from || (char) sorted[to - 1] != low) {
+                    if (bits == null && n == ARRAY_MAX) {
+                        bits = BitmapContainer.toBits(lows, n);
+                    }
+                    if (bits != null) {
+                        bits[low >>> 6] |= 1L << low;
+                    } else {
+                        lows[n] = low;
+                    }
+                    n++;
+                }
+            }
+            if (count == keys.length) {
+                keys = Arrays.copyOf(keys, Math.max(4, count * 2));
+                containers = Arrays.copyOf(containers, keys.length);
+            }
+            keys[count] = key;
+            containers[count] = bits != null ? new BitmapContainer(bits, n)
+                    : new ArrayContainer(n == lows.length ? lows : Arrays.copyOf(lows, n));
+            count++;
+            total += n;
+            from = end;
+        }
+        return new IntSet(Arrays.copyOf(keys, count), Arrays.copyOf(containers, count), total);
+    }
+
+    public boolean contains(int value) {
+        int u = value ^ Integer.MIN_VALUE;
+        int i = Arrays.binarySearch(keys, high(u));
+        return i >= 0 && containers[i].contains((char) u);
+    }
+
+    @Override
+    public boolean contains(Object o) {
+        return o instanceof Integer value && contains(value.intValue());
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Возвращает множество с добавленным значением или это же множество, если значение уже было.
+     */
+    public IntSet with(int value) {
+        int u = value ^ Integer.MIN_VALUE;
+        char key = high(u);
+        int i = Arrays.binarySearch(keys, key);
+        if (i >= 0) {
+            Container updated = containers[i].with((char) u);
+            if (updated == containers[i]) {
+                return this;
+            }
+            Container[] copy = containers.clone();
+            copy[i] = updated;
+            return new IntSet(keys, copy, size + 1);
+        }
+        int at = -i - 1;
+        char[] newKeys = new char[keys.length + 1];
+        Container[] newContainers = new Container[keys.length + 1];
+        System.arraycopy(keys, 0, newKeys, 0, at);
+        System.arraycopy(containers, 0, newContainers, 0, at);
+        newKeys[at] = key;
+        newContainers[at] = new ArrayContainer(new char[]{(char) u});
+        System.arraycopy(keys, at, newKeys, at + 1, keys.length - at);
+        System.arraycopy(containers, at, newContainers, at + 1, keys.length - at);
+        return new IntSet(newKeys, newContainers, size + 1);
+    }
+
+    /**
+     * Возвращает множество без значения или это же множество, если значения не было.
+     */
+    public IntSet without(int value) {
+        int u = value ^ Integer.MIN_VALUE;
+        int i = Arrays.binarySearch(keys, high(u));
+        if (i < 0 || !containers[i].contains((char) u)) {
+            return this;
+        }
+        if (size == 1) {
+            return EMPTY;
+        }
+        Container updated = containers[i].without((char) u);
+        if (updated != null) {
+            Container[] copy = containers.clone();
+            copy[i] = updated;
+            return new IntSet(keys, copy, size - 1);
+        }
+        char[] newKeys = new char[keys.length - 1];
+        Container[] newContainers = new Container[keys.length - 1];
+        System.arraycopy(keys, 0, newKeys, 0, i);
+        System.arraycopy(containers, 0, newContainers, 0, i);
+        System.arraycopy(keys, i + 1, newKeys, i, keys.length - i - 1);
+        System.arraycopy(containers, i + 1, newContainers, i, keys.length - i - 1);
+        return new IntSet(newKeys, newContainers, size - 1);
+    }
+
+    /**
+     * Обходит значения по возрастанию без упаковки.
+     */
+    public void forEachInt(IntConsumer action) {
+        for (int i = 0; i < keys.length; i++) {
+            containers[i].forEach(keys[i] << 16, action);
+        }
+    }
+
+    /**
+     * Пересечение с другим множеством: значения не меньше from по возрастанию, не более limit штук.
+     * Блоки с одинаковыми старшими битами сливаются попарно без упаковки; если один массив
+     * намного больше другого, вместо линейного слияния используется галопирующий поиск.
+     */
+    public int[] intersect(IntSet other, int from, int limit) {
+        Sink sink = new Sink(from, limit, Math.min(Math.min(size, other.size), limit));
+        char fromKey = high(from ^ Integer.MIN_VALUE);
+        int i = lowerBound(keys, fromKey);
+        int j = lowerBound(other.keys, fromKey);
+        while (i < keys.length && j < other.keys.length && !sink.isFull()) {
+            if (keys[i] < other.keys[j]) {
+                i++;
+            } else if (keys[i] > other.keys[j]) {
+                j++;
+            } else {
+                intersect(containers[i], other.containers[j], keys[i] << 16, sink);
+                i++;
+                j++;
+            }
+        }
+        return sink.toArray();
+    }
+
+    /**
+     * Значения не меньше from по возрастанию, не более limit штук — страница множества без обхода
+     * предшествующих блоков.
+     */
+    public int[] range(int from, int limit) {
+        Sink sink = new Sink(from, limit, Math.min(size, limit));
+        for (int i = lowerBound(keys, high(from ^ Integer.MIN_VALUE)); i < keys.length && !sink.isFull(); i++) {
+            drain(containers[i], keys[i] << 16, sink);
+        }
+        return sink.toArray();
+    }
+
+    public int[] toIntArray() {
+        int[] result = new int[size];
+        int pos = 0;
+        for (int i = 0; i < keys.length; i++) {
+            pos = containers[i].fill(keys[i] << 16, result, pos);
+        }
+        return result;
+    }
+
+    @Override
+    public Iterator<Integer> iterator() {
+        int[] values = toIntArray();
+        return new Iterator<>() {
+            private int next;
+
+            @Override
+            public boolean hasNext() {
+                return next < values.length;
+            }
+
+            @Override
+            public Integer next() {
+                if (next >= values.length) {
+                    throw new NoSuchElementException();
+                }
+                return values[next++];
+            }
+        };
+    }
+
+    @Override
+    public int hashCode() {
+        int[] hash = new int[1];
+        forEachInt(value -> hash[0] += value);
+        return hash[0];
+    }
+
+    private static void intersect(Container x, Container y, int base, Sink sink) {
+        if (x instanceof ArrayContainer a && y instanceof ArrayContainer b) {
+            if (a.values.length > b.values.length) {
+                intersectArrays(b.values, a.values, base, sink);
+            } else {
+                intersectArrays(a.values, b.values, base, sink);
+            }
+        } else if (x instanceof ArrayContainer a) {
+            probe(a.values, (BitmapContainer) y, base, sink);
+        } else if (y instanceof ArrayContainer b) {
+            probe(b.values, (BitmapContainer) x, base, sink);
+        } else {
+            long[] bx = ((BitmapContainer) x).bits;
+            long[] by = ((BitmapContainer) y).bits;
+            for (int word = 0; word < bx.length; word++) {
+                long w = bx[word] & by[word];
+                while (w != 0) {
+                    if (!sink.accept(value(base, (word << 6) + Long.numberOfTrailingZeros(w)))) {
+                        return;
+                    }
+                    w &= w - 1;
+                }
+            }
+        }
+    }
+
+    private static void drain(Container container, int base, Sink sink) {
+        if (container instanceof ArrayContainer a) {
+            for (char v : a.values) {
+                if (!sink.accept(value(base, v))) {
+                    return;
+                }
+            }
+        } else {
+            long[] bits = ((BitmapContainer) container).bits;
+            for (int word = 0; word < bits.length; word++) {
+                long w = bits[word];
+                while (w != 0) {
+                    if (!sink.accept(value(base, (word << 6) + Long.numberOfTrailingZeros(w)))) {
+                        return;
+                    }
+                    w &= w - 1;
+                }
+            }
+        }
+    }
+
+    private static void intersectArrays(char[] small, char[] large, int base, Sink sink) {
+        if (large.length > 32 * small.length) {
+            int pos = 0;
+            for (char v : small) {
+                pos = gallop(large, pos, v);
+                if (pos == large.length) {
+                    return;
+                }
+                if (large[pos] == v && !sink.accept(value(base, v))) {
+                    return;
+                }
+            }
+            return;
+        }
+        int i = 0;
+        int j = 0;
+        while (i < small.length && j < large.length) {
+            if (small[i] < large[j]) {
+                i++;
+            } else if (small[i] > large[j]) {
+                j++;
+            } else {
+                if (!sink.accept(value(base, small[i]))) {
+                    return;
+                }
+                i++;
+                j++;
+            }
+        }
+    }
+
+    // Первая позиция не раньше from, где значение >= target: шаги удваиваются, затем бинарный поиск
+    private static int gallop(char[] array, int from, char target) {
+        int step = 1;
+        int lo = from;
+        int hi = from;
+        while (hi < array.length && array[hi] < target) {
+            lo = hi + 1;
+            hi += step;
+            step <<= 1;
+        }
+        return lowerBound(array, lo, Math.min(hi, array.length - 1) + 1, target);
+    }
+
+    private static void probe(char[] values, BitmapContainer bitmap, int base, Sink sink) {
+        for (char v : values) {
+            if (bitmap.contains(v) && !sink.accept(value(base, v))) {
+                return;
+            }
+        }
+    }
+
+    private static int lowerBound(char[] array, char key) {
+        return lowerBound(array, 0, array.length, key);
+    }
+
+    private static int lowerBound(char[] array, int from, int to, char key) {
+        int i = Arrays.binarySearch(array, from, to, key);
+        return i >= 0 ? i : -i - 1;
+    }
+
+    private static char high(int unsigned) {
+        return (char) (unsigned >>> 16);
+    }
+
+    private static int value(int base, int low) {
+        return (base | low) ^ Integer.MIN_VALUE;
+    }
+
+    private static final class Sink {
+        private final int from;
+        private final int limit;
+        private int[] values;
+        private int count;
+
+        Sink(int from, int limit, int capacity) {
+            this.from = from;
+            this.limit = limit;
+            this.values = new int[Math.max(0, Math.min(capacity, 1024))];
+        }
+
+        boolean isFull() {
+            return count >= limit;
+        }
+
+        boolean accept(int value) {
+            if (value < from) {
+                return true;
+            }
+            if (count == values.length) {
+                values = Arrays.copyOf(values, Math.max(16, count * 2));
+            }
+            values[count++] = value;
+            return count < limit;
+        }
+
+        int[] toArray() {
+            return count == values.length ? values : Arrays.copyOf(values, count);
+        }
+    }
+
+    private abstract static class Container {
+        abstract int cardinality();
+
+        abstract boolean contains(char low);
+
+        abstract Container with(char low);
+
+        // null, если блок опустел
+        abstract Container without(char low);
+
+        abstract void forEach(int base, IntConsumer action);
+
+        abstract int fill(int base, int[] target, int pos);
+    }
+
+    private static final class ArrayContainer extends Container {
+        private final char[] values;
+
+        ArrayContainer(char[] values) {
+            this.values = values;
+        }
+
+        @Override
+        int cardinality() {
+            return values.length;
+        }
+
+        @Override
+        boolean contains(char low) {
+            return Arrays.binarySearch(values, low) >= 0;
+        }
+
+        @Override
+        Container with(char low) {
+            int i = Arrays.binarySearch(values, low);
+            if (i >= 0) {
+                return this;
+            }
+            if (values.length == ARRAY_MAX) {
+                long[] bits = BitmapContainer.toBits(values, values.length);
+                bits[low >>> 6] |= 1L << low;
+                return new BitmapContainer(bits, values.length + 1);
+            }
+            int at = -i - 1;
+            char[] copy = new char[values.length + 1];
+            System.arraycopy(values, 0, copy, 0, at);
+            copy[at] = low;
+            System.arraycopy(values, at, copy, at + 1, values.length - at);
+            return new ArrayContainer(copy);
+        }
+
+        @Override
+        Container without(char low) {
+            if (values.length == 1) {
+                return null;
+            }
+            int at = Arrays.binarySearch(values, low);
+            char[] copy = new char[values.length - 1];
+            System.arraycopy(values, 0, copy, 0, at);
+            System.arraycopy(values, at + 1, copy, at, values.length - at - 1);
+            return new ArrayContainer(copy);
+        }
+
+        @Override
+        void forEach(int base, IntConsumer action) {
+            for (char low : values) {
+                action.accept(value(base, low));
+            }
+        }
+
+        @Override
+        int fill(int base, int[] target, int pos) {
+            for (char low : values) {
+                target[pos++] = value(base, low);
+            }
+            return pos;
+        }
+    }
+
+    private static final class BitmapContainer extends Container {
+        private final long[] bits;
+        private final int cardinality;
+
+        BitmapContainer(long[] bits, int cardinality) {
+            this.bits = bits;
+            this.cardinality = cardinality;
+        }
+
+        static long[] toBits(char[] values, int count) {
+            long[] bits = new long[1024];
+            for (int i = 0; i < count; i++) {
+                bits[values[i] >>> 6] |= 1L << values[i];
+            }
+            return bits;
+        }
+
+        @Override
+        int cardinality() {
+            return cardinality;
+        }
+
+        @Override
+        boolean contains(char low) {
+            return (bits[low >>> 6] & (1L << low)) != 0;
+        }
+
+        @Override
+        Container with(char low) {
+            if (contains(low)) {
+                return this;
+            }
+            long[] copy = bits.clone();
+            copy[low >>> 6] |= 1L << low;
+            return new BitmapContainer(copy, cardinality + 1);
+        }
+
+        @Override
+        Container without(char low) {
+            if (cardinality - 1 <= ARRAY_MAX) {
+                char[] values = new char[cardinality - 1];
+                int n = 0;
+                for (int word = 0; word < bits.length; word++) {
+                    long w = bits[word];
+                    while (w != 0) {
+                        char v = (char) ((word << 6) + Long.numberOfTrailingZeros(w));
+                        if (v != low) {
+                            values[n++] = v;
+                        }
+                        w &= w - 1;
+                    }
+                }
+                return new ArrayContainer(values);
+            }
+            long[] copy = bits.clone();
+            copy[low >>> 6] &= ~(1L << low);
+            return new BitmapContainer(copy, cardinality - 1);
+        }
+
+        @Override
+        void forEach(int base, IntConsumer action) {
+            for (int word = 0; word < bits.length; word++) {
+                long w = bits[word];
+                while (w != 0) {
+                    action.accept(value(base, (word << 6) + Long.numberOfTrailingZeros(w)));
+                    w &= w - 1;
+                }
+            }
+        }
+
+        @Override
+        int fill(int base, int[] target, int pos) {
+            for (int word = 0; word < bits.length; word++) {
+                long w = bits[word];
+                while (w != 0) {
+                    target[pos++] = value(base, (word << 6) + Long.numberOfTrailingZeros(w));
+                    w &= w - 1;
+                }
+            }
+            return pos;
+        }
+    }
+}
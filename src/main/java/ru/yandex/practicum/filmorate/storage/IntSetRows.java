@@ -0,0 +1,52 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.core.namedparam.SqlParameterSource;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Собирает строки (ключ, значение) из связующей таблицы в {@link IntSet} по ключам без упаковки значений.
+ * Запрос должен возвращать два целочисленных столбца, отсортированных по ключу.
+ */
+public final class IntSetRows implements RowCallbackHandler {
+    private final Map<Integer, IntSet> result = new HashMap<>();
+    private int key;
+    private int[] values = new int[16];
+    private int size;
+
+    private IntSetRows() {
+    }
+
+    public static Map<Integer, IntSet> query(NamedParameterJdbcTemplate jdbc, String sql, SqlParameterSource params) {
+        IntSetRows rows = new IntSetRows();
+        jdbc.query(sql, params, rows);
+        rows.flush();
+        return rows.result;
+    }
+
+    @Override
+    public void processRow(ResultSet rs) throws SQLException {
+        int current = rs.getInt(1);
+        if (size > 0 && current != key) {
+            flush();
+        }
+        key = current;
+        if (size == values.length) {
+            values = Arrays.copyOf(values, size * 2);
+        }
+        values[size++] = rs.getInt(2);
+    }
+
+    private void flush() {
+        if (size > 0) {
+            result.put(key, IntSet.of(Arrays.copyOf(values, size)));
+            size = 0;
+        }
+    }
+}
@@ -0,0 +1,334 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Таблица записей фиксированной длины вне кучи: целые поля и ссылки на строки сущности лежат в прямых
+ * {@link ByteBuffer} по смещению, вычисляемому из id. id выдаются подряд, поэтому отдельный индекс id → смещение
+ * не нужен. Строки хранятся в UTF-8 в своей области вне кучи; множества id (лайки, друзья) — рядом, в куче:
+ * {@link IntSet} и так держит их в примитивных массивах. Объекты сущностей собирает вызывающий код при чтении.
+ * <p>
+ * Запись меняется под блокировкой сущности {@link #lockFor}, а читается без блокировок по схеме seqlock:
+ * на время изменения счётчик записи нечётный, и читатель повторяет чтение, если застал его нечётным
+ * или изменившимся. Строка, не длиннее прежней, перезаписывается на месте; более длинная пишется в новое место,
+ * и прежнее не переиспользуется.
+ */
+public class OffHeapTable {
+    private static final int MIN_STRIPES = 64;
+    private static final int CHUNK_BITS = 16;
+    private static final int CHUNK_RECORDS = 1 << CHUNK_BITS;
+    // Заголовок записи: счётчик seqlock и номер версии; версия 0 — записи нет
+    private static final int SEQ = 0;
+    private static final int STAMP = 8;
+    private static final int INTS = 16;
+    // Ссылка на строку: адрес в области строк, длина в байтах (-1 — null) и сколько байтов отведено
+    private static final int STRING_REF = 16;
+    private static final VarHandle LONGS =
+            MethodHandles.byteBufferViewVarHandle(long[].class, ByteOrder.nativeOrder());
+
+    private final int intFields;
+    private final int stringFields;
+    private final int stringsAt;
+    private final int recordSize;
+    private final StringArena strings = new StringArena();
+    private final StripedLock locks;
+    // Рост таблицы; ReentrantLock, а не synchronized, чтобы ожидание не закрепляло виртуальный поток
+    private final ReentrantLock growth = new ReentrantLock();
+    // Один общий счётчик: id подряд в порядке создания, и страницы по id идут в том же порядке
+    private final AtomicInteger sequence = new AtomicInteger();
+    private final AtomicLong issued = new AtomicLong();
+    private final AtomicInteger size = new AtomicInteger();
+    private final AtomicInteger maxId = new AtomicInteger();
+    private volatile ByteBuffer[] chunks = new ByteBuffer[0];
+    private volatile AtomicReferenceArray<IntSet>[] sets = newSets(0);
+
+    /**
+     * @param concurrency ожидаемое число одновременно пишущих потоков; 0 — по числу ядер
+     */
+    public OffHeapTable(int intFields, int stringFields, int concurrency) {
+        this.intFields = intFields;
+        this.stringFields = stringFields;
+        this.stringsAt = (INTS + Integer.BYTES * intFields + 7) & ~7;
+        this.recordSize = stringsAt + STRING_REF * stringFields;
+        int requested = concurrency > 0 ? concurrency : Runtime.getRuntime().availableProcessors();
+        this.locks = new StripedLock(Math.max(MIN_STRIPES, requested));
+    }
+
+    public int nextId() {
+        return sequence.incrementAndGet();
+    }
+
+    public Lock lockFor(int id) {
+        return locks.forId(id);
+    }
+
+    public void lockBoth(int first, int second) {
+        locks.lockBoth(first, second);
+    }
+
+    public void unlockBoth(int first, int second) {
+        locks.unlockBoth(first, second);
+    }
+
+    /**
+     * Число записей.
+     */
+    public int size() {
+        return size.get();
+    }
+
+    /**
+     * Наибольший id, под которым когда-либо была запись; записи обходят по id от 1 до него.
+     */
+    public int maxId() {
+        return maxId.get();
+    }
+
+    /**
+     * Номер версии записи, -1 — если записи нет. Любое изменение записи или её множества даёт номер больше всех
+     * выданных до него.
+     */
+    public long version(int id) {
+        ByteBuffer chunk = chunk(id);
+        if (chunk == null) {
+            return -1;
+        }
+        long stamp = (long) LONGS.getAcquire(chunk, offset(id) + STAMP);
+        return stamp == 0 ? -1 : stamp;
+    }
+
+    /**
+     * Читает согласованное состояние записи в ints и values и возвращает его номер версии; -1 — если записи нет.
+     */
+    public long read(int id, int[] ints, String[] values) {
+        ByteBuffer chunk = chunk(id);
+        if (chunk == null) {
+            return -1;
+        }
+        int base = offset(id);
+        byte[][] raw = new byte[stringFields][];
+        while (true) {
+            long seq = (long) LONGS.getAcquire(chunk, base + SEQ);
+            if ((seq & 1) == 0) {
+                long stamp = (long) LONGS.get(chunk, base + STAMP);
+                for (int i = 0; i < intFields; i++) {
+                    ints[i] = chunk.getInt(base + INTS + Integer.BYTES * i);
+                }
+                for (int i = 0; i < stringFields; i++) {
+                    int ref = base + stringsAt + STRING_REF * i;
+                    // Во время записи адрес и длина могут не совпасть; такое чтение отбросит проверка счётчика
+                    raw[i] = strings.read(chunk.getLong(ref), chunk.getInt(ref + 8));
+                }
+                VarHandle.loadLoadFence();
+                if ((long) LONGS.getOpaque(chunk, base + SEQ) == seq) {
+                    if (stamp == 0) {
+                        return -1;
+                    }
+                    for (int i = 0; i < stringFields; i++) {
+                        values[i] = raw[i] == null ? null : new String(raw[i], StandardCharsets.UTF_8);
+                    }
+                    return stamp;
+                }
+            }
+            Thread.onSpinWait();
+        }
+    }
+
+    /**
+     * Записывает поля сущности новой версией и возвращает её номер. Выполняется под блокировкой сущности.
+     */
+    public long write(int id, int[] ints, String[] values) {
+        byte[][] encoded = new byte[stringFields][];
+        for (int i = 0; i < stringFields; i++) {
+            encoded[i] = values[i] == null ? null : values[i].getBytes(StandardCharsets.UTF_8);
+        }
+        if (id >>> CHUNK_BITS >= chunks.length) {
+            ensureCapacity(id);
+        }
+        ByteBuffer chunk = chunk(id);
+        int base = offset(id);
+        boolean created = (long) LONGS.get(chunk, base + STAMP) == 0;
+        // Место под строки, которые не помещаются в прежнее, выделяется до начала изменения
+        long[] addresses = new long[stringFields];
+        int[] capacities = new int[stringFields];
+        for (int i = 0; i < stringFields; i++) {
+            int ref = base + stringsAt + STRING_REF * i;
+            addresses[i] = chunk.getLong(ref);
+            capacities[i] = chunk.getInt(ref + 12);
+            if (encoded[i] != null && encoded[i].length > capacities[i]) {
+                addresses[i] = strings.allocate(encoded[i].length);
+                capacities[i] = encoded[i].length;
+            }
+        }
+        long seq = beginWrite(chunk, base);
+        for (int i = 0; i < intFields; i++) {
+            chunk.putInt(base + INTS + Integer.BYTES * i, ints[i]);
+        }
+        for (int i = 0; i < stringFields; i++) {
+            int ref = base + stringsAt + STRING_REF * i;
+            byte[] bytes = encoded[i];
+            if (bytes != null && bytes.length > 0) {
+                strings.write(addresses[i], bytes);
+            }
+            chunk.putLong(ref, addresses[i]);
+            chunk.putInt(ref + 8, bytes == null ? -1 : bytes.length);
+            chunk.putInt(ref + 12, capacities[i]);
+        }
+        long stamp = endWrite(chunk, base, seq);
+        if (created) {
+            size.incrementAndGet();
+            maxId.accumulateAndGet(id, Math::max);
+        }
+        return stamp;
+    }
+
+    /**
+     * Множество id при записи; пустое — если записи нет или множество не задано.
+     */
+    public IntSet getSet(int id) {
+        AtomicReferenceArray<IntSet>[] current = sets;
+        int index = id >>> CHUNK_BITS;
+        IntSet set = id < 0 || index >= current.length ? null : current[index].get(id & (CHUNK_RECORDS - 1));
+        return set == null ? IntSet.EMPTY : set;
+    }
+
+    /**
+     * Заменяет множество id существующей записи и выдаёт ей новый номер версии. Выполняется под блокировкой
+     * сущности; новое множество видно читателям раньше номера.
+     */
+    public long putSet(int id, IntSet set) {
+        sets[id >>> CHUNK_BITS].set(id & (CHUNK_RECORDS - 1), set);
+        ByteBuffer chunk = chunk(id);
+        int base = offset(id);
+        return endWrite(chunk, base, beginWrite(chunk, base));
+    }
+
+    /**
+     * Сколько байтов вне кучи занято записями и строками.
+     */
+    public long offHeapBytes() {
+        return (long) chunks.length * CHUNK_RECORDS * recordSize + strings.allocatedBytes();
+    }
+
+    private long beginWrite(ByteBuffer chunk, int base) {
+        long seq = (long) LONGS.get(chunk, base + SEQ);
+        LONGS.setOpaque(chunk, base + SEQ, seq + 1);
+        VarHandle.storeStoreFence();
+        return seq;
+    }
+
+    private long endWrite(ByteBuffer chunk, int base, long seq) {
+        long stamp = issued.incrementAndGet();
+        LONGS.setRelease(chunk, base + STAMP, stamp);
+        LONGS.setRelease(chunk, base + SEQ, seq + 2);
+        return stamp;
+    }
+
+    private ByteBuffer chunk(int id) {
+        ByteBuffer[] current = chunks;
+        int index = id >>> CHUNK_BITS;
+        return id <= 0 || index >= current.length ? null : current[index];
+    }
+
+    private int offset(int id) {
+        return (id & (CHUNK_RECORDS - 1)) * recordSize;
+    }
+
+    private void ensureCapacity(int id) {
+        int needed = (id >>> CHUNK_BITS) + 1;
+        if (needed <= chunks.length) {
+            return;
+        }
+        growth.lock();
+        try {
+            if (needed <= chunks.length) {
+                return;
+            }
+            ByteBuffer[] grown = Arrays.copyOf(chunks, needed);
+            AtomicReferenceArray<IntSet>[] grownSets = Arrays.copyOf(sets, needed);
+            for (int i = chunks.length; i < needed; i++) {
+                grown[i] = ByteBuffer.allocateDirect(CHUNK_RECORDS * recordSize).order(ByteOrder.nativeOrder());
+                grownSets[i] = new AtomicReferenceArray<>(CHUNK_RECORDS);
+            }
+            // Множества публикуются раньше записей: читатель, увидевший запись, найдёт и её множество
+            sets = grownSets;
+            chunks = grown;
+        } finally {
+            growth.unlock();
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static AtomicReferenceArray<IntSet>[] newSets(int length) {
+        return new AtomicReferenceArray[length];
+    }
+
+    /**
+     * Область строк: куски прямой памяти, заполняемые подряд. Адрес — номер куска в старших 32 битах
+     * и смещение в младших; строка длиннее куска получает собственный кусок.
+     */
+    private static final class StringArena {
+        private static final int CHUNK_BYTES = 8 << 20;
+
+        private final ReentrantLock lock = new ReentrantLock();
+        private volatile ByteBuffer[] chunks = new ByteBuffer[0];
+        private int position = CHUNK_BYTES;
+        // Меняется под lock, читается без него
+        private volatile long allocated;
+
+        long allocate(int length) {
+            lock.lock();
+            try {
+                if (position + length > CHUNK_BYTES) {
+                    ByteBuffer[] grown = Arrays.copyOf(chunks, chunks.length + 1);
+                    grown[chunks.length] = ByteBuffer.allocateDirect(Math.max(CHUNK_BYTES, length));
+                    allocated += grown[chunks.length].capacity();
+                    chunks = grown;
+                    position = 0;
+                }
+                long address = ((long) (chunks.length - 1) << 32) | position;
+                position += length;
+                return address;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        void write(long address, byte[] bytes) {
+            chunks[(int) (address >>> 32)].put((int) address, bytes);
+        }
+
+        /**
+         * Копия байтов строки; null — для null и для адреса, недопустимого при несогласованном чтении.
+         */
+        byte[] read(long address, int length) {
+            ByteBuffer[] current = chunks;
+            int index = (int) (address >>> 32);
+            int offset = (int) address;
+            if (length == 0) {
+                return new byte[0];
+            }
+            if (length < 0 || index < 0 || index >= current.length || offset < 0
+                    || offset > current[index].capacity() - length) {
+                return null;
+            }
+            byte[] bytes = new byte[length];
+            current[index].get(offset, bytes);
+            return bytes;
+        }
+
+        long allocatedBytes() {
+            return allocated;
+        }
+    }
+}
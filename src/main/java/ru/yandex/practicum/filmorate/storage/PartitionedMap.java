@@ -0,0 +1,490 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.Lock;
+import java.util.function.Consumer;
+import java.util.function.UnaryOperator;
+
+/**
+ * Сущности по id, разбитые на секции по хешу id: у каждой секции свои карты и свой диапазон полос
+ * {@link StripedLock}, так что создания и изменения с разных ядер не сходятся в одной структуре. id выдаёт
+ * {@link IdAllocator} блоками по секциям, поэтому порядок id не совпадает с порядком создания. Порядок задаёт
+ * номер создания — номер первой версии сущности из общего счётчика версий: в секции, кроме карты по id, есть
+ * карта по номеру создания, и полный список и страницы собираются слиянием секций по нему.
+ * <p>
+ * Значение после {@link #put} не меняется: изменение кладёт новую версию сущности поверх прежней (копирование
+ * при записи), и читатель никогда не видит наполовину применённое изменение. Версии нумеруются общим счётчиком;
+ * {@link #values()} и {@link #page} читают снимок на последний видимый номер — такой, что все версии не новее
+ * него уже опубликованы, — и получают согласованное состояние без блокировок и без копирования карты.
+ * <p>
+ * Писатели друг друга не ждут: на время публикации писатель отмечает в ячейке своей полосы нижнюю границу своего
+ * номера, а видимый номер вычисляет читатель — выданный номер, но ниже любой отметки. Запись не знает о чужих
+ * записях; ожидание сдвинуто на снимок, а он берётся реже изменений и обходит по ячейке на полосу.
+ * <p>
+ * Открытый снимок записан в реестре читателей по своему номеру, и прежние версии отрезаются только ниже самого
+ * старого из открытых снимков: снимок, сколько бы его ни читали, видит свои версии. Без читателей цепочка
+ * сокращается до последней видимой версии при следующем же изменении.
+ */
+public class PartitionedMap<V> {
+    private static final int MIN_STRIPES = 64;
+    // Ячейки отметок разнесены на 128 байт, чтобы писатели соседних полос не делили строку кэша
+    private static final int STRIDE = 16;
+    // Цепочку версий не обходят для обрезки чаще, чем раз на столько новых версий
+    private static final int MIN_PRUNE_DEPTH = 8;
+
+    private final Partition<V>[] partitions;
+    private final StripedLock locks;
+    private final IdAllocator ids;
+    private final int shift;
+    // Последний выданный номер версии и последний, до которого включительно все версии точно опубликованы
+    private final AtomicLong issued = new AtomicLong();
+    private final AtomicLong visible = new AtomicLong();
+    // По ячейке на полосу: нижняя граница номера, который сейчас публикуется под её блокировкой; 0 — никакого
+    private final AtomicLongArray publishing;
+    // Открытые снимки: номер, не больше номера снимка, → сколько снимков на нём открыто
+    private final ConcurrentSkipListMap<Long, Integer> readers = new ConcurrentSkipListMap<>();
+
+    /**
+     * @param partitions число секций, округляется вверх до степени двойки; 0 — по числу ядер
+     */
+    @SuppressWarnings("unchecked")
+    public PartitionedMap(int partitions) {
+        int requested = partitions > 0 ? partitions : Runtime.getRuntime().availableProcessors();
+        int size = requested <= 1 ? 1 : Integer.highestOneBit(requested - 1) << 1;
+        this.partitions = new Partition[size];
+        for (int i = 0; i < size; i++) {
+            this.partitions[i] = new Partition<>();
+        }
+        this.locks = new StripedLock(Math.max(MIN_STRIPES, size));
+        this.ids = new IdAllocator(size);
+        // Секция — старшие биты номера полосы: полосы одной секции идут подряд
+        this.shift = Integer.numberOfTrailingZeros(locks.size() / size);
+        this.publishing = new AtomicLongArray(locks.size() * STRIDE);
+    }
+
+    public int nextId() {
+        return ids.next();
+    }
+
+    /**
+     * Последняя версия сущности, включая ещё не видимую снимкам.
+     */
+    public V get(int id) {
+        Slot<V> slot = partition(id).byId.get(id);
+        return slot == null ? null : slot.head.value;
+    }
+
+    /**
+     * Номер последней версии сущности, -1 — если её нет. Любое изменение сущности даёт номер больше прежнего;
+     * после восстановления у всех сущностей номер 0.
+     */
+    public long version(int id) {
+        Slot<V> slot = partition(id).byId.get(id);
+        return slot == null ? -1 : slot.head.stamp;
+    }
+
+    /**
+     * Номер последней видимой снимкам версии во всей карте: растёт при любом изменении любой сущности.
+     */
+    public long version() {
+        return watermark();
+    }
+
+    /**
+     * Кладёт новую версию сущности. Изменения одной сущности выполняются под её блокировкой {@link #lockFor}.
+     */
+    public void put(int id, V value) {
+        commit(id, partition(id).byId.get(id), value);
+    }
+
+    /**
+     * Кладёт новую версию, построенную функцией change из последней, и возвращает её; null — если сущности нет
+     * или change вернула null, то есть менять нечего. Выполняется под блокировкой сущности; в отличие от пары
+     * get и put ищет сущность в карте один раз.
+     */
+    public V update(int id, UnaryOperator<V> change) {
+        Slot<V> slot = partition(id).byId.get(id);
+        if (slot == null) {
+            return null;
+        }
+        V value = change.apply(slot.head.value);
+        if (value != null) {
+            commit(id, slot, value);
+        }
+        return value;
+    }
+
+    /**
+     * Кладёт новые версии двух сущностей одним номером: снимок видит обе или ни одну.
+     * Выполняется под блокировкой {@link #lockBoth}.
+     */
+    public void putBoth(int first, V firstValue, int second, V secondValue) {
+        Slot<V> firstSlot = partition(first).byId.get(first);
+        Slot<V> secondSlot = partition(second).byId.get(second);
+        // Полоса первой сущности заблокирована, и её ячейкой больше никто не пользуется
+        int cell = cell(first);
+        long stamp = begin(cell);
+        try {
+            publish(first, firstSlot, firstValue, stamp, stamp);
+            // Номер создания у каждой сущности свой; лишний номер, не ставший номером версии, снимкам не мешает
+            long created = firstSlot == null && secondSlot == null ? issued.incrementAndGet() : stamp;
+            publish(second, secondSlot, secondValue, stamp, created);
+        } finally {
+            publishing.set(cell, 0);
+        }
+    }
+
+    /**
+     * Кладёт сущность, восстановленную из снимка или журнала, и сдвигает выдачу id за неё. Прежние версии
+     * отбрасываются: восстановление идёт до приёма запросов, и снимков в это время нет. Новая сущность
+     * получает следующий номер создания, так что порядок восстановления становится порядком создания;
+     * уже восстановленная сохраняет свой.
+     */
+    public void restore(int id, V value) {
+        Partition<V> partition = partition(id);
+        Version<V> version = new Version<>(value, 0, true, null);
+        Slot<V> slot = partition.byId.get(id);
+        if (slot == null) {
+            partition.add(new Slot<>(id, issued.incrementAndGet(), version));
+        } else {
+            slot.head = version;
+        }
+        ids.advancePast(id);
+    }
+
+    public Lock lockFor(int id) {
+        return locks.forId(id);
+    }
+
+    public void lockBoth(int first, int second) {
+        locks.lockBoth(first, second);
+    }
+
+    public void unlockBoth(int first, int second) {
+        locks.unlockBoth(first, second);
+    }
+
+    public int partitions() {
+        return partitions.length;
+    }
+
+    /**
+     * Все значения в порядке создания на момент вызова, собранные в список из одного снимка.
+     */
+    public Collection<V> values() {
+        try (Snapshot snapshot = snapshot()) {
+            return snapshot.read(null, Integer.MAX_VALUE);
+        }
+    }
+
+    /**
+     * До limit значений в порядке создания, начиная со следующего после сущности after (null — с начала),
+     * из одного снимка. Если сущности after нет, страница пуста.
+     */
+    public List<V> page(Integer after, int limit) {
+        try (Snapshot snapshot = snapshot()) {
+            return snapshot.read(after, limit);
+        }
+    }
+
+    /**
+     * Обходит последние версии в порядке создания, без снимка. Снимок хранилища пишется этим обходом,
+     * и после восстановления из него порядок создания тот же.
+     */
+    public void forEach(Consumer<V> action) {
+        // Любая версия не новее Long.MAX_VALUE, так что слияние отдаёт последние
+        Iterator<V> values = new SnapshotIterator(Long.MAX_VALUE, null);
+        while (values.hasNext()) {
+            action.accept(values.next());
+        }
+    }
+
+    /**
+     * Открывает снимок на последний видимый номер; пока он не закрыт, его версии не отрезаются.
+     */
+    Snapshot snapshot() {
+        // Сначала в реестр записывается номер не больше номера снимка, и только потом берётся сам номер:
+        // писатель, не увидевший запись в реестре, прочитал видимый номер раньше, и снимок не старше его границы
+        long floor = visible.get();
+        readers.merge(floor, 1, Integer::sum);
+        return new Snapshot(floor, watermark());
+    }
+
+    /**
+     * Последний номер, до которого включительно все версии опубликованы: выданный номер, но ниже отметок
+     * публикующихся писателей. Писатель ставит отметку до того, как получит номер, поэтому читатель, увидевший
+     * номер выданным, увидит и отметку, если публикация ещё идёт. Результат не убывает между вызовами.
+     */
+    private long watermark() {
+        long watermark = issued.get();
+        for (int cell = 0; cell < publishing.length(); cell += STRIDE) {
+            long pending = publishing.get(cell);
+            if (pending != 0) {
+                watermark = Math.min(watermark, pending - 1);
+            }
+        }
+        return visible.accumulateAndGet(watermark, Math::max);
+    }
+
+    /**
+     * Номер, версии не новее которого могут понадобиться снимкам: самый старый из открытых снимков,
+     * а без них — видимый номер visible. Видимый номер берётся раньше реестра, см. {@link #snapshot()}.
+     */
+    private long horizon(long visible) {
+        Map.Entry<Long, Integer> oldest = readers.firstEntry();
+        return oldest == null ? visible : Math.min(visible, oldest.getKey());
+    }
+
+    private int cell(int id) {
+        return locks.stripe(id) * STRIDE;
+    }
+
+    /**
+     * Ставит отметку в ячейке cell и выдаёт номер версии. Вызывается под блокировкой полосы ячейки.
+     */
+    private long begin(int cell) {
+        // Отметка — нижняя граница номера: номер, выданный после неё, не меньше
+        publishing.set(cell, issued.get() + 1);
+        return issued.incrementAndGet();
+    }
+
+    private Partition<V> partition(int id) {
+        return partitions[locks.stripe(id) >>> shift];
+    }
+
+    private void commit(int id, Slot<V> slot, V value) {
+        int cell = cell(id);
+        long stamp = begin(cell);
+        try {
+            publish(id, slot, value, stamp, stamp);
+        } finally {
+            // Отметка снимается в любом случае, иначе видимый номер навсегда остановится перед ней
+            publishing.set(cell, 0);
+        }
+    }
+
+    /**
+     * @param created номер создания, если сущности ещё нет
+     */
+    private void publish(int id, Slot<V> slot, V value, long stamp, long created) {
+        Version<V> previous = slot == null ? null : slot.head;
+        Version<V> version = new Version<>(value, stamp, previous == null, previous);
+        if (previous != null && previous.stamp <= horizon(visible.get())) {
+            // Прежняя версия — последняя, которую может увидеть самый старый снимок: всё, что под ней,
+            // никому не нужно. Саму прежнюю оставляем снимкам, открытым до новой
+            previous.previous = null;
+            version.depth = 2;
+            version.kept = 2;
+        } else if (version.depth >= MIN_PRUNE_DEPTH && version.depth >= 2 * version.kept) {
+            // Видимый номер мог отстать, если снимков давно не брали: перед обходом цепочки его досчитывают
+            prune(version, horizon(watermark()));
+        }
+        if (slot == null) {
+            partition(id).add(new Slot<>(id, created, version));
+        } else {
+            // Замена головы в ячейке дешевле повторной вставки в карту
+            slot.head = version;
+        }
+    }
+
+    /**
+     * Отрезает версии старше самой новой из тех, что не новее horizon: самый старый открытый снимок глубже
+     * неё не пойдёт. Обход целиком окупается тем, что следующий начнётся не раньше, чем цепочка вырастет вдвое.
+     */
+    private static <V> void prune(Version<V> head, long horizon) {
+        int kept = 1;
+        for (Version<V> version = head; version.previous != null; version = version.previous, kept++) {
+            if (version.stamp <= horizon) {
+                version.previous = null;
+                break;
+            }
+        }
+        head.depth = kept;
+        head.kept = kept;
+    }
+
+    /**
+     * Значение, видимое снимку stamp, или null, если сущность создана позже.
+     */
+    private static <V> V resolve(Version<V> head, long stamp) {
+        Version<V> version = head;
+        while (version.stamp > stamp) {
+            if (version.first) {
+                return null;
+            }
+            version = version.previous;
+            if (version == null) {
+                throw new IllegalStateException("Версия для снимка " + stamp + " отрезана при открытом снимке");
+            }
+        }
+        return version.value;
+    }
+
+    /**
+     * Карты секции: по id — для поиска, по номеру создания — для обхода по порядку.
+     */
+    private static final class Partition<V> {
+        private final ConcurrentHashMap<Integer, Slot<V>> byId = new ConcurrentHashMap<>();
+        private final ConcurrentSkipListMap<Long, Slot<V>> byCreation = new ConcurrentSkipListMap<>();
+
+        void add(Slot<V> slot) {
+            byCreation.put(slot.created, slot);
+            byId.put(slot.id, slot);
+        }
+    }
+
+    /**
+     * Ячейка карты с последней версией сущности и её номером создания.
+     */
+    private static final class Slot<V> {
+        private final int id;
+        private final long created;
+        private volatile Version<V> head;
+
+        Slot(int id, long created, Version<V> head) {
+            this.id = id;
+            this.created = created;
+            this.head = head;
+        }
+    }
+
+    private static final class Version<V> {
+        private final V value;
+        private final long stamp;
+        private final boolean first;
+        private volatile Version<V> previous;
+        // Длина цепочки и сколько в ней осталось после последней обрезки; меняются под блокировкой сущности
+        private int depth;
+        private int kept;
+
+        Version(V value, long stamp, boolean first, Version<V> previous) {
+            this.value = value;
+            this.stamp = stamp;
+            this.first = first;
+            this.previous = previous;
+            this.depth = previous == null ? 1 : previous.depth + 1;
+            this.kept = previous == null ? 1 : previous.kept;
+        }
+    }
+
+    /**
+     * Открытый снимок: версии его номера не отрезаются, пока он не закрыт.
+     */
+    final class Snapshot implements AutoCloseable {
+        private final long floor;
+        private final long stamp;
+        private boolean closed;
+
+        private Snapshot(long floor, long stamp) {
+            this.floor = floor;
+            this.stamp = stamp;
+        }
+
+        /**
+         * До limit значений снимка в порядке создания, начиная со следующего после сущности after
+         * (null — с начала); если сущности after нет, список пуст.
+         */
+        List<V> read(Integer after, int limit) {
+            List<V> result = new ArrayList<>(Math.min(limit, 1024));
+            Long from = null;
+            if (after != null) {
+                Slot<V> cursor = partition(after).byId.get(after);
+                if (cursor == null) {
+                    return result;
+                }
+                from = cursor.created;
+            }
+            Iterator<V> values = new SnapshotIterator(stamp, from);
+            while (result.size() < limit && values.hasNext()) {
+                result.add(values.next());
+            }
+            return result;
+        }
+
+        @Override
+        public void close() {
+            if (!closed) {
+                closed = true;
+                readers.computeIfPresent(floor, (key, count) -> count == 1 ? null : count - 1);
+            }
+        }
+    }
+
+    /**
+     * Слияние секций по номеру создания с разрешением версий на снимок stamp.
+     */
+    private final class SnapshotIterator implements Iterator<V> {
+        private final long stamp;
+        private final PriorityQueue<Cursor<V>> heads;
+        private V next;
+
+        /**
+         * @param from номер создания, после которого начинать; null — с начала
+         */
+        SnapshotIterator(long stamp, Long from) {
+            this.stamp = stamp;
+            this.heads = new PriorityQueue<>(partitions.length, Comparator.comparingLong(Cursor::created));
+            for (Partition<V> partition : partitions) {
+                Map<Long, Slot<V>> tail = from == null ? partition.byCreation
+                        : partition.byCreation.tailMap(from, false);
+                Iterator<Slot<V>> source = tail.values().iterator();
+                if (source.hasNext()) {
+                    heads.add(new Cursor<>(source, source.next()));
+                }
+            }
+            advance();
+        }
+
+        @Override
+        public boolean hasNext() {
+            return next != null;
+        }
+
+        @Override
+        public V next() {
+            if (next == null) {
+                throw new NoSuchElementException();
+            }
+            V result = next;
+            advance();
+            return result;
+        }
+
+        private void advance() {
+            next = null;
+            while (next == null && !heads.isEmpty()) {
+                Cursor<V> cursor = heads.poll();
+                next = resolve(cursor.head.head, stamp);
+                if (cursor.source.hasNext()) {
+                    cursor.head = cursor.source.next();
+                    heads.add(cursor);
+                }
+            }
+        }
+    }
+
+    private static final class Cursor<V> {
+        private final Iterator<Slot<V>> source;
+        private Slot<V> head;
+
+        Cursor(Iterator<Slot<V>> source, Slot<V> head) {
+            this.source = source;
+            this.head = head;
+        }
+
+        long created() {
+            return head.created;
+        }
+    }
+}
@@ -0,0 +1,33 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import ru.yandex.practicum.filmorate.storage.film.CachingFilmStorage;
+import ru.yandex.practicum.filmorate.storage.film.FilmStorage;
+import ru.yandex.practicum.filmorate.storage.user.CachingUserStorage;
+import ru.yandex.practicum.filmorate.storage.user.UserStorage;
+
+/**
+ * Оборачивает выбранное хранилище кэшем. Кэш-обёртка помечена @Primary и внедряется в сервисы,
+ * а сама получает исходное хранилище: Spring не подставляет бин в его же фабричный метод.
+ */
+@Configuration
+@ConditionalOnProperty(name = "filmorate.cache.enabled", havingValue = "true")
+public class StorageCacheConfiguration {
+    @Bean
+    @Primary
+    public CachingFilmStorage cachingFilmStorage(FilmStorage filmStorage,
+                                                 @Value("${filmorate.cache.max-size:10000}") int maxSize) {
+        return new CachingFilmStorage(filmStorage, maxSize);
+    }
+
+    @Bean
+    @Primary
+    public CachingUserStorage cachingUserStorage(UserStorage userStorage,
+                                                 @Value("${filmorate.cache.max-size:10000}") int maxSize) {
+        return new CachingUserStorage(userStorage, maxSize);
+    }
+}
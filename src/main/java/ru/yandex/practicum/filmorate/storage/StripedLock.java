@@ -0,0 +1,62 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Набор блокировок, распределённых по id сущностей: изменения разных сущностей не блокируют друг друга.
+ */
+public class StripedLock {
+    private final Lock[] stripes;
+    private final int mask;
+
+    public StripedLock(int concurrency) {
+        int size = Integer.highestOneBit(Math.max(1, concurrency - 1)) << 1;
+        stripes = new Lock[size];
+        for (int i = 0; i < size; i++) {
+            stripes[i] = new ReentrantLock();
+        }
+        mask = size - 1;
+    }
+
+    public Lock forId(int id) {
+        return stripes[index(id)];
+    }
+
+    /**
+     * Номер полосы сущности; соседние id попадают в разные полосы.
+     */
+    public int stripe(int id) {
+        return index(id);
+    }
+
+    public int size() {
+        return stripes.length;
+    }
+
+    /**
+     * Захватывает блокировки двух сущностей в порядке номеров полос, чтобы встречные операции не взаимоблокировались.
+     */
+    public void lockBoth(int first, int second) {
+        int a = index(first);
+        int b = index(second);
+        stripes[Math.min(a, b)].lock();
+        if (a != b) {
+            stripes[Math.max(a, b)].lock();
+        }
+    }
+
+    public void unlockBoth(int first, int second) {
+        int a = index(first);
+        int b = index(second);
+        if (a != b) {
+            stripes[Math.max(a, b)].unlock();
+        }
+        stripes[Math.min(a, b)].unlock();
+    }
+
+    private int index(int id) {
+        int h = id * 0x9E3779B9;
+        return (h ^ (h >>> 16)) & mask;
+    }
+}
@@ -0,0 +1,80 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import java.util.Arrays;
+
+/**
+ * Отбор count id с наибольшим положительным счётом, при равенстве — с меньшим id. Куча по минимуму
+ * на count элементов без упаковки: счёт и id хранятся в одном long, поэтому порядок ключей совпадает
+ * с порядком результата.
+ */
+public final class TopIds {
+    private final long[] heap;
+    private int size;
+
+    public TopIds(int count) {
+        this.heap = new long[Math.max(0, count)];
+    }
+
+    /**
+     * Предлагает id со счётом score; счёт не больше нуля не учитывается.
+     */
+    public void offer(int score, int id) {
+        if (score <= 0 || heap.length == 0) {
+            return;
+        }
+        // При равном счёте больше ключ у меньшего id
+        long key = (long) score << 32 | ~id & 0xFFFFFFFFL;
+        if (size < heap.length) {
+            heap[size] = key;
+            siftUp(size++);
+        } else if (key > heap[0]) {
+            heap[0] = key;
+            siftDown(0);
+        }
+    }
+
+    /**
+     * Отобранные id по убыванию счёта.
+     */
+    public int[] toArray() {
+        long[] keys = Arrays.copyOf(heap, size);
+        Arrays.sort(keys);
+        int[] ids = new int[size];
+        for (int i = 0; i < size; i++) {
+            ids[i] = ~(int) keys[size - 1 - i];
+        }
+        return ids;
+    }
+
+    private void siftUp(int i) {
+        long key = heap[i];
+        while (i > 0) {
+            int parent = (i - 1) >>> 1;
+            if (heap[parent] <= key) {
+                break;
+            }
+            heap[i] = heap[parent];
+            i = parent;
+        }
+        heap[i] = key;
+    }
+
+    private void siftDown(int i) {
+        long key = heap[i];
+        while (true) {
+            int child = 2 * i + 1;
+            if (child >= size) {
+                break;
+            }
+            if (child + 1 < size && heap[child + 1] < heap[child]) {
+                child++;
+            }
+            if (key <= heap[child]) {
+                break;
+            }
+            heap[i] = heap[child];
+            i = child;
+        }
+        heap[i] = key;
+    }
+}
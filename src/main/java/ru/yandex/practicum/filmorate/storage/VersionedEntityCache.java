@@ -0,0 +1,102 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.OptionalLong;
+import java.util.function.Function;
+import java.util.function.IntFunction;
+import java.util.function.ToIntFunction;
+import java.util.function.UnaryOperator;
+
+/**
+ * {@link EntityCache} перед хранилищем, которое может вести версии сущностей. Запись помнит версию, прочитанную
+ * до загрузки, и не отдаётся, если в хранилище версия уже новее. Поэтому сущность из кэша, прочитанная после
+ * версии, не старше её, даже если изменение в хранилище уже прошло, а сброс записи кэша ещё нет, — и версии можно
+ * отдавать для условных запросов и кэша JSON-ответов. Для хранилищ без версий это обычный {@link EntityCache}.
+ */
+public class VersionedEntityCache<T> {
+    private static final long UNVERSIONED = Long.MIN_VALUE;
+
+    private final EntityCache<Versioned<T>> cache;
+    private final IntFunction<OptionalLong> versions;
+
+    public VersionedEntityCache(int maxSize, int concurrency, UnaryOperator<T> copier,
+                                IntFunction<OptionalLong> versions) {
+        this.cache = new EntityCache<>(maxSize, concurrency,
+                entry -> new Versioned<>(copier.apply(entry.value()), entry.version()));
+        this.versions = versions;
+    }
+
+    public T get(int id, IntFunction<T> loader) {
+        long current = version(id);
+        Versioned<T> entry = cache.get(id, key -> load(key, loader));
+        if (entry.version() < current) {
+            // Как и после изменения: загрузка, начатая до сброса, устаревшую запись в кэш не вернёт
+            cache.invalidate(id);
+            entry = cache.get(id, key -> load(key, loader));
+        }
+        return entry.value();
+    }
+
+    /**
+     * Как {@link EntityCache#getAll}; записи, отставшие от версии в хранилище, перечитываются по одной.
+     */
+    public List<T> getAll(Collection<Integer> ids, Function<List<Integer>, List<T>> loader, ToIntFunction<T> idOf) {
+        List<Versioned<T>> found = cache.getAll(ids, missing -> loadAll(missing, loader, idOf),
+                entry -> idOf.applyAsInt(entry.value()));
+        List<T> result = new ArrayList<>(found.size());
+        for (Versioned<T> entry : found) {
+            int id = idOf.applyAsInt(entry.value());
+            if (entry.version() < version(id)) {
+                cache.invalidate(id);
+                List<Versioned<T>> reloaded = cache.getAll(List.of(id), missing -> loadAll(missing, loader, idOf),
+                        fresh -> idOf.applyAsInt(fresh.value()));
+                if (!reloaded.isEmpty()) {
+                    result.add(reloaded.get(0).value());
+                }
+            } else {
+                result.add(entry.value());
+            }
+        }
+        return result;
+    }
+
+    public void invalidate(int id) {
+        cache.invalidate(id);
+    }
+
+    public EntityCache.Stats stats() {
+        return cache.stats();
+    }
+
+    private long version(int id) {
+        OptionalLong version = versions.apply(id);
+        return version.isPresent() ? version.getAsLong() : UNVERSIONED;
+    }
+
+    // Версия читается до сущности, поэтому сущность не старше версии, под которой лежит в кэше
+    private Versioned<T> load(int id, IntFunction<T> loader) {
+        long version = version(id);
+        return new Versioned<>(loader.apply(id), version);
+    }
+
+    private List<Versioned<T>> loadAll(List<Integer> ids, Function<List<Integer>, List<T>> loader,
+                                       ToIntFunction<T> idOf) {
+        Map<Integer, Long> loadedVersions = new HashMap<>();
+        for (Integer id : ids) {
+            loadedVersions.put(id, version(id));
+        }
+        List<T> loaded = loader.apply(ids);
+        List<Versioned<T>> result = new ArrayList<>(loaded.size());
+        for (T value : loaded) {
+            result.add(new Versioned<>(value, loadedVersions.get(idOf.applyAsInt(value))));
+        }
+        return result;
+    }
+
+    private record Versioned<T>(T value, long version) {
+    }
+}
@@ -0,0 +1,136 @@
+package ru.yandex.practicum.filmorate.storage.film;
+
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.storage.EntityCache;
+import ru.yandex.practicum.filmorate.storage.EntityCopies;
+import ru.yandex.practicum.filmorate.storage.IntSet;
+import ru.yandex.practicum.filmorate.storage.VersionedEntityCache;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.OptionalLong;
+import java.util.function.IntConsumer;
+
+/**
+ * Кэш фильмов по id перед любым {@link FilmStorage}. Точечные чтения идут через кэш, списки — напрямую
+ * в хранилище; update и изменения лайков сбрасывают запись фильма. Версии берутся из хранилища, а запись кэша,
+ * отставшая от версии фильма, перечитывается, поэтому ETag и кэш JSON-ответов работают и с кэшем.
+ */
+public class CachingFilmStorage implements FilmStorage {
+    private final FilmStorage delegate;
+    private final VersionedEntityCache<Film> cache;
+
+    public CachingFilmStorage(FilmStorage delegate, int maxSize) {
+        this.delegate = delegate;
+        this.cache = new VersionedEntityCache<>(maxSize, 16, EntityCopies::copy, delegate::getVersion);
+    }
+
+    public EntityCache.Stats stats() {
+        return cache.stats();
+    }
+
+    @Override
+    public Film create(Film film) {
+        return delegate.create(film);
+    }
+
+    @Override
+    public List<Film> createAll(List<Film> films) {
+        return delegate.createAll(films);
+    }
+
+    @Override
+    public Film update(Film film) {
+        try {
+            return delegate.update(film);
+        } finally {
+            cache.invalidate(film.getId());
+        }
+    }
+
+    @Override
+    public Film getById(Integer id) {
+        return cache.get(id, delegate::getById);
+    }
+
+    @Override
+    public List<Film> getByIds(Collection<Integer> ids) {
+        return cache.getAll(ids, delegate::getByIds, Film::getId);
+    }
+
+    @Override
+    public Collection<Film> getAll() {
+        return delegate.getAll();
+    }
+
+    @Override
+    public List<Film> getPage(Integer after, int limit) {
+        return delegate.getPage(after, limit);
+    }
+
+    @Override
+    public boolean addLike(Integer filmId, Integer userId) {
+        try {
+            return delegate.addLike(filmId, userId);
+        } finally {
+            cache.invalidate(filmId);
+        }
+    }
+
+    @Override
+    public boolean removeLike(Integer filmId, Integer userId) {
+        try {
+            return delegate.removeLike(filmId, userId);
+        } finally {
+            cache.invalidate(filmId);
+        }
+    }
+
+    @Override
+    public void addLikes(int[] filmIds, int[] userIds) {
+        try {
+            delegate.addLikes(filmIds, userIds);
+        } finally {
+            for (int filmId : filmIds) {
+                cache.invalidate(filmId);
+            }
+        }
+    }
+
+    @Override
+    public List<Film> getLikedFilms(Integer userId, Integer after, int limit) {
+        return delegate.getLikedFilms(userId, after, limit);
+    }
+
+    @Override
+    public Map<Integer, IntSet> getLikedFilmIds(Collection<Integer> userIds) {
+        return delegate.getLikedFilmIds(userIds);
+    }
+
+    @Override
+    public List<Film> getPopular(int count) {
+        return delegate.getPopular(count);
+    }
+
+    @Override
+    public List<Film> getTrending(Duration window, int count) {
+        return delegate.getTrending(window, count);
+    }
+
+    @Override
+    public void forEachLikeCount(IntConsumer action) {
+        delegate.forEachLikeCount(action);
+    }
+
+    @Override
+    public OptionalLong getVersion(Integer id) {
+        return delegate.getVersion(id);
+    }
+
+    @Override
+    public OptionalLong getCatalogVersion() {
+        return delegate.getCatalogVersion();
+    }
+}
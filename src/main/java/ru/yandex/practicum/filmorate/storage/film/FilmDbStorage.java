@@ -0,0 +1,326 @@
+package ru.yandex.practicum.filmorate.storage.film;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.core.namedparam.SqlParameterSource;
+import org.springframework.jdbc.core.simple.SimpleJdbcInsert;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.jdbc.support.KeyHolder;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+import ru.yandex.practicum.filmorate.exception.NotFoundException;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.storage.IntSet;
+import ru.yandex.practicum.filmorate.storage.IntSetRows;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.OptionalLong;
+import java.util.function.IntConsumer;
+
+/**
+ * Хранилище фильмов в реляционной БД. Лайки лежат в таблице likes; списки фильмов читаются
+ * двумя запросами — сами фильмы и лайки всех выбранных фильмов, без запроса на каждый id.
+ */
+@Component
+@ConditionalOnProperty(name = "filmorate.storage", havingValue = "db")
+@Slf4j
+public class FilmDbStorage implements FilmStorage {
+    private static final String COLUMNS = "f.id, f.name, f.description, f.release_date, f.duration";
+
+    private final NamedParameterJdbcTemplate jdbc;
+    private final SimpleJdbcInsert insert;
+
+    @Autowired
+    public FilmDbStorage(NamedParameterJdbcTemplate jdbc) {
+        this.jdbc = jdbc;
+        this.insert = new SimpleJdbcInsert(jdbc.getJdbcTemplate())
+                .withTableName("films")
+                .usingColumns("name", "description", "release_date", "duration")
+                .usingGeneratedKeyColumns("id");
+    }
+
+    @Override
+    @Transactional
+    public Film create(Film film) {
+        int id = insert.executeAndReturnKey(params(film)).intValue();
+        film.setId(id);
+        IntSet likes = IntSet.copyOf(film.getLikes());
+        film.setLikes(likes);
+        if (!likes.isEmpty()) {
+            List<Object[]> rows = new ArrayList<>(likes.size());
+            likes.forEachInt(userId -> rows.add(new Object[]{id, userId}));
+            jdbc.getJdbcTemplate().batchUpdate("INSERT INTO likes (film_id, user_id) VALUES (?, ?)", rows);
+        }
+        log.info("Создан фильм id={}, name={}", film.getId(), film.getName());
+        return film;
+    }
+
+    @Override
+    @Transactional
+    public List<Film> createAll(List<Film> films) {
+        if (films.isEmpty()) {
+            return films;
+        }
+        SqlParameterSource[] rows = new SqlParameterSource[films.size()];
+        for (int i = 0; i < rows.length; i++) {
+            rows[i] = params(films.get(i));
+        }
+        KeyHolder keys = new GeneratedKeyHolder();
+        jdbc.batchUpdate("INSERT INTO films (name, description, release_date, duration) "
+                + "VALUES (:name, :description, :release_date, :duration)", rows, keys, new String[]{"id"});
+        List<Map<String, Object>> generated = keys.getKeyList();
+        List<Object[]> likeRows = new ArrayList<>();
+        for (int i = 0; i < rows.length; i++) {
+            Film film = films.get(i);
+            int id = ((Number) generated.get(i).values().iterator().next()).intValue();
+            film.setId(id);
+            IntSet likes = IntSet.copyOf(film.getLikes());
+            film.setLikes(likes);
+            likes.forEachInt(userId -> likeRows.add(new Object[]{id, userId}));
+        }
+        if (!likeRows.isEmpty()) {
+            jdbc.getJdbcTemplate().batchUpdate("INSERT INTO likes (film_id, user_id) VALUES (?, ?)", likeRows);
+        }
+        log.info("Создано фильмов пачкой: {}", films.size());
+        return films;
+    }
+
+    @Override
+    @Transactional
+    public Film update(Film film) {
+        Film existing = getById(film.getId());
+        if (film.getName() != null && !film.getName().isBlank()) {
+            existing.setName(film.getName());
+        }
+        if (film.getDescription() != null) {
+            existing.setDescription(film.getDescription());
+        }
+        if (film.getReleaseDate() != null) {
+            existing.setReleaseDate(film.getReleaseDate());
+        }
+        if (film.getDuration() != null) {
+            existing.setDuration(film.getDuration());
+        }
+        jdbc.update("UPDATE films SET name = :name, description = :description, release_date = :release_date, "
+                + "duration = :duration WHERE id = :id", params(existing).addValue("id", existing.getId()));
+        log.info("Обновлён фильм id={}, name={}", existing.getId(), existing.getName());
+        return existing;
+    }
+
+    @Override
+    public Film getById(Integer id) {
+        List<Film> found = select("WHERE f.id = :id", new MapSqlParameterSource("id", id));
+        if (found.isEmpty()) {
+            throw new NotFoundException("Фильм с id=" + id + " не найден");
+        }
+        return found.get(0);
+    }
+
+    @Override
+    public List<Film> getByIds(Collection<Integer> ids) {
+        if (ids.isEmpty()) {
+            return List.of();
+        }
+        Map<Integer, Film> byId = new HashMap<>();
+        for (Film film : select("WHERE f.id IN (:ids)", new MapSqlParameterSource("ids", ids))) {
+            byId.put(film.getId(), film);
+        }
+        List<Film> result = new ArrayList<>(byId.size());
+        for (Integer id : ids) {
+            Film film = byId.get(id);
+            if (film != null) {
+                result.add(film);
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public Collection<Film> getAll() {
+        List<Film> films = jdbc.query("SELECT " + COLUMNS + " FROM films f ORDER BY f.id", FilmDbStorage::mapRow);
+        Map<Integer, IntSet> likes = IntSetRows.query(jdbc,
+                "SELECT film_id, user_id FROM likes ORDER BY film_id", new MapSqlParameterSource());
+        for (Film film : films) {
+            film.setLikes(likes.getOrDefault(film.getId(), IntSet.EMPTY));
+        }
+        return films;
+    }
+
+    @Override
+    public List<Film> getPage(Integer after, int limit) {
+        return select("WHERE f.id > :after ORDER BY f.id LIMIT :limit", new MapSqlParameterSource()
+                .addValue("after", after == null ? Integer.MIN_VALUE : after)
+                .addValue("limit", limit));
+    }
+
+    @Override
+    public boolean addLike(Integer filmId, Integer userId) {
+        ensureExists(filmId);
+        // MERGE ... KEY считает и совпавшую строку, а этот — только вставленную
+        try {
+            return jdbc.update("MERGE INTO likes l USING (VALUES (:film_id, :user_id)) v (film_id, user_id) "
+                            + "ON l.film_id = v.film_id AND l.user_id = v.user_id "
+                            + "WHEN NOT MATCHED THEN INSERT (film_id, user_id) VALUES (v.film_id, v.user_id)",
+                    new MapSqlParameterSource().addValue("film_id", filmId).addValue("user_id", userId)) > 0;
+        } catch (DuplicateKeyException e) {
+            // Тот же лайк одновременно вставил другой запрос: изменение его, а не этого
+            return false;
+        }
+    }
+
+    @Override
+    @Transactional
+    public void addLikes(int[] filmIds, int[] userIds) {
+        List<Object[]> rows = new ArrayList<>(filmIds.length);
+        for (int i = 0; i < filmIds.length; i++) {
+            rows.add(new Object[]{filmIds[i], userIds[i]});
+        }
+        jdbc.getJdbcTemplate().batchUpdate(
+                "MERGE INTO likes (film_id, user_id) KEY (film_id, user_id) VALUES (?, ?)", rows);
+    }
+
+    @Override
+    public boolean removeLike(Integer filmId, Integer userId) {
+        ensureExists(filmId);
+        return jdbc.update("DELETE FROM likes WHERE film_id = :film_id AND user_id = :user_id",
+                new MapSqlParameterSource().addValue("film_id", filmId).addValue("user_id", userId)) > 0;
+    }
+
+    /**
+     * Лайки пользователя читаются по индексу likes_user_id, фильмы — по первичному ключу.
+     */
+    @Override
+    public List<Film> getLikedFilms(Integer userId, Integer after, int limit) {
+        return select("JOIN likes l ON l.film_id = f.id WHERE l.user_id = :user_id AND f.id > :after "
+                + "ORDER BY f.id LIMIT :limit", new MapSqlParameterSource()
+                .addValue("user_id", userId)
+                .addValue("after", after == null ? Integer.MIN_VALUE : after)
+                .addValue("limit", limit));
+    }
+
+    @Override
+    public Map<Integer, IntSet> getLikedFilmIds(Collection<Integer> userIds) {
+        if (userIds.isEmpty()) {
+            return Map.of();
+        }
+        return IntSetRows.query(jdbc,
+                "SELECT user_id, film_id FROM likes WHERE user_id IN (:ids) ORDER BY user_id",
+                new MapSqlParameterSource("ids", userIds));
+    }
+
+    @Override
+    public List<Film> getPopular(int count) {
+        if (count <= 0) {
+            return List.of();
+        }
+        List<Film> films = jdbc.query("SELECT " + COLUMNS + " FROM films f "
+                        + "LEFT JOIN likes l ON l.film_id = f.id "
+                        + "GROUP BY " + COLUMNS + " "
+                        + "ORDER BY COUNT(l.user_id) DESC, f.id "
+                        + "LIMIT :count",
+                new MapSqlParameterSource("count", count), FilmDbStorage::mapRow);
+        return withLikes(films);
+    }
+
+    /**
+     * Считает лайки за окно по индексу likes_created_at: читаются только они, а не все лайки.
+     * Снятый лайк удаляется вместе со временем, поэтому за окно считаются лайки, которые стоят и сейчас.
+     */
+    @Override
+    public List<Film> getTrending(Duration window, int count) {
+        if (count <= 0) {
+            return List.of();
+        }
+        List<Integer> ids = jdbc.queryForList("SELECT film_id FROM likes WHERE created_at >= :since "
+                        + "GROUP BY film_id ORDER BY COUNT(*) DESC, film_id LIMIT :count",
+                new MapSqlParameterSource()
+                        .addValue("since", OffsetDateTime.now(ZoneOffset.UTC).minus(window))
+                        .addValue("count", count), Integer.class);
+        return ids.isEmpty() ? List.of() : getByIds(ids);
+    }
+
+    @Override
+    public void forEachLikeCount(IntConsumer action) {
+        jdbc.getJdbcTemplate().query("SELECT COUNT(l.user_id) FROM films f "
+                + "LEFT JOIN likes l ON l.film_id = f.id GROUP BY f.id", rs -> {
+            action.accept(rs.getInt(1));
+        });
+    }
+
+    /**
+     * Версии не ведутся: изменения могут прийти в базу в обход приложения.
+     */
+    @Override
+    public OptionalLong getVersion(Integer id) {
+        return OptionalLong.empty();
+    }
+
+    @Override
+    public OptionalLong getCatalogVersion() {
+        return OptionalLong.empty();
+    }
+
+    /**
+     * Выбирает фильмы по условию и одним запросом подгружает их лайки.
+     */
+    private List<Film> select(String condition, MapSqlParameterSource params) {
+        return withLikes(jdbc.query("SELECT " + COLUMNS + " FROM films f " + condition, params, FilmDbStorage::mapRow));
+    }
+
+    private List<Film> withLikes(List<Film> films) {
+        if (films.isEmpty()) {
+            return films;
+        }
+        List<Integer> ids = new ArrayList<>(films.size());
+        for (Film film : films) {
+            ids.add(film.getId());
+        }
+        Map<Integer, IntSet> likes = IntSetRows.query(jdbc,
+                "SELECT film_id, user_id FROM likes WHERE film_id IN (:ids) ORDER BY film_id",
+                new MapSqlParameterSource("ids", ids));
+        for (Film film : films) {
+            film.setLikes(likes.getOrDefault(film.getId(), IntSet.EMPTY));
+        }
+        return films;
+    }
+
+    private void ensureExists(Integer id) {
+        Integer found = jdbc.queryForObject("SELECT COUNT(*) FROM films WHERE id = :id",
+                new MapSqlParameterSource("id", id), Integer.class);
+        if (found == null || found == 0) {
+            throw new NotFoundException("Фильм с id=" + id + " не найден");
+        }
+    }
+
+    private static MapSqlParameterSource params(Film film) {
+        return new MapSqlParameterSource()
+                .addValue("name", film.getName())
+                .addValue("description", film.getDescription())
+                .addValue("release_date", film.getReleaseDate())
+                .addValue("duration", film.getDuration());
+    }
+
+    private static Film mapRow(ResultSet rs, int rowNum) throws SQLException {
+        Film film = new Film();
+        film.setId(rs.getInt("id"));
+        film.setName(rs.getString("name"));
+        film.setDescription(rs.getString("description"));
+        film.setReleaseDate(rs.getObject("release_date", LocalDate.class));
+        film.setDuration(rs.getObject("duration", Integer.class));
+        return film;
+    }
+}
@@ -1,17 +1,91 @@
 package ru.yandex.practicum.filmorate.storage.film;
 
 import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.storage.IntSet;
 
+import java.time.Duration;
 import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.OptionalLong;
+import java.util.function.IntConsumer;
 
 public interface FilmStorage {
     Film create(Film film);
 
+    /**
+     * Создаёт фильмы пачкой в порядке списка, вместе с лайками из тел: одно ожидание журнала
+     * или один пакет вставок на всю пачку вместо отдельного на каждый фильм.
+     */
+    List<Film> createAll(List<Film> films);
+
     Film update(Film film);
 
     Film getById(Integer id);
 
+    /**
+     * Фильмы с указанными id в том же порядке; отсутствующие id пропускаются.
+     */
+    List<Film> getByIds(Collection<Integer> ids);
+
     Collection<Film> getAll();
-}
 
+    /**
+     * Страница фильмов в порядке создания, начиная со следующего после фильма after (null — с начала).
+     */
+    List<Film> getPage(Integer after, int limit);
+
+    /**
+     * Ставит лайк; false — если он уже стоял и ничего не изменилось.
+     */
+    boolean addLike(Integer filmId, Integer userId);
+
+    /**
+     * Снимает лайк; false — если лайка не было.
+     */
+    boolean removeLike(Integer filmId, Integer userId);
+
+    /**
+     * Ставит лайки пачкой: пользователь userIds[i] — фильму filmIds[i]. Повторные лайки не меняют фильм.
+     * Если какого-то фильма нет, пачка не применяется вовсе.
+     */
+    void addLikes(int[] filmIds, int[] userIds);
+
+    /**
+     * Страница фильмов, которые лайкнул пользователь, по возрастанию id, начиная со следующего после after
+     * (null — с начала).
+     */
+    List<Film> getLikedFilms(Integer userId, Integer after, int limit);
+
+    /**
+     * Лайки указанных пользователей без загрузки фильмов: id пользователя → множество id лайкнутых фильмов.
+     * Пользователи без лайков в результат не попадают.
+     */
+    Map<Integer, IntSet> getLikedFilmIds(Collection<Integer> userIds);
+
+    List<Film> getPopular(int count);
+
+    /**
+     * До count фильмов, получивших больше всего лайков за последний window, при равенстве — по возрастанию id.
+     * Фильмы без лайков за окно не возвращаются.
+     */
+    List<Film> getTrending(Duration window, int count);
+
+    /**
+     * Версия фильма для условных запросов: меняется при любом изменении фильма, включая лайки.
+     * Пусто, если фильма нет или хранилище версий не ведёт.
+     */
+    OptionalLong getVersion(Integer id);
+
+    /**
+     * Версия списков фильмов и популярных фильмов: меняется при любом изменении любого фильма
+     * не раньше, чем изменение видно в этих списках. Пусто, если хранилище версий не ведёт.
+     */
+    OptionalLong getCatalogVersion();
+
+    /**
+     * Передаёт число лайков каждого фильма — для метрик размера каталога и распределения лайков.
+     */
+    void forEachLikeCount(IntConsumer action);
+}
 
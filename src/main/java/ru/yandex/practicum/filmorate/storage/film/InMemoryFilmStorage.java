@@ -1,59 +1,404 @@
 package ru.yandex.practicum.filmorate.storage.film;
 
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.stereotype.Component;
 import ru.yandex.practicum.filmorate.exception.NotFoundException;
 import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.storage.EntityCopies;
+import ru.yandex.practicum.filmorate.storage.IntSet;
+import ru.yandex.practicum.filmorate.storage.PartitionedMap;
+import ru.yandex.practicum.filmorate.storage.journal.MutationHandler;
+import ru.yandex.practicum.filmorate.storage.journal.StorageJournal;
 
+import java.time.Clock;
+import java.time.Duration;
 import java.util.ArrayList;
 import java.util.Collection;
-import java.util.LinkedHashMap;
+import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
-import java.util.concurrent.atomic.AtomicInteger;
+import java.util.OptionalLong;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Lock;
+import java.util.function.Consumer;
+import java.util.function.IntConsumer;
 
 @Component
+@ConditionalOnProperty(name = "filmorate.storage", havingValue = "memory", matchIfMissing = true)
 @Slf4j
 public class InMemoryFilmStorage implements FilmStorage {
-    private final Map<Integer, Film> films = new LinkedHashMap<>();
-    private final AtomicInteger idSequence = new AtomicInteger(0);
+    // Вместо номера записи журнала, когда лайк уже был в нужном состоянии: номера неотрицательны
+    private static final long UNCHANGED = -1;
+
+    private final PartitionedMap<Film> films;
+    private final PopularityIndex popularity = new PopularityIndex();
+    private final LikeIndex likedBy = new LikeIndex();
+    private final TrendingIndex trending;
+    private final StorageJournal journal;
+    // Растёт после каждого изменения, когда оно уже видно и в карте, и в индексе популярности
+    private final AtomicLong catalogVersion = new AtomicLong();
+
+    public InMemoryFilmStorage() {
+        this(StorageJournal.disabled());
+    }
+
+    public InMemoryFilmStorage(StorageJournal journal) {
+        this(journal, 0);
+    }
+
+    public InMemoryFilmStorage(StorageJournal journal, int partitions) {
+        this(journal, partitions, Duration.ofHours(1), 168);
+    }
+
+    @Autowired
+    public InMemoryFilmStorage(StorageJournal journal,
+                               @Value("${filmorate.storage.partitions:0}") int partitions,
+                               @Value("${filmorate.trending.bucket:1h}") Duration trendingBucket,
+                               @Value("${filmorate.trending.buckets:168}") int trendingBuckets) {
+        this(journal, partitions, new TrendingIndex(trendingBucket, trendingBuckets, Clock.systemUTC()));
+    }
+
+    InMemoryFilmStorage(StorageJournal journal, int partitions, TrendingIndex trending) {
+        this.journal = journal;
+        this.films = new PartitionedMap<>(partitions);
+        this.trending = trending;
+    }
 
     @Override
     public Film create(Film film) {
-        int id = idSequence.incrementAndGet();
-        film.setId(id);
-        films.put(id, film);
+        journal.awaitDurable(insert(film));
         log.info("Создан фильм id={}, name={}", film.getId(), film.getName());
         return film;
     }
 
+    @Override
+    public List<Film> createAll(List<Film> batch) {
+        long lsn = StorageJournal.NO_LSN;
+        for (Film film : batch) {
+            lsn = insert(film);
+        }
+        journal.awaitDurable(lsn);
+        log.info("Создано фильмов пачкой: {}", batch.size());
+        return batch;
+    }
+
     @Override
     public Film update(Film film) {
         Integer id = film.getId();
-        if (!films.containsKey(id)) {
-            throw new NotFoundException("Фильм с id=" + id + " не найден");
+        Lock lock = films.lockFor(id);
+        Film updated;
+        long lsn;
+        lock.lock();
+        try {
+            journal.ensureWritable();
+            // Новая версия вместо правки на месте: читатели прежней не видят наполовину применённое изменение
+            updated = films.update(id, current -> {
+                Film next = EntityCopies.copy(current);
+                merge(next, film);
+                return next;
+            });
+            if (updated == null) {
+                throw notFound(id);
+            }
+            catalogVersion.incrementAndGet();
+            lsn = journal.filmUpdated(updated);
+        } finally {
+            lock.unlock();
         }
-        Film existing = films.get(id);
-        merge(existing, film);
-        log.info("Обновлён фильм id={}, name={}", existing.getId(), existing.getName());
-        return existing;
+        journal.awaitDurable(lsn);
+        log.info("Обновлён фильм id={}, name={}", updated.getId(), updated.getName());
+        return updated;
     }
 
     @Override
     public Film getById(Integer id) {
         Film film = films.get(id);
         if (film == null) {
-            throw new NotFoundException("Фильм с id=" + id + " не найден");
+            throw notFound(id);
         }
         return film;
     }
 
+    @Override
+    public List<Film> getByIds(Collection<Integer> ids) {
+        List<Film> result = new ArrayList<>(ids.size());
+        if (ids instanceof IntSet set) {
+            set.forEachInt(id -> addIfPresent(result, id));
+        } else {
+            for (Integer id : ids) {
+                addIfPresent(result, id);
+            }
+        }
+        return result;
+    }
+
     @Override
     public Collection<Film> getAll() {
-        return new ArrayList<>(films.values());
+        return films.values();
+    }
+
+    @Override
+    public List<Film> getPage(Integer after, int limit) {
+        return films.page(after, limit);
+    }
+
+    @Override
+    public boolean addLike(Integer filmId, Integer userId) {
+        return awaitChange(changeLike(getById(filmId), userId, true));
+    }
+
+    @Override
+    public boolean removeLike(Integer filmId, Integer userId) {
+        return awaitChange(changeLike(getById(filmId), userId, false));
+    }
+
+    @Override
+    public void addLikes(int[] filmIds, int[] userIds) {
+        // Все фильмы ищутся до первого лайка: из-за отсутствующего id пачка не применяется наполовину
+        Film[] targets = new Film[filmIds.length];
+        for (int i = 0; i < filmIds.length; i++) {
+            targets[i] = getById(filmIds[i]);
+        }
+        long lsn = StorageJournal.NO_LSN;
+        for (int i = 0; i < filmIds.length; i++) {
+            lsn = Math.max(lsn, changeLike(targets[i], userIds[i], true));
+        }
+        journal.awaitDurable(lsn);
+    }
+
+    @Override
+    public List<Film> getLikedFilms(Integer userId, Integer after, int limit) {
+        if (after != null && after == Integer.MAX_VALUE) {
+            return List.of();
+        }
+        int[] ids = likedBy.get(userId).range(after == null ? Integer.MIN_VALUE : after + 1, limit);
+        List<Film> result = new ArrayList<>(ids.length);
+        for (int id : ids) {
+            addIfPresent(result, id);
+        }
+        return result;
+    }
+
+    @Override
+    public Map<Integer, IntSet> getLikedFilmIds(Collection<Integer> userIds) {
+        Map<Integer, IntSet> result = new HashMap<>();
+        for (Integer id : userIds) {
+            IntSet liked = likedBy.get(id);
+            if (!liked.isEmpty()) {
+                result.put(id, liked);
+            }
+        }
+        return result;
     }
 
+    @Override
+    public List<Film> getPopular(int count) {
+        int[] ids = popularity.top(count);
+        List<Film> result = new ArrayList<>(ids.length);
+        for (int id : ids) {
+            addIfPresent(result, id);
+        }
+        return result;
+    }
 
-    private void merge(Film existing, Film incoming) {
+    @Override
+    public List<Film> getTrending(Duration window, int count) {
+        int[] ids = trending.top(window, count);
+        List<Film> result = new ArrayList<>(ids.length);
+        for (int id : ids) {
+            addIfPresent(result, id);
+        }
+        return result;
+    }
+
+    @Override
+    public OptionalLong getVersion(Integer id) {
+        long version = films.version(id);
+        return version < 0 ? OptionalLong.empty() : OptionalLong.of(version);
+    }
+
+    /**
+     * Отдельный счётчик, а не номер версии карты: популярные фильмы читаются из индекса, который меняется
+     * после новой версии фильма, и номер карты мог бы опередить ответ.
+     */
+    @Override
+    public OptionalLong getCatalogVersion() {
+        return OptionalLong.of(catalogVersion.get());
+    }
+
+    @Override
+    public void forEachLikeCount(IntConsumer action) {
+        films.forEach(film -> action.accept(film.getLikes().size()));
+    }
+
+    /**
+     * Восстанавливает фильм из снимка или журнала целиком, вместе с лайками, не увеличивая журнал.
+     * Индексы популярности и лайков по пользователям при восстановлении не ведутся — их строит
+     * {@link #rebuildIndexes()}.
+     */
+    public void restore(Film film) {
+        film.setLikes(IntSet.copyOf(film.getLikes()));
+        films.restore(film.getId(), film);
+    }
+
+    /**
+     * Повторяет обновление полей фильма из журнала; лайки не меняются.
+     */
+    public void restoreUpdate(Film film) {
+        Film existing = films.get(film.getId());
+        if (existing == null) {
+            restore(film);
+            return;
+        }
+        existing.setName(film.getName());
+        existing.setDescription(film.getDescription());
+        existing.setReleaseDate(film.getReleaseDate());
+        existing.setDuration(film.getDuration());
+    }
+
+    /**
+     * Повторяет добавление или удаление лайка из журнала; лайки удалённых фильмов пропускаются.
+     * Счётчики по времени меняются, только если лайк действительно изменился: записи, уже попавшие в снимок,
+     * не учитываются дважды.
+     */
+    public void restoreLike(int filmId, int userId, boolean added, long at) {
+        Film film = films.get(filmId);
+        if (film == null) {
+            return;
+        }
+        IntSet likes = IntSet.copyOf(film.getLikes());
+        IntSet updated = added ? likes.with(userId) : likes.without(userId);
+        film.setLikes(updated);
+        if (updated != likes && at != MutationHandler.UNKNOWN_TIME) {
+            trending.record(filmId, added ? 1 : -1, at);
+        }
+    }
+
+    /**
+     * Восстанавливает счётчик лайков фильма по времени из снимка.
+     */
+    public void restoreTrending(int filmId, int delta, long start) {
+        trending.record(filmId, delta, start);
+    }
+
+    /**
+     * Обходит корзины счётчиков лайков по времени для снимка.
+     */
+    public void forEachTrendingBucket(TrendingIndex.BucketConsumer action) {
+        trending.forEachBucket(action);
+    }
+
+    /**
+     * Строит индекс популярности заново одним проходом после восстановления, до приёма запросов:
+     * так повтор журнала не платит за два перемещения в индексе на каждый лайк.
+     */
+    public void rebuildIndexes() {
+        popularity.clear();
+        films.forEach(film -> popularity.add(film.getId(), film.getLikes().size()));
+        likedBy.rebuild(films.values());
+    }
+
+    /**
+     * Обходит все фильмы для снимка; каждый фильм передаётся под его блокировкой.
+     */
+    public void forEachFilm(Consumer<Film> action) {
+        films.forEach(film -> {
+            Lock lock = films.lockFor(film.getId());
+            lock.lock();
+            try {
+                action.accept(film);
+            } finally {
+                lock.unlock();
+            }
+        });
+    }
+
+    private long insert(Film film) {
+        int id = films.nextId();
+        film.setId(id);
+        IntSet likes = IntSet.copyOf(film.getLikes());
+        film.setLikes(likes);
+        // Фильм ещё не виден другим потокам, поэтому лайки из тела попадают в индекс без блокировки
+        likes.forEachInt(userId -> likedBy.add(userId, id));
+        // Лайк, пришедший сразу после put, двигает фильм в индексе популярности только после того, как его туда
+        // добавили: иначе add вернул бы в индекс уже устаревшую запись
+        Lock lock = films.lockFor(id);
+        lock.lock();
+        try {
+            journal.ensureWritable();
+            films.put(id, film);
+            popularity.add(id, likes.size());
+            catalogVersion.incrementAndGet();
+            // Как и остальные изменения, в журнал — после карты: если снимок переключит сегмент между ними,
+            // фильм попадёт в снимок, а не только в удаляемый сегмент
+            return journal.filmCreated(film);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private boolean awaitChange(long lsn) {
+        if (lsn == UNCHANGED) {
+            return false;
+        }
+        journal.awaitDurable(lsn);
+        return true;
+    }
+
+    /**
+     * Возвращает номер записи журнала или {@link #UNCHANGED}, если лайк уже был в нужном состоянии.
+     */
+    private long changeLike(Film film, int userId, boolean add) {
+        int filmId = film.getId();
+        Lock lock = films.lockFor(filmId);
+        lock.lock();
+        try {
+            journal.ensureWritable();
+            Film next = films.update(filmId, current -> {
+                IntSet likes = IntSet.copyOf(current.getLikes());
+                IntSet updated = add ? likes.with(userId) : likes.without(userId);
+                if (updated == likes) {
+                    return null;
+                }
+                Film copy = EntityCopies.copy(current);
+                copy.setLikes(updated);
+                return copy;
+            });
+            if (next == null) {
+                return UNCHANGED;
+            }
+            if (add) {
+                likedBy.add(userId, filmId);
+            } else {
+                likedBy.remove(userId, filmId);
+            }
+            int likes = next.getLikes().size();
+            popularity.move(filmId, add ? likes - 1 : likes + 1, likes);
+            catalogVersion.incrementAndGet();
+            long at = trending.now();
+            trending.record(filmId, add ? 1 : -1, at);
+            return journal.likeChanged(filmId, userId, add, at);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private static NotFoundException notFound(Integer id) {
+        return new NotFoundException("Фильм с id=" + id + " не найден");
+    }
+
+    private void addIfPresent(List<Film> result, Integer id) {
+        Film film = films.get(id);
+        if (film != null) {
+            result.add(film);
+        }
+    }
+
+
+    static void merge(Film existing, Film incoming) {
         if (incoming.getName() != null && !incoming.getName().isBlank()) {
             existing.setName(incoming.getName());
         }
@@ -69,4 +414,3 @@ public class InMemoryFilmStorage implements FilmStorage {
     }
 }
 
-
@@ -0,0 +1,54 @@
+package ru.yandex.practicum.filmorate.storage.film;
+
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.storage.IntSet;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Обратный индекс лайков: пользователь → лайкнутые им фильмы. Меняется под блокировкой фильма
+ * вместе с его лайками, поэтому обе стороны не расходятся; чтение — без блокировок.
+ */
+class LikeIndex {
+    private final Map<Integer, IntSet> byUser = new ConcurrentHashMap<>();
+
+    void add(int userId, int filmId) {
+        byUser.merge(userId, IntSet.of(filmId), (films, single) -> films.with(filmId));
+    }
+
+    void remove(int userId, int filmId) {
+        byUser.computeIfPresent(userId, (id, films) -> {
+            IntSet rest = films.without(filmId);
+            return rest.isEmpty() ? null : rest;
+        });
+    }
+
+    IntSet get(int userId) {
+        return byUser.getOrDefault(userId, IntSet.EMPTY);
+    }
+
+    /**
+     * Строит индекс заново по всем фильмам: id собираются в массивы по пользователям, и множество
+     * создаётся один раз на пользователя, а не копируется на каждый лайк.
+     */
+    void rebuild(Iterable<Film> films) {
+        // В нулевом элементе — сколько id в массиве
+        Map<Integer, int[]> collected = new HashMap<>();
+        for (Film film : films) {
+            int filmId = film.getId();
+            IntSet.copyOf(film.getLikes()).forEachInt(userId -> {
+                int[] ids = collected.get(userId);
+                if (ids == null || ids[0] == ids.length - 1) {
+                    ids = ids == null ? new int[5] : Arrays.copyOf(ids, ids.length * 2);
+                    collected.put(userId, ids);
+                }
+                ids[++ids[0]] = filmId;
+            });
+        }
+        byUser.clear();
+        collected.forEach((userId, ids) -> byUser.put(userId, IntSet.of(Arrays.copyOfRange(ids, 1, ids[0] + 1))));
+    }
+}
@@ -0,0 +1,366 @@
+package ru.yandex.practicum.filmorate.storage.film;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.exception.NotFoundException;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.storage.IntSet;
+import ru.yandex.practicum.filmorate.storage.OffHeapTable;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.AbstractCollection;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.OptionalLong;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Lock;
+import java.util.function.IntConsumer;
+
+/**
+ * Фильмы вне кучи, в {@link OffHeapTable}: в куче остаются только лайки ({@link IntSet}) и индексы,
+ * а {@link Film} собирается при каждом чтении. Для каталогов в десятки миллионов фильмов, где объекты фильмов
+ * со строками в куче затягивают сборку мусора. Журнала нет: данные живут до перезапуска.
+ * <p>
+ * Чтение одного фильма согласовано, списки — нет: getAll и страницы читают фильмы по одному,
+ * без общего снимка, как и популярные.
+ */
+@Component
+@ConditionalOnProperty(name = "filmorate.storage", havingValue = "offheap")
+@Slf4j
+public class OffHeapFilmStorage implements FilmStorage {
+    // Целые поля записи; отсутствующее значение — NULL
+    private static final int DURATION = 0;
+    private static final int RELEASE_DATE = 1;
+    // Строковые поля записи
+    private static final int NAME = 0;
+    private static final int DESCRIPTION = 1;
+    private static final int NULL = Integer.MIN_VALUE;
+
+    private final OffHeapTable films;
+    private final PopularityIndex popularity = new PopularityIndex();
+    private final LikeIndex likedBy = new LikeIndex();
+    private final TrendingIndex trending;
+    // Растёт после каждого изменения, когда оно уже видно и в таблице, и в индексе популярности
+    private final AtomicLong catalogVersion = new AtomicLong();
+
+    public OffHeapFilmStorage() {
+        this(0, Duration.ofHours(1), 168);
+    }
+
+    @Autowired
+    public OffHeapFilmStorage(@Value("${filmorate.storage.partitions:0}") int concurrency,
+                              @Value("${filmorate.trending.bucket:1h}") Duration trendingBucket,
+                              @Value("${filmorate.trending.buckets:168}") int trendingBuckets) {
+        this.films = new OffHeapTable(2, 2, concurrency);
+        this.trending = new TrendingIndex(trendingBucket, trendingBuckets, Clock.systemUTC());
+    }
+
+    @Override
+    public Film create(Film film) {
+        insert(film);
+        log.info("Создан фильм id={}, name={}", film.getId(), film.getName());
+        return film;
+    }
+
+    @Override
+    public List<Film> createAll(List<Film> batch) {
+        for (Film film : batch) {
+            insert(film);
+        }
+        log.info("Создано фильмов пачкой: {}", batch.size());
+        return batch;
+    }
+
+    @Override
+    public Film update(Film film) {
+        Integer id = film.getId();
+        Lock lock = films.lockFor(id);
+        Film updated;
+        lock.lock();
+        try {
+            updated = find(id);
+            if (updated == null) {
+                throw notFound(id);
+            }
+            InMemoryFilmStorage.merge(updated, film);
+            write(updated);
+            catalogVersion.incrementAndGet();
+        } finally {
+            lock.unlock();
+        }
+        log.info("Обновлён фильм id={}, name={}", updated.getId(), updated.getName());
+        return updated;
+    }
+
+    @Override
+    public Film getById(Integer id) {
+        Film film = find(id);
+        if (film == null) {
+            throw notFound(id);
+        }
+        return film;
+    }
+
+    @Override
+    public List<Film> getByIds(Collection<Integer> ids) {
+        List<Film> result = new ArrayList<>(ids.size());
+        if (ids instanceof IntSet set) {
+            set.forEachInt(id -> addIfPresent(result, id));
+        } else {
+            for (Integer id : ids) {
+                addIfPresent(result, id);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Все фильмы по возрастанию id; коллекция не копирует каталог, а собирает фильмы при обходе.
+     */
+    @Override
+    public Collection<Film> getAll() {
+        return new AbstractCollection<>() {
+            @Override
+            public Iterator<Film> iterator() {
+                return new FilmIterator(0);
+            }
+
+            @Override
+            public int size() {
+                return films.size();
+            }
+        };
+    }
+
+    @Override
+    public List<Film> getPage(Integer after, int limit) {
+        List<Film> result = new ArrayList<>(Math.min(limit, 1024));
+        Iterator<Film> it = new FilmIterator(after == null ? 0 : Math.max(0, after));
+        while (result.size() < limit && it.hasNext()) {
+            result.add(it.next());
+        }
+        return result;
+    }
+
+    @Override
+    public boolean addLike(Integer filmId, Integer userId) {
+        return changeLike(filmId, userId, true);
+    }
+
+    @Override
+    public boolean removeLike(Integer filmId, Integer userId) {
+        return changeLike(filmId, userId, false);
+    }
+
+    @Override
+    public void addLikes(int[] filmIds, int[] userIds) {
+        // Фильмы не удаляются, поэтому проверки до первого лайка достаточно, чтобы пачка не применялась наполовину
+        for (int filmId : filmIds) {
+            if (films.version(filmId) < 0) {
+                throw notFound(filmId);
+            }
+        }
+        for (int i = 0; i < filmIds.length; i++) {
+            changeLike(filmIds[i], userIds[i], true);
+        }
+    }
+
+    @Override
+    public List<Film> getLikedFilms(Integer userId, Integer after, int limit) {
+        if (after != null && after == Integer.MAX_VALUE) {
+            return List.of();
+        }
+        int[] ids = likedBy.get(userId).range(after == null ? Integer.MIN_VALUE : after + 1, limit);
+        List<Film> result = new ArrayList<>(ids.length);
+        for (int id : ids) {
+            addIfPresent(result, id);
+        }
+        return result;
+    }
+
+    @Override
+    public Map<Integer, IntSet> getLikedFilmIds(Collection<Integer> userIds) {
+        Map<Integer, IntSet> result = new HashMap<>();
+        for (Integer id : userIds) {
+            IntSet liked = likedBy.get(id);
+            if (!liked.isEmpty()) {
+                result.put(id, liked);
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public List<Film> getPopular(int count) {
+        int[] ids = popularity.top(count);
+        List<Film> result = new ArrayList<>(ids.length);
+        for (int id : ids) {
+            addIfPresent(result, id);
+        }
+        return result;
+    }
+
+    @Override
+    public List<Film> getTrending(Duration window, int count) {
+        int[] ids = trending.top(window, count);
+        List<Film> result = new ArrayList<>(ids.length);
+        for (int id : ids) {
+            addIfPresent(result, id);
+        }
+        return result;
+    }
+
+    @Override
+    public OptionalLong getVersion(Integer id) {
+        long version = films.version(id);
+        return version < 0 ? OptionalLong.empty() : OptionalLong.of(version);
+    }
+
+    @Override
+    public OptionalLong getCatalogVersion() {
+        return OptionalLong.of(catalogVersion.get());
+    }
+
+    @Override
+    public void forEachLikeCount(IntConsumer action) {
+        for (int id = 1; id <= films.maxId(); id++) {
+            if (films.version(id) >= 0) {
+                action.accept(films.getSet(id).size());
+            }
+        }
+    }
+
+    /**
+     * Сколько байтов вне кучи занимают фильмы.
+     */
+    public long offHeapBytes() {
+        return films.offHeapBytes();
+    }
+
+    private void insert(Film film) {
+        int id = films.nextId();
+        film.setId(id);
+        IntSet likes = IntSet.copyOf(film.getLikes());
+        film.setLikes(likes);
+        Lock lock = films.lockFor(id);
+        lock.lock();
+        try {
+            write(film);
+            if (!likes.isEmpty()) {
+                films.putSet(id, likes);
+            }
+            likes.forEachInt(userId -> likedBy.add(userId, id));
+            popularity.add(id, likes.size());
+            catalogVersion.incrementAndGet();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private boolean changeLike(int filmId, int userId, boolean add) {
+        Lock lock = films.lockFor(filmId);
+        lock.lock();
+        try {
+            if (films.version(filmId) < 0) {
+                throw notFound(filmId);
+            }
+            IntSet likes = films.getSet(filmId);
+            IntSet updated = add ? likes.with(userId) : likes.without(userId);
+            if (updated == likes) {
+                return false;
+            }
+            films.putSet(filmId, updated);
+            if (add) {
+                likedBy.add(userId, filmId);
+            } else {
+                likedBy.remove(userId, filmId);
+            }
+            popularity.move(filmId, likes.size(), updated.size());
+            catalogVersion.incrementAndGet();
+            trending.record(filmId, add ? 1 : -1, trending.now());
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void write(Film film) {
+        LocalDate releaseDate = film.getReleaseDate();
+        int[] ints = {
+                film.getDuration() == null ? NULL : film.getDuration(),
+                releaseDate == null ? NULL : Math.toIntExact(releaseDate.toEpochDay())
+        };
+        films.write(film.getId(), ints, new String[]{film.getName(), film.getDescription()});
+    }
+
+    /**
+     * Собирает фильм из записи и множества лайков; null — если фильма нет. Лайки читаются после записи,
+     * поэтому они не старше её версии.
+     */
+    private Film find(int id) {
+        int[] ints = new int[2];
+        String[] strings = new String[2];
+        if (films.read(id, ints, strings) < 0) {
+            return null;
+        }
+        Film film = new Film();
+        film.setId(id);
+        film.setName(strings[NAME]);
+        film.setDescription(strings[DESCRIPTION]);
+        film.setDuration(ints[DURATION] == NULL ? null : ints[DURATION]);
+        film.setReleaseDate(ints[RELEASE_DATE] == NULL ? null : LocalDate.ofEpochDay(ints[RELEASE_DATE]));
+        film.setLikes(films.getSet(id));
+        return film;
+    }
+
+    private static NotFoundException notFound(Integer id) {
+        return new NotFoundException("Фильм с id=" + id + " не найден");
+    }
+
+    private void addIfPresent(List<Film> result, Integer id) {
+        Film film = find(id);
+        if (film != null) {
+            result.add(film);
+        }
+    }
+
+    /**
+     * Обходит фильмы по возрастанию id после after, пропуская id без записи.
+     */
+    private final class FilmIterator implements Iterator<Film> {
+        private int id;
+        private Film next;
+
+        FilmIterator(int after) {
+            this.id = after;
+        }
+
+        @Override
+        public boolean hasNext() {
+            while (next == null && id < films.maxId()) {
+                next = find(++id);
+            }
+            return next != null;
+        }
+
+        @Override
+        public Film next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            Film film = next;
+            next = null;
+            return film;
+        }
+    }
+}
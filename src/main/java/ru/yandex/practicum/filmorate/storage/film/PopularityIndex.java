@@ -0,0 +1,95 @@
+package ru.yandex.practicum.filmorate.storage.film;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Индекс популярности фильмов: по убыванию числа лайков, при равенстве — по возрастанию id.
+ * Перемещения одного фильма должны выполняться под блокировкой этого фильма.
+ * <p>
+ * Перемещение — это вставка новой записи и удаление старой; обход, попавший между ними, мог бы потерять фильм,
+ * поднявшийся выше текущей позиции обхода. Поэтому перемещения идут под общей блокировкой {@link #moving}
+ * (друг другу не мешают), а {@link #top} сначала обходит индекс без блокировок и принимает результат, только
+ * если за время обхода ни одно перемещение не начиналось и не завершалось; иначе после нескольких попыток
+ * обходит индекс под исключительной блокировкой.
+ */
+class PopularityIndex {
+    // Сравнение без составных компараторов: на каждую вставку в индекс приходится O(log n) сравнений
+    private static final Comparator<Entry> ORDER = (a, b) -> a.likes() != b.likes()
+            ? Integer.compare(b.likes(), a.likes())
+            : Integer.compare(a.filmId(), b.filmId());
+    private static final int OPTIMISTIC_ATTEMPTS = 3;
+
+    private final ConcurrentSkipListSet<Entry> entries = new ConcurrentSkipListSet<>(ORDER);
+    // Не synchronized, чтобы ожидание не закрепляло виртуальный поток, и не StampedLock: у него непрерывный поток
+    // общих захватов не пускает исключительный, а здесь общая блокировка ставится на каждый лайк
+    private final ReentrantReadWriteLock moving = new ReentrantReadWriteLock();
+    // Завершённые перемещения; LongAdder, чтобы пишущие потоки не делили одну кэш-линию
+    private final LongAdder moves = new LongAdder();
+
+    void add(int filmId, int likes) {
+        entries.add(new Entry(filmId, likes));
+    }
+
+    void move(int filmId, int oldLikes, int newLikes) {
+        if (oldLikes == newLikes) {
+            return;
+        }
+        moving.readLock().lock();
+        try {
+            entries.add(new Entry(filmId, newLikes));
+            entries.remove(new Entry(filmId, oldLikes));
+            moves.increment();
+        } finally {
+            moving.readLock().unlock();
+        }
+    }
+
+    void clear() {
+        entries.clear();
+    }
+
+    int[] top(int count) {
+        if (count <= 0) {
+            return new int[0];
+        }
+        for (int attempt = 0; attempt < OPTIMISTIC_ATTEMPTS; attempt++) {
+            if (moving.getReadLockCount() > 0) {
+                Thread.onSpinWait();
+                continue;
+            }
+            long before = moves.sum();
+            int[] ids = collect(count);
+            if (moving.getReadLockCount() == 0 && moves.sum() == before) {
+                return ids;
+            }
+        }
+        moving.writeLock().lock();
+        try {
+            return collect(count);
+        } finally {
+            moving.writeLock().unlock();
+        }
+    }
+
+    // Без перемещений во время обхода у каждого фильма ровно одна запись, так что повторов нет
+    private int[] collect(int count) {
+        int[] ids = new int[Math.min(count, 1024)];
+        int size = 0;
+        Iterator<Entry> it = entries.iterator();
+        while (size < count && it.hasNext()) {
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, Math.min(count, ids.length * 2));
+            }
+            ids[size++] = it.next().filmId();
+        }
+        return size == ids.length ? ids : Arrays.copyOf(ids, size);
+    }
+
+    private record Entry(int filmId, int likes) {
+    }
+}
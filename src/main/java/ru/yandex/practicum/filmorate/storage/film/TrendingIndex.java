@@ -0,0 +1,205 @@
+package ru.yandex.practicum.filmorate.storage.film;
+
+import ru.yandex.practicum.filmorate.exception.ValidationException;
+import ru.yandex.practicum.filmorate.storage.TopIds;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Лайки по времени: кольцо корзин фиксированной ширины, в каждой — сколько лайков получил за неё каждый фильм
+ * (снятый лайк вычитается в корзине, где его сняли). Окно — текущая корзина и предыдущие, с точностью до ширины
+ * корзины; самое длинное окно — все корзины кольца.
+ * <p>
+ * Лайк — одно обновление счётчика фильма в текущей корзине. Суммы по закрытым корзинам окна обычно
+ * не меняются до начала следующей корзины, поэтому они считаются и сортируются один раз на корзину и окно,
+ * а запрос топа досчитывает только текущую корзину: кандидаты — её фильмы и первые count + её размер
+ * фильмов из готового рейтинга закрытых корзин, лучшие count из них отбираются кучей. Запрос стоит столько,
+ * сколько разных фильмов лайкнули за текущую корзину, и видит каждый учтённый лайк.
+ * <p>
+ * Закрытая корзина всё же меняется, если изменение пришло с моментом из неё: лайк, время которого взято
+ * перед самой сменой корзины, или восстановление. Такие изменения считаются в {@link #late}, и рейтинг,
+ * посчитанный при другом их числе, строится заново.
+ */
+public final class TrendingIndex {
+    private final long bucketMillis;
+    private final int buckets;
+    private final Clock clock;
+    private final AtomicReferenceArray<Bucket> ring;
+    // Рейтинг закрытых корзин по числу корзин в окне
+    private final Map<Integer, Ranking> rankings = new ConcurrentHashMap<>();
+    // Изменения, попавшие в уже закрытые корзины
+    private final AtomicLong late = new AtomicLong();
+
+    public TrendingIndex(Duration bucket, int buckets, Clock clock) {
+        if (bucket.toMillis() <= 0 || buckets <= 0) {
+            throw new IllegalArgumentException("Ширина корзины и их число должны быть положительными");
+        }
+        this.bucketMillis = bucket.toMillis();
+        this.buckets = buckets;
+        this.clock = clock;
+        this.ring = new AtomicReferenceArray<>(buckets);
+    }
+
+    public long now() {
+        return clock.millis();
+    }
+
+    /**
+     * Учитывает изменение числа лайков фильма в момент at (мс с начала эпохи). Изменения старше самого
+     * длинного окна отбрасываются, из будущего — попадают в текущую корзину.
+     */
+    public void record(int filmId, int delta, long at) {
+        long current = clock.millis() / bucketMillis;
+        long index = Math.min(at / bucketMillis, current);
+        if (index <= current - buckets) {
+            return;
+        }
+        Bucket bucket = bucket(index);
+        if (bucket != null) {
+            bucket.counts.merge(filmId, delta, TrendingIndex::sum);
+            // Часы читаются заново после изменения: корзина могла закрыться, пока оно шло, и рейтинг
+            // по ней уже посчитан. Счётчик растёт после изменения, так что рейтинг, прочитавший его прежним,
+            // при следующем запросе строится заново
+            if (index < clock.millis() / bucketMillis) {
+                late.incrementAndGet();
+            }
+        }
+    }
+
+    /**
+     * До count id фильмов с наибольшим приростом лайков за окно, при равенстве — по возрастанию id;
+     * фильмы без прироста не попадают.
+     */
+    public int[] top(Duration window, int count) {
+        int span = span(window);
+        if (count <= 0) {
+            return new int[0];
+        }
+        long current = clock.millis() / bucketMillis;
+        Ranking cached = rankings.get(span);
+        if (cached == null || cached.current != current || cached.late != late.get()) {
+            cached = rank(current, span);
+            rankings.put(span, cached);
+        }
+        Ranking closed = cached;
+        Bucket open = ring.get(slot(current));
+        Map<Integer, Integer> recent = open != null && open.index == current ? open.counts : Map.of();
+
+        int limit = (int) Math.min(closed.filmIds.length, (long) count + recent.size());
+        // Куча не больше числа кандидатов: огромный count не должен выделять память под пустые места
+        TopIds best = new TopIds((int) Math.min(count, (long) limit + recent.size()));
+        recent.forEach((filmId, delta) -> best.offer(delta + closed.sums.getOrDefault(filmId, 0), filmId));
+        for (int i = 0; i < limit; i++) {
+            int filmId = closed.filmIds[i];
+            if (!recent.containsKey(filmId)) {
+                best.offer(closed.sums.get(filmId), filmId);
+            }
+        }
+        return best.toArray();
+    }
+
+    /**
+     * Передаёт непустые корзины самого длинного окна: начало корзины (мс) и счётчики фильмов.
+     */
+    public void forEachBucket(BucketConsumer action) {
+        long current = clock.millis() / bucketMillis;
+        for (int i = 0; i < buckets; i++) {
+            Bucket bucket = ring.get(i);
+            if (bucket == null || bucket.index <= current - buckets || bucket.counts.isEmpty()) {
+                continue;
+            }
+            int[] filmIds = new int[bucket.counts.size()];
+            int[] deltas = new int[filmIds.length];
+            int size = 0;
+            for (Map.Entry<Integer, Integer> entry : bucket.counts.entrySet()) {
+                if (size == filmIds.length) {
+                    break;
+                }
+                filmIds[size] = entry.getKey();
+                deltas[size++] = entry.getValue();
+            }
+            action.accept(bucket.index * bucketMillis, Arrays.copyOf(filmIds, size), Arrays.copyOf(deltas, size));
+        }
+    }
+
+    public void clear() {
+        for (int i = 0; i < buckets; i++) {
+            ring.set(i, null);
+        }
+        rankings.clear();
+    }
+
+    private int span(Duration window) {
+        long max = bucketMillis * buckets;
+        if (window.toMillis() <= 0 || window.toMillis() > max) {
+            throw new ValidationException("Окно должно быть больше нуля и не длиннее " + Duration.ofMillis(max));
+        }
+        return (int) ((window.toMillis() + bucketMillis - 1) / bucketMillis);
+    }
+
+    private Ranking rank(long current, int span) {
+        // Число поздних изменений читается до сумм: изменение, пропущенное суммами, его ещё увеличит
+        long seen = late.get();
+        Map<Integer, Integer> sums = new HashMap<>();
+        for (long index = current - span + 1; index < current; index++) {
+            Bucket bucket = ring.get(slot(index));
+            if (bucket != null && bucket.index == index) {
+                bucket.counts.forEach((filmId, delta) -> sums.merge(filmId, delta, Integer::sum));
+            }
+        }
+        int[] filmIds = sums.entrySet().stream()
+                .filter(entry -> entry.getValue() > 0)
+                .sorted((a, b) -> !a.getValue().equals(b.getValue())
+                        ? Integer.compare(b.getValue(), a.getValue())
+                        : Integer.compare(a.getKey(), b.getKey()))
+                .mapToInt(Map.Entry::getKey)
+                .toArray();
+        return new Ranking(current, seen, filmIds, sums);
+    }
+
+    private Bucket bucket(long index) {
+        int slot = slot(index);
+        while (true) {
+            Bucket bucket = ring.get(slot);
+            if (bucket != null && bucket.index >= index) {
+                // Ячейку уже заняла более новая корзина — изменение вышло за самое длинное окно
+                return bucket.index == index ? bucket : null;
+            }
+            Bucket fresh = new Bucket(index);
+            if (ring.compareAndSet(slot, bucket, fresh)) {
+                return fresh;
+            }
+        }
+    }
+
+    private int slot(long index) {
+        return (int) Math.floorMod(index, (long) buckets);
+    }
+
+    // Нулевой счётчик удаляется, чтобы корзина не копила фильмы без прироста
+    private static Integer sum(Integer a, Integer b) {
+        int sum = a + b;
+        return sum == 0 ? null : sum;
+    }
+
+    @FunctionalInterface
+    public interface BucketConsumer {
+        void accept(long start, int[] filmIds, int[] deltas);
+    }
+
+    private record Bucket(long index, ConcurrentHashMap<Integer, Integer> counts) {
+        Bucket(long index) {
+            this(index, new ConcurrentHashMap<>());
+        }
+    }
+
+    private record Ranking(long current, long late, int[] filmIds, Map<Integer, Integer> sums) {
+    }
+}
@@ -0,0 +1,19 @@
+package ru.yandex.practicum.filmorate.storage.journal;
+
+/**
+ * Когда журнал сбрасывается на диск.
+ */
+public enum FsyncPolicy {
+    /**
+     * Запрос завершается только после fsync; одновременные запросы объединяются в один fsync (group commit).
+     */
+    ALWAYS,
+    /**
+     * Фоновый сброс с fsync раз в интервал; при сбое теряется не больше одного интервала.
+     */
+    BATCH,
+    /**
+     * Фоновая запись без fsync: данные переживают падение процесса, но не ОС.
+     */
+    NONE
+}
@@ -0,0 +1,224 @@
+package ru.yandex.practicum.filmorate.storage.journal;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.film.InMemoryFilmStorage;
+import ru.yandex.practicum.filmorate.storage.user.InMemoryUserStorage;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+/**
+ * Восстанавливает хранилища при старте: загружает последний снимок и повторяет журнал поверх него,
+ * затем открывает новый сегмент и периодически снимает снимки, удаляя устаревшие сегменты.
+ * <p>
+ * Снимок снимается без остановки записи, поэтому может уже содержать часть изменений из сегментов
+ * после него. Это безопасно: повтор записей журнала идемпотентен и приводит к тому же состоянию.
+ */
+@Component
+@ConditionalOnProperty(name = "filmorate.storage", havingValue = "memory", matchIfMissing = true)
+@Slf4j
+public class JournalRecovery {
+    private static final Pattern SEGMENT = Pattern.compile("wal-(\\d{16})\\.log");
+    private static final Pattern SNAPSHOT = Pattern.compile("snapshot-(\\d{16})\\.bin");
+
+    private final StorageJournal journal;
+    private final InMemoryFilmStorage filmStorage;
+    private final InMemoryUserStorage userStorage;
+    private final Duration snapshotInterval;
+    private ScheduledExecutorService scheduler;
+
+    @Autowired
+    public JournalRecovery(StorageJournal journal,
+                           InMemoryFilmStorage filmStorage,
+                           InMemoryUserStorage userStorage,
+                           @Value("${filmorate.journal.snapshot-interval:10m}") Duration snapshotInterval) {
+        this.journal = journal;
+        this.filmStorage = filmStorage;
+        this.userStorage = userStorage;
+        this.snapshotInterval = snapshotInterval;
+    }
+
+    @PostConstruct
+    public void recover() throws IOException {
+        if (!journal.isEnabled()) {
+            return;
+        }
+        Path directory = journal.getDirectory();
+        Files.createDirectories(directory);
+        MutationHandler replay = new StorageReplay();
+
+        long snapshot = latest(directory, SNAPSHOT);
+        if (snapshot >= 0) {
+            Path path = snapshotPath(directory, snapshot);
+            if (!SnapshotFile.read(path, replay)) {
+                throw new IllegalStateException("Снимок " + path + " повреждён");
+            }
+            log.info("Загружен снимок {}", path);
+        }
+
+        List<Long> segments = numbers(directory, SEGMENT);
+        long next = Math.max(snapshot, 0);
+        long records = 0;
+        for (int i = 0; i < segments.size(); i++) {
+            long segment = segments.get(i);
+            if (segment < snapshot) {
+                continue;
+            }
+            records += replay(StorageJournal.segmentPath(directory, segment), replay, i == segments.size() - 1);
+            next = segment + 1;
+        }
+        filmStorage.rebuildIndexes();
+        log.info("Повторено записей журнала: {}", records);
+
+        journal.open(next);
+        if (!snapshotInterval.isZero() && !snapshotInterval.isNegative()) {
+            scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "journal-snapshot");
+                thread.setDaemon(true);
+                return thread;
+            });
+            long interval = snapshotInterval.toMillis();
+            scheduler.scheduleWithFixedDelay(this::snapshotInBackground, interval, interval, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Снимает снимок: переключает журнал на новый сегмент, записывает состояние во временный файл,
+     * атомарно переименовывает его и удаляет сегменты и снимки, которые больше не нужны.
+     */
+    public void snapshot() throws IOException {
+        Path directory = journal.getDirectory();
+        long segment = journal.roll();
+        Path target = snapshotPath(directory, segment);
+        Path tmp = target.resolveSibling(target.getFileName() + ".tmp");
+        SnapshotFile.write(tmp, filmStorage::forEachFilm, userStorage::forEachUser, filmStorage::forEachTrendingBucket);
+        Files.move(tmp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        for (long old : numbers(directory, SEGMENT)) {
+            if (old < segment) {
+                Files.deleteIfExists(StorageJournal.segmentPath(directory, old));
+            }
+        }
+        for (long old : numbers(directory, SNAPSHOT)) {
+            if (old < segment) {
+                Files.deleteIfExists(snapshotPath(directory, old));
+            }
+        }
+        log.info("Записан снимок {}", target);
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
+    }
+
+    static Path snapshotPath(Path directory, long segment) {
+        return directory.resolve(String.format("snapshot-%016d.bin", segment));
+    }
+
+    private long replay(Path path, MutationHandler handler, boolean last) throws IOException {
+        long records = 0;
+        try (MappedRecordReader reader = new MappedRecordReader(path)) {
+            if (reader.readLong() != StorageJournal.MAGIC) {
+                throw new IllegalStateException("Файл " + path + " не является сегментом журнала");
+            }
+            while (reader.next()) {
+                RecordCodec.apply(reader.type(), reader.payload(), handler);
+                records++;
+            }
+            if (reader.position() < Files.size(path)) {
+                // Оборванная запись в конце последнего сегмента — след аварийной остановки
+                if (last) {
+                    log.warn("Сегмент {} обрывается на позиции {}, остаток отброшен", path, reader.position());
+                } else {
+                    throw new IllegalStateException("Сегмент " + path + " повреждён на позиции " + reader.position());
+                }
+            }
+        } catch (IOException e) {
+            if (!last || Files.size(path) >= Long.BYTES) {
+                throw e;
+            }
+            log.warn("Сегмент {} пуст, пропускается", path);
+        }
+        return records;
+    }
+
+    private void snapshotInBackground() {
+        try {
+            snapshot();
+        } catch (IOException | RuntimeException e) {
+            log.error("Не удалось записать снимок", e);
+        }
+    }
+
+    private static long latest(Path directory, Pattern pattern) throws IOException {
+        List<Long> found = numbers(directory, pattern);
+        return found.isEmpty() ? -1 : found.get(found.size() - 1);
+    }
+
+    private static List<Long> numbers(Path directory, Pattern pattern) throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.map(file -> pattern.matcher(file.getFileName().toString()))
+                    .filter(Matcher::matches)
+                    .map(matcher -> Long.parseLong(matcher.group(1)))
+                    .sorted()
+                    .toList();
+        }
+    }
+
+    private class StorageReplay implements MutationHandler {
+        @Override
+        public void filmCreated(Film film) {
+            filmStorage.restore(film);
+        }
+
+        @Override
+        public void filmUpdated(Film film) {
+            filmStorage.restoreUpdate(film);
+        }
+
+        @Override
+        public void userCreated(User user) {
+            userStorage.restore(user);
+        }
+
+        @Override
+        public void userUpdated(User user) {
+            userStorage.restoreUpdate(user);
+        }
+
+        @Override
+        public void likeChanged(int filmId, int userId, boolean added, long at) {
+            filmStorage.restoreLike(filmId, userId, added, at);
+        }
+
+        @Override
+        public void trendingRestored(int filmId, int delta, long start) {
+            filmStorage.restoreTrending(filmId, delta, start);
+        }
+
+        @Override
+        public void friendChanged(int userId, int friendId, boolean added) {
+            userStorage.restoreFriendship(userId, friendId, added);
+        }
+    }
+}
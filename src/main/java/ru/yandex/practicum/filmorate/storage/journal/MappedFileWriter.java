@@ -0,0 +1,52 @@
+package ru.yandex.practicum.filmorate.storage.journal;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Последовательная запись в файл через memory-mapped отображение, расширяемое кусками по 64 МБ.
+ */
+final class MappedFileWriter implements Closeable {
+    private static final long CHUNK = 64L << 20;
+
+    private final FileChannel channel;
+    private MappedByteBuffer chunk;
+    private long position;
+
+    MappedFileWriter(Path path) throws IOException {
+        channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                StandardOpenOption.READ, StandardOpenOption.WRITE);
+    }
+
+    void writeLong(long value) throws IOException {
+        write(ByteBuffer.allocate(Long.BYTES).putLong(0, value));
+    }
+
+    void write(ByteBuffer source) throws IOException {
+        int bytes = source.remaining();
+        if (chunk == null || chunk.remaining() < bytes) {
+            if (chunk != null) {
+                chunk.force();
+            }
+            chunk = channel.map(FileChannel.MapMode.READ_WRITE, position, Math.max(CHUNK, bytes));
+        }
+        chunk.put(source);
+        position += bytes;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (chunk != null) {
+            chunk.force();
+            chunk = null;
+        }
+        channel.truncate(position);
+        channel.force(true);
+        channel.close();
+    }
+}
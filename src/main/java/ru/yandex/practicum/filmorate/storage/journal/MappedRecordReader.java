@@ -0,0 +1,90 @@
+package ru.yandex.practicum.filmorate.storage.journal;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32;
+
+/**
+ * Последовательное чтение записей из файла через окна memory-mapped отображения.
+ * Чтение останавливается на первой неполной или повреждённой записи.
+ */
+final class MappedRecordReader implements Closeable {
+    private static final long WINDOW = 256L << 20;
+
+    private final FileChannel channel;
+    private final long size;
+    private final CRC32 crc = new CRC32();
+    private MappedByteBuffer window;
+    private long windowStart;
+    private long position;
+    private byte type;
+    private ByteBuffer payload;
+
+    MappedRecordReader(Path path) throws IOException {
+        channel = FileChannel.open(path, StandardOpenOption.READ);
+        size = channel.size();
+    }
+
+    long readLong() throws IOException {
+        if (size - position < Long.BYTES) {
+            throw new IOException("Файл слишком короткий");
+        }
+        long value = window(position, Long.BYTES).getLong();
+        position += Long.BYTES;
+        return value;
+    }
+
+    boolean next() throws IOException {
+        int overhead = RecordWriter.HEADER + RecordWriter.TRAILER;
+        if (size - position < overhead) {
+            return false;
+        }
+        int length = window(position, RecordWriter.HEADER).getInt();
+        if (length < 0 || size - position < (long) overhead + length) {
+            return false;
+        }
+        ByteBuffer frame = window(position, overhead + length);
+        frame.limit(frame.position() + overhead + length);
+        int start = frame.position();
+        crc.reset();
+        crc.update(frame.duplicate().position(start + Integer.BYTES).limit(start + RecordWriter.HEADER + length));
+        if ((int) crc.getValue() != frame.getInt(start + RecordWriter.HEADER + length)) {
+            return false;
+        }
+        type = frame.get(start + Integer.BYTES);
+        payload = frame.position(start + RecordWriter.HEADER).limit(start + RecordWriter.HEADER + length).slice();
+        position += overhead + length;
+        return true;
+    }
+
+    byte type() {
+        return type;
+    }
+
+    ByteBuffer payload() {
+        return payload;
+    }
+
+    long position() {
+        return position;
+    }
+
+    @Override
+    public void close() throws IOException {
+        window = null;
+        channel.close();
+    }
+
+    private ByteBuffer window(long from, int bytes) throws IOException {
+        if (window == null || from < windowStart || from + bytes > windowStart + window.capacity()) {
+            windowStart = from;
+            window = channel.map(FileChannel.MapMode.READ_ONLY, from, Math.min(Math.max(WINDOW, bytes), size - from));
+        }
+        return window.duplicate().position((int) (from - windowStart));
+    }
+}
@@ -0,0 +1,32 @@
+package ru.yandex.practicum.filmorate.storage.journal;
+
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.User;
+
+/**
+ * Получатель изменений, прочитанных из снимка или журнала.
+ */
+public interface MutationHandler {
+    // Время лайка из записей журнала, в которых его ещё не было
+    long UNKNOWN_TIME = Long.MIN_VALUE;
+
+    void filmCreated(Film film);
+
+    void filmUpdated(Film film);
+
+    void userCreated(User user);
+
+    void userUpdated(User user);
+
+    /**
+     * Лайк поставлен или снят в момент at (мс с начала эпохи) или в неизвестный момент {@link #UNKNOWN_TIME}.
+     */
+    void likeChanged(int filmId, int userId, boolean added, long at);
+
+    /**
+     * Счётчик лайков фильма за корзину, начинающуюся в момент start, из снимка.
+     */
+    void trendingRestored(int filmId, int delta, long start);
+
+    void friendChanged(int userId, int friendId, boolean added);
+}
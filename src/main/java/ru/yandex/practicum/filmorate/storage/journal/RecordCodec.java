@@ -0,0 +1,161 @@
+package ru.yandex.practicum.filmorate.storage.journal;
+
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.IntSet;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+
+/**
+ * Двоичное представление изменений хранилищ; общее для журнала и снимков.
+ */
+final class RecordCodec {
+    static final byte END = 0;
+    static final byte FILM_CREATED = 1;
+    static final byte FILM_UPDATED = 2;
+    static final byte USER_CREATED = 3;
+    static final byte USER_UPDATED = 4;
+    static final byte LIKE_ADDED = 5;
+    static final byte LIKE_REMOVED = 6;
+    static final byte FRIEND_ADDED = 7;
+    static final byte FRIEND_REMOVED = 8;
+    // Лайки с временем изменения; записи 5 и 6 без времени остаются в старых сегментах и читаются как прежде
+    static final byte LIKE_ADDED_AT = 9;
+    static final byte LIKE_REMOVED_AT = 10;
+    // Только в снимках: корзина счётчиков лайков по времени
+    static final byte TRENDING = 11;
+
+    private RecordCodec() {
+    }
+
+    static ByteBuffer film(RecordWriter writer, Film film, boolean created) {
+        writer.begin(created ? FILM_CREATED : FILM_UPDATED)
+                .putInt(film.getId())
+                .putString(film.getName())
+                .putString(film.getDescription())
+                .putDate(film.getReleaseDate())
+                .putNullableInt(film.getDuration());
+        if (created) {
+            writer.putIntSet(IntSet.copyOf(film.getLikes()));
+        }
+        return writer.finish();
+    }
+
+    static ByteBuffer user(RecordWriter writer, User user, boolean created) {
+        writer.begin(created ? USER_CREATED : USER_UPDATED)
+                .putInt(user.getId())
+                .putString(user.getEmail())
+                .putString(user.getLogin())
+                .putString(user.getName())
+                .putDate(user.getBirthday());
+        if (created) {
+            writer.putIntSet(IntSet.copyOf(user.getFriends()));
+        }
+        return writer.finish();
+    }
+
+    static ByteBuffer pair(RecordWriter writer, byte type, int first, int second) {
+        return writer.begin(type).putInt(first).putInt(second).finish();
+    }
+
+    static ByteBuffer like(RecordWriter writer, int filmId, int userId, boolean added, long at) {
+        return writer.begin(added ? LIKE_ADDED_AT : LIKE_REMOVED_AT).putInt(filmId).putInt(userId).putLong(at).finish();
+    }
+
+    static ByteBuffer trending(RecordWriter writer, long start, int[] filmIds, int[] deltas, int from, int to) {
+        writer.begin(TRENDING).putLong(start).putInt(to - from);
+        for (int i = from; i < to; i++) {
+            writer.putInt(filmIds[i]).putInt(deltas[i]);
+        }
+        return writer.finish();
+    }
+
+    static ByteBuffer end(RecordWriter writer) {
+        return writer.begin(END).finish();
+    }
+
+    /**
+     * Передаёт запись получателю; возвращает false для записи END.
+     */
+    static boolean apply(byte type, ByteBuffer payload, MutationHandler handler) {
+        switch (type) {
+            case END -> {
+                return false;
+            }
+            case FILM_CREATED -> handler.filmCreated(readFilm(payload, true));
+            case FILM_UPDATED -> handler.filmUpdated(readFilm(payload, false));
+            case USER_CREATED -> handler.userCreated(readUser(payload, true));
+            case USER_UPDATED -> handler.userUpdated(readUser(payload, false));
+            case LIKE_ADDED, LIKE_REMOVED ->
+                    handler.likeChanged(payload.getInt(), payload.getInt(), type == LIKE_ADDED,
+                            MutationHandler.UNKNOWN_TIME);
+            case LIKE_ADDED_AT, LIKE_REMOVED_AT ->
+                    handler.likeChanged(payload.getInt(), payload.getInt(), type == LIKE_ADDED_AT, payload.getLong());
+            case TRENDING -> {
+                long start = payload.getLong();
+                for (int i = payload.getInt(); i > 0; i--) {
+                    handler.trendingRestored(payload.getInt(), payload.getInt(), start);
+                }
+            }
+            case FRIEND_ADDED, FRIEND_REMOVED ->
+                    handler.friendChanged(payload.getInt(), payload.getInt(), type == FRIEND_ADDED);
+            default -> throw new IllegalStateException("Неизвестный тип записи " + type);
+        }
+        return true;
+    }
+
+    private static Film readFilm(ByteBuffer in, boolean created) {
+        Film film = new Film();
+        film.setId(in.getInt());
+        film.setName(readString(in));
+        film.setDescription(readString(in));
+        film.setReleaseDate(readDate(in));
+        film.setDuration(readNullableInt(in));
+        if (created) {
+            film.setLikes(readIntSet(in));
+        }
+        return film;
+    }
+
+    private static User readUser(ByteBuffer in, boolean created) {
+        User user = new User();
+        user.setId(in.getInt());
+        user.setEmail(readString(in));
+        user.setLogin(readString(in));
+        user.setName(readString(in));
+        user.setBirthday(readDate(in));
+        if (created) {
+            user.setFriends(readIntSet(in));
+        }
+        return user;
+    }
+
+    private static String readString(ByteBuffer in) {
+        int length = in.getInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        in.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static LocalDate readDate(ByteBuffer in) {
+        long epochDay = in.getLong();
+        return epochDay == Long.MIN_VALUE ? null : LocalDate.ofEpochDay(epochDay);
+    }
+
+    private static Integer readNullableInt(ByteBuffer in) {
+        int value = in.getInt();
+        return value == Integer.MIN_VALUE ? null : value;
+    }
+
+    private static IntSet readIntSet(ByteBuffer in) {
+        int[] values = new int[in.getInt()];
+        in.asIntBuffer().get(values);
+        in.position(in.position() + values.length * Integer.BYTES);
+        return IntSet.of(values);
+    }
+}
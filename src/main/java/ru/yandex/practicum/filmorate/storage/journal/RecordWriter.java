@@ -0,0 +1,87 @@
+package ru.yandex.practicum.filmorate.storage.journal;
+
+import ru.yandex.practicum.filmorate.storage.IntSet;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.zip.CRC32;
+
+/**
+ * Собирает одну запись в формате [длина][тип][данные][crc32 типа и данных]. Не потокобезопасен.
+ */
+final class RecordWriter {
+    static final int HEADER = 5;
+    static final int TRAILER = 4;
+
+    private final CRC32 crc = new CRC32();
+    private ByteBuffer buffer = ByteBuffer.allocate(256);
+
+    RecordWriter begin(byte type) {
+        buffer.clear();
+        buffer.putInt(0);
+        buffer.put(type);
+        return this;
+    }
+
+    RecordWriter putInt(int value) {
+        ensure(Integer.BYTES);
+        buffer.putInt(value);
+        return this;
+    }
+
+    RecordWriter putLong(long value) {
+        ensure(Long.BYTES);
+        buffer.putLong(value);
+        return this;
+    }
+
+    RecordWriter putNullableInt(Integer value) {
+        return putInt(value == null ? Integer.MIN_VALUE : value);
+    }
+
+    RecordWriter putDate(LocalDate date) {
+        return putLong(date == null ? Long.MIN_VALUE : date.toEpochDay());
+    }
+
+    RecordWriter putString(String value) {
+        if (value == null) {
+            return putInt(-1);
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        putInt(bytes.length);
+        ensure(bytes.length);
+        buffer.put(bytes);
+        return this;
+    }
+
+    RecordWriter putIntSet(IntSet set) {
+        putInt(set.size());
+        ensure(set.size() * Integer.BYTES);
+        set.forEachInt(buffer::putInt);
+        return this;
+    }
+
+    /**
+     * Дописывает длину и контрольную сумму; возвращает буфер, готовый к чтению, до следующего begin().
+     */
+    ByteBuffer finish() {
+        int end = buffer.position();
+        buffer.putInt(0, end - HEADER);
+        crc.reset();
+        crc.update(buffer.array(), Integer.BYTES, end - Integer.BYTES);
+        ensure(TRAILER);
+        buffer.putInt((int) crc.getValue());
+        buffer.flip();
+        return buffer;
+    }
+
+    private void ensure(int bytes) {
+        if (buffer.remaining() < bytes) {
+            ByteBuffer bigger = ByteBuffer.allocate(Math.max(buffer.capacity() * 2, buffer.position() + bytes));
+            buffer.flip();
+            bigger.put(buffer);
+            buffer = bigger;
+        }
+    }
+}
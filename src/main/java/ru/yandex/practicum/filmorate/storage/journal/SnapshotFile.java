@@ -0,0 +1,73 @@
+package ru.yandex.practicum.filmorate.storage.journal;
+
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.film.TrendingIndex;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.util.function.Consumer;
+
+/**
+ * Сжатый снимок хранилищ: все фильмы и пользователи вместе с лайками и друзьями,
+ * в тех же записях, что и журнал, затем счётчики лайков по времени и завершающая запись END.
+ */
+final class SnapshotFile {
+    static final long MAGIC = 0x464D534E41503031L;
+
+    // Пар фильм-счётчик в одной записи TRENDING: корзина популярного часа не собирается в одну огромную запись
+    private static final int TRENDING_CHUNK = 4096;
+
+    private SnapshotFile() {
+    }
+
+    static void write(Path path,
+                      Consumer<Consumer<Film>> films,
+                      Consumer<Consumer<User>> users,
+                      Consumer<TrendingIndex.BucketConsumer> trending) throws IOException {
+        RecordWriter writer = new RecordWriter();
+        try (MappedFileWriter out = new MappedFileWriter(path)) {
+            out.writeLong(MAGIC);
+            try {
+                films.accept(film -> write(out, RecordCodec.film(writer, film, true)));
+                users.accept(user -> write(out, RecordCodec.user(writer, user, true)));
+                trending.accept((start, filmIds, deltas) -> {
+                    for (int from = 0; from < filmIds.length; from += TRENDING_CHUNK) {
+                        int to = Math.min(filmIds.length, from + TRENDING_CHUNK);
+                        write(out, RecordCodec.trending(writer, start, filmIds, deltas, from, to));
+                    }
+                });
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+            out.write(RecordCodec.end(writer));
+        }
+    }
+
+    /**
+     * Загружает снимок; возвращает false, если файл неполный или повреждён.
+     */
+    static boolean read(Path path, MutationHandler handler) throws IOException {
+        try (MappedRecordReader reader = new MappedRecordReader(path)) {
+            if (reader.readLong() != MAGIC) {
+                return false;
+            }
+            while (reader.next()) {
+                if (!RecordCodec.apply(reader.type(), reader.payload(), handler)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    private static void write(MappedFileWriter out, ByteBuffer record) {
+        try {
+            out.write(record);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,352 @@
+package ru.yandex.practicum.filmorate.storage.journal;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.User;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.Locale;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+
+/**
+ * Журнал упреждающей записи (WAL) для хранилищ в памяти: каждое изменение дописывается в конец
+ * текущего сегмента. Записи копятся в буфере и сбрасываются пачкой — одним write и одним fsync
+ * на всех ожидающих (group commit). Пока журнал не открыт, записи игнорируются.
+ * <p>
+ * Если пачку не удалось записать или сбросить на диск, журнал останавливается: её записи могли лечь в файл
+ * частично, а после ошибки fsync ядро может отбросить их страницы, так что повтор или следующая пачка оставили бы
+ * в журнале незаметную при восстановлении дыру. Ожидающие этой пачки и все следующие записи получают
+ * {@link UncheckedIOException}. Хранилища проверяют журнал через {@link #ensureWritable()} под блокировкой сущности
+ * до изменения в памяти, так что остановленный журнал отклоняет изменения, а не теряет их: данные в памяти
+ * продолжают читаться, изменения принимаются снова после перезапуска. Потеряться могут только изменения, чьи записи
+ * уже были в неудачной пачке или дописывались в момент сбоя.
+ */
+@Component
+@ConditionalOnProperty(name = "filmorate.storage", havingValue = "memory", matchIfMissing = true)
+@Slf4j
+public class StorageJournal {
+    public static final long NO_LSN = 0;
+
+    static final long MAGIC = 0x464D57414C303031L;
+
+    private static final int BUFFER_SIZE = 1 << 20;
+
+    private final boolean enabled;
+    private final Path directory;
+    private final FsyncPolicy fsync;
+    private final Duration fsyncInterval;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition flushed = lock.newCondition();
+    // Запись кодируется до захвата блокировки, поэтому у каждого потока свой буфер
+    private final ThreadLocal<RecordWriter> writers = ThreadLocal.withInitial(RecordWriter::new);
+    private ByteBuffer pending = ByteBuffer.allocate(BUFFER_SIZE);
+    private ByteBuffer spare = ByteBuffer.allocate(BUFFER_SIZE);
+    private long appendedLsn;
+    private long writtenLsn;
+    private long durableLsn;
+    private boolean flushing;
+    // Ошибка, остановившая журнал; null — журнал исправен. Пишется под блокировкой, читается и без неё
+    private volatile IOException failure;
+    private FileChannel channel;
+    private volatile boolean accepting;
+    private long segment;
+    private ScheduledExecutorService flusher;
+
+    @Autowired
+    public StorageJournal(@Value("${filmorate.journal.enabled:false}") boolean enabled,
+                          @Value("${filmorate.journal.directory:data}") String directory,
+                          @Value("${filmorate.journal.fsync:batch}") String fsync,
+                          @Value("${filmorate.journal.fsync-interval:10ms}") Duration fsyncInterval) {
+        this.enabled = enabled;
+        this.directory = Path.of(directory);
+        this.fsync = FsyncPolicy.valueOf(fsync.trim().toUpperCase(Locale.ROOT));
+        this.fsyncInterval = fsyncInterval;
+    }
+
+    public static StorageJournal disabled() {
+        return new StorageJournal(false, "data", FsyncPolicy.NONE.name(), Duration.ofMillis(10));
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public Path getDirectory() {
+        return directory;
+    }
+
+    static Path segmentPath(Path directory, long segment) {
+        return directory.resolve(String.format("wal-%016d.log", segment));
+    }
+
+    /**
+     * Открывает сегмент с указанным номером; с этого момента изменения пишутся в журнал.
+     */
+    public void open(long segment) throws IOException {
+        lock.lock();
+        try {
+            openSegment(segment);
+            accepting = true;
+            if (fsync != FsyncPolicy.ALWAYS && flusher == null) {
+                flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                    Thread thread = new Thread(runnable, "journal-flusher");
+                    thread.setDaemon(true);
+                    return thread;
+                });
+                long interval = Math.max(1, fsyncInterval.toMillis());
+                flusher.scheduleWithFixedDelay(this::flushInBackground, interval, interval, TimeUnit.MILLISECONDS);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Закрывает текущий сегмент и начинает следующий; возвращает номер нового сегмента.
+     * Всё, что записано до вызова, лежит в сегментах с меньшими номерами.
+     */
+    public long roll() throws IOException {
+        lock.lock();
+        try {
+            ensureHealthyLocked();
+            drainLocked(fsync != FsyncPolicy.NONE);
+            channel.close();
+            openSegment(segment + 1);
+            return segment;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public long filmCreated(Film film) {
+        return append(writer -> RecordCodec.film(writer, film, true));
+    }
+
+    public long filmUpdated(Film film) {
+        return append(writer -> RecordCodec.film(writer, film, false));
+    }
+
+    public long userCreated(User user) {
+        return append(writer -> RecordCodec.user(writer, user, true));
+    }
+
+    public long userUpdated(User user) {
+        return append(writer -> RecordCodec.user(writer, user, false));
+    }
+
+    /**
+     * Лайк поставлен или снят в момент at (мс с начала эпохи) — по нему после перезапуска восстанавливаются
+     * счётчики лайков по времени.
+     */
+    public long likeChanged(int filmId, int userId, boolean added, long at) {
+        return append(writer -> RecordCodec.like(writer, filmId, userId, added, at));
+    }
+
+    public long friendChanged(int userId, int friendId, boolean added) {
+        return append(writer -> RecordCodec.pair(writer,
+                added ? RecordCodec.FRIEND_ADDED : RecordCodec.FRIEND_REMOVED, userId, friendId));
+    }
+
+    /**
+     * Бросает {@link UncheckedIOException}, если журнал остановлен после ошибки записи. Хранилища вызывают его
+     * перед изменением в памяти, чтобы не применять изменение, которое журнал уже не сохранит.
+     */
+    public void ensureWritable() {
+        IOException error = failure;
+        if (error != null) {
+            throw new UncheckedIOException("Журнал остановлен после ошибки записи", error);
+        }
+    }
+
+    /**
+     * При политике ALWAYS ждёт, пока запись с указанным номером окажется на диске.
+     * Вызывается после снятия блокировок хранилища, чтобы fsync не держал их.
+     */
+    public void awaitDurable(long lsn) {
+        if (lsn == NO_LSN || fsync != FsyncPolicy.ALWAYS) {
+            return;
+        }
+        lock.lock();
+        try {
+            while (durableLsn < lsn) {
+                ensureHealthyLocked();
+                if (flushing) {
+                    flushed.awaitUninterruptibly();
+                } else {
+                    flushLocked(true);
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Не удалось записать журнал", e);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @PreDestroy
+    public void close() throws IOException {
+        if (flusher != null) {
+            flusher.shutdownNow();
+        }
+        lock.lock();
+        try {
+            accepting = false;
+            if (channel != null) {
+                if (failure == null) {
+                    drainLocked(fsync != FsyncPolicy.NONE);
+                }
+                channel.close();
+                channel = null;
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private long append(Function<RecordWriter, ByteBuffer> encoder) {
+        if (!accepting) {
+            return NO_LSN;
+        }
+        // Виртуальный поток живёт один запрос: буфер в ThreadLocal не переиспользовался бы, а только заводил карту
+        RecordWriter writer = Thread.currentThread().isVirtual() ? new RecordWriter() : writers.get();
+        ByteBuffer record = encoder.apply(writer);
+        lock.lock();
+        try {
+            if (channel == null) {
+                return NO_LSN;
+            }
+            ensureHealthyLocked();
+            reserveLocked(record.remaining());
+            pending.put(record);
+            return ++appendedLsn;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Не удалось записать журнал", e);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void reserveLocked(int bytes) throws IOException {
+        while (pending.remaining() < bytes) {
+            if (flushing) {
+                flushed.awaitUninterruptibly();
+            } else if (pending.position() > 0) {
+                flushLocked(false);
+            } else {
+                pending = ByteBuffer.allocate(bytes);
+            }
+        }
+    }
+
+    private void drainLocked(boolean force) throws IOException {
+        while (flushing || pending.position() > 0 || (force && durableLsn < writtenLsn)) {
+            if (flushing) {
+                flushed.awaitUninterruptibly();
+            } else {
+                flushLocked(force);
+            }
+        }
+    }
+
+    /**
+     * Сбрасывает накопленный буфер. Вызывается под блокировкой; на время записи блокировка
+     * отпускается, и новые записи копятся во втором буфере. Ошибка записи останавливает журнал.
+     */
+    private void flushLocked(boolean force) throws IOException {
+        ensureHealthyLocked();
+        flushing = true;
+        ByteBuffer batch = pending;
+        long upTo = appendedLsn;
+        pending = spare != null && spare.capacity() >= BUFFER_SIZE ? spare : ByteBuffer.allocate(BUFFER_SIZE);
+        spare = null;
+        FileChannel target = channel;
+        boolean done = false;
+        IOException error = null;
+        lock.unlock();
+        try {
+            batch.flip();
+            while (batch.hasRemaining()) {
+                target.write(batch);
+            }
+            if (force) {
+                target.force(false);
+            }
+            done = true;
+        } catch (IOException e) {
+            error = e;
+            throw e;
+        } finally {
+            lock.lock();
+            batch.clear();
+            spare = batch;
+            flushing = false;
+            if (done) {
+                writtenLsn = Math.max(writtenLsn, upTo);
+                if (force) {
+                    durableLsn = Math.max(durableLsn, upTo);
+                }
+            } else {
+                failure = error != null ? error : new IOException("Запись журнала прервана");
+                log.error("Журнал остановлен: записи до {} не сброшены, изменения не принимаются до перезапуска",
+                        upTo, failure);
+            }
+            flushed.signalAll();
+        }
+    }
+
+    private void flushInBackground() {
+        lock.lock();
+        try {
+            boolean force = fsync == FsyncPolicy.BATCH;
+            if (channel != null && failure == null && !flushing
+                    && (pending.position() > 0 || (force && durableLsn < writtenLsn))) {
+                flushLocked(force);
+            }
+        } catch (IOException e) {
+            // Причина уже в логе: flushLocked записал её, останавливая журнал
+            log.debug("Фоновый сброс журнала не удался", e);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void ensureHealthyLocked() throws IOException {
+        if (failure != null) {
+            throw new IOException("Журнал остановлен после ошибки записи", failure);
+        }
+    }
+
+    /**
+     * Открывает файл сегмента; тесты подменяют канал, чтобы имитировать сбой диска.
+     */
+    FileChannel openChannel(Path path) throws IOException {
+        return FileChannel.open(path, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+    }
+
+    private void openSegment(long number) throws IOException {
+        Files.createDirectories(directory);
+        FileChannel opened = openChannel(segmentPath(directory, number));
+        opened.write(ByteBuffer.allocate(Long.BYTES).putLong(0, MAGIC));
+        channel = opened;
+        segment = number;
+        log.info("Открыт сегмент журнала {}", segmentPath(directory, number));
+    }
+}
@@ -0,0 +1,133 @@
+package ru.yandex.practicum.filmorate.storage.user;
+
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.EntityCache;
+import ru.yandex.practicum.filmorate.storage.EntityCopies;
+import ru.yandex.practicum.filmorate.storage.IntSet;
+import ru.yandex.practicum.filmorate.storage.VersionedEntityCache;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.OptionalLong;
+import java.util.function.IntConsumer;
+
+/**
+ * Кэш пользователей по id перед любым {@link UserStorage}. Точечные чтения и getByIds идут через кэш,
+ * остальные списки — напрямую в хранилище; update и изменения дружбы сбрасывают записи обоих пользователей.
+ * Версии, как и в {@link ru.yandex.practicum.filmorate.storage.film.CachingFilmStorage}, берутся из хранилища.
+ */
+public class CachingUserStorage implements UserStorage {
+    private final UserStorage delegate;
+    private final VersionedEntityCache<User> cache;
+
+    public CachingUserStorage(UserStorage delegate, int maxSize) {
+        this.delegate = delegate;
+        this.cache = new VersionedEntityCache<>(maxSize, 16, EntityCopies::copy, delegate::getVersion);
+    }
+
+    public EntityCache.Stats stats() {
+        return cache.stats();
+    }
+
+    @Override
+    public User create(User user) {
+        return delegate.create(user);
+    }
+
+    @Override
+    public List<User> createAll(List<User> users) {
+        return delegate.createAll(users);
+    }
+
+    @Override
+    public User update(User user) {
+        try {
+            return delegate.update(user);
+        } finally {
+            cache.invalidate(user.getId());
+        }
+    }
+
+    @Override
+    public User getById(Integer id) {
+        return cache.get(id, delegate::getById);
+    }
+
+    @Override
+    public List<User> getByIds(Collection<Integer> ids) {
+        return cache.getAll(ids, delegate::getByIds, User::getId);
+    }
+
+    @Override
+    public Collection<User> getAll() {
+        return delegate.getAll();
+    }
+
+    @Override
+    public List<User> getPage(Integer after, int limit) {
+        return delegate.getPage(after, limit);
+    }
+
+    @Override
+    public boolean addFriend(Integer userId, Integer friendId) {
+        try {
+            return delegate.addFriend(userId, friendId);
+        } finally {
+            cache.invalidate(userId);
+            cache.invalidate(friendId);
+        }
+    }
+
+    @Override
+    public void addFriends(int[] userIds, int[] friendIds) {
+        try {
+            delegate.addFriends(userIds, friendIds);
+        } finally {
+            for (int i = 0; i < userIds.length; i++) {
+                cache.invalidate(userIds[i]);
+                cache.invalidate(friendIds[i]);
+            }
+        }
+    }
+
+    @Override
+    public boolean removeFriend(Integer userId, Integer friendId) {
+        try {
+            return delegate.removeFriend(userId, friendId);
+        } finally {
+            cache.invalidate(userId);
+            cache.invalidate(friendId);
+        }
+    }
+
+    @Override
+    public List<User> getCommonFriends(Integer userId, Integer otherId, Integer after, int limit) {
+        return delegate.getCommonFriends(userId, otherId, after, limit);
+    }
+
+    @Override
+    public Map<Integer, IntSet> getFriendIds(Collection<Integer> userIds) {
+        return delegate.getFriendIds(userIds);
+    }
+
+    @Override
+    public void forEachFriendCount(IntConsumer action) {
+        delegate.forEachFriendCount(action);
+    }
+
+    @Override
+    public OptionalLong getVersion(Integer id) {
+        return delegate.getVersion(id);
+    }
+
+    @Override
+    public OptionalLong getCatalogVersion() {
+        return delegate.getCatalogVersion();
+    }
+
+    @Override
+    public OptionalLong getFriendsVersion(Integer id) {
+        return delegate.getFriendsVersion(id);
+    }
+}
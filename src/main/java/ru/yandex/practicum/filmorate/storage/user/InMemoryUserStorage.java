@@ -1,60 +1,338 @@
 package ru.yandex.practicum.filmorate.storage.user;
 
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.stereotype.Component;
 import ru.yandex.practicum.filmorate.exception.NotFoundException;
 import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.EntityCopies;
+import ru.yandex.practicum.filmorate.storage.IntSet;
+import ru.yandex.practicum.filmorate.storage.PartitionedMap;
+import ru.yandex.practicum.filmorate.storage.journal.StorageJournal;
 
 import java.util.ArrayList;
 import java.util.Collection;
-import java.util.LinkedHashMap;
+import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
-import java.util.concurrent.atomic.AtomicInteger;
+import java.util.OptionalLong;
+import java.util.concurrent.locks.Lock;
+import java.util.function.Consumer;
+import java.util.function.IntConsumer;
 
 @Component
+@ConditionalOnProperty(name = "filmorate.storage", havingValue = "memory", matchIfMissing = true)
 @Slf4j
 public class InMemoryUserStorage implements UserStorage {
-    private final Map<Integer, User> users = new LinkedHashMap<>();
-    private final AtomicInteger idSequence = new AtomicInteger(0);
+    // Вместо номера записи журнала, когда дружба уже была в нужном состоянии: номера неотрицательны
+    private static final long UNCHANGED = -1;
+
+    private final PartitionedMap<User> users;
+    private final StorageJournal journal;
+
+    public InMemoryUserStorage() {
+        this(StorageJournal.disabled());
+    }
+
+    public InMemoryUserStorage(StorageJournal journal) {
+        this(journal, 0);
+    }
+
+    @Autowired
+    public InMemoryUserStorage(StorageJournal journal, @Value("${filmorate.storage.partitions:0}") int partitions) {
+        this.journal = journal;
+        this.users = new PartitionedMap<>(partitions);
+    }
 
     @Override
     public User create(User user) {
-        if (user.getName() == null || user.getName().isBlank()) {
-            user.setName(user.getLogin());
-        }
-        int id = idSequence.incrementAndGet();
-        user.setId(id);
-        users.put(id, user);
+        journal.awaitDurable(insert(user));
         return user;
     }
 
+    @Override
+    public List<User> createAll(List<User> batch) {
+        long lsn = StorageJournal.NO_LSN;
+        for (User user : batch) {
+            lsn = insert(user);
+        }
+        journal.awaitDurable(lsn);
+        log.info("Создано пользователей пачкой: {}", batch.size());
+        return batch;
+    }
+
     @Override
     public User update(User user) {
         Integer id = user.getId();
-        if (!users.containsKey(id)) {
-            throw new NotFoundException("Пользователь с id=" + id + " не найден");
+        Lock lock = users.lockFor(id);
+        User updated;
+        long lsn;
+        lock.lock();
+        try {
+            journal.ensureWritable();
+            // Новая версия вместо правки на месте: читатели прежней не видят наполовину применённое изменение
+            updated = users.update(id, current -> {
+                User next = EntityCopies.copy(current);
+                merge(next, user);
+                return next;
+            });
+            if (updated == null) {
+                throw notFound(id);
+            }
+            lsn = journal.userUpdated(updated);
+        } finally {
+            lock.unlock();
         }
-        User existing = users.get(id);
-        merge(existing, user);
-        return existing;
+        journal.awaitDurable(lsn);
+        return updated;
     }
 
     @Override
     public User getById(Integer id) {
         User user = users.get(id);
         if (user == null) {
-            throw new NotFoundException("Пользователь с id=" + id + " не найден");
+            throw notFound(id);
         }
         return user;
     }
 
+    @Override
+    public List<User> getByIds(Collection<Integer> ids) {
+        List<User> result = new ArrayList<>(ids.size());
+        if (ids instanceof IntSet set) {
+            set.forEachInt(id -> addIfPresent(result, id));
+        } else {
+            for (Integer id : ids) {
+                addIfPresent(result, id);
+            }
+        }
+        return result;
+    }
+
     @Override
     public Collection<User> getAll() {
-        return new ArrayList<>(users.values());
+        return users.values();
+    }
+
+    @Override
+    public List<User> getPage(Integer after, int limit) {
+        return users.page(after, limit);
     }
 
+    @Override
+    public boolean addFriend(Integer userId, Integer friendId) {
+        return awaitChange(changeFriendship(getById(userId), getById(friendId), true));
+    }
+
+    @Override
+    public boolean removeFriend(Integer userId, Integer friendId) {
+        return awaitChange(changeFriendship(getById(userId), getById(friendId), false));
+    }
+
+    @Override
+    public void addFriends(int[] userIds, int[] friendIds) {
+        // Все пользователи ищутся до первой дружбы: из-за отсутствующего id пачка не применяется наполовину
+        User[] users = new User[userIds.length];
+        User[] friends = new User[friendIds.length];
+        for (int i = 0; i < userIds.length; i++) {
+            users[i] = getById(userIds[i]);
+            friends[i] = getById(friendIds[i]);
+        }
+        long lsn = StorageJournal.NO_LSN;
+        for (int i = 0; i < userIds.length; i++) {
+            lsn = Math.max(lsn, changeFriendship(users[i], friends[i], true));
+        }
+        journal.awaitDurable(lsn);
+    }
+
+    @Override
+    public List<User> getCommonFriends(Integer userId, Integer otherId, Integer after, int limit) {
+        IntSet friends = IntSet.copyOf(getById(userId).getFriends());
+        IntSet otherFriends = IntSet.copyOf(getById(otherId).getFriends());
+        if (after != null && after == Integer.MAX_VALUE) {
+            return List.of();
+        }
+        int[] common = friends.intersect(otherFriends, after == null ? Integer.MIN_VALUE : after + 1, limit);
+        List<User> result = new ArrayList<>(common.length);
+        for (int id : common) {
+            addIfPresent(result, id);
+        }
+        return result;
+    }
+
+    @Override
+    public Map<Integer, IntSet> getFriendIds(Collection<Integer> userIds) {
+        Map<Integer, IntSet> result = new HashMap<>();
+        for (Integer id : userIds) {
+            User user = users.get(id);
+            if (user != null && !user.getFriends().isEmpty()) {
+                result.put(id, IntSet.copyOf(user.getFriends()));
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public OptionalLong getVersion(Integer id) {
+        long version = users.version(id);
+        return version < 0 ? OptionalLong.empty() : OptionalLong.of(version);
+    }
 
-    private void merge(User existing, User incoming) {
+    @Override
+    public OptionalLong getCatalogVersion() {
+        return OptionalLong.of(users.version());
+    }
+
+    /**
+     * Наибольший номер версии среди пользователя и его друзей: дружба меняет версии обоих участников,
+     * а правка друга — его версию, поэтому любое изменение списка даёт номер больше прежнего.
+     */
+    @Override
+    public OptionalLong getFriendsVersion(Integer id) {
+        long version = users.version(id);
+        User user = users.get(id);
+        if (version < 0 || user == null) {
+            return OptionalLong.empty();
+        }
+        long[] max = {version};
+        IntSet.copyOf(user.getFriends()).forEachInt(friendId -> max[0] = Math.max(max[0], users.version(friendId)));
+        return OptionalLong.of(max[0]);
+    }
+
+    @Override
+    public void forEachFriendCount(IntConsumer action) {
+        users.forEach(user -> action.accept(user.getFriends().size()));
+    }
+
+    /**
+     * Восстанавливает пользователя из снимка или журнала целиком, вместе с друзьями, не увеличивая журнал.
+     */
+    public void restore(User user) {
+        user.setFriends(IntSet.copyOf(user.getFriends()));
+        users.restore(user.getId(), user);
+    }
+
+    /**
+     * Повторяет обновление полей пользователя из журнала; друзья не меняются.
+     */
+    public void restoreUpdate(User user) {
+        User existing = users.get(user.getId());
+        if (existing == null) {
+            restore(user);
+            return;
+        }
+        existing.setEmail(user.getEmail());
+        existing.setLogin(user.getLogin());
+        existing.setName(user.getName());
+        existing.setBirthday(user.getBirthday());
+    }
+
+    /**
+     * Повторяет добавление или удаление друга из журнала; отсутствующие пользователи пропускаются.
+     */
+    public void restoreFriendship(int userId, int friendId, boolean added) {
+        if (users.get(userId) != null && users.get(friendId) != null) {
+            applyFriendship(userId, friendId, added);
+        }
+    }
+
+    /**
+     * Обходит всех пользователей для снимка; каждый пользователь передаётся под его блокировкой.
+     */
+    public void forEachUser(Consumer<User> action) {
+        users.forEach(user -> {
+            Lock lock = users.lockFor(user.getId());
+            lock.lock();
+            try {
+                action.accept(user);
+            } finally {
+                lock.unlock();
+            }
+        });
+    }
+
+    private long insert(User user) {
+        if (user.getName() == null || user.getName().isBlank()) {
+            user.setName(user.getLogin());
+        }
+        int id = users.nextId();
+        user.setId(id);
+        user.setFriends(IntSet.copyOf(user.getFriends()));
+        Lock lock = users.lockFor(id);
+        lock.lock();
+        try {
+            journal.ensureWritable();
+            // Сначала карта, потом журнал, как у остальных изменений: иначе снимок, переключивший сегмент между
+            // ними, не содержал бы пользователя, а запись о создании ушла бы вместе со старым сегментом
+            users.put(id, user);
+            return journal.userCreated(user);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private boolean awaitChange(long lsn) {
+        if (lsn == UNCHANGED) {
+            return false;
+        }
+        journal.awaitDurable(lsn);
+        return true;
+    }
+
+    /**
+     * Возвращает номер записи журнала или {@link #UNCHANGED}, если дружба уже была в нужном состоянии.
+     */
+    private long changeFriendship(User user, User friend, boolean add) {
+        int userId = user.getId();
+        int friendId = friend.getId();
+        users.lockBoth(userId, friendId);
+        try {
+            journal.ensureWritable();
+            return applyFriendship(userId, friendId, add)
+                    ? journal.friendChanged(userId, friendId, add)
+                    : UNCHANGED;
+        } finally {
+            users.unlockBoth(userId, friendId);
+        }
+    }
+
+    /**
+     * Меняет дружбу новыми версиями обоих пользователей под одним номером: снимок не увидит дружбу
+     * только с одной стороны. Вызывается под блокировкой обоих.
+     */
+    private boolean applyFriendship(int userId, int friendId, boolean add) {
+        User user = users.get(userId);
+        User friend = users.get(friendId);
+        IntSet friends = IntSet.copyOf(user.getFriends());
+        IntSet updated = add ? friends.with(friendId) : friends.without(friendId);
+        IntSet otherFriends = IntSet.copyOf(friend.getFriends());
+        IntSet otherUpdated = add ? otherFriends.with(userId) : otherFriends.without(userId);
+        if (updated == friends && otherUpdated == otherFriends) {
+            return false;
+        }
+        User nextUser = EntityCopies.copy(user);
+        nextUser.setFriends(updated);
+        User nextFriend = EntityCopies.copy(friend);
+        nextFriend.setFriends(otherUpdated);
+        users.putBoth(userId, nextUser, friendId, nextFriend);
+        return true;
+    }
+
+    private static NotFoundException notFound(Integer id) {
+        return new NotFoundException("Пользователь с id=" + id + " не найден");
+    }
+
+    private void addIfPresent(List<User> result, Integer id) {
+        User user = users.get(id);
+        if (user != null) {
+            result.add(user);
+        }
+    }
+
+
+    static void merge(User existing, User incoming) {
         if (incoming.getEmail() != null && !incoming.getEmail().isBlank()) {
             existing.setEmail(incoming.getEmail());
         }
@@ -74,4 +352,3 @@ public class InMemoryUserStorage implements UserStorage {
     }
 }
 
-
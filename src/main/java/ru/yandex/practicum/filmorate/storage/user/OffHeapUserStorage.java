@@ -0,0 +1,353 @@
+package ru.yandex.practicum.filmorate.storage.user;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.exception.NotFoundException;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.IntSet;
+import ru.yandex.practicum.filmorate.storage.OffHeapTable;
+
+import java.time.LocalDate;
+import java.util.AbstractCollection;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.OptionalLong;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Lock;
+import java.util.function.IntConsumer;
+
+/**
+ * Пользователи вне кучи, в {@link OffHeapTable}; в куче — только множества друзей. {@link User} собирается
+ * при каждом чтении. Журнала нет: данные живут до перезапуска.
+ * <p>
+ * Дружба меняет множества обоих пользователей под их блокировками, но читатель без блокировки может успеть
+ * увидеть её только с одной стороны — общего снимка, как у хранилища в памяти, здесь нет.
+ */
+@Component
+@ConditionalOnProperty(name = "filmorate.storage", havingValue = "offheap")
+@Slf4j
+public class OffHeapUserStorage implements UserStorage {
+    // Целое поле записи: дата рождения в днях от эпохи, NULL — не указана
+    private static final int BIRTHDAY = 0;
+    private static final int NULL = Integer.MIN_VALUE;
+    // Строковые поля записи
+    private static final int EMAIL = 0;
+    private static final int LOGIN = 1;
+    private static final int NAME = 2;
+
+    private final OffHeapTable users;
+    // Растёт после каждого изменения, когда оно уже записано в таблицу
+    private final AtomicLong catalogVersion = new AtomicLong();
+
+    public OffHeapUserStorage() {
+        this(0);
+    }
+
+    @Autowired
+    public OffHeapUserStorage(@Value("${filmorate.storage.partitions:0}") int concurrency) {
+        this.users = new OffHeapTable(1, 3, concurrency);
+    }
+
+    @Override
+    public User create(User user) {
+        insert(user);
+        return user;
+    }
+
+    @Override
+    public List<User> createAll(List<User> batch) {
+        for (User user : batch) {
+            insert(user);
+        }
+        log.info("Создано пользователей пачкой: {}", batch.size());
+        return batch;
+    }
+
+    @Override
+    public User update(User user) {
+        Integer id = user.getId();
+        Lock lock = users.lockFor(id);
+        lock.lock();
+        try {
+            User updated = find(id);
+            if (updated == null) {
+                throw notFound(id);
+            }
+            InMemoryUserStorage.merge(updated, user);
+            write(updated);
+            catalogVersion.incrementAndGet();
+            return updated;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public User getById(Integer id) {
+        User user = find(id);
+        if (user == null) {
+            throw notFound(id);
+        }
+        return user;
+    }
+
+    @Override
+    public List<User> getByIds(Collection<Integer> ids) {
+        List<User> result = new ArrayList<>(ids.size());
+        if (ids instanceof IntSet set) {
+            set.forEachInt(id -> addIfPresent(result, id));
+        } else {
+            for (Integer id : ids) {
+                addIfPresent(result, id);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Все пользователи по возрастанию id; коллекция собирает пользователей при обходе.
+     */
+    @Override
+    public Collection<User> getAll() {
+        return new AbstractCollection<>() {
+            @Override
+            public Iterator<User> iterator() {
+                return new UserIterator(0);
+            }
+
+            @Override
+            public int size() {
+                return users.size();
+            }
+        };
+    }
+
+    @Override
+    public List<User> getPage(Integer after, int limit) {
+        List<User> result = new ArrayList<>(Math.min(limit, 1024));
+        Iterator<User> it = new UserIterator(after == null ? 0 : Math.max(0, after));
+        while (result.size() < limit && it.hasNext()) {
+            result.add(it.next());
+        }
+        return result;
+    }
+
+    @Override
+    public boolean addFriend(Integer userId, Integer friendId) {
+        return changeFriendship(userId, friendId, true);
+    }
+
+    @Override
+    public boolean removeFriend(Integer userId, Integer friendId) {
+        return changeFriendship(userId, friendId, false);
+    }
+
+    @Override
+    public void addFriends(int[] userIds, int[] friendIds) {
+        // Пользователи не удаляются, поэтому проверки до первой дружбы достаточно, чтобы пачка не применялась
+        // наполовину
+        for (int i = 0; i < userIds.length; i++) {
+            checkExists(userIds[i]);
+            checkExists(friendIds[i]);
+        }
+        for (int i = 0; i < userIds.length; i++) {
+            changeFriendship(userIds[i], friendIds[i], true);
+        }
+    }
+
+    @Override
+    public List<User> getCommonFriends(Integer userId, Integer otherId, Integer after, int limit) {
+        checkExists(userId);
+        checkExists(otherId);
+        IntSet friends = users.getSet(userId);
+        IntSet otherFriends = users.getSet(otherId);
+        if (after != null && after == Integer.MAX_VALUE) {
+            return List.of();
+        }
+        int[] common = friends.intersect(otherFriends, after == null ? Integer.MIN_VALUE : after + 1, limit);
+        List<User> result = new ArrayList<>(common.length);
+        for (int id : common) {
+            addIfPresent(result, id);
+        }
+        return result;
+    }
+
+    @Override
+    public Map<Integer, IntSet> getFriendIds(Collection<Integer> userIds) {
+        Map<Integer, IntSet> result = new HashMap<>();
+        for (Integer id : userIds) {
+            IntSet friends = users.getSet(id);
+            if (!friends.isEmpty()) {
+                result.put(id, friends);
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public OptionalLong getVersion(Integer id) {
+        long version = users.version(id);
+        return version < 0 ? OptionalLong.empty() : OptionalLong.of(version);
+    }
+
+    @Override
+    public OptionalLong getCatalogVersion() {
+        return OptionalLong.of(catalogVersion.get());
+    }
+
+    @Override
+    public OptionalLong getFriendsVersion(Integer id) {
+        long version = users.version(id);
+        if (version < 0) {
+            return OptionalLong.empty();
+        }
+        long[] max = {version};
+        users.getSet(id).forEachInt(friendId -> max[0] = Math.max(max[0], users.version(friendId)));
+        return OptionalLong.of(max[0]);
+    }
+
+    @Override
+    public void forEachFriendCount(IntConsumer action) {
+        for (int id = 1; id <= users.maxId(); id++) {
+            if (users.version(id) >= 0) {
+                action.accept(users.getSet(id).size());
+            }
+        }
+    }
+
+    /**
+     * Сколько байтов вне кучи занимают пользователи.
+     */
+    public long offHeapBytes() {
+        return users.offHeapBytes();
+    }
+
+    private void insert(User user) {
+        if (user.getName() == null || user.getName().isBlank()) {
+            user.setName(user.getLogin());
+        }
+        int id = users.nextId();
+        user.setId(id);
+        IntSet friends = IntSet.copyOf(user.getFriends());
+        user.setFriends(friends);
+        Lock lock = users.lockFor(id);
+        lock.lock();
+        try {
+            write(user);
+            if (!friends.isEmpty()) {
+                users.putSet(id, friends);
+            }
+            catalogVersion.incrementAndGet();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Меняет дружбу в множествах обоих пользователей под блокировкой обоих; false — если менять было нечего.
+     */
+    private boolean changeFriendship(int userId, int friendId, boolean add) {
+        users.lockBoth(userId, friendId);
+        try {
+            checkExists(userId);
+            checkExists(friendId);
+            IntSet friends = users.getSet(userId);
+            IntSet updated = add ? friends.with(friendId) : friends.without(friendId);
+            IntSet otherFriends = users.getSet(friendId);
+            IntSet otherUpdated = add ? otherFriends.with(userId) : otherFriends.without(userId);
+            if (updated == friends && otherUpdated == otherFriends) {
+                return false;
+            }
+            if (updated != friends) {
+                users.putSet(userId, updated);
+            }
+            if (otherUpdated != otherFriends) {
+                users.putSet(friendId, otherUpdated);
+            }
+            catalogVersion.incrementAndGet();
+            return true;
+        } finally {
+            users.unlockBoth(userId, friendId);
+        }
+    }
+
+    private void write(User user) {
+        LocalDate birthday = user.getBirthday();
+        int[] ints = {birthday == null ? NULL : Math.toIntExact(birthday.toEpochDay())};
+        users.write(user.getId(), ints, new String[]{user.getEmail(), user.getLogin(), user.getName()});
+    }
+
+    /**
+     * Собирает пользователя из записи и множества друзей; null — если пользователя нет.
+     */
+    private User find(int id) {
+        int[] ints = new int[1];
+        String[] strings = new String[3];
+        if (users.read(id, ints, strings) < 0) {
+            return null;
+        }
+        User user = new User();
+        user.setId(id);
+        user.setEmail(strings[EMAIL]);
+        user.setLogin(strings[LOGIN]);
+        user.setName(strings[NAME]);
+        user.setBirthday(ints[BIRTHDAY] == NULL ? null : LocalDate.ofEpochDay(ints[BIRTHDAY]));
+        user.setFriends(users.getSet(id));
+        return user;
+    }
+
+    private void checkExists(int id) {
+        if (users.version(id) < 0) {
+            throw notFound(id);
+        }
+    }
+
+    private static NotFoundException notFound(Integer id) {
+        return new NotFoundException("Пользователь с id=" + id + " не найден");
+    }
+
+    private void addIfPresent(List<User> result, Integer id) {
+        User user = find(id);
+        if (user != null) {
+            result.add(user);
+        }
+    }
+
+    /**
+     * Обходит пользователей по возрастанию id после after, пропуская id без записи.
+     */
+    private final class UserIterator implements Iterator<User> {
+        private int id;
+        private User next;
+
+        UserIterator(int after) {
+            this.id = after;
+        }
+
+        @Override
+        public boolean hasNext() {
+            while (next == null && id < users.maxId()) {
+                next = find(++id);
+            }
+            return next != null;
+        }
+
+        @Override
+        public User next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            User user = next;
+            next = null;
+            return user;
+        }
+    }
+}
@@ -0,0 +1,329 @@
+package ru.yandex.practicum.filmorate.storage.user;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.core.namedparam.SqlParameterSource;
+import org.springframework.jdbc.core.simple.SimpleJdbcInsert;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.jdbc.support.KeyHolder;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+import ru.yandex.practicum.filmorate.exception.NotFoundException;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.IntSet;
+import ru.yandex.practicum.filmorate.storage.IntSetRows;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.OptionalLong;
+import java.util.function.IntConsumer;
+
+/**
+ * Хранилище пользователей в реляционной БД. Дружба симметрична и хранится в friendships двумя строками,
+ * которые добавляются и удаляются одним пакетом.
+ */
+@Component
+@ConditionalOnProperty(name = "filmorate.storage", havingValue = "db")
+@Slf4j
+public class UserDbStorage implements UserStorage {
+    private static final String COLUMNS = "u.id, u.email, u.login, u.name, u.birthday";
+
+    private final NamedParameterJdbcTemplate jdbc;
+    private final SimpleJdbcInsert insert;
+
+    @Autowired
+    public UserDbStorage(NamedParameterJdbcTemplate jdbc) {
+        this.jdbc = jdbc;
+        this.insert = new SimpleJdbcInsert(jdbc.getJdbcTemplate())
+                .withTableName("users")
+                .usingColumns("email", "login", "name", "birthday")
+                .usingGeneratedKeyColumns("id");
+    }
+
+    @Override
+    @Transactional
+    public User create(User user) {
+        if (user.getName() == null || user.getName().isBlank()) {
+            user.setName(user.getLogin());
+        }
+        int id = insert.executeAndReturnKey(params(user)).intValue();
+        user.setId(id);
+        IntSet friends = IntSet.copyOf(user.getFriends());
+        user.setFriends(friends);
+        if (!friends.isEmpty()) {
+            List<Object[]> rows = new ArrayList<>(friends.size() * 2);
+            friends.forEachInt(friendId -> {
+                rows.add(new Object[]{id, friendId});
+                rows.add(new Object[]{friendId, id});
+            });
+            jdbc.getJdbcTemplate().batchUpdate(
+                    "MERGE INTO friendships (user_id, friend_id) KEY (user_id, friend_id) VALUES (?, ?)", rows);
+        }
+        return user;
+    }
+
+    @Override
+    @Transactional
+    public List<User> createAll(List<User> users) {
+        if (users.isEmpty()) {
+            return users;
+        }
+        SqlParameterSource[] rows = new SqlParameterSource[users.size()];
+        for (int i = 0; i < rows.length; i++) {
+            User user = users.get(i);
+            if (user.getName() == null || user.getName().isBlank()) {
+                user.setName(user.getLogin());
+            }
+            rows[i] = params(user);
+        }
+        KeyHolder keys = new GeneratedKeyHolder();
+        jdbc.batchUpdate("INSERT INTO users (email, login, name, birthday) "
+                + "VALUES (:email, :login, :name, :birthday)", rows, keys, new String[]{"id"});
+        List<Map<String, Object>> generated = keys.getKeyList();
+        List<Object[]> friendRows = new ArrayList<>();
+        for (int i = 0; i < rows.length; i++) {
+            User user = users.get(i);
+            int id = ((Number) generated.get(i).values().iterator().next()).intValue();
+            user.setId(id);
+            IntSet friends = IntSet.copyOf(user.getFriends());
+            user.setFriends(friends);
+            friends.forEachInt(friendId -> {
+                friendRows.add(new Object[]{id, friendId});
+                friendRows.add(new Object[]{friendId, id});
+            });
+        }
+        if (!friendRows.isEmpty()) {
+            jdbc.getJdbcTemplate().batchUpdate(
+                    "MERGE INTO friendships (user_id, friend_id) KEY (user_id, friend_id) VALUES (?, ?)", friendRows);
+        }
+        return users;
+    }
+
+    @Override
+    @Transactional
+    public User update(User user) {
+        User existing = getById(user.getId());
+        if (user.getEmail() != null && !user.getEmail().isBlank()) {
+            existing.setEmail(user.getEmail());
+        }
+        if (user.getLogin() != null && !user.getLogin().isBlank()) {
+            existing.setLogin(user.getLogin());
+        }
+        if (user.getName() != null) {
+            existing.setName(user.getName().isBlank() ? user.getLogin() : user.getName());
+        }
+        if (user.getBirthday() != null) {
+            existing.setBirthday(user.getBirthday());
+        }
+        jdbc.update("UPDATE users SET email = :email, login = :login, name = :name, birthday = :birthday "
+                + "WHERE id = :id", params(existing).addValue("id", existing.getId()));
+        return existing;
+    }
+
+    @Override
+    public User getById(Integer id) {
+        List<User> found = select("WHERE u.id = :id", new MapSqlParameterSource("id", id));
+        if (found.isEmpty()) {
+            throw new NotFoundException("Пользователь с id=" + id + " не найден");
+        }
+        return found.get(0);
+    }
+
+    @Override
+    public List<User> getByIds(Collection<Integer> ids) {
+        if (ids.isEmpty()) {
+            return List.of();
+        }
+        Map<Integer, User> byId = new HashMap<>();
+        for (User user : select("WHERE u.id IN (:ids)", new MapSqlParameterSource("ids", ids))) {
+            byId.put(user.getId(), user);
+        }
+        List<User> result = new ArrayList<>(byId.size());
+        for (Integer id : ids) {
+            User user = byId.get(id);
+            if (user != null) {
+                result.add(user);
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public Collection<User> getAll() {
+        List<User> users = jdbc.query("SELECT " + COLUMNS + " FROM users u ORDER BY u.id", UserDbStorage::mapRow);
+        Map<Integer, IntSet> friends = IntSetRows.query(jdbc,
+                "SELECT user_id, friend_id FROM friendships ORDER BY user_id", new MapSqlParameterSource());
+        for (User user : users) {
+            user.setFriends(friends.getOrDefault(user.getId(), IntSet.EMPTY));
+        }
+        return users;
+    }
+
+    @Override
+    public List<User> getPage(Integer after, int limit) {
+        return select("WHERE u.id > :after ORDER BY u.id LIMIT :limit", new MapSqlParameterSource()
+                .addValue("after", after == null ? Integer.MIN_VALUE : after)
+                .addValue("limit", limit));
+    }
+
+    @Override
+    @Transactional
+    public boolean addFriend(Integer userId, Integer friendId) {
+        ensureExists(userId, friendId);
+        // MERGE ... KEY считает и совпавшие строки, а этот — только вставленные. Строки идут от меньшего id:
+        // встречный запрос на ту же дружбу столкнётся с этим на первой же строке и не вставит ни одной
+        int low = Math.min(userId, friendId);
+        int high = Math.max(userId, friendId);
+        try {
+            return changed(jdbc.getJdbcTemplate().batchUpdate("MERGE INTO friendships f "
+                            + "USING (VALUES (CAST(? AS INTEGER), CAST(? AS INTEGER))) v (user_id, friend_id) "
+                            + "ON f.user_id = v.user_id AND f.friend_id = v.friend_id "
+                            + "WHEN NOT MATCHED THEN INSERT (user_id, friend_id) VALUES (v.user_id, v.friend_id)",
+                    List.of(new Object[]{low, high}, new Object[]{high, low})));
+        } catch (DuplicateKeyException e) {
+            // Ту же дружбу одновременно вставил другой запрос: изменение его, а не этого
+            return false;
+        }
+    }
+
+    @Override
+    @Transactional
+    public void addFriends(int[] userIds, int[] friendIds) {
+        List<Object[]> rows = new ArrayList<>(userIds.length * 2);
+        for (int i = 0; i < userIds.length; i++) {
+            rows.add(new Object[]{userIds[i], friendIds[i]});
+            rows.add(new Object[]{friendIds[i], userIds[i]});
+        }
+        jdbc.getJdbcTemplate().batchUpdate(
+                "MERGE INTO friendships (user_id, friend_id) KEY (user_id, friend_id) VALUES (?, ?)", rows);
+    }
+
+    @Override
+    @Transactional
+    public boolean removeFriend(Integer userId, Integer friendId) {
+        ensureExists(userId, friendId);
+        return changed(jdbc.getJdbcTemplate().batchUpdate(
+                "DELETE FROM friendships WHERE user_id = ? AND friend_id = ?",
+                List.of(new Object[]{userId, friendId}, new Object[]{friendId, userId})));
+    }
+
+    @Override
+    public List<User> getCommonFriends(Integer userId, Integer otherId, Integer after, int limit) {
+        ensureExists(userId, otherId);
+        // Пересечение идёт по первичному ключу friendships: строки друзей первого пользователя
+        // проверяются точечным поиском у второго, таблица users читается только для результата
+        return select("JOIN (SELECT a.friend_id FROM friendships a "
+                        + "JOIN friendships b ON b.user_id = :other_id AND b.friend_id = a.friend_id "
+                        + "WHERE a.user_id = :user_id AND a.friend_id > :after "
+                        + "ORDER BY a.friend_id LIMIT :limit) c ON c.friend_id = u.id ORDER BY u.id",
+                new MapSqlParameterSource()
+                        .addValue("user_id", userId)
+                        .addValue("other_id", otherId)
+                        .addValue("after", after == null ? Integer.MIN_VALUE : after)
+                        .addValue("limit", limit));
+    }
+
+    @Override
+    public Map<Integer, IntSet> getFriendIds(Collection<Integer> userIds) {
+        if (userIds.isEmpty()) {
+            return Map.of();
+        }
+        return IntSetRows.query(jdbc,
+                "SELECT user_id, friend_id FROM friendships WHERE user_id IN (:ids) ORDER BY user_id",
+                new MapSqlParameterSource("ids", userIds));
+    }
+
+    @Override
+    public void forEachFriendCount(IntConsumer action) {
+        jdbc.getJdbcTemplate().query("SELECT COUNT(f.friend_id) FROM users u "
+                + "LEFT JOIN friendships f ON f.user_id = u.id GROUP BY u.id", rs -> {
+            action.accept(rs.getInt(1));
+        });
+    }
+
+    /**
+     * Без версий: счётчик в памяти не увидит изменений, сделанных в базе другим экземпляром приложения.
+     */
+    @Override
+    public OptionalLong getVersion(Integer id) {
+        return OptionalLong.empty();
+    }
+
+    @Override
+    public OptionalLong getCatalogVersion() {
+        return OptionalLong.empty();
+    }
+
+    @Override
+    public OptionalLong getFriendsVersion(Integer id) {
+        return OptionalLong.empty();
+    }
+
+    /**
+     * Выбирает пользователей по условию и одним запросом подгружает их друзей.
+     */
+    private List<User> select(String condition, MapSqlParameterSource params) {
+        List<User> users = jdbc.query("SELECT " + COLUMNS + " FROM users u " + condition, params, UserDbStorage::mapRow);
+        if (users.isEmpty()) {
+            return users;
+        }
+        List<Integer> ids = new ArrayList<>(users.size());
+        for (User user : users) {
+            ids.add(user.getId());
+        }
+        Map<Integer, IntSet> friends = IntSetRows.query(jdbc,
+                "SELECT user_id, friend_id FROM friendships WHERE user_id IN (:ids) ORDER BY user_id",
+                new MapSqlParameterSource("ids", ids));
+        for (User user : users) {
+            user.setFriends(friends.getOrDefault(user.getId(), IntSet.EMPTY));
+        }
+        return users;
+    }
+
+    private static boolean changed(int[] counts) {
+        for (int count : counts) {
+            if (count > 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void ensureExists(Integer first, Integer second) {
+        Integer found = jdbc.queryForObject("SELECT COUNT(*) FROM users WHERE id IN (:first, :second)",
+                new MapSqlParameterSource().addValue("first", first).addValue("second", second), Integer.class);
+        if (found == null || found < (first.equals(second) ? 1 : 2)) {
+            Integer missing = jdbc.queryForObject("SELECT COUNT(*) FROM users WHERE id = :id",
+                    new MapSqlParameterSource("id", first), Integer.class) == 0 ? first : second;
+            throw new NotFoundException("Пользователь с id=" + missing + " не найден");
+        }
+    }
+
+    private static MapSqlParameterSource params(User user) {
+        return new MapSqlParameterSource()
+                .addValue("email", user.getEmail())
+                .addValue("login", user.getLogin())
+                .addValue("name", user.getName())
+                .addValue("birthday", user.getBirthday());
+    }
+
+    private static User mapRow(ResultSet rs, int rowNum) throws SQLException {
+        User user = new User();
+        user.setId(rs.getInt("id"));
+        user.setEmail(rs.getString("email"));
+        user.setLogin(rs.getString("login"));
+        user.setName(rs.getString("name"));
+        user.setBirthday(rs.getObject("birthday", LocalDate.class));
+        return user;
+    }
+}
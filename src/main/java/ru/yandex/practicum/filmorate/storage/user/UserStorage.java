@@ -1,17 +1,87 @@
 package ru.yandex.practicum.filmorate.storage.user;
 
 import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.IntSet;
 
 import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.OptionalLong;
+import java.util.function.IntConsumer;
 
 public interface UserStorage {
     User create(User user);
 
+    /**
+     * Создаёт пользователей пачкой в порядке списка, вместе с друзьями из тел: одно ожидание журнала
+     * или один пакет вставок на всю пачку вместо отдельного на каждого пользователя.
+     */
+    List<User> createAll(List<User> users);
+
     User update(User user);
 
     User getById(Integer id);
 
+    /**
+     * Пользователи с указанными id в том же порядке; отсутствующие id пропускаются.
+     */
+    List<User> getByIds(Collection<Integer> ids);
+
     Collection<User> getAll();
-}
 
+    /**
+     * Страница пользователей в порядке создания, начиная со следующего после пользователя after (null — с начала).
+     */
+    List<User> getPage(Integer after, int limit);
+
+    /**
+     * Добавляет взаимную дружбу; false — если пользователи уже дружили и ничего не изменилось.
+     */
+    boolean addFriend(Integer userId, Integer friendId);
+
+    /**
+     * Снимает дружбу с обеих сторон; false — если пользователи не дружили.
+     */
+    boolean removeFriend(Integer userId, Integer friendId);
+
+    /**
+     * Добавляет дружбы пачкой: userIds[i] — friendIds[i]; каждая дружба, как и в addFriend, взаимна.
+     * Если какого-то пользователя нет, пачка не применяется вовсе.
+     */
+    void addFriends(int[] userIds, int[] friendIds);
+
+    /**
+     * Общие друзья двух пользователей по возрастанию id, начиная со следующего после after (null — с начала).
+     */
+    List<User> getCommonFriends(Integer userId, Integer otherId, Integer after, int limit);
+
+    /**
+     * Друзья указанных пользователей без загрузки самих пользователей: id → множество id друзей.
+     * Отсутствующие пользователи и пользователи без друзей в результат не попадают.
+     */
+    Map<Integer, IntSet> getFriendIds(Collection<Integer> userIds);
+
+    /**
+     * Версия пользователя для условных запросов: меняется при любом изменении пользователя, включая дружбы.
+     * Пусто, если пользователя нет или хранилище версий не ведёт.
+     */
+    OptionalLong getVersion(Integer id);
+
+    /**
+     * Версия списка пользователей: меняется при любом изменении любого пользователя.
+     * Пусто, если хранилище версий не ведёт.
+     */
+    OptionalLong getCatalogVersion();
+
+    /**
+     * Версия списка друзей пользователя: меняется при изменении его дружб и при изменении любого из друзей.
+     * Пусто, если пользователя нет или хранилище версий не ведёт.
+     */
+    OptionalLong getFriendsVersion(Integer id);
+
+    /**
+     * Передаёт число друзей каждого пользователя — для метрик размера каталога и распределения друзей.
+     */
+    void forEachFriendCount(IntConsumer action);
+}
 
@@ -0,0 +1,37 @@
+CREATE TABLE IF NOT EXISTS films (
+    id           INTEGER GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    name         VARCHAR(255) NOT NULL,
+    description  VARCHAR(200),
+    release_date DATE,
+    duration     INTEGER
+);
+
+CREATE TABLE IF NOT EXISTS users (
+    id       INTEGER GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    email    VARCHAR(255) NOT NULL,
+    login    VARCHAR(255) NOT NULL,
+    name     VARCHAR(255),
+    birthday DATE
+);
+
+CREATE TABLE IF NOT EXISTS likes (
+    film_id    INTEGER NOT NULL REFERENCES films (id) ON DELETE CASCADE,
+    user_id    INTEGER NOT NULL REFERENCES users (id) ON DELETE CASCADE,
+    created_at TIMESTAMP WITH TIME ZONE DEFAULT CURRENT_TIMESTAMP NOT NULL,
+    PRIMARY KEY (film_id, user_id)
+);
+
+-- Файловые базы из версий без времени лайка: старые лайки получают время обновления схемы
+ALTER TABLE likes ADD COLUMN IF NOT EXISTS created_at TIMESTAMP WITH TIME ZONE DEFAULT CURRENT_TIMESTAMP NOT NULL;
+
+-- Дружба симметрична и хранится двумя строками, чтобы друзья любого пользователя читались по первичному ключу
+CREATE TABLE IF NOT EXISTS friendships (
+    user_id   INTEGER NOT NULL REFERENCES users (id) ON DELETE CASCADE,
+    friend_id INTEGER NOT NULL REFERENCES users (id) ON DELETE CASCADE,
+    PRIMARY KEY (user_id, friend_id)
+);
+
+CREATE INDEX IF NOT EXISTS likes_user_id ON likes (user_id);
+
+-- Популярное за окно читает только лайки за это окно
+CREATE INDEX IF NOT EXISTS likes_created_at ON likes (created_at);
@@ -0,0 +1,58 @@
+package ru.yandex.practicum.filmorate.controller;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.web.servlet.MockMvc;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_CLASS)
+class DumpControllerTest {
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Test
+    @DisplayName("GET /dump отдаёт двоичный дамп, POST /dump загружает его обратно")
+    void dump_roundTrip() throws Exception {
+        mockMvc.perform(post("/import/users").contentType(MediaType.APPLICATION_NDJSON).content("""
+                        {"email":"first@mail.ru","login":"first","birthday":"2000-01-01"}
+                        {"email":"second@mail.ru","login":"second","birthday":"2000-01-01"}
+                        """))
+                .andExpect(status().isOk());
+        mockMvc.perform(post("/import/films").contentType(MediaType.APPLICATION_NDJSON)
+                        .content("{\"name\":\"Фильм\",\"releaseDate\":\"2000-01-01\",\"duration\":100,\"likes\":[2]}\n"))
+                .andExpect(status().isOk());
+        mockMvc.perform(put("/users/1/friends/2")).andExpect(status().isOk());
+
+        byte[] dump = mockMvc.perform(get("/dump"))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_OCTET_STREAM))
+                .andReturn().getResponse().getContentAsByteArray();
+        mockMvc.perform(post("/dump").contentType(MediaType.APPLICATION_OCTET_STREAM).content(dump))
+                .andExpect(status().isOk())
+                .andExpect(header().string("X-Event-Sequence", "2"))
+                .andExpect(jsonPath("$.users").value(2))
+                .andExpect(jsonPath("$.films").value(1))
+                .andExpect(jsonPath("$.likes").value(1))
+                .andExpect(jsonPath("$.friendships").value(1))
+                .andExpect(jsonPath("$.bytes").value(dump.length));
+
+        mockMvc.perform(get("/users/3")).andExpect(jsonPath("$.friends[0]").value(4));
+        mockMvc.perform(get("/films/2")).andExpect(jsonPath("$.likes[0]").value(4));
+        mockMvc.perform(post("/dump").contentType(MediaType.APPLICATION_OCTET_STREAM).content(new byte[]{1, 2}))
+                .andExpect(status().isBadRequest());
+    }
+}
@@ -10,24 +10,32 @@ import org.springframework.context.annotation.Import;
 import org.springframework.http.MediaType;
 import org.springframework.test.annotation.DirtiesContext;
 import org.springframework.test.web.servlet.MockMvc;
+import ru.yandex.practicum.filmorate.event.EventPipeline;
 import ru.yandex.practicum.filmorate.exception.NotFoundException;
 import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.service.FilmRecommendationService;
 import ru.yandex.practicum.filmorate.service.FilmService;
 import ru.yandex.practicum.filmorate.storage.film.FilmStorage;
 import ru.yandex.practicum.filmorate.storage.user.UserStorage;
 
 import java.time.LocalDate;
 import java.util.Map;
+import java.util.OptionalLong;
 
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 @WebMvcTest(FilmController.class)
 @DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_EACH_TEST_METHOD)
-@Import(FilmService.class)
+@Import({FilmService.class, FilmRecommendationService.class, EventPipeline.class})
 class FilmControllerTest {
 
     @Autowired
@@ -147,6 +155,114 @@ class FilmControllerTest {
                 .andExpect(status().isOk());
     }
 
+    @Test
+    @DisplayName("GET /films?after=&limit= — страница после указанного id")
+    void getFilms_page_returnsPageFromStorage() throws Exception {
+        Film film = new Film();
+        film.setId(3);
+        film.setName("Name");
+        when(filmStorage.getPage(2, 1)).thenReturn(java.util.List.of(film));
+        mockMvc.perform(get("/films").param("after", "2").param("limit", "1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(1))
+                .andExpect(jsonPath("$[0].id").value(3));
+    }
+
+    @Test
+    @DisplayName("GET /films?limit=0 — 400 при недопустимом размере страницы")
+    void getFilms_invalidLimit_returnsBadRequest() throws Exception {
+        mockMvc.perform(get("/films").param("limit", "0"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    @DisplayName("GET /films/popular?window= — популярное за окно, 400 при нулевом окне и count вне 1..1000")
+    void getPopular_window_returnsTrendingFromStorage() throws Exception {
+        Film film = new Film();
+        film.setId(5);
+        when(filmStorage.getTrending(java.time.Duration.ofHours(24), 3)).thenReturn(java.util.List.of(film));
+        mockMvc.perform(get("/films/popular").param("window", "24h").param("count", "3"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].id").value(5));
+        mockMvc.perform(get("/films/popular").param("window", "0s"))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(get("/films/popular").param("window", "сутки"))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(get("/films/popular").param("window", "24h").param("count", "2000000000"))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(get("/films/popular").param("window", "24h").param("count", "0"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    @DisplayName("GET /films/{id} — 304 по If-None-Match без загрузки фильма, новый ETag после изменения")
+    void getFilm_ifNoneMatch_returnsNotModified() throws Exception {
+        Film film = new Film();
+        film.setId(1);
+        film.setName("Name");
+        when(filmStorage.getById(1)).thenReturn(film);
+        when(filmStorage.getVersion(1)).thenReturn(OptionalLong.of(7));
+        String etag = mockMvc.perform(get("/films/1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.name").value("Name"))
+                .andReturn().getResponse().getHeader("ETag");
+        assertNotNull(etag);
+
+        mockMvc.perform(get("/films/1").header("If-None-Match", etag))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string("ETag", etag));
+        verify(filmStorage, times(1)).getById(1);
+
+        when(filmStorage.getVersion(1)).thenReturn(OptionalLong.of(8));
+        String changed = mockMvc.perform(get("/films/1").header("If-None-Match", etag))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader("ETag");
+        assertNotEquals(etag, changed);
+    }
+
+    @Test
+    @DisplayName("GET /films/{id} — повторный запрос той же версии отдаёт закэшированные байты, новая версия — новые")
+    void getFilm_sameVersion_servesCachedBytes() throws Exception {
+        Film film = new Film();
+        film.setId(1);
+        film.setName("Name");
+        when(filmStorage.getById(1)).thenReturn(film);
+        when(filmStorage.getVersion(1)).thenReturn(OptionalLong.of(1));
+        for (int i = 0; i < 3; i++) {
+            mockMvc.perform(get("/films/1"))
+                    .andExpect(status().isOk())
+                    .andExpect(header().string("Content-Type", MediaType.APPLICATION_JSON_VALUE))
+                    .andExpect(jsonPath("$.name").value("Name"));
+        }
+        verify(filmStorage, times(1)).getById(1);
+
+        Film renamed = new Film();
+        renamed.setId(1);
+        renamed.setName("Renamed");
+        when(filmStorage.getById(1)).thenReturn(renamed);
+        when(filmStorage.getVersion(1)).thenReturn(OptionalLong.of(2));
+        mockMvc.perform(get("/films/1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.name").value("Renamed"));
+    }
+
+    @Test
+    @DisplayName("GET /films/popular — ETag по версии каталога; без версии в хранилище заголовка нет")
+    void getPopular_catalogVersion_setsETag() throws Exception {
+        when(filmStorage.getPopular(10)).thenReturn(java.util.List.of());
+        mockMvc.perform(get("/films/popular"))
+                .andExpect(status().isOk())
+                .andExpect(header().doesNotExist("ETag"));
+
+        when(filmStorage.getCatalogVersion()).thenReturn(OptionalLong.of(3));
+        String etag = mockMvc.perform(get("/films/popular"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader("ETag");
+        mockMvc.perform(get("/films/popular").header("If-None-Match", etag))
+                .andExpect(status().isNotModified());
+        verify(filmStorage, times(2)).getPopular(10);
+    }
+
     @Test
     @DisplayName("PUT /films — 200 при обновлении только с id (остальные поля не обновляются)")
     void updateFilm_onlyId_returnsOk() throws Exception {
@@ -0,0 +1,91 @@
+package ru.yandex.practicum.filmorate.controller;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.web.servlet.MockMvc;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest(properties = "filmorate.import.batch-size=2")
+@AutoConfigureMockMvc
+@DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_EACH_TEST_METHOD)
+class ImportControllerTest {
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Test
+    @DisplayName("POST /import — CSV и NDJSON, ошибки по строкам не прерывают импорт")
+    void import_reportsPerRecordErrors() throws Exception {
+        String users = """
+                email,login,name,birthday
+                first@mail.ru,first,"Первый, старший",2000-01-01
+                not-an-email,second,,2000-01-01
+                third@mail.ru,third,,2000-01-01
+                """;
+        mockMvc.perform(post("/import/users").contentType(MediaType.parseMediaType("text/csv")).content(users))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.records").value(3))
+                .andExpect(jsonPath("$.imported").value(2))
+                .andExpect(jsonPath("$.rejected").value(1))
+                .andExpect(jsonPath("$.errors[0].line").value(3))
+                .andExpect(jsonPath("$.errors[0].message")
+                        .value("Электронная почта должна содержать символ @ и быть корректной"));
+
+        String films = """
+                {"name":"Фильм","releaseDate":"2000-01-01","duration":100}
+                {"name":" ","releaseDate":"2000-01-01","duration":100}
+                {"name":
+                {"name":"Второй","releaseDate":"2001-01-01","duration":90,"likes":[1]}
+                """;
+        mockMvc.perform(post("/import/films").contentType(MediaType.APPLICATION_NDJSON).content(films))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.imported").value(2))
+                .andExpect(jsonPath("$.errors[0].line").value(2))
+                .andExpect(jsonPath("$.errors[0].message").value("Название фильма не может быть пустым"))
+                .andExpect(jsonPath("$.errors[1].line").value(3));
+
+        String likes = """
+                filmId,userId
+                1,1
+                1,2
+                7,1
+                """;
+        mockMvc.perform(post("/import/likes").contentType(MediaType.parseMediaType("text/csv")).content(likes))
+                .andExpect(status().isOk())
+                .andExpect(header().string("X-Event-Sequence", "1"))
+                .andExpect(jsonPath("$.imported").value(2))
+                .andExpect(jsonPath("$.errors[0].line").value(4))
+                .andExpect(jsonPath("$.errors[0].message").value("Фильм с id=7 не найден"));
+        mockMvc.perform(post("/import/friends").contentType(MediaType.APPLICATION_NDJSON)
+                        .content("{\"userId\":1,\"friendId\":2}\n{\"userId\":1,\"friendId\":3}\n"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("X-Event-Sequence", "2"))
+                .andExpect(jsonPath("$.imported").value(1))
+                .andExpect(jsonPath("$.errors[0].message").value("Пользователь с id=3 не найден"))
+                .andExpect(jsonPath("$.eventSequence").doesNotExist());
+
+        mockMvc.perform(get("/users/1"))
+                .andExpect(jsonPath("$.name").value("Первый, старший"))
+                .andExpect(jsonPath("$.friends[0]").value(2));
+        mockMvc.perform(get("/films/popular").param("count", "1"))
+                .andExpect(jsonPath("$[0].id").value(1))
+                .andExpect(jsonPath("$[0].likes.length()").value(2));
+        mockMvc.perform(get("/films/2")).andExpect(jsonPath("$.likes[0]").value(1));
+    }
+
+    @Test
+    @DisplayName("POST /import — 415 для формата, отличного от NDJSON и CSV")
+    void import_unsupportedFormat_returnsUnsupportedMediaType() throws Exception {
+        mockMvc.perform(post("/import/films").contentType(MediaType.APPLICATION_JSON).content("[]"))
+                .andExpect(status().isUnsupportedMediaType());
+    }
+}
@@ -10,23 +10,37 @@ import org.springframework.context.annotation.Import;
 import org.springframework.http.MediaType;
 import org.springframework.test.annotation.DirtiesContext;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import ru.yandex.practicum.filmorate.event.EventPipeline;
 import ru.yandex.practicum.filmorate.exception.NotFoundException;
+import ru.yandex.practicum.filmorate.model.Film;
 import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.service.FilmRecommendationService;
+import ru.yandex.practicum.filmorate.service.FilmService;
+import ru.yandex.practicum.filmorate.service.RecommendationService;
 import ru.yandex.practicum.filmorate.service.UserService;
+import ru.yandex.practicum.filmorate.storage.IntSet;
+import ru.yandex.practicum.filmorate.storage.film.FilmStorage;
 import ru.yandex.practicum.filmorate.storage.user.UserStorage;
 
 import java.time.LocalDate;
+import java.util.List;
 import java.util.Map;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.when;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 @WebMvcTest(UserController.class)
 @DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_EACH_TEST_METHOD)
-@Import(UserService.class)
+@Import({UserService.class, FilmService.class, RecommendationService.class, FilmRecommendationService.class,
+        EventPipeline.class})
 class UserControllerTest {
 
     @Autowired
@@ -38,6 +52,12 @@ class UserControllerTest {
     @MockBean
     private UserStorage userStorage;
 
+    @MockBean
+    private FilmStorage filmStorage;
+
+    @Autowired
+    private FilmRecommendationService filmRecommendationService;
+
     @Test
     @DisplayName("POST /users — 400 при пустом теле запроса")
     void createUser_emptyBody_returnsBadRequest() throws Exception {
@@ -126,6 +146,115 @@ class UserControllerTest {
                 .andExpect(status().isOk());
     }
 
+    @Test
+    @DisplayName("GET /users?stream=ndjson — по одному пользователю в строке")
+    void getUsers_ndjsonStream_writesOneUserPerLine() throws Exception {
+        User first = new User();
+        first.setId(1);
+        first.setLogin("first");
+        User second = new User();
+        second.setId(2);
+        second.setLogin("second");
+        when(userStorage.getPage(null, 1000)).thenReturn(java.util.List.of(first, second));
+        MvcResult result = mockMvc.perform(get("/users").param("stream", "ndjson"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        String body = mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_NDJSON))
+                .andReturn().getResponse().getContentAsString();
+        String[] lines = body.split("\n");
+        assertEquals(2, lines.length);
+        assertEquals(2, objectMapper.readValue(lines[1], User.class).getId());
+    }
+
+    @Test
+    @DisplayName("GET /users/{id}/recommendations — друзья друзей по числу общих друзей")
+    void getRecommendations_ranksFriendsOfFriends() throws Exception {
+        User user = new User();
+        user.setId(1);
+        user.setFriends(IntSet.of(2, 3));
+        User candidate = new User();
+        candidate.setId(4);
+        candidate.setLogin("candidate");
+        User other = new User();
+        other.setId(5);
+        other.setLogin("other");
+        when(userStorage.getById(1)).thenReturn(user);
+        when(userStorage.getFriendIds(IntSet.of(2, 3)))
+                .thenReturn(Map.of(2, IntSet.of(1, 3, 4, 5), 3, IntSet.of(1, 4)));
+        when(userStorage.getByIds(List.of(4, 5))).thenReturn(List.of(candidate, other));
+        mockMvc.perform(get("/users/1/recommendations").param("count", "2"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].id").value(4))
+                .andExpect(jsonPath("$[1].id").value(5));
+        mockMvc.perform(get("/users/1/recommendations").param("count", "0"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    @DisplayName("GET /users/{id}/likes — страница лайкнутых фильмов, 404 для неизвестного пользователя")
+    void getLikedFilms_returnsPage() throws Exception {
+        Film liked = new Film();
+        liked.setId(3);
+        when(userStorage.getById(1)).thenReturn(new User());
+        when(userStorage.getById(2)).thenThrow(new NotFoundException("Пользователь с id=2 не найден"));
+        when(filmStorage.getLikedFilms(1, 2, 5)).thenReturn(List.of(liked));
+        mockMvc.perform(get("/users/1/likes").param("after", "2").param("limit", "5"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].id").value(3));
+        mockMvc.perform(get("/users/2/likes"))
+                .andExpect(status().isNotFound());
+        mockMvc.perform(get("/users/1/likes").param("limit", "0"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    @DisplayName("PUT /users/{id}/friends/{friendId} — номер события в X-Event-Sequence, повтор события не публикует")
+    void addFriend_returnsEventSequence() throws Exception {
+        User user = new User();
+        user.setId(1);
+        when(userStorage.getById(1)).thenReturn(user);
+        when(userStorage.addFriend(1, 2)).thenReturn(true, false);
+        when(userStorage.removeFriend(1, 2)).thenReturn(true);
+        mockMvc.perform(put("/users/1/friends/2"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("X-Event-Sequence", "1"));
+        mockMvc.perform(put("/users/1/friends/2"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("X-Event-Sequence", "1"));
+        mockMvc.perform(delete("/users/1/friends/2"))
+                .andExpect(header().string("X-Event-Sequence", "2"));
+        mockMvc.perform(get("/users/1/recommendations").header("X-Event-Sequence", "2"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(0));
+    }
+
+    @Test
+    @DisplayName("GET /users/{id}/films/recommended — фильмы пользователя с похожими лайками")
+    void getRecommendedFilms_suggestsFilmsOfSimilarUser() throws Exception {
+        Film shared = new Film();
+        shared.setId(1);
+        shared.setLikes(IntSet.of(1, 2));
+        Film suggested = new Film();
+        suggested.setId(2);
+        suggested.setName("suggested");
+        suggested.setLikes(IntSet.of(2));
+        when(userStorage.getById(1)).thenReturn(new User());
+        when(filmStorage.getPage(null, 1000)).thenReturn(List.of(shared, suggested));
+        when(filmStorage.getPage(2, 1000)).thenReturn(List.of());
+        when(filmStorage.getByIds(List.of(2))).thenReturn(List.of(suggested));
+        when(filmStorage.getLikedFilmIds(List.of(1))).thenReturn(Map.of(1, IntSet.of(1)));
+        when(filmStorage.getLikedFilmIds(List.of(2))).thenReturn(Map.of(2, IntSet.of(1, 2)));
+        filmRecommendationService.rebuild();
+        filmRecommendationService.refresh();
+        mockMvc.perform(get("/users/1/films/recommended"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].id").value(2));
+        mockMvc.perform(get("/users/1/films/recommended").param("count", "101"))
+                .andExpect(status().isBadRequest());
+    }
+
     @Test
     @DisplayName("PUT /users — 200 при обновлении только с id (остальные поля не обновляются)")
     void updateUser_onlyId_returnsOk() throws Exception {
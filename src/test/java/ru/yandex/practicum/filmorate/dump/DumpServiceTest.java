@@ -0,0 +1,169 @@
+package ru.yandex.practicum.filmorate.dump;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import ru.yandex.practicum.filmorate.event.EventPipeline;
+import ru.yandex.practicum.filmorate.exception.ValidationException;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.service.FilmRecommendationService;
+import ru.yandex.practicum.filmorate.service.RecommendationService;
+import ru.yandex.practicum.filmorate.storage.film.InMemoryFilmStorage;
+import ru.yandex.practicum.filmorate.storage.user.InMemoryUserStorage;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class DumpServiceTest {
+    @TempDir
+    Path directory;
+
+    @Test
+    @DisplayName("Дамп загружается в непустое хранилище с новыми id, связи переводятся на них")
+    void exportImport_remapsIds() throws IOException {
+        InMemoryFilmStorage films = new InMemoryFilmStorage();
+        InMemoryUserStorage users = new InMemoryUserStorage();
+        int first = users.create(user("first", "Первый")).getId();
+        int second = users.create(user("second", null)).getId();
+        int third = users.create(user("third", "Третий")).getId();
+        users.addFriend(first, second);
+        users.addFriend(third, first);
+        Film film = new Film();
+        film.setName("Фильм");
+        film.setDescription("Описание со словом «ёлка»");
+        film.setReleaseDate(LocalDate.of(1895, 12, 28));
+        film.setDuration(100);
+        int filmId = films.create(film).getId();
+        films.addLike(filmId, third);
+        films.addLike(filmId, first);
+        Film bare = new Film();
+        bare.setName("Без даты");
+        films.create(bare);
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        DumpReport exported = service(films, users).export(Channels.newChannel(out));
+        assertEquals(new DumpReport(3, 2, 2, 2, 0, out.size(), exported.durationMs(), 0), exported);
+
+        InMemoryFilmStorage targetFilms = new InMemoryFilmStorage();
+        InMemoryUserStorage targetUsers = new InMemoryUserStorage();
+        targetUsers.create(user("existing", null));
+        DumpReport imported = service(targetFilms, targetUsers)
+                .importFrom(Channels.newChannel(new ByteArrayInputStream(out.toByteArray())));
+        assertEquals(3, imported.users());
+        assertEquals(2, imported.friendships());
+        assertEquals(out.size(), imported.bytes());
+        assertEquals(1, imported.eventSequence());
+
+        User restored = targetUsers.getById(first + 1);
+        assertEquals("first@mail.ru", restored.getEmail());
+        assertEquals("Первый", restored.getName());
+        assertEquals(Set.of(second + 1, third + 1), restored.getFriends());
+        assertEquals("second", targetUsers.getById(second + 1).getName());
+        Film restoredFilm = targetFilms.getById(filmId);
+        assertEquals(film.getDescription(), restoredFilm.getDescription());
+        assertEquals(film.getReleaseDate(), restoredFilm.getReleaseDate());
+        assertEquals(Set.of(first + 1, third + 1), restoredFilm.getLikes());
+        assertNull(targetFilms.getById(filmId + 1).getReleaseDate());
+        assertNull(targetFilms.getById(filmId + 1).getDuration());
+    }
+
+    @Test
+    @DisplayName("Пользователи, у которых id в порядке создания не растут, загружаются в том же порядке")
+    void exportImport_keepsCreationOrderOfUnorderedIds() throws IOException {
+        InMemoryUserStorage users = new InMemoryUserStorage();
+        for (int id : new int[]{7, 3, 5}) {
+            User user = user("user" + id, null);
+            user.setId(id);
+            users.restore(user);
+        }
+        users.addFriend(7, 3);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        service(new InMemoryFilmStorage(), users).export(Channels.newChannel(out));
+
+        InMemoryUserStorage targetUsers = new InMemoryUserStorage();
+        DumpReport imported = service(new InMemoryFilmStorage(), targetUsers)
+                .importFrom(Channels.newChannel(new ByteArrayInputStream(out.toByteArray())));
+        assertEquals(1, imported.friendships());
+        assertEquals(List.of("user7", "user3", "user5"), targetUsers.getAll().stream().map(User::getLogin).toList());
+        assertEquals(Set.of(2), targetUsers.getById(1).getFriends());
+    }
+
+    @Test
+    @DisplayName("Большие id пользователей переводятся на новые без массива по старому id")
+    void exportImport_largeUserIds() throws IOException {
+        InMemoryFilmStorage films = new InMemoryFilmStorage();
+        InMemoryUserStorage users = new InMemoryUserStorage();
+        int[] ids = {Integer.MAX_VALUE - 1, 1, 1 << 30};
+        for (int id : ids) {
+            User user = user("user" + id, null);
+            user.setId(id);
+            users.restore(user);
+        }
+        users.addFriend(ids[0], ids[2]);
+        Film film = new Film();
+        film.setName("Фильм");
+        int filmId = films.create(film).getId();
+        films.addLike(filmId, ids[0]);
+        films.addLike(filmId, ids[1]);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        service(films, users).export(Channels.newChannel(out));
+
+        InMemoryFilmStorage targetFilms = new InMemoryFilmStorage();
+        InMemoryUserStorage targetUsers = new InMemoryUserStorage();
+        DumpReport imported = service(targetFilms, targetUsers)
+                .importFrom(Channels.newChannel(new ByteArrayInputStream(out.toByteArray())));
+        assertEquals(0, imported.skipped());
+        assertEquals(Set.of(3), targetUsers.getById(1).getFriends());
+        assertEquals(Set.of(1, 2), targetFilms.getById(1).getLikes());
+    }
+
+    @Test
+    @DisplayName("Обрезанный дамп отклоняется, временные файлы выгрузки удаляются")
+    void truncatedDump_rejected() throws IOException {
+        InMemoryUserStorage users = new InMemoryUserStorage();
+        users.create(user("first", null));
+        DumpService service = service(new InMemoryFilmStorage(), users);
+        Path file = service.exportToFile();
+        byte[] bytes = Files.readAllBytes(file);
+
+        byte[] truncated = Arrays.copyOf(bytes, bytes.length - 2);
+        ValidationException e = assertThrows(ValidationException.class, () -> service(
+                new InMemoryFilmStorage(), new InMemoryUserStorage())
+                .importFrom(Channels.newChannel(new ByteArrayInputStream(truncated))));
+        assertEquals("Дамп повреждён: неожиданный конец", e.getMessage());
+
+        service.close();
+        assertFalse(Files.exists(file));
+    }
+
+    private DumpService service(InMemoryFilmStorage films, InMemoryUserStorage users) {
+        EventPipeline events = new EventPipeline(List.of(new RecommendationService(users, 1, Duration.ofSeconds(1),
+                100, 100), new FilmRecommendationService(films, users, 16, 4, 20, 100, Duration.ZERO)), 64, 16,
+                Duration.ofSeconds(1), false, Duration.ofSeconds(1));
+        return new DumpService(films, users, events, 2, directory.toString(), Duration.ofMinutes(10));
+    }
+
+    private static User user(String login, String name) {
+        User user = new User();
+        user.setEmail(login + "@mail.ru");
+        user.setLogin(login);
+        user.setName(name);
+        user.setBirthday(LocalDate.of(2000, 1, 1));
+        return user;
+    }
+}
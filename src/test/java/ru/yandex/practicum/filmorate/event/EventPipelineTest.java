@@ -0,0 +1,110 @@
+package ru.yandex.practicum.filmorate.event;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class EventPipelineTest {
+
+    @Test
+    @DisplayName("Каждый обработчик получает все события по порядку, пачками не больше batch-size")
+    void publish_deliversEventsInOrderToEveryHandler() throws InterruptedException {
+        Recording first = new Recording("first");
+        Recording second = new Recording("second");
+        EventPipeline events = new EventPipeline(List.of(first, second), 64, 16, Duration.ofSeconds(10), false,
+                Duration.ofSeconds(10));
+        try {
+            long last = 0;
+            for (int i = 1; i <= 1000; i++) {
+                last = events.publish(new DomainEvent.LikeChanged(i, i, true));
+            }
+            assertEquals(1000, last);
+            assertTrue(events.await(last));
+            for (Recording handler : List.of(first, second)) {
+                assertEquals(1000, handler.filmIds.size());
+                for (int i = 0; i < 1000; i++) {
+                    assertEquals(i + 1, handler.filmIds.get(i));
+                }
+                assertTrue(handler.maxBatch.get() <= 16);
+                assertEquals(0, events.lag(events.handlerNames().indexOf(handler.name())));
+            }
+        } finally {
+            events.close();
+        }
+    }
+
+    @Test
+    @DisplayName("Полная очередь: публикация ждёт не дольше publish-timeout, затем обработчик пересобирается")
+    void publish_fullBuffer_requestsResync() throws InterruptedException {
+        CountDownLatch release = new CountDownLatch(1);
+        Recording blocked = new Recording("blocked") {
+            @Override
+            public void handle(List<DomainEvent> batch) {
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                super.handle(batch);
+            }
+        };
+        EventPipeline events = new EventPipeline(List.of(blocked), 2, 1, Duration.ofMillis(20), false,
+                Duration.ofSeconds(10));
+        try {
+            events.publish(new DomainEvent.LikeChanged(1, 1, true));
+            events.publish(new DomainEvent.LikeChanged(2, 1, true));
+            long started = System.nanoTime();
+            events.publish(new DomainEvent.LikeChanged(3, 1, true));
+            assertTrue(System.nanoTime() - started >= TimeUnit.MILLISECONDS.toNanos(20));
+            assertEquals(1, events.overflows());
+            assertEquals(1, events.waits());
+            assertTrue(events.lag(0) > 0);
+
+            release.countDown();
+            assertTrue(events.await(events.publish(new DomainEvent.LikeChanged(4, 1, true))));
+            assertEquals(1, blocked.resyncs.get());
+            assertEquals(List.of(1, 2, 4), blocked.filmIds);
+        } finally {
+            release.countDown();
+            events.close();
+        }
+    }
+
+    private static class Recording implements DomainEventHandler {
+        private final String name;
+        final List<Integer> filmIds = new CopyOnWriteArrayList<>();
+        final AtomicInteger maxBatch = new AtomicInteger();
+        final AtomicInteger resyncs = new AtomicInteger();
+
+        Recording(String name) {
+            this.name = name;
+        }
+
+        @Override
+        public String name() {
+            return name;
+        }
+
+        @Override
+        public void handle(List<DomainEvent> batch) {
+            maxBatch.accumulateAndGet(batch.size(), Math::max);
+            for (DomainEvent event : batch) {
+                filmIds.add(((DomainEvent.LikeChanged) event).filmId());
+            }
+        }
+
+        @Override
+        public void resync() {
+            resyncs.incrementAndGet();
+        }
+    }
+}
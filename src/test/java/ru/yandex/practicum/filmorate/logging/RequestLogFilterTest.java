@@ -0,0 +1,60 @@
+package ru.yandex.practicum.filmorate.logging;
+
+import jakarta.servlet.http.HttpServletResponse;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.boot.test.system.CapturedOutput;
+import org.springframework.boot.test.system.OutputCaptureExtension;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@ExtendWith(OutputCaptureExtension.class)
+class RequestLogFilterTest {
+    @Test
+    @DisplayName("Тела в журнале обрезаются до max-body-size, клиент получает ответ целиком")
+    void sampledRequest_truncatesLoggedBodies(CapturedOutput output) throws Exception {
+        RequestLogFilter filter = new RequestLogFilter(1.0, 8, 16);
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/films");
+        request.setQueryString("after=1");
+        request.setContent("{\"name\":\"Фильм\"}".getBytes(StandardCharsets.UTF_8));
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        filter.doFilter(request, response, (req, resp) -> {
+            req.getInputStream().readAllBytes();
+            resp.getOutputStream().write("{\"id\":1,\"name\":\"Фильм\"}".getBytes(StandardCharsets.UTF_8));
+            ((HttpServletResponse) resp).setStatus(201);
+        });
+        filter.destroy();
+
+        assertEquals("{\"id\":1,\"name\":\"Фильм\"}", response.getContentAsString(StandardCharsets.UTF_8));
+        String line = output.getOut();
+        assertTrue(line.contains("\"method\":\"POST\",\"uri\":\"/films?after=1\",\"status\":201"), line);
+        assertTrue(line.contains("\"request_bytes\":21,\"request_body\":\"{\\\"name\\\":\",\"request_truncated\":true"), line);
+        assertTrue(line.contains("\"response_bytes\":28,\"response_body\":\"{\\\"id\\\":1,\",\"response_truncated\":true"), line);
+        assertEquals(0, filter.dropped());
+    }
+
+    @Test
+    @DisplayName("Запросы вне выборки проходят без обёрток и не пишутся в журнал")
+    void unsampledRequest_passesThrough(CapturedOutput output) throws Exception {
+        RequestLogFilter filter = new RequestLogFilter(0.0, 8, 16);
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/films");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        AtomicReference<Object> seen = new AtomicReference<>();
+
+        filter.doFilter(request, response, (req, resp) -> seen.set(req));
+        filter.destroy();
+
+        assertSame(request, seen.get());
+        assertFalse(output.getOut().contains("\"uri\":\"/films\""));
+    }
+}
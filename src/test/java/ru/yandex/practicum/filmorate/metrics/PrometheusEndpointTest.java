@@ -0,0 +1,58 @@
+package ru.yandex.practicum.filmorate.metrics;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.actuate.observability.AutoConfigureObservability;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+
+import static org.hamcrest.Matchers.containsString;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest(properties = {"filmorate.cache.enabled=true", "filmorate.metrics.storage-refresh=0s"})
+@AutoConfigureMockMvc
+@AutoConfigureObservability
+class PrometheusEndpointTest {
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Test
+    @DisplayName("GET /actuator/prometheus — таймеры запросов, сервисов и хранилищ, размеры каталога и кэша, "
+            + "очередь событий")
+    void prometheus_exposesFilmorateMetrics() throws Exception {
+        mockMvc.perform(post("/users").contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"email\":\"first@mail.ru\",\"login\":\"first\",\"birthday\":\"2000-01-01\"}"))
+                .andExpect(status().isOk());
+        mockMvc.perform(post("/users").contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"email\":\"second@mail.ru\",\"login\":\"second\",\"birthday\":\"2000-01-01\"}"))
+                .andExpect(status().isOk());
+        mockMvc.perform(put("/users/1/friends/2")).andExpect(status().isOk());
+        mockMvc.perform(get("/films/1")).andExpect(status().isNotFound());
+
+        mockMvc.perform(get("/actuator/prometheus"))
+                .andExpect(status().isOk())
+                .andExpect(content().string(containsString("http_server_requests_seconds_count{"
+                        + "error=\"none\",exception=\"none\",method=\"PUT\",outcome=\"SUCCESS\",status=\"200\","
+                        + "uri=\"/users/{id}/friends/{friendId}\",} 1.0")))
+                .andExpect(content().string(containsString("filmorate_service_seconds_count{"
+                        + "class=\"UserService\",exception=\"none\",method=\"addFriend\",} 1.0")))
+                .andExpect(content().string(containsString("filmorate_storage_seconds_count{"
+                        + "class=\"InMemoryFilmStorage\",exception=\"NotFoundException\",method=\"getById\",} 1.0")))
+                .andExpect(content().string(containsString("filmorate_users 2.0")))
+                .andExpect(content().string(containsString("filmorate_friendships 1.0")))
+                .andExpect(content().string(containsString("filmorate_user_friends_distribution{le=\"0\",} 0.0")))
+                .andExpect(content().string(containsString("filmorate_user_friends_distribution{le=\"1\",} 2.0")))
+                .andExpect(content().string(containsString("filmorate_cache_misses_total{cache=\"films\",} 1.0")))
+                .andExpect(content().string(containsString("filmorate_events_published_total 1.0")))
+                .andExpect(content().string(
+                        containsString("filmorate_events_lag{handler=\"friend-recommendations\",}")))
+                .andExpect(content().string(containsString("filmorate_events_lag_seconds{handler=")));
+    }
+}
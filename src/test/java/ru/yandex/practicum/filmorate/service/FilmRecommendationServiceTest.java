@@ -0,0 +1,137 @@
+package ru.yandex.practicum.filmorate.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.event.DomainEvent;
+import ru.yandex.practicum.filmorate.event.EventPipeline;
+import ru.yandex.practicum.filmorate.exception.NotFoundException;
+import ru.yandex.practicum.filmorate.exception.ValidationException;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.film.InMemoryFilmStorage;
+import ru.yandex.practicum.filmorate.storage.user.InMemoryUserStorage;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class FilmRecommendationServiceTest {
+    private InMemoryFilmStorage films;
+    private InMemoryUserStorage users;
+    private FilmRecommendationService recommendations;
+    private EventPipeline events;
+    private FilmService filmService;
+
+    @BeforeEach
+    void setUp() {
+        films = new InMemoryFilmStorage();
+        users = new InMemoryUserStorage();
+        recommendations = new FilmRecommendationService(films, users, 16, 4, 20, 100, Duration.ZERO);
+        events = new EventPipeline(List.of(recommendations), 1024, 64, Duration.ofMillis(100), false,
+                Duration.ofSeconds(10));
+        filmService = new FilmService(films, users, events);
+    }
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        events.close();
+    }
+
+    @Test
+    @DisplayName("Фильмы похожих пользователей, которых пользователь ещё не лайкнул, по сумме похожести")
+    void getRecommendations_suggestsFilmsOfSimilarUsers() {
+        int user = createUser("user");
+        int twin = createUser("twin");
+        int close = createUser("close");
+        int stranger = createUser("stranger");
+        int[] shared = {createFilm(), createFilm(), createFilm(), createFilm()};
+        int twinOnly = createFilm();
+        int bothOthers = createFilm();
+        int strangerOnly = createFilm();
+        for (int filmId : shared) {
+            films.addLike(filmId, user);
+            films.addLike(filmId, twin);
+            films.addLike(filmId, close);
+        }
+        films.addLike(twinOnly, twin);
+        films.addLike(bothOthers, twin);
+        films.addLike(bothOthers, close);
+        films.addLike(strangerOnly, stranger);
+        recommendations.refresh();
+
+        assertEquals(List.of(bothOthers, twinOnly), ids(recommendations.getRecommendations(user, 10)));
+        assertEquals(List.of(), recommendations.getRecommendations(createUser("nobody"), 10));
+        assertThrows(ValidationException.class, () -> recommendations.getRecommendations(user, 0));
+        assertThrows(NotFoundException.class, () -> recommendations.getRecommendations(-1, 10));
+    }
+
+    @Test
+    @DisplayName("Лайки через FilmService применяются событиями без перестройки индекса")
+    void likeChanges_appliedIncrementally() {
+        int user = createUser("user");
+        int other = createUser("other");
+        int first = createFilm();
+        int second = createFilm();
+        recommendations.refresh();
+        assertEquals(List.of(), recommendations.getRecommendations(user, 10));
+
+        filmService.addLike(first, user);
+        filmService.addLike(first, other);
+        assertTrue(events.await(filmService.addLike(second, other)));
+        assertEquals(List.of(second), ids(recommendations.getRecommendations(user, 10)));
+
+        assertTrue(events.await(filmService.addLike(second, user)));
+        assertEquals(List.of(), recommendations.getRecommendations(user, 10));
+    }
+
+    @Test
+    @DisplayName("События лайка и его снятия, пришедшие в обратном порядке, не расходятся с хранилищем")
+    void reorderedLikeEvents_followStorage() {
+        int user = createUser("user");
+        int other = createUser("other");
+        int first = createFilm();
+        int second = createFilm();
+        recommendations.refresh();
+
+        films.addLike(first, user);
+        films.addLike(first, other);
+        films.addLike(second, other);
+        films.addLike(second, user);
+        films.removeLike(second, user);
+        // Снятие опубликовали раньше лайка: в хранилище лайка уже нет
+        recommendations.handle(List.of(
+                new DomainEvent.LikeChanged(first, user, true),
+                new DomainEvent.LikeChanged(first, other, true),
+                new DomainEvent.LikeChanged(second, other, true),
+                new DomainEvent.LikeChanged(second, user, false),
+                new DomainEvent.LikeChanged(second, user, true)));
+
+        assertEquals(List.of(second), ids(recommendations.getRecommendations(user, 10)));
+    }
+
+    private int createUser(String login) {
+        User user = new User();
+        user.setEmail(login + "@mail.ru");
+        user.setLogin(login);
+        user.setBirthday(LocalDate.of(2000, 1, 1));
+        return users.create(user).getId();
+    }
+
+    private int createFilm() {
+        Film film = new Film();
+        film.setName("Фильм");
+        film.setReleaseDate(LocalDate.of(2000, 1, 1));
+        film.setDuration(100);
+        return films.create(film).getId();
+    }
+
+    private static List<Integer> ids(List<Film> films) {
+        return films.stream().map(Film::getId).toList();
+    }
+}
@@ -0,0 +1,171 @@
+package ru.yandex.practicum.filmorate.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.event.EventPipeline;
+import ru.yandex.practicum.filmorate.exception.ValidationException;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.film.InMemoryFilmStorage;
+import ru.yandex.practicum.filmorate.storage.user.InMemoryUserStorage;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class RecommendationServiceTest {
+    private InMemoryUserStorage storage;
+    private RecommendationService recommendations;
+    private EventPipeline events;
+    private UserService userService;
+
+    @BeforeEach
+    void setUp() {
+        storage = new InMemoryUserStorage();
+        recommendations = new RecommendationService(storage, 1, Duration.ofSeconds(10), 100, 100);
+        // Изменение дружбы отвечает, когда кэш рекомендаций уже сброшен
+        events = new EventPipeline(List.of(recommendations), 1024, 64, Duration.ofMillis(100), true,
+                Duration.ofSeconds(10));
+        userService = new UserService(storage, recommendations,
+                new FilmRecommendationService(new InMemoryFilmStorage(), storage, 16, 4, 20, 100, Duration.ZERO),
+                events);
+    }
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        events.close();
+        recommendations.close();
+    }
+
+    @Test
+    @DisplayName("Друзья друзей по числу общих друзей, при равенстве по id; сам пользователь и его друзья исключены")
+    void getRecommendations_ranksByMutualFriends() {
+        int user = create("user");
+        int first = create("first");
+        int second = create("second");
+        int both = create("both");
+        int onlyFirst = create("onlyFirst");
+        int onlySecond = create("onlySecond");
+        userService.addFriend(user, first);
+        userService.addFriend(user, second);
+        userService.addFriend(first, second);
+        userService.addFriend(first, both);
+        userService.addFriend(second, both);
+        userService.addFriend(first, onlyFirst);
+        userService.addFriend(second, onlySecond);
+
+        assertEquals(List.of(both, onlyFirst, onlySecond), ids(userService.getRecommendations(user, 10)));
+        assertEquals(List.of(both), ids(userService.getRecommendations(user, 1)));
+        assertThrows(ValidationException.class, () -> userService.getRecommendations(user, 101));
+    }
+
+    @Test
+    @DisplayName("Кандидаты с id у верхней границы int считаются наравне с остальными")
+    void getRecommendations_countsLargeIds() {
+        int user = create("user");
+        int friend = create("friend");
+        int other = create("other");
+        int[] large = {Integer.MAX_VALUE - 1, Integer.MAX_VALUE - 70_000};
+        for (int id : large) {
+            User candidate = user("large" + id);
+            candidate.setId(id);
+            storage.restore(candidate);
+        }
+        userService.addFriend(user, friend);
+        userService.addFriend(user, other);
+        userService.addFriend(friend, large[0]);
+        userService.addFriend(other, large[0]);
+        userService.addFriend(friend, large[1]);
+
+        assertEquals(List.of(large[0], large[1]), ids(userService.getRecommendations(user, 10)));
+    }
+
+    @Test
+    @DisplayName("Изменение дружбы у друга сбрасывает закэшированные рекомендации")
+    void addRemoveFriend_invalidatesCachedRecommendations() {
+        int user = create("user");
+        int friend = create("friend");
+        int candidate = create("candidate");
+        userService.addFriend(user, friend);
+        assertEquals(List.of(), ids(userService.getRecommendations(user, 10)));
+
+        userService.addFriend(friend, candidate);
+        assertEquals(List.of(candidate), ids(userService.getRecommendations(user, 10)));
+
+        userService.removeFriend(candidate, friend);
+        assertEquals(List.of(), ids(userService.getRecommendations(user, 10)));
+    }
+
+    @Test
+    @DisplayName("Рейтинг, обрезанный бюджетом времени, не кэшируется, а полный досчитывается в фоне")
+    void exhaustedBudget_servesPartialAndCachesFullInBackground() throws InterruptedException {
+        int user = create("user");
+        int friend = create("friend");
+        int candidate = create("candidate");
+        storage.addFriend(user, friend);
+        storage.addFriend(friend, candidate);
+        RecommendationService limited = new RecommendationService(storage, 1, Duration.ZERO, 100, 100);
+        try {
+            assertEquals(List.of(), ids(limited.getRecommendations(user, 10)));
+
+            // Без бюджета запрос сам не обходит ни одного друга: полный рейтинг может прийти только из кэша
+            long deadline = System.nanoTime() + Duration.ofSeconds(10).toNanos();
+            List<Integer> recommended = ids(limited.getRecommendations(user, 10));
+            while (recommended.isEmpty() && System.nanoTime() - deadline < 0) {
+                Thread.sleep(10);
+                recommended = ids(limited.getRecommendations(user, 10));
+            }
+            assertEquals(List.of(candidate), recommended);
+        } finally {
+            limited.close();
+        }
+    }
+
+    @Test
+    @DisplayName("Параллельный обход даёт тот же рейтинг, что и последовательный")
+    void parallelTraversal_matchesSequential() {
+        int users = 1200;
+        for (int i = 0; i < users; i++) {
+            create("user" + i);
+        }
+        SplittableRandom random = new SplittableRandom(42);
+        for (int friend = 2; friend <= 700; friend++) {
+            storage.addFriend(1, friend);
+            for (int i = 0; i < 20; i++) {
+                int other = 1 + random.nextInt(users);
+                if (other != friend) {
+                    storage.addFriend(friend, other);
+                }
+            }
+        }
+        RecommendationService parallel = new RecommendationService(storage, 3, Duration.ofSeconds(10), 100, 100);
+        try {
+            List<Integer> expected = ids(recommendations.getRecommendations(1, 100));
+            assertEquals(100, expected.size());
+            assertEquals(expected, ids(parallel.getRecommendations(1, 100)));
+        } finally {
+            parallel.close();
+        }
+    }
+
+    private int create(String login) {
+        return storage.create(user(login)).getId();
+    }
+
+    private static User user(String login) {
+        User user = new User();
+        user.setEmail(login + "@mail.ru");
+        user.setLogin(login);
+        user.setBirthday(LocalDate.of(2000, 1, 1));
+        return user;
+    }
+
+    private static List<Integer> ids(List<User> users) {
+        return users.stream().map(User::getId).toList();
+    }
+}
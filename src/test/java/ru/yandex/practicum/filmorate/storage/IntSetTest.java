@@ -0,0 +1,246 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.TreeSet;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class IntSetTest {
+    private static final int BLOCK = 1 << 16;
+    private static final int ARRAY_MAX = 4096;
+
+    @Test
+    @DisplayName("with и without на случайных данных совпадают с TreeSet, исходное множество не меняется")
+    void withAndWithout_matchTreeSet() {
+        SplittableRandom random = new SplittableRandom(42);
+        IntSet set = IntSet.EMPTY;
+        TreeSet<Integer> reference = new TreeSet<>();
+        for (int i = 0; i < 100_000; i++) {
+            int value = nearBoundary(random);
+            IntSet before = set;
+            // Проверка неизменности прежнего множества дорогая, поэтому не на каждом шаге
+            int[] beforeValues = i % 1_000 == 0 ? before.toIntArray() : null;
+            if (random.nextInt(3) == 0) {
+                set = set.without(value);
+                assertEquals(reference.remove(value), set != before);
+            } else {
+                set = set.with(value);
+                assertEquals(reference.add(value), set != before);
+            }
+            if (beforeValues != null) {
+                assertArrayEquals(beforeValues, before.toIntArray());
+            }
+            if (i % 10_000 == 0) {
+                assertMatches(reference, set);
+            }
+        }
+        assertMatches(reference, set);
+    }
+
+    @Test
+    @DisplayName("Блок переходит с массива на битовую карту после 4096 значений и обратно при удалении")
+    void container_switchesAtArrayMax() {
+        int base = 3 * BLOCK;
+        IntSet set = IntSet.EMPTY;
+        TreeSet<Integer> reference = new TreeSet<>();
+        // Через одно значение: битовая карта и массив дают разные позиции для одних и тех же значений
+        for (int i = 0; i < ARRAY_MAX; i++) {
+            set = set.with(base + 2 * i);
+            reference.add(base + 2 * i);
+        }
+        assertMatches(reference, set);
+
+        set = set.with(base + 1);
+        reference.add(base + 1);
+        set = set.with(base + BLOCK - 1);
+        reference.add(base + BLOCK - 1);
+        assertMatches(reference, set);
+        assertSame(set, set.with(base + 2));
+
+        set = set.without(base + 1);
+        reference.remove(base + 1);
+        assertMatches(reference, set);
+        set = set.without(base);
+        reference.remove(base);
+        assertMatches(reference, set);
+        assertSame(set, set.without(base));
+        set = set.with(base);
+        reference.add(base);
+        assertMatches(reference, set);
+    }
+
+    @Test
+    @DisplayName("of строит битовые карты для больших блоков и отбрасывает повторы")
+    void of_buildsLargeBlocksAndSkipsDuplicates() {
+        SplittableRandom random = new SplittableRandom(7);
+        int[] values = new int[30_000];
+        TreeSet<Integer> reference = new TreeSet<>();
+        for (int i = 0; i < values.length; i++) {
+            // Большой блок 0, средний блок -1 и разреженные соседние
+            int value = switch (i % 3) {
+                case 0 -> random.nextInt(BLOCK);
+                case 1 -> -1 - random.nextInt(ARRAY_MAX);
+                default -> random.nextInt(-4 * BLOCK, 4 * BLOCK);
+            };
+            values[i] = value;
+            reference.add(value);
+        }
+        assertMatches(reference, IntSet.of(values));
+        assertMatches(new TreeSet<>(List.of(Integer.MIN_VALUE, -1, 0, Integer.MAX_VALUE)),
+                IntSet.of(Integer.MAX_VALUE, 0, -1, Integer.MIN_VALUE, 0));
+    }
+
+    @Test
+    @DisplayName("Последнее значение блока убирает блок, соседние блоки обходятся по возрастанию со знаком")
+    void blockBoundaries_keepSignedOrder() {
+        int[] edges = {Integer.MIN_VALUE, Integer.MIN_VALUE + BLOCK - 1, Integer.MIN_VALUE + BLOCK,
+                -BLOCK - 1, -BLOCK, -1, 0, BLOCK - 1, BLOCK, Integer.MAX_VALUE - BLOCK, Integer.MAX_VALUE};
+        IntSet set = IntSet.EMPTY;
+        TreeSet<Integer> reference = new TreeSet<>();
+        for (int i = edges.length - 1; i >= 0; i--) {
+            set = set.with(edges[i]);
+            reference.add(edges[i]);
+            assertMatches(reference, set);
+        }
+        for (int edge : new int[]{-1, BLOCK, Integer.MIN_VALUE, Integer.MAX_VALUE, 0}) {
+            set = set.without(edge);
+            reference.remove(edge);
+            assertMatches(reference, set);
+        }
+        for (int edge : edges) {
+            set = set.without(edge);
+        }
+        assertSame(IntSet.EMPTY, set);
+    }
+
+    @Test
+    @DisplayName("range отдаёт ту же страницу, что хвост TreeSet от from")
+    void range_matchesTreeSetTail() {
+        SplittableRandom random = new SplittableRandom(11);
+        TreeSet<Integer> reference = new TreeSet<>();
+        for (int i = 0; i < 20_000; i++) {
+            reference.add(i % 2 == 0 ? random.nextInt(BLOCK) : nearBoundary(random));
+        }
+        IntSet set = IntSet.copyOf(reference);
+        for (int i = 0; i < 2_000; i++) {
+            int from = i % 10 == 0 ? Integer.MIN_VALUE : nearBoundary(random);
+            int limit = random.nextInt(1, 3_000);
+            assertArrayEquals(page(reference, from, limit), set.range(from, limit), "from=" + from);
+        }
+        assertEquals(0, set.range(0, 0).length);
+        assertEquals(0, IntSet.EMPTY.range(Integer.MIN_VALUE, 10).length);
+    }
+
+    @Test
+    @DisplayName("intersect: малый массив против большого (галоп) в обоих порядках")
+    void intersect_gallopsThroughMuchLargerArray() {
+        SplittableRandom random = new SplittableRandom(3);
+        // Больше чем в 32 раза: 10 значений против 2000, оба — массивы одного блока
+        IntSet small = randomSet(random, 10, 2 * BLOCK, 3 * BLOCK);
+        IntSet large = randomSet(random, 2_000, 2 * BLOCK, 3 * BLOCK);
+        int[] largeValues = large.toIntArray();
+        small = small.with(largeValues[0])
+                .with(largeValues[largeValues.length / 2])
+                .with(largeValues[largeValues.length - 1]);
+        assertEquals(3, small.intersect(large, Integer.MIN_VALUE, Integer.MAX_VALUE).length);
+        assertIntersects(small, large, random);
+        assertIntersects(large, small, random);
+    }
+
+    @Test
+    @DisplayName("intersect: массив против битовой карты в обоих порядках")
+    void intersect_probesBitmapWithArray() {
+        SplittableRandom random = new SplittableRandom(4);
+        IntSet array = randomSet(random, 3_000, -BLOCK, BLOCK);
+        IntSet bitmap = randomSet(random, 40_000, -BLOCK, BLOCK);
+        assertTrue(array.intersect(bitmap, Integer.MIN_VALUE, Integer.MAX_VALUE).length > 500);
+        assertIntersects(array, bitmap, random);
+        assertIntersects(bitmap, array, random);
+    }
+
+    @Test
+    @DisplayName("intersect: битовая карта против битовой карты")
+    void intersect_andsBitmaps() {
+        SplittableRandom random = new SplittableRandom(6);
+        IntSet first = randomSet(random, 60_000, 0, 2 * BLOCK);
+        IntSet second = randomSet(random, 50_000, BLOCK / 2, 3 * BLOCK);
+        assertTrue(first.intersect(second, Integer.MIN_VALUE, Integer.MAX_VALUE).length > 5_000);
+        assertIntersects(first, second, random);
+        assertIntersects(second, first, random);
+    }
+
+    @Test
+    @DisplayName("intersect на случайных многоблочных множествах совпадает с TreeSet")
+    void intersect_matchesTreeSetOnMixedBlocks() {
+        SplittableRandom random = new SplittableRandom(8);
+        for (int round = 0; round < 20; round++) {
+            IntSet first = randomSet(random, random.nextInt(1, 30_000), -3 * BLOCK, 3 * BLOCK);
+            IntSet second = randomSet(random, random.nextInt(1, 30_000), -3 * BLOCK, 3 * BLOCK);
+            assertIntersects(first, second, random);
+        }
+        assertEquals(0, IntSet.EMPTY.intersect(IntSet.of(1, 2), Integer.MIN_VALUE, 10).length);
+    }
+
+    private static void assertIntersects(IntSet first, IntSet second, SplittableRandom random) {
+        TreeSet<Integer> common = new TreeSet<>(first);
+        common.retainAll(second);
+        assertArrayEquals(page(common, Integer.MIN_VALUE, Integer.MAX_VALUE),
+                first.intersect(second, Integer.MIN_VALUE, Integer.MAX_VALUE));
+        for (int i = 0; i < 200; i++) {
+            int from = random.nextInt(-4 * BLOCK, 4 * BLOCK);
+            int limit = random.nextInt(1, 100);
+            assertArrayEquals(page(common, from, limit), first.intersect(second, from, limit),
+                    "from=" + from + ", limit=" + limit);
+        }
+    }
+
+    private static IntSet randomSet(SplittableRandom random, int size, int from, int to) {
+        int[] values = new int[size];
+        for (int i = 0; i < size; i++) {
+            values[i] = random.nextInt(from, to);
+        }
+        return IntSet.of(values);
+    }
+
+    private static void assertMatches(TreeSet<Integer> reference, IntSet set) {
+        int[] expected = reference.stream().mapToInt(Integer::intValue).toArray();
+        assertEquals(expected.length, set.size());
+        assertArrayEquals(expected, set.toIntArray());
+        List<Integer> visited = new ArrayList<>();
+        set.forEachInt(visited::add);
+        assertEquals(List.copyOf(reference), visited);
+        assertEquals(List.copyOf(reference), new ArrayList<>(set));
+        assertEquals(reference, set);
+        assertEquals(reference.hashCode(), set.hashCode());
+        for (int value : expected) {
+            assertTrue(set.contains(value));
+            assertEquals(reference.contains(value + 1), set.contains(value + 1));
+        }
+    }
+
+    private static int[] page(TreeSet<Integer> reference, int from, int limit) {
+        return reference.tailSet(from, true).stream().limit(limit).mapToInt(Integer::intValue).toArray();
+    }
+
+    /**
+     * Значения у границ блоков и у краёв int, чтобы блоки появлялись, пустели и наполнялись до битовой карты.
+     */
+    private static int nearBoundary(SplittableRandom random) {
+        return switch (random.nextInt(4)) {
+            case 0 -> random.nextInt(-2, 3) * BLOCK + random.nextInt(-3, 3);
+            case 1 -> random.nextInt(2 * ARRAY_MAX);
+            case 2 -> random.nextBoolean()
+                    ? Integer.MAX_VALUE - random.nextInt(8)
+                    : Integer.MIN_VALUE + random.nextInt(8);
+            default -> random.nextInt();
+        };
+    }
+}
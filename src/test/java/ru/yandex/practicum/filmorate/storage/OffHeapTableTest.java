@@ -0,0 +1,75 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.Lock;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class OffHeapTableTest {
+
+    @Test
+    @DisplayName("write и read — поля, null и строки разной длины; версия растёт, отсутствующий id — -1")
+    void writeAndRead_roundTripsFields() {
+        OffHeapTable table = new OffHeapTable(2, 2, 1);
+        int id = table.nextId();
+        long first = table.write(id, new int[]{7, -1}, new String[]{"короткая", null});
+        long second = table.write(id, new int[]{8, 9}, new String[]{"", "длинная строка ".repeat(100)});
+
+        int[] ints = new int[2];
+        String[] values = new String[2];
+        assertEquals(second, table.read(id, ints, values));
+        assertTrue(second > first);
+        assertArrayEquals(new int[]{8, 9}, ints);
+        assertEquals("", values[0]);
+        assertEquals("длинная строка ".repeat(100), values[1]);
+
+        long third = table.putSet(id, IntSet.of(3));
+        assertEquals(third, table.version(id));
+        assertEquals(IntSet.of(3), table.getSet(id));
+        assertEquals(-1, table.version(id + 1));
+        assertEquals(-1, table.read(100_000, ints, values));
+        assertEquals(1, table.size());
+    }
+
+    @Test
+    @DisplayName("Чтение во время записи видит одно из записанных состояний целиком")
+    void concurrentRead_neverSeesTornRecord() throws Exception {
+        OffHeapTable table = new OffHeapTable(1, 2, 1);
+        int id = table.nextId();
+        table.write(id, new int[]{0}, new String[]{"0", "0"});
+        AtomicBoolean running = new AtomicBoolean(true);
+        AtomicReference<String> torn = new AtomicReference<>();
+        Thread reader = new Thread(() -> {
+            int[] ints = new int[1];
+            String[] values = new String[2];
+            while (running.get()) {
+                table.read(id, ints, values);
+                String expected = String.valueOf(ints[0]).repeat(ints[0] % 7 + 1);
+                if (!expected.equals(values[0]) || !expected.equals(values[1])) {
+                    torn.set(ints[0] + ": " + values[0] + " / " + values[1]);
+                }
+            }
+        });
+        reader.start();
+        Lock lock = table.lockFor(id);
+        for (int i = 1; i < 50_000; i++) {
+            String value = String.valueOf(i).repeat(i % 7 + 1);
+            lock.lock();
+            try {
+                table.write(id, new int[]{i}, new String[]{value, value});
+            } finally {
+                lock.unlock();
+            }
+        }
+        running.set(false);
+        reader.join();
+        assertNull(torn.get());
+    }
+}
@@ -0,0 +1,159 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.Lock;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class PartitionedMapTest {
+
+    @Test
+    @DisplayName("values и page — снимок на момент вызова: поздние изменения и новые сущности не видны")
+    void values_readsPointInTimeSnapshot() {
+        PartitionedMap<String> map = new PartitionedMap<>(4);
+        for (int i = 0; i < 10; i++) {
+            map.put(map.nextId(), "v0");
+        }
+        Collection<String> before = map.values();
+        for (int id = 1; id <= 10; id++) {
+            map.put(id, "v1");
+        }
+        map.put(map.nextId(), "new");
+
+        assertEquals(10, before.size());
+        assertEquals(List.of("v0"), before.stream().distinct().toList());
+        assertEquals(11, map.values().size());
+        assertEquals(List.of("v1", "v1"), map.page(8, 2));
+        assertEquals("new", map.get(11));
+    }
+
+    @Test
+    @DisplayName("putBoth — снимок видит обе новые версии или ни одной")
+    void putBoth_isAtomicForSnapshots() throws Exception {
+        PartitionedMap<Integer> map = new PartitionedMap<>(4);
+        int first = map.nextId();
+        int second = map.nextId();
+        map.putBoth(first, 0, second, 0);
+        AtomicBoolean done = new AtomicBoolean();
+        Thread writer = new Thread(() -> {
+            for (int i = 1; i <= 20_000; i++) {
+                map.lockBoth(first, second);
+                try {
+                    map.putBoth(first, i, second, i);
+                } finally {
+                    map.unlockBoth(first, second);
+                }
+            }
+            done.set(true);
+        });
+        writer.start();
+        List<String> torn = new ArrayList<>();
+        while (!done.get()) {
+            List<Integer> values = new ArrayList<>(map.values());
+            if (!values.get(0).equals(values.get(1))) {
+                torn.add(values.toString());
+            }
+        }
+        writer.join();
+        assertEquals(List.of(), torn);
+    }
+
+    @Test
+    @DisplayName("Снимок при параллельных писателях видит изменение, только если видит и все изменения раньше него")
+    void snapshot_seesPrefixOfConcurrentWrites() throws Exception {
+        PartitionedMap<Integer> map = new PartitionedMap<>(4);
+        int writers = 4;
+        int[] earlier = new int[writers];
+        int[] later = new int[writers];
+        for (int w = 0; w < writers; w++) {
+            earlier[w] = map.nextId();
+            later[w] = map.nextId();
+            map.put(earlier[w], 0);
+            map.put(later[w], 0);
+        }
+        List<Thread> threads = new ArrayList<>();
+        for (int w = 0; w < writers; w++) {
+            int first = earlier[w];
+            int second = later[w];
+            threads.add(Thread.ofPlatform().start(() -> {
+                for (int i = 1; i <= 20_000; i++) {
+                    putLocked(map, first, i);
+                    putLocked(map, second, i);
+                }
+            }));
+        }
+        List<String> torn = new ArrayList<>();
+        while (threads.stream().anyMatch(Thread::isAlive)) {
+            List<Integer> values = new ArrayList<>(map.values());
+            for (int w = 0; w < writers; w++) {
+                // Вторая сущность пишется после первой, и снимок не может опередить по ней первую
+                if (values.get(2 * w + 1) > values.get(2 * w)) {
+                    torn.add(values.toString());
+                }
+            }
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertEquals(List.of(), torn);
+        assertEquals(20_000, map.values().stream().mapToInt(Integer::intValue).min().orElseThrow());
+    }
+
+    @Test
+    @DisplayName("Открытый снимок видит свои версии после любого числа изменений, сколько бы его ни читали")
+    void openSnapshot_keepsItsVersionsUntilClosed() {
+        PartitionedMap<String> map = new PartitionedMap<>(1);
+        int id = map.nextId();
+        map.put(id, "v0");
+        int other = map.nextId();
+        map.put(other, "other");
+
+        try (PartitionedMap<String>.Snapshot old = map.snapshot()) {
+            for (int i = 1; i <= 1000; i++) {
+                map.put(id, "v" + i);
+            }
+            assertEquals(List.of("v0", "other"), old.read(null, 10));
+            assertEquals(List.of("other"), old.read(id, 10));
+        }
+        map.put(id, "last");
+        map.put(id, "after");
+        assertEquals(List.of("after", "other"), new ArrayList<>(map.values()));
+        assertEquals(List.of("after"), map.page(null, 1));
+    }
+
+    @Test
+    @DisplayName("Порядок восстановления — порядок создания: values, page и forEach идут по нему, а не по id")
+    void restore_keepsRestoreOrder() {
+        PartitionedMap<String> map = new PartitionedMap<>(4);
+        for (int id : new int[]{9, 2, 70, 5}) {
+            map.restore(id, "r" + id);
+        }
+        map.restore(2, "r2'");
+        int next = map.nextId();
+        map.put(next, "new");
+
+        assertEquals(71, next);
+        assertEquals(List.of("r9", "r2'", "r70", "r5", "new"), new ArrayList<>(map.values()));
+        assertEquals(List.of("r70", "r5"), map.page(2, 2));
+        assertEquals(List.of(), map.page(3, 2));
+        List<String> walked = new ArrayList<>();
+        map.forEach(walked::add);
+        assertEquals(map.values(), walked);
+    }
+
+    private static void putLocked(PartitionedMap<Integer> map, int id, int value) {
+        Lock lock = map.lockFor(id);
+        lock.lock();
+        try {
+            map.put(id, value);
+        } finally {
+            lock.unlock();
+        }
+    }
+}
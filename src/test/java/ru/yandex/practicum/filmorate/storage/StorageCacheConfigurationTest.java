@@ -0,0 +1,45 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.service.FilmService;
+import ru.yandex.practicum.filmorate.storage.film.CachingFilmStorage;
+import ru.yandex.practicum.filmorate.storage.film.FilmStorage;
+import ru.yandex.practicum.filmorate.storage.user.CachingUserStorage;
+import ru.yandex.practicum.filmorate.storage.user.UserStorage;
+
+import java.time.LocalDate;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+
+@SpringBootTest(properties = {"filmorate.cache.enabled=true", "filmorate.storage=db"})
+class StorageCacheConfigurationTest {
+    @Autowired
+    private FilmStorage filmStorage;
+    @Autowired
+    private UserStorage userStorage;
+    @Autowired
+    private FilmService filmService;
+
+    @Test
+    void cacheWrapsSelectedStorage() {
+        assertInstanceOf(CachingFilmStorage.class, filmStorage);
+        assertInstanceOf(CachingUserStorage.class, userStorage);
+        assertNotNull(filmService);
+    }
+
+    @Test
+    void dbStorage_createsSchemaInOwnDataSource() {
+        Film film = new Film();
+        film.setName("film");
+        film.setReleaseDate(LocalDate.of(2000, 1, 1));
+        film.setDuration(100);
+        int id = filmStorage.create(film).getId();
+
+        assertEquals("film", filmStorage.getById(id).getName());
+    }
+}
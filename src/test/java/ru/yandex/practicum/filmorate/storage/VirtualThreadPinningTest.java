@@ -0,0 +1,173 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingStream;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.service.FilmRecommendationService;
+import ru.yandex.practicum.filmorate.storage.film.CachingFilmStorage;
+import ru.yandex.practicum.filmorate.storage.film.FilmStorage;
+import ru.yandex.practicum.filmorate.storage.film.InMemoryFilmStorage;
+import ru.yandex.practicum.filmorate.storage.film.OffHeapFilmStorage;
+import ru.yandex.practicum.filmorate.storage.journal.JournalRecovery;
+import ru.yandex.practicum.filmorate.storage.journal.StorageJournal;
+import ru.yandex.practicum.filmorate.storage.user.CachingUserStorage;
+import ru.yandex.practicum.filmorate.storage.user.InMemoryUserStorage;
+import ru.yandex.practicum.filmorate.storage.user.OffHeapUserStorage;
+import ru.yandex.practicum.filmorate.storage.user.UserStorage;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.locks.LockSupport;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Виртуальный поток, который ждёт внутри synchronized или на входе в него, занимает поток-носитель целиком.
+ * JFR сообщает о таких ожиданиях событием jdk.VirtualThreadPinned.
+ */
+class VirtualThreadPinningTest {
+    @TempDir
+    Path directory;
+
+    @Test
+    @DisplayName("Хранилища, кэш и журнал не закрепляют виртуальные потоки при конкурентных изменениях")
+    void storages_doNotPinVirtualThreads() throws Exception {
+        StorageJournal journal = new StorageJournal(true, directory.toString(), "always", Duration.ofMillis(10));
+        InMemoryFilmStorage films = new InMemoryFilmStorage(journal);
+        InMemoryUserStorage users = new InMemoryUserStorage(journal);
+        new JournalRecovery(journal, films, users, Duration.ZERO).recover();
+        try {
+            assertNoPinning(new CachingFilmStorage(films, 100), new CachingUserStorage(users, 100));
+        } finally {
+            journal.close();
+        }
+    }
+
+    @Test
+    @DisplayName("Хранилища вне кучи не закрепляют виртуальные потоки при конкурентных изменениях")
+    void offHeapStorages_doNotPinVirtualThreads() throws Exception {
+        assertNoPinning(new OffHeapFilmStorage(), new OffHeapUserStorage());
+    }
+
+    @Test
+    @DisplayName("Обновление рекомендаций фильмов не закрепляет виртуальные потоки, которые его ждут")
+    void filmRecommendations_doNotPinVirtualThreads() throws Exception {
+        // Чтение фильма ждёт, как чтение из базы: обновление рекомендаций читает фильмы, удерживая свою блокировку
+        FilmStorage films = new CachingFilmStorage(new InMemoryFilmStorage(), 100) {
+            @Override
+            public Film getById(Integer id) {
+                LockSupport.parkNanos(10_000);
+                return super.getById(id);
+            }
+        };
+        UserStorage users = new InMemoryUserStorage();
+        FilmRecommendationService recommendations = new FilmRecommendationService(films, users, 16, 4, 20, 100,
+                Duration.ZERO);
+        int filmId = films.create(film()).getId();
+        int userId = users.create(user("user")).getId();
+
+        List<RecordedEvent> pinned = new CopyOnWriteArrayList<>();
+        try (RecordingStream recording = new RecordingStream()) {
+            recording.enable("jdk.VirtualThreadPinned").withThreshold(Duration.ZERO).withStackTrace();
+            recording.onEvent("jdk.VirtualThreadPinned", pinned::add);
+            recording.startAsync();
+
+            try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+                List<Future<?>> futures = new ArrayList<>();
+                for (int thread = 0; thread < 200; thread++) {
+                    futures.add(executor.submit(() -> {
+                        for (int i = 0; i < 50; i++) {
+                            films.addLike(filmId, userId);
+                            recommendations.likeChanged(filmId, userId);
+                            if (i % 10 == 0) {
+                                recommendations.rebuild();
+                            }
+                            recommendations.refresh();
+                            recommendations.getRecommendations(userId, 10);
+                        }
+                        return null;
+                    }));
+                }
+                for (Future<?> future : futures) {
+                    future.get();
+                }
+            }
+            recording.stop();
+        }
+
+        assertEquals(List.of(), pinned.stream().map(RecordedEvent::getStackTrace).toList());
+    }
+
+    /**
+     * Конкурентно меняет лайки и дружбы из виртуальных потоков и проверяет, что ни один не был закреплён.
+     * Создания по ходу нагрузки выделяют место под записи и строки, в том числе вне кучи.
+     */
+    private static void assertNoPinning(FilmStorage filmStorage, UserStorage userStorage) throws Exception {
+        int filmId = filmStorage.create(film()).getId();
+        int first = userStorage.create(user("first")).getId();
+        int second = userStorage.create(user("second")).getId();
+
+        List<RecordedEvent> pinned = new CopyOnWriteArrayList<>();
+        try (RecordingStream recording = new RecordingStream()) {
+            recording.enable("jdk.VirtualThreadPinned").withThreshold(Duration.ZERO).withStackTrace();
+            recording.onEvent("jdk.VirtualThreadPinned", pinned::add);
+            recording.startAsync();
+
+            try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+                List<Future<?>> futures = new ArrayList<>();
+                for (int thread = 0; thread < 200; thread++) {
+                    int userId = 1000 + thread;
+                    futures.add(executor.submit(() -> {
+                        for (int i = 0; i < 50; i++) {
+                            if (i % 10 == 0) {
+                                filmStorage.create(film());
+                                userStorage.create(user("user" + userId + "_" + i));
+                            }
+                            filmStorage.addLike(filmId, userId);
+                            filmStorage.getById(filmId);
+                            userStorage.addFriend(first, second);
+                            userStorage.getByIds(List.of(first, second));
+                            filmStorage.removeLike(filmId, userId);
+                        }
+                        return null;
+                    }));
+                }
+                for (Future<?> future : futures) {
+                    future.get();
+                }
+            }
+            recording.stop();
+        }
+
+        assertEquals(List.of(), pinned.stream().map(RecordedEvent::getStackTrace).toList());
+        assertEquals(0, filmStorage.getById(filmId).getLikes().size());
+    }
+
+    private static Film film() {
+        Film film = new Film();
+        film.setName("Фильм");
+        film.setDescription("Описание");
+        film.setReleaseDate(LocalDate.of(2000, 1, 1));
+        film.setDuration(120);
+        return film;
+    }
+
+    private static User user(String login) {
+        User user = new User();
+        user.setEmail(login + "@mail.ru");
+        user.setLogin(login);
+        user.setBirthday(LocalDate.of(2000, 1, 1));
+        return user;
+    }
+}
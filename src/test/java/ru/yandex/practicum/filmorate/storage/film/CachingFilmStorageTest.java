@@ -0,0 +1,106 @@
+package ru.yandex.practicum.filmorate.storage.film;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.storage.EntityCache;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CachingFilmStorageTest {
+    private InMemoryFilmStorage delegate;
+    private CachingFilmStorage storage;
+
+    @BeforeEach
+    void setUp() {
+        delegate = new InMemoryFilmStorage();
+        storage = new CachingFilmStorage(delegate, 4);
+    }
+
+    @Test
+    @DisplayName("getById — повторное чтение из кэша, вызывающий получает собственную копию")
+    void getById_returnsIndependentCopies() {
+        int id = create("film");
+
+        Film first = storage.getById(id);
+        first.setName("испорчено");
+        Film second = storage.getById(id);
+
+        assertNotSame(first, second);
+        assertEquals("film", second.getName());
+        assertEquals("film", delegate.getById(id).getName());
+        EntityCache.Stats stats = storage.stats();
+        assertEquals(1, stats.hits());
+        assertEquals(1, stats.misses());
+    }
+
+    @Test
+    @DisplayName("update и addLike сбрасывают запись фильма")
+    void mutations_invalidateEntry() {
+        int id = create("film");
+        storage.getById(id);
+
+        storage.addLike(id, 7);
+        assertEquals(Set.of(7), storage.getById(id).getLikes());
+
+        Film update = new Film();
+        update.setId(id);
+        update.setName("новое");
+        storage.update(update);
+        assertEquals("новое", storage.getById(id).getName());
+        assertEquals(3, storage.stats().misses());
+    }
+
+    @Test
+    @DisplayName("getByIds — промахи загружаются одним вызовом, размер кэша ограничен")
+    void getByIds_loadsMissesAndEvicts() {
+        int first = create("first");
+        int second = create("second");
+        storage.getById(first);
+
+        assertEquals(List.of(second, first), storage.getByIds(List.of(second, 999, first))
+                .stream().map(Film::getId).toList());
+        for (int i = 0; i < 10; i++) {
+            storage.getById(create("film" + i));
+        }
+
+        EntityCache.Stats stats = storage.stats();
+        assertEquals(1, stats.hits());
+        assertEquals(4, stats.size());
+        assertEquals(8, stats.evictions());
+    }
+
+    @Test
+    @DisplayName("Версии идут из хранилища; запись кэша, отставшая от версии фильма, не отдаётся")
+    void versions_passThroughAndStaleEntryIsReloaded() {
+        int id = create("film");
+        storage.getById(id);
+        assertEquals(delegate.getVersion(id), storage.getVersion(id));
+
+        // Изменение мимо обёртки — как окно между записью в хранилище и сбросом записи кэша
+        delegate.addLike(id, 7);
+        assertEquals(delegate.getVersion(id), storage.getVersion(id));
+        assertEquals(delegate.getCatalogVersion(), storage.getCatalogVersion());
+        assertEquals(Set.of(7), storage.getById(id).getLikes());
+
+        delegate.addLike(id, 8);
+        assertEquals(Set.of(7, 8), storage.getByIds(List.of(id)).get(0).getLikes());
+        assertTrue(storage.getVersion(id).isPresent());
+    }
+
+    private int create(String name) {
+        Film film = new Film();
+        film.setName(name);
+        film.setDescription("Описание");
+        film.setReleaseDate(LocalDate.of(2000, 1, 1));
+        film.setDuration(120);
+        return storage.create(film).getId();
+    }
+}
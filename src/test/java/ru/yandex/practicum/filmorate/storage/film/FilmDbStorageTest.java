@@ -0,0 +1,167 @@
+package ru.yandex.practicum.filmorate.storage.film;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.JdbcTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import ru.yandex.practicum.filmorate.exception.NotFoundException;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.user.UserDbStorage;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@JdbcTest(properties = "filmorate.storage=db")
+@Import({FilmDbStorage.class, UserDbStorage.class})
+class FilmDbStorageTest {
+    @Autowired
+    private FilmDbStorage storage;
+    @Autowired
+    private UserDbStorage userStorage;
+    @Autowired
+    private JdbcTemplate jdbc;
+
+    @Test
+    @DisplayName("getPopular — сортировка по лайкам, при равенстве по id, вместе с лайками")
+    void getPopular_ordersByLikesThenId() {
+        int first = create("first");
+        int second = create("second");
+        int third = create("third");
+        int user = createUser("user");
+        int other = createUser("other");
+        storage.addLike(third, user);
+        storage.addLike(third, other);
+        storage.addLike(third, other);
+        storage.addLike(second, user);
+
+        assertEquals(List.of(third, second, first), ids(storage.getPopular(10)));
+        assertEquals(List.of(third, second), ids(storage.getPopular(2)));
+        assertEquals(Set.of(user, other), storage.getPopular(1).get(0).getLikes());
+        assertTrue(storage.getPopular(0).isEmpty());
+    }
+
+    @Test
+    @DisplayName("getTrending — считаются только лайки за окно")
+    void getTrending_countsLikesWithinWindow() {
+        int first = create("first");
+        int second = create("second");
+        int user = createUser("user");
+        int other = createUser("other");
+        storage.addLike(first, user);
+        storage.addLike(first, other);
+        storage.addLike(second, user);
+        jdbc.update("UPDATE likes SET created_at = DATEADD('DAY', -2, created_at) WHERE film_id = ? AND user_id = ?",
+                first, other);
+
+        assertEquals(List.of(first, second), ids(storage.getTrending(Duration.ofDays(3), 10)));
+        assertEquals(List.of(first, second), ids(storage.getTrending(Duration.ofDays(1), 10)));
+        jdbc.update("UPDATE likes SET created_at = DATEADD('DAY', -2, created_at) WHERE user_id = ?", user);
+        assertTrue(storage.getTrending(Duration.ofDays(1), 10).isEmpty());
+        assertEquals(List.of(first), ids(storage.getTrending(Duration.ofDays(3), 1)));
+    }
+
+    @Test
+    @DisplayName("removeLike и update — лайк снимается, повтор ничего не меняет, поля сливаются как в памяти")
+    void removeLikeAndUpdate() {
+        int film = create("film");
+        int user = createUser("user");
+        assertTrue(storage.addLike(film, user));
+        assertFalse(storage.addLike(film, user));
+        assertTrue(storage.removeLike(film, user));
+        assertFalse(storage.removeLike(film, user));
+        Film update = new Film();
+        update.setId(film);
+        update.setName(" ");
+        update.setDuration(150);
+        storage.update(update);
+
+        Film stored = storage.getById(film);
+        assertTrue(stored.getLikes().isEmpty());
+        assertEquals("film", stored.getName());
+        assertEquals(150, stored.getDuration());
+        assertThrows(NotFoundException.class, () -> storage.addLike(-1, user));
+    }
+
+    @Test
+    @DisplayName("getByIds и getPage — порядок запроса и keyset-страницы")
+    void getByIdsAndPage() {
+        int first = create("first");
+        int second = create("second");
+        int third = create("third");
+
+        assertEquals(List.of(third, first), ids(storage.getByIds(List.of(third, -1, first))));
+        assertEquals(List.of(first, second), ids(storage.getPage(null, 2)));
+        assertEquals(List.of(third), ids(storage.getPage(second, 2)));
+    }
+
+    @Test
+    @DisplayName("createAll и addLikes — id по порядку списка, лайки из тел и пачкой")
+    void createAllAndAddLikes() {
+        int user = createUser("user");
+        int other = createUser("other");
+        Film first = film("first");
+        Film second = film("second");
+        second.setLikes(Set.of(user));
+
+        List<Film> created = storage.createAll(List.of(first, second));
+        storage.addLikes(new int[]{first.getId(), second.getId(), second.getId()}, new int[]{other, other, user});
+
+        assertEquals(first.getId() + 1, (int) second.getId());
+        assertEquals(List.of(first, second), created);
+        assertEquals(Set.of(other), storage.getById(first.getId()).getLikes());
+        assertEquals(Set.of(user, other), storage.getById(second.getId()).getLikes());
+    }
+
+    @Test
+    @DisplayName("getLikedFilms — лайкнутые пользователем фильмы keyset-страницами")
+    void getLikedFilms_pagesByFilmId() {
+        int first = create("first");
+        int second = create("second");
+        int third = create("third");
+        int user = createUser("user");
+        int other = createUser("other");
+        storage.addLike(first, user);
+        storage.addLike(third, user);
+        storage.addLike(second, other);
+
+        assertEquals(List.of(first, third), ids(storage.getLikedFilms(user, null, 10)));
+        assertEquals(List.of(third), ids(storage.getLikedFilms(user, first, 10)));
+        assertEquals(Set.of(user), storage.getLikedFilms(user, null, 1).get(0).getLikes());
+        assertTrue(storage.getLikedFilms(-1, null, 10).isEmpty());
+    }
+
+    private int create(String name) {
+        return storage.create(film(name)).getId();
+    }
+
+    private static Film film(String name) {
+        Film film = new Film();
+        film.setName(name);
+        film.setDescription("Описание");
+        film.setReleaseDate(LocalDate.of(2000, 1, 1));
+        film.setDuration(120);
+        return film;
+    }
+
+    private int createUser(String login) {
+        User user = new User();
+        user.setEmail(login + "@mail.ru");
+        user.setLogin(login);
+        user.setBirthday(LocalDate.of(2000, 1, 1));
+        return userStorage.create(user).getId();
+    }
+
+    private static List<Integer> ids(List<Film> films) {
+        return films.stream().map(Film::getId).toList();
+    }
+}
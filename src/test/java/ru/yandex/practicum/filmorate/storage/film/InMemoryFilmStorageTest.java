@@ -0,0 +1,293 @@
+package ru.yandex.practicum.filmorate.storage.film;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.exception.NotFoundException;
+import ru.yandex.practicum.filmorate.exception.ValidationException;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.storage.journal.StorageJournal;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class InMemoryFilmStorageTest {
+    private InMemoryFilmStorage storage;
+
+    @BeforeEach
+    void setUp() {
+        storage = new InMemoryFilmStorage();
+    }
+
+    @Test
+    @DisplayName("getPopular — сортировка по лайкам, при равенстве по id")
+    void getPopular_ordersByLikesThenId() {
+        int first = create("first");
+        int second = create("second");
+        int third = create("third");
+        storage.addLike(third, 1);
+        storage.addLike(third, 2);
+        storage.addLike(second, 1);
+
+        assertEquals(List.of(third, second, first), ids(storage.getPopular(10)));
+        assertEquals(List.of(third, second), ids(storage.getPopular(2)));
+    }
+
+    @Test
+    @DisplayName("getPopular — индекс обновляется при снятии лайка и повторном лайке")
+    void getPopular_reflectsRemovedAndRepeatedLikes() {
+        int first = create("first");
+        int second = create("second");
+        storage.addLike(second, 1);
+        storage.addLike(second, 1);
+        storage.addLike(first, 1);
+        storage.addLike(first, 2);
+        storage.removeLike(first, 2);
+        storage.removeLike(first, 3);
+
+        assertEquals(List.of(first, second), ids(storage.getPopular(10)));
+        assertEquals(1, storage.getById(first).getLikes().size());
+    }
+
+    @Test
+    @DisplayName("update и addLike — новая версия фильма, прочитанная ранее не меняется")
+    void updateAndLike_replaceVersionInsteadOfMutating() {
+        int id = create("before");
+        Film read = storage.getById(id);
+        Film update = new Film();
+        update.setId(id);
+        update.setName("after");
+        storage.update(update);
+        storage.addLike(id, 1);
+
+        assertEquals("before", read.getName());
+        assertTrue(read.getLikes().isEmpty());
+        assertEquals("after", storage.getById(id).getName());
+        assertEquals(Set.of(1), storage.getById(id).getLikes());
+    }
+
+    @Test
+    @DisplayName("addLikes с отсутствующим фильмом не ставит ни одного лайка пачки")
+    void addLikes_missingFilm_appliesNothing() {
+        int first = create("first");
+        int second = create("second");
+
+        assertThrows(NotFoundException.class,
+                () -> storage.addLikes(new int[]{first, 999, second}, new int[]{1, 1, 1}));
+        assertTrue(storage.getById(first).getLikes().isEmpty());
+        assertTrue(storage.getById(second).getLikes().isEmpty());
+        assertTrue(storage.getLikedFilms(1, null, 10).isEmpty());
+    }
+
+    @Test
+    @DisplayName("getByIds — порядок запроса сохраняется, отсутствующие id пропускаются")
+    void getByIds_keepsOrderAndSkipsMissing() {
+        int first = create("first");
+        int second = create("second");
+
+        assertEquals(List.of(second, first), ids(storage.getByIds(List.of(second, 999, first))));
+    }
+
+    @Test
+    @DisplayName("getPopular — неположительное количество даёт пустой список")
+    void getPopular_nonPositiveCount_returnsEmpty() {
+        create("film");
+        assertTrue(storage.getPopular(0).isEmpty());
+    }
+
+    @Test
+    @DisplayName("Параллельные create/addLike/removeLike — точные счётчики и корректный индекс")
+    void concurrentLikes_countsAreExact() throws Exception {
+        int filmCount = 8;
+        int threads = 16;
+        int usersPerThread = 500;
+        List<Integer> filmIds = new ArrayList<>();
+        for (int i = 0; i < filmCount; i++) {
+            filmIds.add(create("film" + i));
+        }
+
+        runConcurrently(threads, thread -> {
+            for (int u = 0; u < usersPerThread; u++) {
+                int userId = thread * usersPerThread + u;
+                for (int filmId : filmIds) {
+                    storage.addLike(filmId, userId);
+                    storage.addLike(filmId, userId);
+                }
+                // Снимаем лайк пользователей с нечётным id только с первого фильма
+                if (userId % 2 == 1) {
+                    storage.removeLike(filmIds.get(0), userId);
+                }
+            }
+            create("extra" + thread);
+        });
+
+        int total = threads * usersPerThread;
+        assertEquals(total / 2, storage.getById(filmIds.get(0)).getLikes().size());
+        for (int filmId : filmIds.subList(1, filmCount)) {
+            assertEquals(total, storage.getById(filmId).getLikes().size());
+        }
+        assertEquals(filmCount + threads, storage.getAll().size());
+        List<Film> popular = storage.getPopular(filmCount + threads);
+        assertEquals(filmCount + threads, popular.size());
+        assertEquals(filmIds.subList(1, filmCount), ids(popular.subList(0, filmCount - 1)));
+        assertEquals(filmIds.get(0), popular.get(filmCount - 1).getId());
+        // Обратный индекс совпадает с лайками фильмов
+        assertEquals(filmIds, ids(storage.getLikedFilms(0, null, 100)));
+        assertEquals(filmIds.subList(1, filmCount), ids(storage.getLikedFilms(1, null, 100)));
+    }
+
+    @Test
+    @DisplayName("getLikedFilms и getLikedFilmIds — по обратному индексу, лайки из тел, снятые лайки и восстановление")
+    void getLikedFilms_followsLikesAndRebuild() {
+        int first = create("first");
+        Film withLikes = film("second");
+        withLikes.setLikes(Set.of(1, 2));
+        int second = storage.create(withLikes).getId();
+        int third = create("third");
+        storage.addLike(first, 1);
+        storage.addLike(third, 1);
+        storage.addLike(third, 2);
+        assertTrue(storage.removeLike(second, 2));
+        assertFalse(storage.removeLike(second, 2));
+        assertFalse(storage.addLike(third, 2));
+
+        assertEquals(List.of(first, second, third), ids(storage.getLikedFilms(1, null, 10)));
+        assertEquals(List.of(first, second), ids(storage.getLikedFilms(1, null, 2)));
+        assertEquals(List.of(third), ids(storage.getLikedFilms(1, second, 2)));
+        assertEquals(List.of(third), ids(storage.getLikedFilms(2, null, 10)));
+        assertTrue(storage.getLikedFilms(3, null, 10).isEmpty());
+        assertEquals(Map.of(1, Set.of(first, second, third), 2, Set.of(third)),
+                storage.getLikedFilmIds(List.of(1, 2, 3)));
+
+        InMemoryFilmStorage restored = new InMemoryFilmStorage();
+        storage.forEachFilm(restored::restore);
+        restored.rebuildIndexes();
+        assertEquals(List.of(first, second, third), ids(restored.getLikedFilms(1, null, 10)));
+        assertTrue(restored.getLikedFilms(1, Integer.MAX_VALUE, 10).isEmpty());
+    }
+
+    @Test
+    @DisplayName("getTrending — лайки за окно по корзинам, снятые вычитаются, старые выпадают, поздние учитываются")
+    void getTrending_countsLikesWithinWindow() {
+        MutableClock clock = new MutableClock();
+        storage = new InMemoryFilmStorage(StorageJournal.disabled(), 0,
+                new TrendingIndex(Duration.ofHours(1), 24, clock));
+        int first = create("first");
+        int second = create("second");
+        int third = create("third");
+        storage.addLike(first, 1);
+        storage.addLike(first, 2);
+        storage.addLike(first, 3);
+        clock.advance(Duration.ofHours(2));
+        storage.addLike(second, 1);
+        storage.addLike(third, 1);
+        storage.addLike(third, 2);
+        storage.removeLike(third, 2);
+        storage.removeLike(third, 3);
+
+        assertEquals(List.of(first, second, third), ids(storage.getTrending(Duration.ofHours(3), 10)));
+        assertEquals(List.of(second, third), ids(storage.getTrending(Duration.ofHours(1), 10)));
+        assertEquals(List.of(first), ids(storage.getTrending(Duration.ofHours(3), 1)));
+        assertEquals(List.of(first, second, third), ids(storage.getTrending(Duration.ofHours(3), Integer.MAX_VALUE)));
+        // Новый лайк виден следующему же запросу
+        storage.addLike(third, 5);
+        assertEquals(List.of(third, second), ids(storage.getTrending(Duration.ofHours(1), 10)));
+        storage.removeLike(third, 5);
+
+        // Снятый лайк из прошлой корзины вычитается в текущей и опускает фильм ниже
+        clock.advance(Duration.ofHours(1));
+        storage.removeLike(first, 1);
+        storage.removeLike(first, 2);
+        storage.addLike(third, 4);
+        assertEquals(List.of(third, first, second), ids(storage.getTrending(Duration.ofHours(4), 10)));
+        // Изменение в уже закрытой корзине попадает и в посчитанный по ней рейтинг
+        storage.restoreTrending(second, 5, clock.millis() - Duration.ofHours(1).toMillis());
+        assertEquals(List.of(second, third, first), ids(storage.getTrending(Duration.ofHours(4), 10)));
+
+        clock.advance(Duration.ofHours(24));
+        assertTrue(storage.getTrending(Duration.ofHours(24), 10).isEmpty());
+        assertThrows(ValidationException.class, () -> storage.getTrending(Duration.ofHours(25), 10));
+    }
+
+    private static void runConcurrently(int threads, ThreadTask task) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            CountDownLatch start = new CountDownLatch(1);
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                int thread = t;
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    task.run(thread);
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private interface ThreadTask {
+        void run(int thread);
+    }
+
+    private static final class MutableClock extends Clock {
+        private Instant now = Instant.parse("2024-01-01T00:30:00Z");
+
+        void advance(Duration duration) {
+            now = now.plus(duration);
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return now;
+        }
+    }
+
+    private int create(String name) {
+        return storage.create(film(name)).getId();
+    }
+
+    private static Film film(String name) {
+        Film film = new Film();
+        film.setName(name);
+        film.setReleaseDate(LocalDate.of(2000, 1, 1));
+        film.setDuration(100);
+        return film;
+    }
+
+    private static List<Integer> ids(List<Film> films) {
+        return films.stream().map(Film::getId).toList();
+    }
+}
@@ -0,0 +1,88 @@
+package ru.yandex.practicum.filmorate.storage.film;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.exception.NotFoundException;
+import ru.yandex.practicum.filmorate.model.Film;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class OffHeapFilmStorageTest {
+    private OffHeapFilmStorage storage;
+
+    @BeforeEach
+    void setUp() {
+        storage = new OffHeapFilmStorage();
+    }
+
+    @Test
+    @DisplayName("create, update и getById — поля собираются из записи, update меняет только переданные")
+    void createAndUpdate_roundTripFields() {
+        Film film = film("Название");
+        film.setDescription("Описание");
+        film.setLikes(Set.of(5));
+        int id = storage.create(film).getId();
+        Film update = new Film();
+        update.setId(id);
+        update.setName("Новое название, заметно длиннее прежнего");
+        storage.update(update);
+
+        Film read = storage.getById(id);
+        assertEquals("Новое название, заметно длиннее прежнего", read.getName());
+        assertEquals("Описание", read.getDescription());
+        assertEquals(LocalDate.of(2000, 1, 1), read.getReleaseDate());
+        assertEquals(100, read.getDuration());
+        assertEquals(Set.of(5), read.getLikes());
+        assertThrows(NotFoundException.class, () -> storage.getById(id + 1));
+        assertThrows(NotFoundException.class, () -> storage.addLike(id + 1, 1));
+
+        Film noDetails = new Film();
+        noDetails.setName("Без даты");
+        Film created = storage.getById(storage.create(noDetails).getId());
+        assertNull(created.getReleaseDate());
+        assertNull(created.getDuration());
+        assertNull(created.getDescription());
+    }
+
+    @Test
+    @DisplayName("Лайки — популярные, лайкнутые пользователем, страницы и версии")
+    void likes_updatePopularLikedAndVersions() {
+        int first = storage.create(film("first")).getId();
+        int second = storage.create(film("second")).getId();
+        int third = storage.create(film("third")).getId();
+        long version = storage.getVersion(second).getAsLong();
+        long catalog = storage.getCatalogVersion().getAsLong();
+        storage.addLike(second, 1);
+        storage.addLike(second, 2);
+        storage.addLike(third, 1);
+        storage.removeLike(third, 1);
+        storage.addLike(first, 1);
+
+        assertEquals(List.of(second, first, third), ids(storage.getPopular(10)));
+        assertEquals(List.of(first, second), ids(storage.getLikedFilms(1, null, 10)));
+        assertEquals(List.of(second, third), ids(storage.getPage(first, 10)));
+        assertEquals(3, storage.getAll().size());
+        assertTrue(storage.getVersion(second).getAsLong() > version);
+        assertTrue(storage.getCatalogVersion().getAsLong() > catalog);
+    }
+
+    private static Film film(String name) {
+        Film film = new Film();
+        film.setName(name);
+        film.setReleaseDate(LocalDate.of(2000, 1, 1));
+        film.setDuration(100);
+        return film;
+    }
+
+    private static List<Integer> ids(List<Film> films) {
+        return films.stream().map(Film::getId).toList();
+    }
+}
@@ -0,0 +1,76 @@
+package ru.yandex.practicum.filmorate.storage.film;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class PopularityIndexTest {
+
+    @Test
+    @DisplayName("top — по убыванию лайков, при равенстве по id, перемещение меняет порядок")
+    void top_ordersByLikesThenId() {
+        PopularityIndex index = new PopularityIndex();
+        index.add(1, 0);
+        index.add(2, 0);
+        index.add(3, 0);
+        index.move(3, 0, 2);
+        index.move(2, 0, 1);
+
+        assertArrayEquals(new int[]{3, 2, 1}, index.top(10));
+        assertArrayEquals(new int[]{3, 2}, index.top(2));
+        index.move(3, 2, 0);
+        assertArrayEquals(new int[]{2, 1, 3}, index.top(10));
+        assertArrayEquals(new int[0], index.top(0));
+    }
+
+    @Test
+    @DisplayName("Обход при параллельных перемещениях видит каждый фильм ровно один раз")
+    void concurrentMoves_topSeesEveryFilmOnce() throws Exception {
+        int films = 200;
+        int writers = 4;
+        PopularityIndex index = new PopularityIndex();
+        for (int id = 1; id <= films; id++) {
+            index.add(id, 0);
+        }
+        int[] expected = IntStream.rangeClosed(1, films).toArray();
+        AtomicBoolean running = new AtomicBoolean(true);
+        ExecutorService executor = Executors.newFixedThreadPool(writers);
+        try {
+            // Каждый писатель двигает свои фильмы, как под блокировкой фильма в хранилище
+            List<Future<?>> futures = IntStream.range(0, writers).<Future<?>>mapToObj(writer -> executor.submit(() -> {
+                int[] likes = new int[films + 1];
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                while (running.get()) {
+                    int id = writer + 1 + writers * random.nextInt(films / writers);
+                    int next = Math.max(0, likes[id] + (random.nextBoolean() ? 50 : -50));
+                    index.move(id, likes[id], next);
+                    likes[id] = next;
+                }
+            })).toList();
+            for (int i = 0; i < 1000; i++) {
+                int[] top = index.top(films);
+                Arrays.sort(top);
+                assertArrayEquals(expected, top);
+            }
+            running.set(false);
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            running.set(false);
+            executor.shutdownNow();
+        }
+        assertEquals(films, index.top(Integer.MAX_VALUE).length);
+    }
+}
@@ -0,0 +1,133 @@
+package ru.yandex.practicum.filmorate.storage.journal;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.film.InMemoryFilmStorage;
+import ru.yandex.practicum.filmorate.storage.user.InMemoryUserStorage;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class JournalRecoveryTest {
+    @TempDir
+    Path directory;
+
+    private StorageJournal journal;
+    private InMemoryFilmStorage films;
+    private InMemoryUserStorage users;
+    private JournalRecovery recovery;
+
+    @AfterEach
+    void tearDown() throws IOException {
+        journal.close();
+    }
+
+    @Test
+    @DisplayName("Снимок и журнал восстанавливают фильмы, пользователей, лайки, друзей и лайки по времени")
+    void restart_restoresSnapshotAndJournal() throws IOException {
+        start();
+        int first = createUser("first");
+        int second = createUser("second");
+        int third = createUser("third");
+        int film = createFilm("Фильм", null);
+        users.addFriend(first, second);
+        films.addLike(film, first);
+        recovery.snapshot();
+
+        users.addFriend(first, third);
+        users.removeFriend(first, second);
+        films.addLike(film, second);
+        Film update = new Film();
+        update.setId(film);
+        update.setName("Новое название");
+        films.update(update);
+        int other = createFilm("Другой", 90);
+        films.addLike(other, third);
+
+        restart();
+
+        assertEquals(Set.of(third), users.getById(first).getFriends());
+        assertEquals(Set.of(), users.getById(second).getFriends());
+        assertEquals(Set.of(first, second), films.getById(film).getLikes());
+        assertEquals("Новое название", films.getById(film).getName());
+        assertNull(films.getById(film).getDuration());
+        assertEquals(90, films.getById(other).getDuration());
+        assertEquals(List.of(film, other), films.getPopular(10).stream().map(Film::getId).toList());
+        // Лайк до снимка восстанавливается из его счётчиков, после — из журнала, каждый по разу
+        assertEquals(List.of(film, other),
+                films.getTrending(Duration.ofHours(1), 10).stream().map(Film::getId).toList());
+        assertEquals(third + 1, createUser("next"));
+    }
+
+    @Test
+    @DisplayName("Оборванная последняя запись отбрасывается, предыдущие восстанавливаются")
+    void restart_dropsTornTail() throws IOException {
+        start();
+        int first = createUser("first");
+        createUser("torn");
+        journal.close();
+        Path segment = lastSegment();
+        try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.WRITE)) {
+            channel.truncate(Files.size(segment) - 3);
+        }
+
+        start();
+
+        assertEquals(1, users.getAll().size());
+        assertEquals("first", users.getById(first).getLogin());
+    }
+
+    private void start() throws IOException {
+        journal = new StorageJournal(true, directory.toString(), "always", Duration.ofMillis(10));
+        films = new InMemoryFilmStorage(journal);
+        users = new InMemoryUserStorage(journal);
+        recovery = new JournalRecovery(journal, films, users, Duration.ZERO);
+        recovery.recover();
+    }
+
+    private void restart() throws IOException {
+        journal.close();
+        start();
+    }
+
+    private Path lastSegment() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(file -> file.getFileName().toString().startsWith("wal-"))
+                    .max(Comparator.naturalOrder())
+                    .orElseThrow();
+        }
+    }
+
+    private int createUser(String login) {
+        User user = new User();
+        user.setEmail(login + "@mail.ru");
+        user.setLogin(login);
+        user.setBirthday(LocalDate.of(2000, 1, 1));
+        return users.create(user).getId();
+    }
+
+    private int createFilm(String name, Integer duration) {
+        Film film = new Film();
+        film.setName(name);
+        film.setDescription("Описание");
+        film.setReleaseDate(LocalDate.of(2000, 1, 1));
+        film.setDuration(duration);
+        return films.create(film).getId();
+    }
+}
@@ -0,0 +1,269 @@
+package ru.yandex.practicum.filmorate.storage.journal;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.film.InMemoryFilmStorage;
+import ru.yandex.practicum.filmorate.storage.user.InMemoryUserStorage;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class StorageJournalTest {
+    @TempDir
+    Path directory;
+
+    @Test
+    @DisplayName("Ошибка fsync останавливает журнал: ни эта запись, ни следующие не получают успех")
+    void failedForce_stopsJournal() throws IOException {
+        FailingJournal journal = new FailingJournal(directory);
+        journal.open(0);
+        try {
+            journal.awaitDurable(journal.likeChanged(1, 1, true, 0));
+
+            journal.channel.failures = 1;
+            long lost = journal.likeChanged(1, 2, true, 0);
+            assertThrows(UncheckedIOException.class, () -> journal.awaitDurable(lost));
+
+            // Следующий fsync прошёл бы, но журнал не пишет дальше поверх дыры и не подтверждает потерянную запись
+            assertThrows(UncheckedIOException.class, () -> journal.likeChanged(1, 3, true, 0));
+            assertThrows(UncheckedIOException.class, () -> journal.awaitDurable(lost));
+            assertThrows(IOException.class, journal::roll);
+        } finally {
+            journal.close();
+        }
+    }
+
+    @Test
+    @DisplayName("Ожидающий чужого сброса получает ошибку, если тот не удался, а не успех следующей пачки")
+    void waiterOnFailedBatch_isNotConfirmedByNextBatch() throws Exception {
+        FailingJournal journal = new FailingJournal(directory);
+        journal.open(0);
+        try {
+            long first = journal.likeChanged(1, 1, true, 0);
+            long second = journal.likeChanged(1, 2, true, 0);
+            journal.channel.failures = 1;
+            journal.channel.holdForce = new CountDownLatch(1);
+            CompletableFuture<Void> flusher = CompletableFuture.runAsync(() -> journal.awaitDurable(first));
+            assertTrue(journal.channel.inForce.await(10, TimeUnit.SECONDS));
+
+            // Пока сброс первой пачки висит в fsync, следующая запись копится во втором буфере
+            journal.likeChanged(1, 3, true, 0);
+            CompletableFuture<Void> waiter = CompletableFuture.runAsync(() -> journal.awaitDurable(second));
+            journal.channel.holdForce.countDown();
+
+            ExecutionException flusherError = assertThrows(ExecutionException.class,
+                    () -> flusher.get(10, TimeUnit.SECONDS));
+            assertInstanceOf(UncheckedIOException.class, flusherError.getCause());
+            ExecutionException waiterError = assertThrows(ExecutionException.class,
+                    () -> waiter.get(10, TimeUnit.SECONDS));
+            assertInstanceOf(UncheckedIOException.class, waiterError.getCause());
+            assertEquals(1, journal.channel.forces);
+        } finally {
+            journal.close();
+        }
+    }
+
+    @Test
+    @DisplayName("После ошибки fsync хранилища в памяти отклоняют изменения до того, как применить их")
+    void failedJournal_storagesRejectChangesBeforeApplying() throws IOException {
+        FailingJournal journal = new FailingJournal(directory);
+        journal.open(0);
+        InMemoryFilmStorage films = new InMemoryFilmStorage(journal);
+        InMemoryUserStorage users = new InMemoryUserStorage(journal);
+        try {
+            int filmId = films.create(film("film")).getId();
+            int userId = users.create(user("user")).getId();
+            int friendId = users.create(user("friend")).getId();
+
+            journal.channel.failures = 1;
+            assertThrows(UncheckedIOException.class, () -> films.addLike(filmId, userId));
+            Film filmBefore = films.getById(filmId);
+            long catalogBefore = films.getCatalogVersion().getAsLong();
+
+            Film rename = film("renamed");
+            rename.setId(filmId);
+            assertThrows(UncheckedIOException.class, () -> films.update(rename));
+            assertThrows(UncheckedIOException.class, () -> films.addLike(filmId, friendId));
+            assertThrows(UncheckedIOException.class, () -> films.removeLike(filmId, userId));
+            assertThrows(UncheckedIOException.class, () -> films.create(film("lost")));
+            assertThrows(UncheckedIOException.class, () -> users.addFriend(userId, friendId));
+            assertThrows(UncheckedIOException.class, () -> users.create(user("lost")));
+
+            assertSame(filmBefore, films.getById(filmId));
+            assertEquals(catalogBefore, films.getCatalogVersion().getAsLong());
+            assertEquals(1, films.getAll().size());
+            assertEquals(2, users.getAll().size());
+            assertTrue(users.getById(userId).getFriends().isEmpty());
+        } finally {
+            journal.close();
+        }
+    }
+
+    private static Film film(String name) {
+        Film film = new Film();
+        film.setName(name);
+        film.setReleaseDate(LocalDate.of(2000, 1, 1));
+        film.setDuration(100);
+        return film;
+    }
+
+    private static User user(String login) {
+        User user = new User();
+        user.setEmail(login + "@mail.ru");
+        user.setLogin(login);
+        user.setBirthday(LocalDate.of(2000, 1, 1));
+        return user;
+    }
+
+    private static final class FailingJournal extends StorageJournal {
+        private FailingChannel channel;
+
+        FailingJournal(Path directory) {
+            super(true, directory.toString(), "always", Duration.ofMillis(10));
+        }
+
+        @Override
+        FileChannel openChannel(Path path) throws IOException {
+            channel = new FailingChannel(super.openChannel(path));
+            return channel;
+        }
+    }
+
+    /**
+     * Канал файла, у которого fsync можно задержать, а несколько следующих — завершить ошибкой.
+     */
+    private static final class FailingChannel extends FileChannel {
+        private final FileChannel delegate;
+        private final CountDownLatch inForce = new CountDownLatch(1);
+        private volatile int failures;
+        private volatile CountDownLatch holdForce;
+        private volatile int forces;
+
+        FailingChannel(FileChannel delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public void force(boolean metaData) throws IOException {
+            inForce.countDown();
+            CountDownLatch hold = holdForce;
+            if (hold != null) {
+                try {
+                    hold.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            forces++;
+            if (failures > 0) {
+                failures--;
+                throw new IOException("Сбой диска");
+            }
+            delegate.force(metaData);
+        }
+
+        @Override
+        public int read(ByteBuffer dst) throws IOException {
+            return delegate.read(dst);
+        }
+
+        @Override
+        public long read(ByteBuffer[] dsts, int offset, int length) throws IOException {
+            return delegate.read(dsts, offset, length);
+        }
+
+        @Override
+        public int write(ByteBuffer src) throws IOException {
+            return delegate.write(src);
+        }
+
+        @Override
+        public long write(ByteBuffer[] srcs, int offset, int length) throws IOException {
+            return delegate.write(srcs, offset, length);
+        }
+
+        @Override
+        public long position() throws IOException {
+            return delegate.position();
+        }
+
+        @Override
+        public FileChannel position(long newPosition) throws IOException {
+            delegate.position(newPosition);
+            return this;
+        }
+
+        @Override
+        public long size() throws IOException {
+            return delegate.size();
+        }
+
+        @Override
+        public FileChannel truncate(long size) throws IOException {
+            delegate.truncate(size);
+            return this;
+        }
+
+        @Override
+        public long transferTo(long position, long count, WritableByteChannel target) throws IOException {
+            return delegate.transferTo(position, count, target);
+        }
+
+        @Override
+        public long transferFrom(ReadableByteChannel src, long position, long count) throws IOException {
+            return delegate.transferFrom(src, position, count);
+        }
+
+        @Override
+        public int read(ByteBuffer dst, long position) throws IOException {
+            return delegate.read(dst, position);
+        }
+
+        @Override
+        public int write(ByteBuffer src, long position) throws IOException {
+            return delegate.write(src, position);
+        }
+
+        @Override
+        public MappedByteBuffer map(MapMode mode, long position, long size) throws IOException {
+            return delegate.map(mode, position, size);
+        }
+
+        @Override
+        public FileLock lock(long position, long size, boolean shared) throws IOException {
+            return delegate.lock(position, size, shared);
+        }
+
+        @Override
+        public FileLock tryLock(long position, long size, boolean shared) throws IOException {
+            return delegate.tryLock(position, size, shared);
+        }
+
+        @Override
+        protected void implCloseChannel() throws IOException {
+            delegate.close();
+        }
+    }
+}
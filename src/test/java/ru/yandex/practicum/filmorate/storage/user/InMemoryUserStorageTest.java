@@ -0,0 +1,251 @@
+package ru.yandex.practicum.filmorate.storage.user;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.exception.NotFoundException;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.journal.StorageJournal;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+class InMemoryUserStorageTest {
+    private InMemoryUserStorage storage;
+
+    @BeforeEach
+    void setUp() {
+        storage = new InMemoryUserStorage();
+    }
+
+    @Test
+    @DisplayName("getCommonFriends — пересечение по возрастанию id с постраничной выдачей")
+    void getCommonFriends_returnsSortedPages() {
+        int first = create("first");
+        int second = create("second");
+        List<Integer> common = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            int friend = create("friend" + i);
+            storage.addFriend(first, friend);
+            if (i % 2 == 0) {
+                storage.addFriend(second, friend);
+                common.add(friend);
+            }
+        }
+        storage.addFriend(second, create("stranger"));
+
+        assertEquals(common, ids(storage.getCommonFriends(first, second, null, Integer.MAX_VALUE)));
+        assertEquals(common.subList(0, 2), ids(storage.getCommonFriends(first, second, null, 2)));
+        assertEquals(common.subList(2, 5), ids(storage.getCommonFriends(first, second, common.get(1), 10)));
+    }
+
+    @Test
+    @DisplayName("Версия списка друзей растёт при дружбе и при правке друга; версии других пользователей не меняются")
+    void friendsVersion_growsOnFriendshipAndFriendUpdate() {
+        int user = create("user");
+        int friend = create("friend");
+        int stranger = create("stranger");
+        long initial = storage.getFriendsVersion(user).getAsLong();
+        long strangerVersion = storage.getVersion(stranger).getAsLong();
+
+        storage.addFriend(user, friend);
+        long afterFriendship = storage.getFriendsVersion(user).getAsLong();
+        assertTrue(afterFriendship > initial);
+        assertFalse(storage.addFriend(friend, user));
+        assertEquals(afterFriendship, storage.getFriendsVersion(user).getAsLong());
+
+        User renamed = new User();
+        renamed.setId(friend);
+        renamed.setName("renamed");
+        storage.update(renamed);
+        long afterRename = storage.getFriendsVersion(user).getAsLong();
+        assertTrue(afterRename > afterFriendship);
+        assertEquals(afterRename, storage.getFriendsVersion(user).getAsLong());
+
+        assertEquals(strangerVersion, storage.getVersion(stranger).getAsLong());
+        assertTrue(storage.getCatalogVersion().getAsLong() >= afterRename);
+        assertFalse(storage.getFriendsVersion(999).isPresent());
+    }
+
+    @Test
+    @DisplayName("addFriends с отсутствующим пользователем не добавляет ни одной дружбы пачки")
+    void addFriends_missingUser_appliesNothing() {
+        int user = create("user");
+        int friend = create("friend");
+
+        assertThrows(NotFoundException.class,
+                () -> storage.addFriends(new int[]{user, user}, new int[]{friend, 999}));
+        assertTrue(storage.getById(user).getFriends().isEmpty());
+        assertTrue(storage.getById(friend).getFriends().isEmpty());
+    }
+
+    @Test
+    @DisplayName("Параллельные встречные addFriend/removeFriend — точное число рёбер, дружба симметрична")
+    void concurrentFriends_countsAreExact() throws Exception {
+        int userCount = 150;
+        int threads = 16;
+        for (int i = 0; i < userCount; i++) {
+            create("user" + i);
+        }
+
+        // Все потоки добавляют одни и те же рёбра, половина — во встречном направлении
+        runConcurrently(threads, thread -> {
+            for (int a = 1; a <= userCount; a++) {
+                for (int b = a + 1; b <= userCount; b++) {
+                    if (thread % 2 == 1) {
+                        storage.addFriend(b, a);
+                    } else {
+                        storage.addFriend(a, b);
+                    }
+                }
+            }
+        });
+        assertEquals((long) userCount * (userCount - 1), countEdges());
+
+        // Затем все потоки снимают рёбра, у которых сумма id кратна трём
+        runConcurrently(threads, thread -> {
+            for (int a = 1; a <= userCount; a++) {
+                for (int b = a + 1; b <= userCount; b++) {
+                    if ((a + b) % 3 == 0) {
+                        storage.removeFriend(thread % 2 == 1 ? b : a, thread % 2 == 1 ? a : b);
+                    }
+                }
+            }
+        });
+        long expected = 0;
+        for (int a = 1; a <= userCount; a++) {
+            for (int b = a + 1; b <= userCount; b++) {
+                if ((a + b) % 3 != 0) {
+                    expected += 2;
+                }
+            }
+        }
+        assertEquals(expected, countEdges());
+    }
+
+    @Test
+    @DisplayName("Секционированное хранилище — id уникальны под нагрузкой, getAll и страницы в порядке создания")
+    void partitionedCreates_mergeByCreationAcrossPartitions() throws Exception {
+        storage = new InMemoryUserStorage(StorageJournal.disabled(), 4);
+        assertEquals(List.of(1, 2, 3), List.of(create("a"), create("b"), create("c")));
+
+        int threads = 8;
+        int perThread = 500;
+        List<List<Integer>> created = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            created.add(new ArrayList<>());
+        }
+        runConcurrently(threads, thread -> {
+            for (int i = 0; i < perThread; i++) {
+                created.get(thread).add(create("user" + thread + "_" + i));
+            }
+        });
+
+        List<Integer> all = ids(new ArrayList<>(storage.getAll()));
+        assertEquals(3 + threads * perThread, all.size());
+        assertEquals(all.size(), all.stream().distinct().count());
+        // Создания одного потока упорядочены между собой, и в общем списке они идут в том же порядке
+        for (List<Integer> own : created) {
+            assertEquals(own, all.stream().filter(own::contains).toList());
+        }
+        List<Integer> paged = new ArrayList<>();
+        for (List<User> page = storage.getPage(null, 100); !page.isEmpty();
+             page = storage.getPage(page.get(page.size() - 1).getId(), 100)) {
+            paged.addAll(ids(page));
+        }
+        assertEquals(all, paged);
+        for (int id : all) {
+            assertEquals(id, storage.getById(id).getId());
+        }
+        assertEquals(List.of(), storage.getPage(Integer.MAX_VALUE, 100));
+    }
+
+    @Test
+    @DisplayName("После конкурентных созданий getAll и страницы идут в порядке создания, хотя id уже не подряд")
+    void createsAfterContention_keepCreationOrder() throws Exception {
+        storage = new InMemoryUserStorage(StorageJournal.disabled(), 4);
+        int threads = 8;
+        int perThread = 500;
+        runConcurrently(threads, thread -> {
+            for (int i = 0; i < perThread; i++) {
+                create("user" + thread + "_" + i);
+            }
+        });
+
+        ExecutorService first = Executors.newSingleThreadExecutor();
+        ExecutorService second = Executors.newSingleThreadExecutor();
+        try {
+            List<Integer> created = new ArrayList<>();
+            for (int i = 0; i < 20; i++) {
+                String login = "sequential" + i;
+                created.add((i % 2 == 0 ? first : second).submit(() -> create(login)).get());
+            }
+
+            List<Integer> all = ids(new ArrayList<>(storage.getAll()));
+            assertEquals(created, all.subList(all.size() - created.size(), all.size()));
+            assertEquals(created.subList(10, 20), ids(storage.getPage(created.get(9), 100)));
+        } finally {
+            first.shutdownNow();
+            second.shutdownNow();
+        }
+    }
+
+    private long countEdges() {
+        long edges = 0;
+        for (User user : storage.getAll()) {
+            for (Integer friendId : user.getFriends()) {
+                assertTrue(storage.getById(friendId).getFriends().contains(user.getId()));
+                edges++;
+            }
+        }
+        return edges;
+    }
+
+    private static void runConcurrently(int threads, ThreadTask task) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            CountDownLatch start = new CountDownLatch(1);
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                int thread = t;
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    task.run(thread);
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private interface ThreadTask {
+        void run(int thread);
+    }
+
+    private static List<Integer> ids(List<User> users) {
+        return users.stream().map(User::getId).toList();
+    }
+
+    private int create(String login) {
+        User user = new User();
+        user.setEmail(login + "@mail.ru");
+        user.setLogin(login);
+        user.setBirthday(LocalDate.of(2000, 1, 1));
+        return storage.create(user).getId();
+    }
+}
@@ -0,0 +1,75 @@
+package ru.yandex.practicum.filmorate.storage.user;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.exception.NotFoundException;
+import ru.yandex.practicum.filmorate.model.User;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class OffHeapUserStorageTest {
+    private OffHeapUserStorage storage;
+
+    @BeforeEach
+    void setUp() {
+        storage = new OffHeapUserStorage();
+    }
+
+    @Test
+    @DisplayName("Дружба взаимна, общие друзья по возрастанию id; версия списка друзей растёт при правке друга")
+    void friends_areMutualAndVersioned() {
+        int user = create("user");
+        int friend = create("friend");
+        int other = create("other");
+        storage.addFriend(user, friend);
+        storage.addFriend(other, friend);
+        storage.addFriend(other, user);
+        storage.removeFriend(other, user);
+
+        assertEquals(Set.of(friend), storage.getById(user).getFriends());
+        assertEquals(Set.of(user, other), storage.getById(friend).getFriends());
+        assertEquals(List.of(friend), ids(storage.getCommonFriends(user, other, null, 10)));
+        assertThrows(NotFoundException.class, () -> storage.addFriend(user, 999));
+
+        long version = storage.getFriendsVersion(user).getAsLong();
+        User renamed = new User();
+        renamed.setId(friend);
+        renamed.setName("renamed");
+        storage.update(renamed);
+        assertTrue(storage.getFriendsVersion(user).getAsLong() > version);
+        assertEquals("renamed", storage.getByIds(List.of(friend)).get(0).getName());
+        assertEquals("friend", storage.getById(friend).getLogin());
+    }
+
+    @Test
+    @DisplayName("create — пустое имя заменяется логином; страницы по id")
+    void create_defaultsNameAndPages() {
+        int first = create("first");
+        int second = create("second");
+        int third = create("third");
+
+        assertEquals("first", storage.getById(first).getName());
+        assertEquals(LocalDate.of(2000, 1, 1), storage.getById(first).getBirthday());
+        assertEquals(List.of(second, third), ids(storage.getPage(first, 10)));
+        assertEquals(List.of(first, second, third), storage.getAll().stream().map(User::getId).toList());
+    }
+
+    private int create(String login) {
+        User user = new User();
+        user.setEmail(login + "@mail.ru");
+        user.setLogin(login);
+        user.setBirthday(LocalDate.of(2000, 1, 1));
+        return storage.create(user).getId();
+    }
+
+    private static List<Integer> ids(List<User> users) {
+        return users.stream().map(User::getId).toList();
+    }
+}
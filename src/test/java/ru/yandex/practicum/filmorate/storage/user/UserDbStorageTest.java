@@ -0,0 +1,104 @@
+package ru.yandex.practicum.filmorate.storage.user;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.JdbcTest;
+import org.springframework.context.annotation.Import;
+import ru.yandex.practicum.filmorate.exception.NotFoundException;
+import ru.yandex.practicum.filmorate.model.User;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@JdbcTest(properties = "filmorate.storage=db")
+@Import(UserDbStorage.class)
+class UserDbStorageTest {
+    @Autowired
+    private UserDbStorage storage;
+
+    @Test
+    @DisplayName("addFriend/removeFriend — дружба симметрична, снимается с обеих сторон, повтор ничего не меняет")
+    void friendship_isSymmetric() {
+        int first = create("first");
+        int second = create("second");
+        assertTrue(storage.addFriend(first, second));
+        assertFalse(storage.addFriend(second, first));
+
+        assertEquals(Set.of(second), storage.getById(first).getFriends());
+        assertEquals(Set.of(first), storage.getById(second).getFriends());
+
+        assertTrue(storage.removeFriend(second, first));
+        assertFalse(storage.removeFriend(first, second));
+        assertTrue(storage.getById(first).getFriends().isEmpty());
+        assertTrue(storage.getById(second).getFriends().isEmpty());
+        assertThrows(NotFoundException.class, () -> storage.addFriend(first, -1));
+    }
+
+    @Test
+    @DisplayName("getCommonFriends — пересечение по возрастанию id с постраничной выдачей")
+    void getCommonFriends_returnsSortedPages() {
+        int first = create("first");
+        int second = create("second");
+        List<Integer> common = new ArrayList<>();
+        for (int i = 0; i < 6; i++) {
+            int friend = create("friend" + i);
+            storage.addFriend(first, friend);
+            if (i % 2 == 0) {
+                storage.addFriend(second, friend);
+                common.add(friend);
+            }
+        }
+        storage.addFriend(second, create("stranger"));
+
+        assertEquals(common, ids(storage.getCommonFriends(first, second, null, 10)));
+        assertEquals(common.subList(1, 3), ids(storage.getCommonFriends(first, second, common.get(0), 10)));
+        assertEquals(common.subList(0, 1), ids(storage.getCommonFriends(first, second, null, 1)));
+    }
+
+    @Test
+    @DisplayName("getFriendIds — id друзей по пользователям, без друзей и отсутствующие не попадают")
+    void getFriendIds_returnsFriendSets() {
+        int first = create("first");
+        int second = create("second");
+        int third = create("third");
+        int lonely = create("lonely");
+        storage.addFriend(first, second);
+        storage.addFriend(first, third);
+
+        assertEquals(Map.of(first, Set.of(second, third), second, Set.of(first)),
+                storage.getFriendIds(List.of(first, second, lonely, -1)));
+        assertEquals(Map.of(), storage.getFriendIds(List.of()));
+    }
+
+    @Test
+    @DisplayName("create — пустое имя заменяется логином")
+    void create_blankName_usesLogin() {
+        User user = new User();
+        user.setEmail("login@mail.ru");
+        user.setLogin("login");
+        user.setName("");
+
+        assertEquals("login", storage.getById(storage.create(user).getId()).getName());
+    }
+
+    private int create(String login) {
+        User user = new User();
+        user.setEmail(login + "@mail.ru");
+        user.setLogin(login);
+        user.setBirthday(LocalDate.of(2000, 1, 1));
+        return storage.create(user).getId();
+    }
+
+    private static List<Integer> ids(List<User> users) {
+        return users.stream().map(User::getId).toList();
+    }
+}